@@ -0,0 +1,207 @@
+package com.example.couriersimulator;
+
+import android.Manifest;
+import android.content.Context;
+import android.os.Build;
+import android.os.Looper;
+import android.os.StrictMode;
+import android.os.SystemClock;
+import android.os.strictmode.Violation;
+import android.util.Log;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.rule.GrantPermissionRule;
+
+import com.example.couriersimulator.cards.CardManager;
+import com.example.couriersimulator.orders.Order;
+import com.example.couriersimulator.sim.GameSession;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Главный поток под StrictMode: чтение и запись диска, сеть и ожидание фоновых задач
+ * (AppExecutors.noteBlockingWait) из кода приложения проваливают тест.
+ * - экраны запускаются, восстанавливают игру и пересоздаются (поворот) без нарушений
+ * - коллекция карточек и мир симуляции отвечают колбэками на главном потоке,
+ *   а сами изменения идут на потоке игры
+ * Нарушения внутри библиотек, которых код приложения не вызывал (стек без наших классов),
+ * не считаются. Нарушения собирает penaltyListener, поэтому нужен Android 9+.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MainThreadStrictModeTest {
+
+    private static final String APP_PACKAGE = "com.example.couriersimulator.";
+    // Сколько ждать фоновые этапы запуска (настройки карты, журнал, каталог, дороги)
+    private static final long SETTLE_MILLIS = 3000;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Rule
+    public final GrantPermissionRule permissions = GrantPermissionRule.grant(
+            Manifest.permission.ACCESS_FINE_LOCATION, Manifest.permission.ACCESS_COARSE_LOCATION);
+
+    private final List<Violation> violations = new CopyOnWriteArrayList<>();
+    private StrictMode.ThreadPolicy previousPolicy;
+
+    @Before
+    public void enforceOnMainThread() {
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.P);
+        runOnMain(() -> {
+            previousPolicy = StrictMode.getThreadPolicy();
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .detectNetwork()
+                    .detectCustomSlowCalls()
+                    .penaltyListener(Runnable::run, violations::add)
+                    .build());
+        });
+    }
+
+    @After
+    public void restorePolicy() {
+        if (previousPolicy != null) {
+            runOnMain(() -> StrictMode.setThreadPolicy(previousPolicy));
+        }
+    }
+
+    @Test
+    public void mainScreenStartsPlaysAndRecreates() {
+        try (ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class)) {
+            settle();
+            scenario.onActivity(activity -> {
+                activity.findViewById(R.id.btnRefresh).performClick();
+                activity.findViewById(R.id.btnOrders).performClick();
+                activity.findViewById(R.id.btnDeliver).performClick();
+            });
+            settle();
+            // Поворот экрана: мир заново восстанавливается из журнала
+            scenario.recreate();
+            settle();
+        }
+        assertNoAppViolations();
+    }
+
+    @Test
+    public void collectionScreenShowsCardsWithoutMainThreadIo() throws InterruptedException {
+        try (ActivityScenario<CollectionCardsActivity> scenario =
+                     ActivityScenario.launch(CollectionCardsActivity.class)) {
+            long deadline = SystemClock.uptimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+            AtomicBoolean shown = new AtomicBoolean();
+            while (!shown.get() && SystemClock.uptimeMillis() < deadline) {
+                Thread.sleep(100);
+                scenario.onActivity(activity -> {
+                    RecyclerView cards = activity.findViewById(R.id.rvCards);
+                    shown.set(cards.getAdapter() != null && cards.getAdapter().getItemCount() > 0);
+                });
+            }
+            assertTrue("Collection was not shown", shown.get());
+        }
+        assertNoAppViolations();
+    }
+
+    @Test
+    public void statsScreenBuildsTextsInBackground() {
+        try (ActivityScenario<StatsActivity> scenario = ActivityScenario.launch(StatsActivity.class)) {
+            settle();
+        }
+        assertNoAppViolations();
+    }
+
+    @Test
+    public void cardCollectionArrivesOnMainThread() throws InterruptedException {
+        Context context = ApplicationProvider.getApplicationContext();
+        CountDownLatch loaded = new CountDownLatch(1);
+        AtomicBoolean onMain = new AtomicBoolean();
+        runOnMain(() -> CardManager.getCollection(context, (catalog, owned) -> {
+            onMain.set(Looper.myLooper() == Looper.getMainLooper());
+            loaded.countDown();
+        }));
+        assertTrue(loaded.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(onMain.get());
+        assertNoAppViolations();
+    }
+
+    @Test
+    public void gameSessionChangesWorldOffMainThread() throws InterruptedException {
+        Context context = ApplicationProvider.getApplicationContext();
+        List<GameSession.Snapshot> snapshots = new CopyOnWriteArrayList<>();
+        CountDownLatch restored = new CountDownLatch(1);
+        AtomicReference<GameSession> session = new AtomicReference<>();
+        runOnMain(() -> session.set(GameSession.open(context, snapshots::add, saved -> restored.countDown())));
+        assertTrue(restored.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse("First snapshot comes before onRestored", snapshots.isEmpty());
+
+        CountDownLatch answered = new CountDownLatch(1);
+        AtomicBoolean onMain = new AtomicBoolean();
+        AtomicReference<Order> accepted = new AtomicReference<>();
+        runOnMain(() -> {
+            session.get().moveTo(55.7558, 37.6173);
+            session.get().advance();
+            // Такого заказа нет: симуляция отвечает null, но тоже с потока игры
+            session.get().accept(Long.MIN_VALUE, order -> {
+                onMain.set(Looper.myLooper() == Looper.getMainLooper());
+                accepted.set(order);
+                answered.countDown();
+            });
+        });
+        assertTrue(answered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        runOnMain(() -> session.get().close());
+
+        assertTrue(onMain.get());
+        assertNull(accepted.get());
+        assertNoAppViolations();
+    }
+
+    private static void runOnMain(Runnable action) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(action);
+    }
+
+    private static void settle() {
+        SystemClock.sleep(SETTLE_MILLIS);
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+    }
+
+    private void assertNoAppViolations() {
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        StringBuilder report = new StringBuilder();
+        for (Violation v : violations) {
+            if (fromAppCode(v)) {
+                report.append(Log.getStackTraceString(v)).append('\n');
+            }
+        }
+        assertEquals("StrictMode violations on the main thread:\n" + report, 0, report.length());
+    }
+
+    // Нарушение случилось в вызове из кода приложения (сам тест не считается)
+    private static boolean fromAppCode(Violation v) {
+        for (StackTraceElement frame : v.getStackTrace()) {
+            String className = frame.getClassName();
+            if (className.startsWith(APP_PACKAGE)
+                    && !className.startsWith(MainThreadStrictModeTest.class.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -4,38 +4,88 @@ import android.os.Bundle;
 
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.couriersimulator.cards.CardItem;
 import com.example.couriersimulator.cards.CardManager;
 import com.example.couriersimulator.cards.CollectibleCard;
 import com.example.couriersimulator.cards.CollectibleCardAdapter;
 import com.example.couriersimulator.R;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 /**
  * Активити, которое показывает коллекционные карточки (велосипеды):
- * - RecyclerView со списком
+ * - RecyclerView с сеткой карточек
  * - Нажатие на карточку открывает диалог с большим изображением и описанием
+ * - Коллекция приходит колбэком (CardManager.getCollection), список обновляется
+ *   инкрементально: при возврате на экран пересоздаются только строки, у которых
+ *   поменялся флаг владения
  */
 public class CollectionCardsActivity extends AppCompatActivity {
 
+    private static final int SPAN_COUNT = 3;
+    // Сколько готовых ячеек держать вне экрана для быстрой прокрутки назад
+    private static final int VIEW_CACHE_SIZE = SPAN_COUNT * 4;
+
     private RecyclerView rvCards;
     private CollectibleCardAdapter adapter;
 
+    // Прошлый показанный список (только главный поток)
+    private List<CardItem> lastItems;
+    private BitSet lastOwned;
+
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_collection_cards);
 
         rvCards = findViewById(R.id.rvCards);
-        rvCards.setLayoutManager(new LinearLayoutManager(this));
+        GridLayoutManager layoutManager = new GridLayoutManager(this, SPAN_COUNT);
+        layoutManager.setItemPrefetchEnabled(true);
+        rvCards.setLayoutManager(layoutManager);
+        rvCards.setHasFixedSize(true);
+        rvCards.setItemViewCacheSize(VIEW_CACHE_SIZE);
 
-        // Загружаем все карточки (учитывая их статус из SharedPreferences)
-        List<CollectibleCard> allCards = CardManager.getAllCards(this);
-
-        adapter = new CollectibleCardAdapter(this, allCards);
+        adapter = new CollectibleCardAdapter(this);
         rvCards.setAdapter(adapter);
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Карточка могла выпасть, пока экран был скрыт: пересобираем изменившиеся строки
+        CardManager.getCollection(this, (catalog, owned) -> {
+            if (!isDestroyed()) {
+                adapter.submitList(buildItems(catalog.getCards(), owned));
+            }
+        });
+    }
+
+    /**
+     * Строки для адаптера. Строки карточек с прежним флагом владения берутся
+     * из предыдущего списка, новые создаются только для изменившихся карточек.
+     */
+    private List<CardItem> buildItems(List<CollectibleCard> cards, BitSet owned) {
+        List<CardItem> items;
+        if (lastItems == null || lastItems.size() != cards.size()) {
+            items = new ArrayList<>(cards.size());
+            for (CollectibleCard card : cards) {
+                items.add(new CardItem(card, owned.get(card.getOrdinal())));
+            }
+        } else {
+            items = new ArrayList<>(lastItems);
+            BitSet changed = (BitSet) owned.clone();
+            changed.xor(lastOwned);
+            for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+                items.set(i, new CardItem(cards.get(i), owned.get(i)));
+            }
+        }
+        lastItems = items;
+        lastOwned = owned;
+        return items;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.couriersimulator;
+
+import android.app.Application;
+import android.content.pm.ApplicationInfo;
+import android.os.Build;
+import android.os.StrictMode;
+
+import com.example.couriersimulator.concurrent.AppExecutors;
+import com.example.couriersimulator.metrics.Counter;
+import com.example.couriersimulator.metrics.Metrics;
+
+/**
+ * Процесс приложения. В отладочных сборках включает StrictMode: диск, сеть
+ * и долгие ожидания фоновых задач (AppExecutors.noteBlockingWait) на главном потоке
+ * видны в logcat и вспышкой экрана, а их число — в метрике "strictmode.violations"
+ * (панель метрик, MetricsDump).
+ */
+public class CourierApplication extends Application {
+
+    private static final Counter STRICT_MODE_VIOLATIONS = Metrics.counter("strictmode.violations");
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            enableStrictMode();
+        }
+    }
+
+    private static void enableStrictMode() {
+        StrictMode.ThreadPolicy.Builder thread = new StrictMode.ThreadPolicy.Builder()
+                .detectDiskReads()
+                .detectDiskWrites()
+                .detectNetwork()
+                .detectCustomSlowCalls()
+                .detectResourceMismatches()
+                .penaltyLog()
+                .penaltyFlashScreen();
+        StrictMode.VmPolicy.Builder vm = new StrictMode.VmPolicy.Builder()
+                .detectActivityLeaks()
+                .detectLeakedClosableObjects()
+                .detectLeakedRegistrationObjects()
+                .penaltyLog();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            thread.penaltyListener(AppExecutors.io(), v -> STRICT_MODE_VIOLATIONS.inc());
+            vm.penaltyListener(AppExecutors.io(), v -> STRICT_MODE_VIOLATIONS.inc());
+        }
+        StrictMode.setThreadPolicy(thread.build());
+        StrictMode.setVmPolicy(vm.build());
+    }
+}
@@ -6,27 +6,49 @@ import androidx.core.app.ActivityCompat;
 
 import android.Manifest;
 import android.content.Intent;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.location.Location;
-import android.location.LocationListener;
-import android.location.LocationManager;
 import android.os.Bundle;
-import android.preference.PreferenceManager;
-import android.view.LayoutInflater;
-import android.view.View;
-import android.widget.ArrayAdapter;
-import android.widget.ListView;
+import android.os.SystemClock;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
 import android.widget.Toast;
 
 import com.example.couriersimulator.cards.CardManager;            // <-- Наш менеджер карточек
 import com.example.couriersimulator.cards.CollectibleCard;       // <-- Модель карточки (при необходимости)
 import com.example.couriersimulator.R;                           // <-- Ссылка на ресурсы c
-import com.google.android.material.bottomsheet.BottomSheetDialog;
+import com.example.couriersimulator.concurrent.ScreenTasks;
+import com.example.couriersimulator.geo.GeoMath;
+import com.example.couriersimulator.location.AdaptiveLocationScheduler;
+import com.example.couriersimulator.location.ScheduledLocationProvider;
+import com.example.couriersimulator.map.HeatTrailOverlay;
+import com.example.couriersimulator.map.OrderClusterOverlay;
+import com.example.couriersimulator.map.MapStartup;
+import com.example.couriersimulator.map.RoadNetwork;
+import com.example.couriersimulator.map.RouteOverlay;
+import com.example.couriersimulator.map.TileCacheManager;
+import com.example.couriersimulator.map.TravelHistory;
+import com.example.couriersimulator.loot.LootTable;
+import com.example.couriersimulator.metrics.FrameTimeTracker;
+import com.example.couriersimulator.metrics.Metrics;
+import com.example.couriersimulator.metrics.MetricsDump;
+import com.example.couriersimulator.metrics.MetricsOverlay;
+import com.example.couriersimulator.metrics.Timer;
+import com.example.couriersimulator.net.SharedWorld;
+import com.example.couriersimulator.orders.Order;
+import com.example.couriersimulator.orders.OrderDistanceList;
+import com.example.couriersimulator.orders.OrdersSheet;
+import com.example.couriersimulator.road.RoadGraph;
+import com.example.couriersimulator.road.RoadRoute;
+import com.example.couriersimulator.road.RoadRouter;
+import com.example.couriersimulator.sim.GameSession;
+import com.example.couriersimulator.store.GameEvent;
+import com.example.couriersimulator.store.GameState;
+import com.example.couriersimulator.store.GameStore;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
-import org.osmdroid.config.Configuration;
-import org.osmdroid.library.BuildConfig;
 import org.osmdroid.tileprovider.tilesource.TileSourceFactory;
 import org.osmdroid.util.GeoPoint;
 import org.osmdroid.views.CustomZoomButtonsController;
@@ -34,57 +56,119 @@ import org.osmdroid.views.MapView;
 import org.osmdroid.views.overlay.Marker;
 import org.osmdroid.views.overlay.mylocation.MyLocationNewOverlay;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.Locale;
 
+/**
+ * Главный экран: карта и кнопки. Игровая логика (заказы, доставка, карточки)
+ * живёт в Simulation из модуля :core на потоке игры (GameSession); активити только
+ * передаёт туда координаты и нажатия и показывает пришедшие снимки мира.
+ */
 public class MainActivity extends AppCompatActivity {
 
+    // Контейнер, в который карта добавляется на втором этапе запуска
+    private FrameLayout mapContainer;
     private MapView mapView;
+    private TileCacheManager tileCache;
+    // Фоновые задачи и колбэки экрана; отменяются в onDestroy
+    private ScreenTasks tasks;
     private MyLocationNewOverlay myLocationOverlay;
-    private LocationManager locationManager;
-    private LocationListener locationListener;
+    // Все открытые заказы рисуются одним слоем с кластеризацией
+    private OrderClusterOverlay orderClusterOverlay;
+    private double[] orderPoints = new double[0];
+    // Линия маршрута по дорогам; граф дорог грузится в фоне и может отсутствовать
+    private RouteOverlay routeOverlay;
+    private RoadGraph roads;
+    // Откуда проложена текущая линия маршрута
+    private double routedFromLat;
+    private double routedFromLng;
+    // Частота обновлений зависит от расстояния до точки доставки
+    private AdaptiveLocationScheduler locationScheduler;
+    // Фиксы планировщика для "синей точки": своей подписки на GPS у слоя нет
+    private final ScheduledLocationProvider myLocationFeed = new ScheduledLocationProvider();
+    // Отладочная панель метрик и замер кадров (долгое нажатие на "Статистику")
+    private MetricsOverlay metricsOverlay;
+    private FrameTimeTracker frameTracker;
+    // Карта создана, состояние игры восстановлено (второй этап запуска пройден)
+    private boolean mapReady;
+    private boolean resumed;
+    // Отложенная перерисовка следа (см. scheduleTrailRedraw)
+    private boolean trailRedrawPending;
+    private long lastTrailRedrawMillis;
 
     private FloatingActionButton btnCenter;
     private MaterialButton btnOrders;
     private MaterialButton btnRefresh;
     private MaterialButton btnDeliver;
     private MaterialButton btnCollection; // <- Новая кнопка "Коллекция"
-
-    private List<String> orderList = new ArrayList<>();
-    private GeoPoint currentOrderGeoPoint = null;
-    private Marker currentOrderMarker = null;
+    private FloatingActionButton btnStats;
+
+    // Игровой мир на потоке игры (игрока двигает GPS) и последний пришедший от него снимок
+    private GameSession session;
+    private GameSession.Snapshot world;
+    // Открытые заказы по расстоянию от игрока; порядок обновляется на каждом фиксе
+    private final OrderDistanceList orderDistances = new OrderDistanceList();
+    // Список заказов; создаётся один раз и переиспользуется
+    private OrdersSheet ordersSheet;
+    // Метки принятых заказов в порядке объезда; создаются по мере надобности и переиспользуются
+    private final List<Marker> routeMarkers = new ArrayList<>();
+    // Только очередь tasks (см. updateRouteLine)
+    private RoadRouter lineRouter;
+    // Общий мир с сервера вместо своего потока заказов (только отладочная сборка)
+    private SharedWorld sharedWorld;
 
     private double userLat = 0.0;
     private double userLng = 0.0;
 
-    // Генерация псевдо-случайного заказа ~3 км
-    private static final double RANDOM_OFFSET = 0.03;
-    // Радиус, в котором кнопка "Доставить" активируется
-    private static final float DELIVERY_RADIUS_METERS = 20f;
+    // Как часто часы симуляции подтягиваются к реальному времени, пока экран на переднем плане
+    private static final long SIM_POLL_MILLIS = 1000;
+    // Линия маршрута перестраивается, когда игрок отошёл от её начала дальше этого
+    private static final double REROUTE_METERS = 50;
+    // След на карте перерисовывается после фиксов не чаще этого
+    private static final long TRAIL_REDRAW_MILLIS = 2000;
 
     private static final int PERMISSION_REQUEST_CODE = 1001;
 
+    // Проигрывание трека вместо GPS (только отладочная сборка), например:
+    // adb shell am start -n com.example.couriersimulator/.MainActivity \
+    //     --es replay_trace walk.gpx --ef replay_speed 20 --ez replay_loop true
+    // Относительный путь ищется в getExternalFilesDir("traces").
+    private static final String EXTRA_REPLAY_TRACE = "replay_trace";
+    private static final String EXTRA_REPLAY_SPEED = "replay_speed";
+    private static final String EXTRA_REPLAY_LOOP = "replay_loop";
+    // Заказы общего мира с локального сервера (./gradlew :core:runWorldServer), например:
+    //     --es shared_world 10.0.2.2:7455
+    private static final String EXTRA_SHARED_WORLD = "shared_world";
+
+    private static final Timer ON_CREATE_TIMER = Metrics.timer("startup.onCreate");
+    private static final Timer MAP_ATTACH_TIMER = Metrics.timer("startup.mapAttach");
+    private static final Timer ORDERS_SHEET_TIMER = Metrics.timer("ui.ordersSheet");
+    private static final Timer LOCATION_FIX_TIMER = Metrics.timer("location.fix");
+    private static final Timer DELIVER_TIMER = Metrics.timer("game.deliver");
+    private static final Timer ORDERS_SORT_TIMER = Metrics.timer("orders.sortByDistance");
+    private static final Timer ROUTE_LINE_TIMER = Metrics.timer("road.routeLine");
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        long createStart = ON_CREATE_TIMER.start();
         super.onCreate(savedInstanceState);
 
-        // Инициализация OSMDroid
-        Configuration.getInstance().setUserAgentValue(BuildConfig.APPLICATION_ID);
-        Configuration.getInstance().load(
-                getApplicationContext(),
-                PreferenceManager.getDefaultSharedPreferences(getApplicationContext())
-        );
+        // Запуск по этапам: сначала оболочка экрана (первый кадр), карта — когда
+        // в фоне загрузятся настройки osmdroid, "синяя точка" — после первой раскладки карты.
+        // Журнал игры, настройки карты и каталог карточек читаются в фоне параллельно.
+        GameStore.preload(this);
+        MapStartup.preload(this);
+        CardManager.preload(this);
+        RoadNetwork.preload(this);
+        tasks = new ScreenTasks(this);
 
         setContentView(R.layout.activity_main);
 
         // Инициализируем элементы UI
-        mapView = findViewById(R.id.map);
-        mapView.getZoomController().setVisibility(CustomZoomButtonsController.Visibility.NEVER);
-        mapView.setTileSource(TileSourceFactory.MAPNIK);
-        mapView.setMultiTouchControls(true);
-        mapView.getController().setZoom(14.0);
-
+        mapContainer = findViewById(R.id.mapContainer);
         btnCenter = findViewById(R.id.btnCenter);
         btnOrders = findViewById(R.id.btnOrders);
         btnRefresh = findViewById(R.id.btnRefresh);
@@ -99,189 +183,412 @@ public class MainActivity extends AppCompatActivity {
             startActivity(intent);
         });
 
-        // Слой с "синей точкой" локации
-        myLocationOverlay = new MyLocationNewOverlay(mapView);
-        myLocationOverlay.enableMyLocation();
-        mapView.getOverlays().add(myLocationOverlay);
-
-        // Локация (GPS)
-        locationManager = (LocationManager) getSystemService(LOCATION_SERVICE);
-        locationListener = new LocationListener() {
-            @Override
-            public void onLocationChanged(@NonNull Location location) {
-                userLat = location.getLatitude();
-                userLng = location.getLongitude();
-                // Если есть текущий заказ, проверяем расстояние
-                if (currentOrderGeoPoint != null) {
-                    float dist = distanceBetween(
-                            userLat, userLng,
-                            currentOrderGeoPoint.getLatitude(), currentOrderGeoPoint.getLongitude()
-                    );
-                    btnDeliver.setEnabled(dist <= DELIVERY_RADIUS_METERS);
-                }
-            }
-            @Override public void onProviderEnabled(@NonNull String provider) {}
-            @Override public void onProviderDisabled(@NonNull String provider) {}
-            @Override public void onStatusChanged(String provider, int status, Bundle extras) {}
-        };
+        btnStats = findViewById(R.id.btnStats);
+        btnStats.setOnClickListener(v -> startActivity(new Intent(this, StatsActivity.class)));
 
-        checkLocationPermission();
+        tileCache = new TileCacheManager(this);
+        // Локация (GPS/сеть/fused); подписка — только когда карта готова
+        locationScheduler = new AdaptiveLocationScheduler(this, this::onLocationChanged);
 
-        // Восстанавливаем состояние (если переворот экрана)
-        if (savedInstanceState != null) {
-            restoreStateFromBundle(savedInstanceState);
-        } else {
-            // Иначе загружаем начальный список заказов
-            loadInitialOrders();
+        MapStartup.whenReady(this, tasks.bind(this::attachMap));
+
+        ON_CREATE_TIMER.stop(createStart);
+    }
+
+    /** Второй этап запуска: карта, слои, состояние игры, подписка на локацию */
+    private void attachMap() {
+        if (isFinishing() || isDestroyed()) {
+            return;
         }
+        long attachStart = MAP_ATTACH_TIMER.start();
+        android.os.Trace.beginSection("MainActivity.attachMap");
 
-        // Если уже есть заказ, отрисуем метку заново
-        if (currentOrderGeoPoint != null) {
-            drawOrderMarker(currentOrderGeoPoint, "Текущий заказ");
+        mapView = new MapView(this);
+        mapView.setId(R.id.map);
+        mapContainer.addView(mapView, new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        mapView.getZoomController().setVisibility(CustomZoomButtonsController.Visibility.NEVER);
+        mapView.setTileSource(TileSourceFactory.MAPNIK);
+        tileCache.applyTo(mapView, this::onOfflineArchiveMissing);
+        mapView.setMultiTouchControls(true);
+        mapView.getController().setZoom(14.0);
+
+        // След игрока и плотность доставок — самый нижний слой
+        mapView.getOverlays().add(new HeatTrailOverlay(mapView, TravelHistory.trail(), TravelHistory.deliveries()));
+        // Слой с открытыми заказами (под остальными слоями)
+        orderClusterOverlay = new OrderClusterOverlay(getResources().getDisplayMetrics().density);
+        mapView.getOverlays().add(orderClusterOverlay);
+        // Линия маршрута — над заказами, под метками точек доставки
+        routeOverlay = new RouteOverlay(getResources().getDisplayMetrics().density);
+        mapView.getOverlays().add(routeOverlay);
+
+        // Панель метрик — поверх всех слоев
+        metricsOverlay = new MetricsOverlay(mapView, getResources().getDisplayMetrics().density);
+        mapView.getOverlays().add(metricsOverlay);
+        frameTracker = new FrameTimeTracker(getWindowManager().getDefaultDisplay().getRefreshRate());
+
+        // Состояние из журнала (и после поворота экрана, и после перезапуска процесса)
+        // восстанавливается на потоке игры. Для новой игры заказы появятся после первой локации.
+        session = GameSession.open(this, this::onWorldChanged, this::onGameRestored);
+
+        // Третий этап — после первой раскладки карты
+        mapView.addOnFirstLayoutListener((v, left, top, right, bottom) -> onMapInteractive());
+
+        android.os.Trace.endSection();
+        MAP_ATTACH_TIMER.stop(attachStart);
+    }
+
+    /**
+     * Мир восстановлен, первый снимок уже пришёл (маршрут и заказы на карте):
+     * кнопки, часы симуляции, дороги, подписка на локацию.
+     */
+    private void onGameRestored(GameState saved) {
+        if (saved.hasPosition()) {
+            userLat = saved.getLat();
+            userLng = saved.getLng();
+        }
+        orderDistances.setOrigin(userLat, userLng);
+        Order currentOrder = world.getCurrentOrder();
+        if (currentOrder != null) {
+            updateRouteLine();
+            centerOn(currentOrder);
         }
 
         // Обработчики кликов
         btnCenter.setOnClickListener(v -> centerMapOnUser());
+        btnCenter.setOnLongClickListener(v -> {
+            toggleOfflineMap();
+            return true;
+        });
         btnOrders.setOnClickListener(v -> showOrdersBottomSheet());
         btnRefresh.setOnClickListener(v -> refreshOrders());
         btnDeliver.setOnClickListener(v -> deliverOrder());
+        btnStats.setOnLongClickListener(v -> {
+            toggleMetricsOverlay();
+            return true;
+        });
+
+        mapReady = true;
+        if (resumed) {
+            mapView.post(simPoll);
+        }
+        RoadNetwork.whenLoaded(this, graph -> {
+            if (!isDestroyed()) {
+                onRoadsLoaded(graph);
+            }
+        });
+        startReplayFromIntent(getIntent());
+        startSharedWorldFromIntent(getIntent());
+        checkLocationPermission();
     }
 
-    /** Начальные заказы */
-    private void loadInitialOrders() {
-        orderList.clear();
-        orderList.add("Доставка пиццы");
-        orderList.add("Доставка документов");
-        orderList.add("Продукты из магазина");
-        orderList.add("Заказ из аптеки");
+    /** Снимок мира с потока игры: список и слой заказов, маршрут, кнопка "Доставить" */
+    private void onWorldChanged(GameSession.Snapshot snapshot) {
+        world = snapshot;
+        if (snapshot.hasOrderChanges()) {
+            for (long id : snapshot.getRemoved()) {
+                orderDistances.remove(id);
+            }
+            for (Order o : snapshot.getAdded()) {
+                orderDistances.add(o);
+            }
+            // Слой на карте — один раз за снимок, а не на каждый заказ
+            updateOrderOverlay();
+        }
+        for (Order o : snapshot.getDelivered()) {
+            TravelHistory.deliveries().add(o.getDropoffLat(), o.getDropoffLng());
+        }
+        btnDeliver.setEnabled(snapshot.canDeliver());
+        if (snapshot.isRouteChanged()) {
+            showRoute();
+        }
     }
 
-    /** "Обновить" — добавляем новые заказы для примера */
-    private void refreshOrders() {
-        orderList.add("Новая посылка");
-        orderList.add("Цветы на праздник");
-        Toast.makeText(this, "Список заказов обновлён!", Toast.LENGTH_SHORT).show();
+    /**
+     * Карта разложена и отвечает на жесты: подключаем "синюю точку"
+     * (её питают фиксы планировщика) и сообщаем системе о полной готовности экрана.
+     */
+    private void onMapInteractive() {
+        if (isDestroyed()) {
+            return;
+        }
+        myLocationOverlay = new MyLocationNewOverlay(myLocationFeed, mapView);
+        // Панель метрик остаётся верхним слоем
+        mapView.getOverlays().add(mapView.getOverlays().indexOf(metricsOverlay), myLocationOverlay);
+        if (resumed) {
+            myLocationOverlay.enableMyLocation();
+        }
+        reportFullyDrawn();
     }
 
-    /** Показать BottomSheetDialog со списком заказов */
-    private void showOrdersBottomSheet() {
-        if (orderList.isEmpty()) {
-            Toast.makeText(this, "Нет доступных заказов", Toast.LENGTH_SHORT).show();
+    /** Новый фикс, уже отобранный планировщиком локации */
+    private void onLocationChanged(@NonNull Location location) {
+        long fixStart = LOCATION_FIX_TIMER.start();
+        userLat = location.getLatitude();
+        userLng = location.getLongitude();
+        myLocationFeed.onFix(location);
+        // Карта перерисовывается, только если точка задела уже нарисованный тайл следа,
+        // и не чаще TRAIL_REDRAW_MILLIS; слой истории перерисует лишь задетые тайлы
+        if (TravelHistory.trail().add(userLat, userLng)) {
+            scheduleTrailRedraw();
+        }
+        session.moveTo(userLat, userLng);
+        long sortStart = ORDERS_SORT_TIMER.start();
+        orderDistances.setOrigin(userLat, userLng);
+        ORDERS_SORT_TIMER.stop(sortStart);
+        if (ordersSheet != null) {
+            ordersSheet.onOrdersChanged();
+        }
+        // Радиус доставки и смену текущего заказа (у точки другого заказа из маршрута)
+        // проверяет поток игры и присылает снимок; здесь только догоняем линию маршрута
+        if (GeoMath.distanceSquaredMeters(userLat, userLng, routedFromLat, routedFromLng)
+                > REROUTE_METERS * REROUTE_METERS) {
+            updateRouteLine();
+        }
+        LOCATION_FIX_TIMER.stop(fixStart);
+    }
+
+    /**
+     * Граф дорог готов (или его нет в сборке): награды и дедлайны новых заказов
+     * считаются по дорогам, маршрут рисуется линией по улицам.
+     */
+    private void onRoadsLoaded(RoadGraph graph) {
+        if (graph == null) {
             return;
         }
-        View sheetView = LayoutInflater.from(this).inflate(R.layout.bottom_sheet_orders, null);
-        ListView lvOrders = sheetView.findViewById(R.id.lvOrders);
+        roads = graph;
+        session.setRoads(graph);
+        updateRouteLine();
+    }
 
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(
-                this,
-                android.R.layout.simple_list_item_1,
-                orderList
-        );
-        lvOrders.setAdapter(adapter);
+    private final GameStore.ErrorListener storeErrorListener = (message, e) ->
+            Toast.makeText(this, message + ": " + e.getMessage(), Toast.LENGTH_LONG).show();
 
-        BottomSheetDialog dialog = new BottomSheetDialog(this);
-        dialog.setContentView(sheetView);
+    private void scheduleTrailRedraw() {
+        if (trailRedrawPending) {
+            return;
+        }
+        trailRedrawPending = true;
+        long wait = lastTrailRedrawMillis + TRAIL_REDRAW_MILLIS - SystemClock.uptimeMillis();
+        mapView.postDelayed(trailRedraw, Math.max(0, wait));
+    }
 
-        // При выборе заказа
-        lvOrders.setOnItemClickListener((parent, view, position, id) -> {
-            String selected = orderList.get(position);
-            // Удаляем из списка, принимаем заказ
-            orderList.remove(position);
-            adapter.notifyDataSetChanged();
+    private final Runnable trailRedraw = new Runnable() {
+        @Override
+        public void run() {
+            trailRedrawPending = false;
+            lastTrailRedrawMillis = SystemClock.uptimeMillis();
+            mapView.invalidate();
+        }
+    };
+
+    /** Пока экран виден, время идёт и без GPS-фиксов и нажатий: заказы появляются и исчезают */
+    private final Runnable simPoll = new Runnable() {
+        @Override
+        public void run() {
+            session.advance();
+            mapView.postDelayed(this, SIM_POLL_MILLIS);
+        }
+    };
 
-            acceptOrderAndSetMarker(selected);
-            dialog.dismiss();
-        });
+    /** "Обновить" — подтянуть время: новые заказы появляются сами по карте спроса */
+    private void refreshOrders() {
+        if (userLat == 0 && userLng == 0) {
+            Toast.makeText(this, "Неизвестно текущее положение!", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        session.advance();
+        Toast.makeText(this, "Открытых заказов: " + orderDistances.size(), Toast.LENGTH_SHORT).show();
+    }
 
-        dialog.show();
+    /** Показать список заказов рядом с пользователем (лист создаётся при первом показе) */
+    private void showOrdersBottomSheet() {
+        if (orderDistances.size() == 0) {
+            Toast.makeText(this, "Нет доступных заказов", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        long sheetStart = ORDERS_SHEET_TIMER.start();
+        if (ordersSheet == null) {
+            ordersSheet = new OrdersSheet(this, orderDistances, this::onOrderSelected);
+        }
+        ordersSheet.show();
+        ORDERS_SHEET_TIMER.stop(sheetStart);
     }
 
-    /** Принять заказ, сгенерировать случайную точку рядом с пользователем */
-    private void acceptOrderAndSetMarker(String orderName) {
-        GeoPoint userLoc = myLocationOverlay.getMyLocation();
-        if (userLoc == null) {
-            // Если overlay не знает координаты, fallback на userLat/userLng
-            if (userLat == 0 && userLng == 0) {
-                Toast.makeText(this, "Неизвестно текущее положение!", Toast.LENGTH_SHORT).show();
-                return;
-            }
-            userLoc = new GeoPoint(userLat, userLng);
+    /** Заказ выбран в списке: симуляция удаляет его из книги и добавляет в маршрут игрока */
+    private void onOrderSelected(Order selected) {
+        if (world.getRoute().size() >= GameSession.MAX_BATCH_ORDERS) {
+            Toast.makeText(this, "Можно везти не больше " + GameSession.MAX_BATCH_ORDERS
+                    + " заказов сразу", Toast.LENGTH_SHORT).show();
+            return;
         }
+        if (sharedWorld != null) {
+            // Заказ наш, только если сервер подтвердит, что его не взяли раньше
+            sharedWorld.claim(selected.getId());
+            return;
+        }
+        session.accept(selected.getId(), accepted -> {
+            if (accepted != null) {
+                acceptOrderAndSetMarker(accepted);
+            }
+        });
+    }
 
-        // Генерация смещения ~3 км
-        double latOffset = (new Random().nextDouble() - 0.5) * (2 * RANDOM_OFFSET);
-        double lngOffset = (new Random().nextDouble() - 0.5) * (2 * RANDOM_OFFSET);
-        double lat = userLoc.getLatitude() + latOffset;
-        double lng = userLoc.getLongitude() + lngOffset;
+    /** Показать принятый заказ (маршрут уже перестроен по снимку мира) */
+    private void acceptOrderAndSetMarker(Order order) {
+        centerOn(order);
+        int held = world.getRoute().size();
+        Toast.makeText(this, "Вы приняли заказ: " + order.getTitle()
+                + " (+" + order.getReward() + ")"
+                + (held > 1 ? ", заказов в маршруте: " + held : ""), Toast.LENGTH_SHORT).show();
+    }
 
-        currentOrderGeoPoint = new GeoPoint(lat, lng);
-        drawOrderMarker(currentOrderGeoPoint, "Заказ: " + orderName);
-        Toast.makeText(this, "Вы приняли заказ: " + orderName, Toast.LENGTH_SHORT).show();
+    /** Долгое нажатие на "центр": переключить офлайн-карту */
+    private void toggleOfflineMap() {
+        boolean offline = !tileCache.isOfflineMode();
+        tileCache.setOfflineMode(offline);
+        tileCache.applyTo(mapView, this::onOfflineArchiveMissing);
+        Toast.makeText(this, offline ? "Офлайн-карта" : "Онлайн-карта", Toast.LENGTH_SHORT).show();
     }
 
-    /** Поставить/обновить метку заказа на карте */
-    private void drawOrderMarker(GeoPoint geoPoint, String title) {
-        if (currentOrderMarker != null) {
-            mapView.getOverlays().remove(currentOrderMarker);
-        }
-        currentOrderMarker = new Marker(mapView);
-        currentOrderMarker.setPosition(geoPoint);
-        currentOrderMarker.setAnchor(Marker.ANCHOR_CENTER, Marker.ANCHOR_BOTTOM);
-        currentOrderMarker.setTitle(title);
-        mapView.getOverlays().add(currentOrderMarker);
+    private void onOfflineArchiveMissing() {
+        Toast.makeText(this, "Офлайн-архива нет: видны только просмотренные места",
+                Toast.LENGTH_SHORT).show();
+    }
 
-        // Центрируем камеру
-        mapView.getController().setCenter(geoPoint);
-        mapView.getController().setZoom(15.0);
+    /** Передать координаты открытых заказов в слой кластеров */
+    private void updateOrderOverlay() {
+        int count = orderDistances.size();
+        if (orderPoints.length < count * 2) {
+            orderPoints = new double[Math.max(count * 2, orderPoints.length * 2)];
+        }
+        for (int k = 0; k < count; k++) {
+            Order o = orderDistances.get(k);
+            orderPoints[k * 2] = o.getPickupLat();
+            orderPoints[k * 2 + 1] = o.getPickupLng();
+        }
+        orderClusterOverlay.setPoints(orderPoints, count);
         mapView.invalidate();
+        // Открытый список заказов показывает то же, что и карта
+        if (ordersSheet != null) {
+            ordersSheet.onOrdersChanged();
+        }
     }
 
-    /** Доставка заказа */
-    private void deliverOrder() {
-        if (currentOrderGeoPoint != null) {
-            Toast.makeText(this, "Заказ успешно доставлен!", Toast.LENGTH_SHORT).show();
-            if (currentOrderMarker != null) {
-                mapView.getOverlays().remove(currentOrderMarker);
-                currentOrderMarker = null;
+    /**
+     * Метки всех принятых заказов с номером в порядке объезда; цель для частоты GPS —
+     * первая точка маршрута. Лишние метки снимаются с карты, но остаются для повторного использования.
+     */
+    private void showRoute() {
+        List<Order> route = world.getRoute();
+        Order current = world.getCurrentOrder();
+        if (current != null) {
+            locationScheduler.setTarget(current.getDropoffLat(), current.getDropoffLng());
+        } else {
+            locationScheduler.clearTarget();
+        }
+        int count = route.size();
+        for (int p = 0; p < count; p++) {
+            Order o = route.get(p);
+            Marker marker;
+            if (p < routeMarkers.size()) {
+                marker = routeMarkers.get(p);
+            } else {
+                marker = new Marker(mapView);
+                marker.setAnchor(Marker.ANCHOR_CENTER, Marker.ANCHOR_BOTTOM);
+                routeMarkers.add(marker);
             }
-            currentOrderGeoPoint = null;
-            btnDeliver.setEnabled(false);
-            mapView.invalidate();
-
-            // Пример: Случайная выдача карточки (если хотите геймификацию)
-            maybeAwardCard();
+            marker.setPosition(new GeoPoint(o.getDropoffLat(), o.getDropoffLng()));
+            marker.setTitle(count > 1 ? (p + 1) + ". Заказ: " + o.getTitle() : "Заказ: " + o.getTitle());
+            if (!mapView.getOverlays().contains(marker)) {
+                mapView.getOverlays().add(marker);
+            }
+        }
+        for (int p = count; p < routeMarkers.size(); p++) {
+            mapView.getOverlays().remove(routeMarkers.get(p));
         }
+        updateRouteLine();
+        mapView.invalidate();
     }
 
     /**
-     * Пример метода: случайным образом "выдаём" карточку из нашего списка при доставке.
-     * Вы можете настроить вероятность и т.д. по своему желанию.
+     * Проложить линию от игрока через точки доставки по порядку объезда (в фоне).
+     * У меток появляется расстояние и время в пути по дорогам.
      */
-    private void maybeAwardCard() {
-        double chance = 0.4; // 40% шанс, что вообще что-то выпадет
-        if (Math.random() > chance) {
-            return; // Ничего не выпало
-        }
-        // Получаем все карточки (которые уже сохранены в CardManager)
-        List<CollectibleCard> allCards = CardManager.getAllCards(this);
-        // Фильтруем те, которыми пользователь не владеет
-        List<CollectibleCard> notOwned = new ArrayList<>();
-        for (CollectibleCard c : allCards) {
-            if (!c.isOwned()) {
-                notOwned.add(c);
-            }
+    private void updateRouteLine() {
+        List<Order> held = world.getRoute();
+        int count = held.size();
+        routedFromLat = userLat;
+        routedFromLng = userLng;
+        if (roads == null || count == 0 || (userLat == 0 && userLng == 0)) {
+            routeOverlay.clear();
+            mapView.invalidate();
+            return;
         }
-        if (notOwned.isEmpty()) {
-            // Все уже собраны
-            Toast.makeText(this, "Все карточки уже собраны! Ничего не выпадает.", Toast.LENGTH_SHORT).show();
+        double[] stops = new double[(count + 1) * 2];
+        stops[0] = userLat;
+        stops[1] = userLng;
+        for (int p = 0; p < count; p++) {
+            Order o = held.get(p);
+            stops[(p + 1) * 2] = o.getDropoffLat();
+            stops[(p + 1) * 2 + 1] = o.getDropoffLng();
+        }
+        double[] legMeters = new double[count];
+        RoadGraph graph = roads;
+        tasks.load(() -> {
+            long start = ROUTE_LINE_TIMER.start();
+            // Очередь ScreenTasks выполняет задачи по одной, так что роутер на неё один
+            if (lineRouter == null || lineRouter.getGraph() != graph) {
+                lineRouter = new RoadRouter(graph);
+            }
+            RoadRoute route = new RoadRoute();
+            lineRouter.routeVia(stops, count + 1, route, legMeters);
+            ROUTE_LINE_TIMER.stop(start);
+            return route;
+        }, route -> {
+            routeOverlay.setRoute(route.getPoints(), route.getPointCount());
+            double speed = session.getCourierSpeedMps();
+            for (int p = 0; p < count && p < routeMarkers.size(); p++) {
+                long minutes = Math.max(1, Math.round(legMeters[p] / speed / 60));
+                routeMarkers.get(p).setSnippet(String.format(Locale.getDefault(),
+                        "%.1f км по дорогам, ~%d мин", legMeters[p] / 1000, minutes));
+            }
+            mapView.invalidate();
+        });
+    }
+
+    /** Центрировать камеру на точке доставки заказа */
+    private void centerOn(Order order) {
+        mapView.getController().setCenter(new GeoPoint(order.getDropoffLat(), order.getDropoffLng()));
+        mapView.getController().setZoom(15.0);
+    }
+
+    /** Доставка заказа */
+    private void deliverOrder() {
+        if (world.getCurrentOrder() == null) {
             return;
         }
-        // Случайно выбираем одну из несобранных
-        CollectibleCard randomCard = notOwned.get(new Random().nextInt(notOwned.size()));
-        // Помечаем её как собранную
-        CardManager.setCardOwned(this, randomCard.getId(), true);
-        // Уведомляем пользователя
-        Toast.makeText(this, "Вы получили новую карточку: " + randomCard.getName(), Toast.LENGTH_LONG).show();
+        long deliverStart = DELIVER_TIMER.start();
+        // Розыгрыш карточки (40% шанс, редкости и гарантии) делает симуляция по коллекции игрока;
+        // маршрут (следующая точка или пусто) приходит снимком мира раньше результата
+        session.deliver((awarded, allCards) -> {
+            Toast.makeText(this, "Заказ успешно доставлен!", Toast.LENGTH_SHORT).show();
+            showAward(allCards, awarded);
+            DELIVER_TIMER.stop(deliverStart);
+        });
+    }
+
+    /** Сообщить игроку о выпавшей карточке (собранной её уже отметила GameSession) */
+    private void showAward(List<CollectibleCard> allCards, int awarded) {
+        if (awarded == LootTable.EMPTY_CATALOG) {
+            Toast.makeText(this, "В каталоге нет карточек: ничего не выпадает.", Toast.LENGTH_SHORT).show();
+        } else if (LootTable.isDuplicate(awarded)) {
+            CollectibleCard card = allCards.get(LootTable.duplicateOrdinal(awarded));
+            Toast.makeText(this, "Дубликат: " + card.getName(), Toast.LENGTH_SHORT).show();
+        } else if (awarded >= 0) {
+            CollectibleCard card = allCards.get(awarded);
+            Toast.makeText(this, "Вы получили новую карточку: " + card.getName(), Toast.LENGTH_LONG).show();
+        }
     }
 
     /** Центрируем карту на пользователя */
@@ -315,29 +622,140 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    /** Запуск GPS */
-    private void startLocationUpdates() {
-        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
-                == PackageManager.PERMISSION_GRANTED
-            || ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_COARSE_LOCATION)
-                == PackageManager.PERMISSION_GRANTED) {
-
-            if (locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER)) {
-                locationManager.requestLocationUpdates(
-                        LocationManager.GPS_PROVIDER,
-                        3000,
-                        1,
-                        locationListener
-                );
-            }
-            if (locationManager.isProviderEnabled(LocationManager.NETWORK_PROVIDER)) {
-                locationManager.requestLocationUpdates(
-                        LocationManager.NETWORK_PROVIDER,
-                        3000,
-                        1,
-                        locationListener
-                );
+    /** Показать или скрыть панель метрик; при скрытии метрики выгружаются в файл */
+    private void toggleMetricsOverlay() {
+        boolean show = !metricsOverlay.isEnabled();
+        metricsOverlay.setVisible(show);
+        if (show) {
+            frameTracker.start();
+        } else {
+            frameTracker.stop();
+            MetricsDump.writeAsync(this);
+            Toast.makeText(this, "Метрики сохранены в files/metrics", Toast.LENGTH_LONG).show();
+        }
+    }
+
+    /** Трек из extras интента вместо GPS; в релизной сборке игнорируется */
+    private void startReplayFromIntent(Intent intent) {
+        String path = intent.getStringExtra(EXTRA_REPLAY_TRACE);
+        if (path == null || (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) == 0) {
+            return;
+        }
+        float speed = intent.getFloatExtra(EXTRA_REPLAY_SPEED, 1f);
+        boolean loop = intent.getBooleanExtra(EXTRA_REPLAY_LOOP, false);
+        // getExternalFilesDir создаёт каталог — не на главном потоке
+        tasks.load(() -> {
+            File file = new File(path);
+            return file.isAbsolute() ? file : new File(getExternalFilesDir("traces"), path);
+        }, file -> {
+            locationScheduler.startReplay(file, speed, loop);
+            Toast.makeText(this, "Проигрывается трек " + file.getName(), Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    /** Заказы общего мира с сервера из extras интента; в релизной сборке игнорируется */
+    private void startSharedWorldFromIntent(Intent intent) {
+        String address = intent.getStringExtra(EXTRA_SHARED_WORLD);
+        if (address == null || (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) == 0) {
+            return;
+        }
+        session.useSharedWorld();
+        sharedWorld = new SharedWorld(sharedWorldListener);
+        sharedWorld.connect(address);
+        Toast.makeText(this, "Общий мир: " + address, Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * Заказы общего мира уходят в GameSession (в книгу симуляции мимо журнала:
+     * они принадлежат серверу); список и слой обновятся по снимку мира.
+     */
+    private final SharedWorld.Listener sharedWorldListener = new SharedWorld.Listener() {
+        @Override
+        public void onOrdersReplaced(List<Order> orders) {
+            session.replaceOrders(orders);
+        }
+
+        @Override
+        public void onOrderAdded(Order order) {
+            session.addOrder(order);
+        }
+
+        @Override
+        public void onOrderRemoved(long orderId) {
+            session.removeOrder(orderId);
+        }
+
+        @Override
+        public void onClaimResult(long orderId, boolean granted) {
+            if (!granted) {
+                Toast.makeText(MainActivity.this, "Заказ уже взял другой курьер", Toast.LENGTH_SHORT).show();
+                return;
             }
+            session.accept(orderId, accepted -> {
+                if (accepted != null) {
+                    acceptOrderAndSetMarker(accepted);
+                } else {
+                    Toast.makeText(MainActivity.this, "Заказ уже взял другой курьер", Toast.LENGTH_SHORT).show();
+                }
+            });
+        }
+
+        @Override
+        public void onDisconnected(IOException e) {
+            Toast.makeText(MainActivity.this, "Общий мир недоступен: " + e.getMessage(),
+                    Toast.LENGTH_LONG).show();
+        }
+    };
+
+    /** Запуск обновлений локации (без разрешения планировщик ничего не делает) */
+    private void startLocationUpdates() {
+        locationScheduler.start();
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        resumed = true;
+        GameStore.setErrorListener(storeErrorListener);
+        if (myLocationOverlay != null) {
+            myLocationOverlay.enableMyLocation();
+        }
+        if (!mapReady) {
+            // Локация включится в attachMap
+            return;
+        }
+        startLocationUpdates();
+        mapView.post(simPoll);
+        if (metricsOverlay.isEnabled()) {
+            frameTracker.start();
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        resumed = false;
+        GameStore.setErrorListener(null);
+        // В фоне "синяя точка" фиксы не получает
+        if (myLocationOverlay != null) {
+            myLocationOverlay.disableMyLocation();
+        }
+        if (!mapReady) {
+            return;
+        }
+        mapView.removeCallbacks(simPoll);
+        mapView.removeCallbacks(trailRedraw);
+        trailRedrawPending = false;
+        // Положение пишем в журнал только здесь, а не на каждый фикс
+        if (userLat != 0 || userLng != 0) {
+            GameStore.record(this, GameEvent.position(userLat, userLng));
+        }
+        // С активным заказом продолжаем следить за подходом к точке доставки
+        locationScheduler.onBackground();
+        // Во время замеров каждый уход в фон оставляет отчёт
+        if (metricsOverlay.isEnabled()) {
+            frameTracker.stop();
+            MetricsDump.writeAsync(this);
         }
     }
 
@@ -356,56 +774,19 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    /** Сохранение состояния (при перевороте экрана) */
-    @Override
-    protected void onSaveInstanceState(@NonNull Bundle outState) {
-        super.onSaveInstanceState(outState);
-
-        outState.putStringArrayList("orderList", new ArrayList<>(orderList));
-        if (currentOrderGeoPoint != null) {
-            outState.putBoolean("hasOrder", true);
-            outState.putDouble("orderLat", currentOrderGeoPoint.getLatitude());
-            outState.putDouble("orderLng", currentOrderGeoPoint.getLongitude());
-        } else {
-            outState.putBoolean("hasOrder", false);
-        }
-        outState.putDouble("userLat", userLat);
-        outState.putDouble("userLng", userLng);
-    }
-
-    /** Восстановление состояния */
-    private void restoreStateFromBundle(Bundle savedInstanceState) {
-        if (savedInstanceState.containsKey("orderList")) {
-            List<String> restored = savedInstanceState.getStringArrayList("orderList");
-            if (restored != null) {
-                orderList.clear();
-                orderList.addAll(restored);
-            }
-        }
-        boolean hasOrder = savedInstanceState.getBoolean("hasOrder", false);
-        if (hasOrder) {
-            double lat = savedInstanceState.getDouble("orderLat", 0.0);
-            double lng = savedInstanceState.getDouble("orderLng", 0.0);
-            currentOrderGeoPoint = new GeoPoint(lat, lng);
-        } else {
-            currentOrderGeoPoint = null;
-        }
-        userLat = savedInstanceState.getDouble("userLat", 0.0);
-        userLng = savedInstanceState.getDouble("userLng", 0.0);
-    }
-
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (locationManager != null && locationListener != null) {
-            locationManager.removeUpdates(locationListener);
+        if (ordersSheet != null) {
+            ordersSheet.dismiss();
+        }
+        locationScheduler.stop();
+        tileCache.shutdown();
+        if (session != null) {
+            session.close();
+        }
+        if (sharedWorld != null) {
+            sharedWorld.close();
         }
-    }
-
-    /** Утилита: вычислить дистанцию между двумя точками (метры) */
-    private float distanceBetween(double lat1, double lon1, double lat2, double lon2) {
-        float[] results = new float[1];
-        android.location.Location.distanceBetween(lat1, lon1, lat2, lon2, results);
-        return results[0];
     }
 }
\ No newline at end of file
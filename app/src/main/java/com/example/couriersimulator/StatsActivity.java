@@ -0,0 +1,73 @@
+package com.example.couriersimulator;
+
+import android.os.Bundle;
+import android.widget.TextView;
+
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.couriersimulator.concurrent.ScreenTasks;
+import com.example.couriersimulator.history.DayStats;
+import com.example.couriersimulator.history.DeliveryLog;
+import com.example.couriersimulator.store.GameStore;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Статистика доставок. Итоги берутся из агрегатов DeliveryLog,
+ * а последние дни — из индекса дней, поэтому экран открывается
+ * одинаково быстро при любой длине истории. Журнал и индекс дней читаются
+ * в фоне (ScreenTasks), экран показывает уже готовый текст.
+ */
+public class StatsActivity extends AppCompatActivity {
+
+    private static final int WEEK_DAYS = 7;
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    @Override
+    protected void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_stats);
+
+        TextView tvTotals = findViewById(R.id.tvTotals);
+        TextView tvWeek = findViewById(R.id.tvWeek);
+        new ScreenTasks(this).load(() -> buildTexts(System.currentTimeMillis()), texts -> {
+            tvTotals.setText(texts[0]);
+            tvWeek.setText(texts[1]);
+        });
+    }
+
+    /** Тексты итогов и последней недели (фоновый поток) */
+    private CharSequence[] buildTexts(long now) {
+        DeliveryLog log = GameStore.getHistory(this);
+        String totals = String.format(Locale.getDefault(),
+                "Доставок: %d (сегодня %d)%nЗаработано: %d%nПроехано: %.1f км%n"
+                        + "Средняя скорость: %.1f км/ч%nСерия: %d дн. (лучшая %d)",
+                log.getTotalDeliveries(), log.getDeliveriesOn(now),
+                log.getTotalReward(),
+                log.getTotalDistanceMeters() / 1000.0,
+                log.getAverageSpeedMps() * 3.6,
+                log.getCurrentStreakDays(now), log.getBestStreakDays());
+
+        int today = log.epochDay(now);
+        List<DayStats> week = new ArrayList<>(WEEK_DAYS);
+        log.queryDays(today - WEEK_DAYS + 1, today, week);
+        SimpleDateFormat dayFormat = new SimpleDateFormat("EE d MMM", Locale.getDefault());
+        StringBuilder text = new StringBuilder();
+        for (DayStats day : week) {
+            // Полдень дня — чтобы перевод часов не сдвинул дату
+            Date date = new Date(day.getEpochDay() * DAY_MS + DAY_MS / 2);
+            text.append(String.format(Locale.getDefault(), "%s: %d доставок, +%d, %.1f км%n",
+                    dayFormat.format(date), day.getDeliveries(), day.getReward(),
+                    day.getDistanceMeters() / 1000.0));
+        }
+        if (week.isEmpty()) {
+            text.append("Доставок не было");
+        }
+        return new CharSequence[]{totals, text};
+    }
+}
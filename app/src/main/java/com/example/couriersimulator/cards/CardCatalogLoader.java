@@ -0,0 +1,124 @@
+package com.example.couriersimulator.cards;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.JsonReader;
+
+import com.example.couriersimulator.loot.Rarity;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковый разбор каталога карточек из assets.
+ * Формат (version 1):
+ * { "version": 1, "cards": [ { "id", "name", "description", "image", "rarity", "weight" }, ... ] }
+ * где image — имя drawable-ресурса без расширения; rarity (common, rare, epic, legendary)
+ * и weight необязательны: по умолчанию common и вес редкости.
+ */
+final class CardCatalogLoader {
+
+    static final String ASSET_NAME = "cards_catalog.json";
+    static final int SUPPORTED_VERSION = 1;
+
+    private CardCatalogLoader() {
+    }
+
+    static CardCatalog load(Context context) throws IOException {
+        try (InputStream in = new BufferedInputStream(context.getAssets().open(ASSET_NAME));
+             JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return parse(reader, context.getResources(), context.getPackageName());
+        }
+    }
+
+    private static CardCatalog parse(JsonReader reader, Resources res, String packageName) throws IOException {
+        int version = -1;
+        List<CollectibleCard> cards = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if ("version".equals(field)) {
+                version = reader.nextInt();
+                if (version != SUPPORTED_VERSION) {
+                    throw new IOException("Unsupported card catalog version: " + version);
+                }
+            } else if ("cards".equals(field)) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    cards.add(parseCard(reader, cards.size(), res, packageName));
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (version < 0) {
+            throw new IOException("Card catalog has no version");
+        }
+        return new CardCatalog(version, cards);
+    }
+
+    private static CollectibleCard parseCard(JsonReader reader, int ordinal,
+                                             Resources res, String packageName) throws IOException {
+        String id = null;
+        String name = null;
+        String description = "";
+        String image = null;
+        String rarityName = null;
+        double weight = -1;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = reader.nextString();
+                    break;
+                case "name":
+                    name = reader.nextString();
+                    break;
+                case "description":
+                    description = reader.nextString();
+                    break;
+                case "image":
+                    image = reader.nextString();
+                    break;
+                case "rarity":
+                    rarityName = reader.nextString();
+                    break;
+                case "weight":
+                    weight = reader.nextDouble();
+                    if (weight < 0) {
+                        throw new IOException("Card #" + ordinal + " has negative weight");
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (id == null || name == null || image == null) {
+            throw new IOException("Card #" + ordinal + " misses id, name or image");
+        }
+        int imageResId = res.getIdentifier(image, "drawable", packageName);
+        if (imageResId == 0) {
+            throw new IOException("Card " + id + " refers to unknown drawable: " + image);
+        }
+        Rarity rarity;
+        try {
+            rarity = Rarity.parse(rarityName);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Card " + id + ": " + e.getMessage());
+        }
+        return new CollectibleCard(id, ordinal, name, description, imageResId,
+                rarity, weight >= 0 ? weight : rarity.getDefaultWeight());
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.couriersimulator.cards;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.ColorMatrix;
+import android.graphics.ColorMatrixColorFilter;
+import android.graphics.Paint;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import com.example.couriersimulator.R;
+import com.example.couriersimulator.concurrent.AppExecutors;
+
+/**
+ * Загрузчик изображений карточек.
+ * - декодирует в фоне с inSampleSize под размер целевого ImageView
+ * - хранит готовые Bitmap в LruCache, ограниченном по байтам
+ * - вытесненные из кэша Bitmap не переиспользует (inBitmap): их ещё может рисовать
+ *   ImageView, и перезапись дала бы чужую картинку в видимой ячейке
+ * - затемнённый вариант ("не собрана") готовит один раз и тоже кэширует,
+ *   вместо цветового фильтра на каждом bind
+ */
+public final class CardImageLoader {
+
+    // Доля памяти приложения под кэш миниатюр
+    private static final int CACHE_FRACTION = 16;
+
+    private static CardImageLoader instance;
+
+    private final Resources resources;
+    private final LruCache<String, Bitmap> cache;
+    private final Paint greyPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    public static synchronized CardImageLoader get(Context context) {
+        if (instance == null) {
+            instance = new CardImageLoader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private CardImageLoader(Context appContext) {
+        this.resources = appContext.getResources();
+        ActivityManager am = (ActivityManager) appContext.getSystemService(Context.ACTIVITY_SERVICE);
+        int maxBytes = am.getMemoryClass() * 1024 * 1024 / CACHE_FRACTION;
+        this.cache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+
+        ColorMatrix matrix = new ColorMatrix();
+        matrix.setSaturation(0f);
+        ColorMatrix darken = new ColorMatrix();
+        darken.setScale(0.6f, 0.6f, 0.6f, 1f);
+        matrix.postConcat(darken);
+        greyPaint.setColorFilter(new ColorMatrixColorFilter(matrix));
+    }
+
+    /**
+     * Показать изображение карточки в imageView.
+     * targetWidth/targetHeight — размер ImageView в пикселях (для выбора inSampleSize).
+     * Если картинка уже в кэше, она ставится сразу; иначе декодируется в фоне.
+     */
+    public void load(ImageView imageView, int resId, int targetWidth, int targetHeight, boolean greyed) {
+        String key = key(resId, targetWidth, targetHeight, greyed);
+        imageView.setTag(R.id.tag_card_image_key, key);
+        Bitmap cached = cache.get(key);
+        if (cached != null) {
+            imageView.setImageBitmap(cached);
+            return;
+        }
+        imageView.setImageDrawable(null);
+        // Декодирование — на общем пуле io(): порядок не важен, кэш потокобезопасен
+        AppExecutors.io().execute(() -> {
+            Bitmap bitmap = obtain(resId, targetWidth, targetHeight, greyed);
+            AppExecutors.main().execute(() -> {
+                // ViewHolder мог быть переиспользован для другой карточки
+                if (key.equals(imageView.getTag(R.id.tag_card_image_key))) {
+                    imageView.setImageBitmap(bitmap);
+                }
+            });
+        });
+    }
+
+    // Вызывается на потоке декодирования
+    private Bitmap obtain(int resId, int width, int height, boolean greyed) {
+        String key = key(resId, width, height, greyed);
+        Bitmap bitmap = cache.get(key);
+        if (bitmap != null) {
+            return bitmap;
+        }
+        if (greyed) {
+            Bitmap source = obtain(resId, width, height, false);
+            bitmap = Bitmap.createBitmap(source.getWidth(), source.getHeight(), Bitmap.Config.ARGB_8888);
+            new Canvas(bitmap).drawBitmap(source, 0f, 0f, greyPaint);
+        } else {
+            bitmap = decode(resId, width, height);
+        }
+        cache.put(key, bitmap);
+        return bitmap;
+    }
+
+    private Bitmap decode(int resId, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        // Масштаб выбираем сами через inSampleSize, без поправки на плотность ресурса
+        options.inScaled = false;
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, resId, options);
+
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight, width, height);
+        options.inJustDecodeBounds = false;
+        return BitmapFactory.decodeResource(resources, resId, options);
+    }
+
+    /** Наибольшая степень двойки, при которой картинка всё ещё не меньше цели */
+    static int sampleSize(int srcWidth, int srcHeight, int reqWidth, int reqHeight) {
+        int sample = 1;
+        if (reqWidth <= 0 || reqHeight <= 0) {
+            return sample;
+        }
+        while ((srcWidth / (sample * 2)) >= reqWidth && (srcHeight / (sample * 2)) >= reqHeight) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    private static String key(int resId, int width, int height, boolean greyed) {
+        return resId + ":" + width + "x" + height + (greyed ? ":g" : "");
+    }
+}
@@ -3,72 +3,171 @@ package com.example.couriersimulator.cards;
 import android.content.Context;
 import android.content.SharedPreferences;
 
-import com.example.couriersimulator.R;
+import com.example.couriersimulator.concurrent.AppExecutors;
+import com.example.couriersimulator.metrics.Metrics;
+import com.example.couriersimulator.metrics.Timer;
+import com.example.couriersimulator.store.GameEvent;
+import com.example.couriersimulator.store.GameStore;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.BitSet;
 
 /**
  * Менеджер коллекционных карточек.
- * 1) Содержит статический список всех "уникальных велосипедов".
- * 2) Сохраняет / загружает флаг isOwned для каждой карточки.
+ * 1) Каталог "уникальных велосипедов" читается из assets/cards_catalog.json один раз,
+ *    в фоне (см. preload), и отдаётся всем экранам как неизменяемый список.
+ * 2) Хранит флаги владения в памяти процесса (BitSet по порядковому номеру карточки).
+ *    На диск они попадают через журнал игры (GameStore) вместе с остальным состоянием;
+ *    флаги из старых ключей SharedPreferences переносятся туда один раз.
+ * Каталог разбирается на AppExecutors.io(); флаги читаются и меняются только на потоке
+ * AppExecutors.game() (там же, где журнал). Загрузки никто не ждёт: запросы, пришедшие
+ * раньше её окончания, копятся и выполняются по порядку, как только каталог готов.
  */
 public class CardManager {
+    // Старые места хранения флагов (читаются только для миграции в журнал)
     private static final String PREFS_NAME = "CourierSimulatorCardsPrefs";
+    // Отдельный boolean-ключ на каждую карточку
     private static final String KEY_OWNED_PREFIX = "CARD_OWNED_";
+    // Все флаги одной строкой (см. OwnershipBits)
+    private static final String KEY_OWNED_BITS = "CARDS_OWNED_BITS_V1";
 
-    // Статический список всех доступных карт (можно расширять)
-    private static final List<CollectibleCard> ALL_CARDS = new ArrayList<>();
+    private static final Object INIT_LOCK = new Object();
+    private static boolean preloaded;
+    private static Context appContext;
+    // Только поток game(); null, пока каталог не загружен. Экземпляр флагов не меняется:
+    // каждое изменение публикует новую копию, поэтому его можно отдавать задачам как есть
+    private static CardCatalog catalog;
+    private static BitSet ownership;
+    // Только поток game(): запросы, пришедшие до окончания загрузки
+    private static final ArrayDeque<CollectionTask> WAITING = new ArrayDeque<>();
+    // От запроса коллекции до ответа на главном потоке
+    private static final Timer GET_ALL_TIMER = Metrics.timer("cards.getAll");
 
-    static {
-        // Добавляем несколько примерных велосипедов
-        ALL_CARDS.add(new CollectibleCard(
-                "icy",
-                "Ледяной велосипед",
-                "Велосипед, выкованный из вечных льдов. Говорят, на нём ездили сами духи зимы...",
-                R.drawable.icy_bike
-        ));
-        ALL_CARDS.add(new CollectibleCard(
-                "gold",
-                "Золотой велосипед",
-                "Легендарный велосипед, покрытый сусальным золотом. Найден в древнем храме...",
-                R.drawable.gold_bike
-        ));
-        // Можно продолжать добавлять новые...
+    /** Каталог и флаги владения; owned — общий снимок, менять его нельзя */
+    public interface CollectionTask {
+        void run(CardCatalog catalog, BitSet owned);
     }
 
     /**
-     * Возвращает копию всех карточек, при этом подгружая флаг isOwned из SharedPreferences.
+     * Запустить фоновую загрузку каталога и флагов владения (повторные вызовы ничего не делают).
+     * Стоит вызывать как можно раньше, чтобы к первому обращению всё было готово.
      */
-    public static List<CollectibleCard> getAllCards(Context context) {
-        List<CollectibleCard> result = new ArrayList<>();
-        for (CollectibleCard base : ALL_CARDS) {
-            CollectibleCard copy = new CollectibleCard(
-                    base.getId(),
-                    base.getName(),
-                    base.getDescription(),
-                    base.getImageResId()
-            );
-            // Проставляем isOwned, исходя из сохранённых данных
-            copy.setOwned(isCardOwned(context, base.getId()));
-            result.add(copy);
+    public static void preload(Context context) {
+        synchronized (INIT_LOCK) {
+            if (!preloaded) {
+                preloaded = true;
+                appContext = context.getApplicationContext();
+                // Открытие журнала должно встать в очередь game() раньше задачи из loadAll
+                GameStore.preload(appContext);
+                AppExecutors.io().execute(CardManager::loadAll);
+            }
         }
-        return result;
+    }
+
+    /**
+     * Выполнить task на потоке game() с каталогом и флагами владения: после загрузки
+     * и после всех изменений, отправленных раньше. На потоке game() после загрузки
+     * task выполняется сразу.
+     */
+    public static void withCollection(Context context, CollectionTask task) {
+        preload(context);
+        if (AppExecutors.isGameThread()) {
+            runWhenLoaded(task);
+        } else {
+            AppExecutors.game().execute(() -> runWhenLoaded(task));
+        }
+    }
+
+    /**
+     * Все карточки каталога и копия флагов владения — на главном потоке.
+     * Изменения, отправленные до вызова через setCardOwned, в копии уже есть;
+     * последующие её не меняют.
+     */
+    public static void getCollection(Context context, CollectionTask onLoaded) {
+        long start = GET_ALL_TIMER.start();
+        withCollection(context, (catalog, owned) -> {
+            BitSet copy = (BitSet) owned.clone();
+            AppExecutors.main().execute(() -> {
+                GET_ALL_TIMER.stop(start);
+                onLoaded.run(catalog, copy);
+            });
+        });
     }
 
     /**
      * Отметить, что пользователь теперь владеет (или не владеет) данной карточкой.
+     * Изменение применяется на потоке game(); запросы коллекции после вызова его уже видят.
      */
     public static void setCardOwned(Context context, String cardId, boolean owned) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        prefs.edit().putBoolean(KEY_OWNED_PREFIX + cardId, owned).apply();
+        withCollection(context, (catalog, bits) -> {
+            CollectibleCard card = catalog.findById(cardId);
+            if (card == null || bits.get(card.getOrdinal()) == owned) {
+                return; // Неизвестная карточка или флаг уже такой
+            }
+            BitSet next = (BitSet) bits.clone();
+            next.set(card.getOrdinal(), owned);
+            ownership = next;
+            GameStore.record(appContext, GameEvent.cardOwned(card.getOrdinal(), owned));
+        });
+    }
+
+    // Поток game()
+    private static void runWhenLoaded(CollectionTask task) {
+        if (catalog == null) {
+            WAITING.add(task);
+        } else {
+            task.run(catalog, ownership);
+        }
     }
 
     /**
-     * Проверить, владеет ли пользователь конкретной карточкой.
+     * Фоновая загрузка: разбор каталога на io(), затем чтение флагов владения
+     * из журнала и перенос старых ключей — на game(), после открытия журнала.
      */
-    public static boolean isCardOwned(Context context, String cardId) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        return prefs.getBoolean(KEY_OWNED_PREFIX + cardId, false);
+    private static void loadAll() {
+        CardCatalog loaded;
+        try {
+            loaded = CardCatalogLoader.load(appContext);
+        } catch (IOException e) {
+            // Каталог входит в сборку: без него коллекции нет
+            throw new IllegalStateException("Card catalog failed to load", e);
+        }
+        AppExecutors.game().execute(() -> {
+            BitSet bits = GameStore.getState(appContext).getOwnedCards();
+            migrateLegacyPrefs(loaded, bits);
+            catalog = loaded;
+            ownership = bits;
+            CollectionTask task;
+            while ((task = WAITING.poll()) != null) {
+                task.run(catalog, ownership);
+            }
+        });
+    }
+
+    /** Перенести флаги из SharedPreferences в журнал и удалить старые ключи (поток game()) */
+    private static void migrateLegacyPrefs(CardCatalog catalog, BitSet bits) {
+        SharedPreferences prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (prefs.getAll().isEmpty()) {
+            return;
+        }
+        BitSet legacy;
+        try {
+            legacy = OwnershipBits.decode(prefs.getString(KEY_OWNED_BITS, null));
+        } catch (IllegalArgumentException e) {
+            legacy = new BitSet(); // Повреждённая строка
+        }
+        for (CollectibleCard card : catalog.getCards()) {
+            if (prefs.getBoolean(KEY_OWNED_PREFIX + card.getId(), false)) {
+                legacy.set(card.getOrdinal());
+            }
+        }
+        legacy.andNot(bits);
+        for (int i = legacy.nextSetBit(0); i >= 0 && i < catalog.size(); i = legacy.nextSetBit(i + 1)) {
+            bits.set(i);
+            GameStore.record(appContext, GameEvent.cardOwned(i, true));
+        }
+        // Мы уже на фоновом потоке, поэтому пишем синхронно
+        prefs.edit().clear().commit();
     }
-}
\ No newline at end of file
+}
@@ -3,7 +3,6 @@ package com.example.couriersimulator.cards;
 import android.app.AlertDialog;
 import android.content.Context;
 import android.graphics.Color;
-import android.graphics.PorterDuff;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup; 
@@ -12,25 +11,49 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.couriersimulator.R;
 
-import java.util.List;
-
 /**
  * Адаптер для списка карточек велосипедов.
  * - Если пользователь не владеет карточкой, мини-изображение будет затемнено.
  * - При клике показываем диалог с большим изображением и описанием.
+ * - Новые списки сравниваются со старыми через DiffUtil в фоне (ListAdapter),
+ *   поэтому при получении одной карточки перерисовывается одна ячейка.
  */
-public class CollectibleCardAdapter extends RecyclerView.Adapter<CollectibleCardAdapter.CardViewHolder> {
+public class CollectibleCardAdapter extends ListAdapter<CardItem, CollectibleCardAdapter.CardViewHolder> {
+
+    private static final DiffUtil.ItemCallback<CardItem> DIFF = new DiffUtil.ItemCallback<CardItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull CardItem oldItem, @NonNull CardItem newItem) {
+            return oldItem.getCard().getOrdinal() == newItem.getCard().getOrdinal();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull CardItem oldItem, @NonNull CardItem newItem) {
+            // Карточки каталога неизменяемы, меняется только флаг владения
+            return oldItem == newItem
+                    || (oldItem.getCard() == newItem.getCard() && oldItem.isOwned() == newItem.isOwned());
+        }
+    };
 
     private final Context context;
-    private final List<CollectibleCard> cardList;
+    private final CardImageLoader imageLoader;
 
-    public CollectibleCardAdapter(Context context, List<CollectibleCard> cardList) {
+    public CollectibleCardAdapter(Context context) {
+        super(DIFF);
         this.context = context;
-        this.cardList = cardList;
+        this.imageLoader = CardImageLoader.get(context);
+        // id строки — порядковый номер карточки: он однозначно соответствует её id в каталоге
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getCard().getOrdinal();
     }
 
     @NonNull
@@ -42,13 +65,7 @@ public class CollectibleCardAdapter extends RecyclerView.Adapter<CollectibleCard
 
     @Override
     public void onBindViewHolder(@NonNull CardViewHolder holder, int position) {
-        CollectibleCard card = cardList.get(position);
-        holder.bind(card);
-    }
-
-    @Override
-    public int getItemCount() {
-        return cardList.size();
+        holder.bind(getItem(position));
     }
 
     class CardViewHolder extends RecyclerView.ViewHolder {
@@ -66,34 +83,32 @@ public class CollectibleCardAdapter extends RecyclerView.Adapter<CollectibleCard
             itemView.setOnClickListener(v -> {
                 int pos = getAdapterPosition();
                 if (pos != RecyclerView.NO_POSITION) {
-                    CollectibleCard selectedCard = cardList.get(pos);
-                    showDetailsDialog(selectedCard);
+                    showDetailsDialog(getItem(pos));
                 }
             });
         }
 
-        public void bind(CollectibleCard card) {
+        public void bind(CardItem item) {
+            CollectibleCard card = item.getCard();
             tvCardName.setText(card.getName());
+            boolean isOwned = item.isOwned();
 
-            if (card.isOwned()) {
+            if (isOwned) {
                 tvCardStatus.setText("Собрана");
             } else {
                 tvCardStatus.setText("Не собрана");
             }
 
-            ivCardThumbnail.setImageResource(card.getImageResId());
-            // Если не владеет, затемняем картинку
-            if (!card.isOwned()) {
-                ivCardThumbnail.setColorFilter(Color.GRAY, PorterDuff.Mode.MULTIPLY);
-            } else {
-                ivCardThumbnail.clearColorFilter();
-            }
+            // Миниатюра под размер ImageView; если не владеет — заранее затемнённый вариант
+            ViewGroup.LayoutParams lp = ivCardThumbnail.getLayoutParams();
+            imageLoader.load(ivCardThumbnail, card.getImageResId(), lp.width, lp.height, !isOwned);
         }
 
         /**
          * Показываем диалоговое окно с большим изображением и описанием.
          */
-        private void showDetailsDialog(CollectibleCard card) {
+        private void showDetailsDialog(CardItem item) {
+            CollectibleCard card = item.getCard();
             AlertDialog.Builder builder = new AlertDialog.Builder(context);
             LayoutInflater inflater = LayoutInflater.from(context);
             View dialogView = inflater.inflate(R.layout.dialog_card_details, null);
@@ -103,12 +118,14 @@ public class CollectibleCardAdapter extends RecyclerView.Adapter<CollectibleCard
             TextView tvLargeDescription = dialogView.findViewById(R.id.tvCardLargeDescription);
             TextView tvOwnershipNote = dialogView.findViewById(R.id.tvCardOwnershipNote);
 
-            // Заполняем поля
-            ivLarge.setImageResource(card.getImageResId());
+            // Заполняем поля: большая картинка — по ширине экрана и высоте ImageView из разметки
+            int largeWidth = context.getResources().getDisplayMetrics().widthPixels;
+            imageLoader.load(ivLarge, card.getImageResId(), largeWidth,
+                    ivLarge.getLayoutParams().height, false);
             tvLargeName.setText(card.getName());
             tvLargeDescription.setText(card.getDescription());
 
-            if (card.isOwned()) {
+            if (item.isOwned()) {
                 tvOwnershipNote.setText("У вас есть эта карточка.");
                 tvOwnershipNote.setTextColor(Color.parseColor("#008000")); // зелёный
             } else {
@@ -0,0 +1,96 @@
+package com.example.couriersimulator.concurrent;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.StrictMode;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Потоки приложения (одни на процесс, не закрываются):
+ * - io()   — ограниченный пул для диска, сети и разбора файлов; задачи независимы,
+ *            порядок и "один поток за раз" даёт SerialExecutor поверх него
+ * - game() — один поток, через который проходят все изменения состояния игры
+ *            (журнал, коллекция карточек, мир симуляции GameSession); данные, которые
+ *            он меняет, не требуют блокировок
+ * - main() — передача результатов на главный поток
+ * Задачи экранов, которые должны отменяться вместе с экраном, — через ScreenTasks.
+ */
+public final class AppExecutors {
+
+    private static final int IO_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final long IO_KEEP_ALIVE_SECONDS = 30;
+
+    private static final ThreadPoolExecutor IO;
+    private static final ExecutorService GAME;
+    private static volatile Thread gameThread;
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+    private static final Executor MAIN = MAIN_HANDLER::post;
+
+    static {
+        AtomicInteger ioIndex = new AtomicInteger();
+        IO = new ThreadPoolExecutor(IO_THREADS, IO_THREADS, IO_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(() -> {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        r.run();
+                    }, "AppIo-" + ioIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        // Простаивающие потоки не держим
+        IO.allowCoreThreadTimeOut(true);
+        GAME = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "GameActor");
+            t.setDaemon(true);
+            gameThread = t;
+            return t;
+        });
+    }
+
+    private AppExecutors() {
+    }
+
+    public static ExecutorService io() {
+        return IO;
+    }
+
+    /** Поток состояния игры: задачи выполняются строго по одной и по порядку */
+    public static ExecutorService game() {
+        return GAME;
+    }
+
+    public static Executor main() {
+        return MAIN;
+    }
+
+    public static Handler mainHandler() {
+        return MAIN_HANDLER;
+    }
+
+    public static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    public static boolean isGameThread() {
+        return Thread.currentThread() == gameThread;
+    }
+
+    /**
+     * Вызывать перед future.get(): если главный поток будет ждать незавершённую
+     * фоновую задачу, это видно в StrictMode как медленный вызов.
+     */
+    public static void noteBlockingWait(Future<?> future, String what) {
+        if (!future.isDone() && isMainThread()) {
+            StrictMode.noteSlowCall(what);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.couriersimulator.concurrent;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+
+/**
+ * Фоновая работа одного экрана, привязанная к его жизненному циклу.
+ * - load: работа на io() (по одной задаче за раз, в порядке вызова), результат — на главном потоке
+ * - bind: обёртка для колбэков, которые отдаются долгоживущим объектам
+ *   (MapStartup, планировщики): после onDestroy она ничего не делает и не держит экран
+ * В ON_DESTROY незавершённые задачи отменяются (с прерыванием), результаты отбрасываются.
+ * Все методы вызываются с главного потока.
+ */
+public final class ScreenTasks implements LifecycleEventObserver {
+
+    private final SerialExecutor lane = new SerialExecutor(AppExecutors.io());
+    private final List<FutureTask<?>> pending = new ArrayList<>();
+    private final List<Bound> bound = new ArrayList<>();
+    private boolean destroyed;
+
+    public ScreenTasks(LifecycleOwner owner) {
+        owner.getLifecycle().addObserver(this);
+    }
+
+    /**
+     * @param onResult вызывается на главном потоке, если экран ещё жив;
+     *                 если work бросил исключение, оно пробрасывается на главный поток
+     */
+    public <T> void load(Callable<T> work, Consumer<T> onResult) {
+        if (destroyed) {
+            return;
+        }
+        pending.removeIf(FutureTask::isDone);
+        FutureTask<T> task = new FutureTask<T>(work) {
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                AppExecutors.main().execute(() -> deliver(this, onResult));
+            }
+        };
+        pending.add(task);
+        lane.execute(task);
+    }
+
+    /** Колбэк, который выполнится, только пока экран жив */
+    public Runnable bind(Runnable action) {
+        Bound b = new Bound(action);
+        if (destroyed) {
+            b.action = null;
+        } else {
+            bound.add(b);
+        }
+        return b;
+    }
+
+    public boolean isDestroyed() {
+        return destroyed;
+    }
+
+    @Override
+    public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+        if (event != Lifecycle.Event.ON_DESTROY) {
+            return;
+        }
+        destroyed = true;
+        source.getLifecycle().removeObserver(this);
+        lane.shutdown();
+        for (FutureTask<?> task : pending) {
+            task.cancel(true);
+        }
+        pending.clear();
+        for (Bound b : bound) {
+            b.action = null;
+        }
+        bound.clear();
+    }
+
+    private <T> void deliver(FutureTask<T> task, Consumer<T> onResult) {
+        pending.remove(task);
+        if (destroyed) {
+            return;
+        }
+        T result;
+        try {
+            result = task.get();
+        } catch (InterruptedException e) {
+            return; // Задача уже завершена, get не ждёт
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Background task failed", cause);
+        }
+        onResult.accept(result);
+    }
+
+    // Ссылка на действие обнуляется в onDestroy, чтобы очередь чужого потока не держала экран
+    private static final class Bound implements Runnable {
+        volatile Runnable action;
+
+        Bound(Runnable action) {
+            this.action = action;
+        }
+
+        @Override
+        public void run() {
+            Runnable a = action;
+            if (a != null) {
+                a.run();
+            }
+        }
+    }
+}
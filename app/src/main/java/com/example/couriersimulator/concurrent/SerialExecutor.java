@@ -0,0 +1,56 @@
+package com.example.couriersimulator.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Очередь задач поверх общего пула: задачи выполняются по одной и в порядке
+ * отправки, но поток не занимается, пока очередь пуста. Всё, что трогают
+ * только задачи одной очереди, видно им без синхронизации.
+ * После shutdown новые задачи молча отбрасываются.
+ */
+public final class SerialExecutor implements Executor {
+
+    private final Executor backing;
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private boolean running;
+    private boolean shutdown;
+
+    public SerialExecutor(Executor backing) {
+        this.backing = backing;
+    }
+
+    @Override
+    public synchronized void execute(Runnable task) {
+        if (shutdown) {
+            return;
+        }
+        tasks.add(task);
+        if (!running) {
+            running = true;
+            backing.execute(this::drain);
+        }
+    }
+
+    /** Уже отправленные задачи выполнятся, новые — нет */
+    public synchronized void shutdown() {
+        shutdown = true;
+    }
+
+    // Одна задача за один заход в пул: долгие очереди не занимают поток пула целиком
+    private void drain() {
+        Runnable task;
+        synchronized (this) {
+            task = tasks.poll();
+            if (task == null) {
+                running = false;
+                return;
+            }
+        }
+        try {
+            task.run();
+        } finally {
+            backing.execute(this::drain);
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.example.couriersimulator.location;
+
+import android.Manifest;
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.location.LocationManager;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.core.location.LocationListenerCompat;
+import androidx.core.location.LocationManagerCompat;
+import androidx.core.location.LocationRequestCompat;
+
+import com.example.couriersimulator.geo.FixFilter;
+import com.example.couriersimulator.geo.GeoMath;
+import com.example.couriersimulator.replay.Trace;
+import com.example.couriersimulator.replay.TraceParser;
+import com.example.couriersimulator.replay.TracePlayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Подписка на координаты, которая подстраивается под игру:
+ * - далеко от цели (или без заказа) — редкие обновления со сбором в пачки,
+ *   чтобы система реже будила приложение; задержка пачки не больше времени,
+ *   за которое курьер доедет от границы радиуса подхода до цели, а ближе к цели
+ *   (по расстоянию и скорости последнего фикса) пачки отключаются
+ * - в радиусе подхода к цели — частые и точные, чтобы кнопка "Доставить"
+ *   включалась без задержки
+ * - на Android 12+ используется fused-провайдер, иначе GPS и сеть,
+ *   а совпадающие фиксы от них отсекает FixFilter
+ * - в фоне без активного заказа подписка снимается полностью
+ * - для разработки вместо GPS можно проиграть трек (startReplay): его фиксы
+ *   проходят тот же путь — FixFilter, выбор режима, Callback
+ */
+public class AdaptiveLocationScheduler {
+
+    /** Получатель отобранных фиксов (вызывается на главном потоке) */
+    public interface Callback {
+        void onFix(@NonNull Location location);
+    }
+
+    private static final String TAG = "LocationScheduler";
+
+    // Ближе этого расстояния до цели переключаемся на частые обновления
+    static final double APPROACH_RADIUS_METERS = 250;
+
+    // Скорость курьера, если фикс её не сообщает или она меньше (велосипед), м/с
+    static final double ASSUMED_SPEED_MPS = 4;
+
+    private static final long FAR_INTERVAL_MS = 15_000;
+    private static final float FAR_MIN_DISTANCE_METERS = 10f;
+    // Сколько система может копить фиксы перед доставкой пачкой. Интервал плюс задержка
+    // (60 с) — не больше APPROACH_RADIUS_METERS / ASSUMED_SPEED_MPS (~62 с): пересёкший
+    // границу подхода курьер узнаёт об этом раньше, чем доедет до цели
+    private static final long FAR_MAX_UPDATE_DELAY_MS = 45_000;
+
+    private static final long NEAR_INTERVAL_MS = 2_000;
+    private static final float NEAR_MIN_DISTANCE_METERS = 1f;
+
+    // FAR_LIVE — интервал как у FAR, но без пачек: до цели меньше, чем на задержку пачки
+    private enum Mode { STOPPED, FAR, FAR_LIVE, NEAR }
+
+    private final Context context;
+    private final LocationManager locationManager;
+    private final Callback callback;
+    private final Executor mainExecutor;
+    private final FixFilter filter = new FixFilter();
+    private final List<String> providers = new ArrayList<>(2);
+    private final LocationListenerCompat listener = this::onLocation;
+
+    private Mode mode = Mode.STOPPED;
+    private boolean hasTarget;
+    private double targetLat;
+    private double targetLng;
+    private boolean near;
+    // По последнему фиксу; -1 — фикса после выбора цели ещё не было
+    private double targetDistanceMeters = -1;
+    private double speedMps = ASSUMED_SPEED_MPS;
+
+    private long fixesReceived;
+    private long fixesUsed;
+
+    // Проигрывание трека вместо GPS; поток создаётся при первом startReplay
+    private ScheduledExecutorService replayExecutor;
+    private boolean replaying;
+    // null, пока трек читается из файла
+    private TracePlayer replay;
+    // Поколение проигрывания: фиксы остановленного трека, уже стоящие в очереди, отбрасываются
+    private int replayGeneration;
+
+    public AdaptiveLocationScheduler(Context context, Callback callback) {
+        this.context = context.getApplicationContext();
+        this.locationManager = (LocationManager) this.context.getSystemService(Context.LOCATION_SERVICE);
+        this.callback = callback;
+        this.mainExecutor = ContextCompat.getMainExecutor(this.context);
+    }
+
+    /** Точка, к которой едет курьер (точка доставки активного заказа) */
+    public void setTarget(double lat, double lng) {
+        hasTarget = true;
+        targetLat = lat;
+        targetLng = lng;
+        // Пока нет фикса рядом с новой целью, считаем её далёкой
+        near = false;
+        targetDistanceMeters = -1;
+        reschedule();
+    }
+
+    public void clearTarget() {
+        hasTarget = false;
+        near = false;
+        targetDistanceMeters = -1;
+        reschedule();
+    }
+
+    public boolean hasTarget() {
+        return hasTarget;
+    }
+
+    /** Начать (или продолжить) получать координаты. Без разрешения ничего не делает. */
+    public void start() {
+        if (replaying || !hasPermission()) {
+            return;
+        }
+        if (mode == Mode.STOPPED) {
+            mode = desiredMode();
+            register();
+        }
+    }
+
+    /** Приложение ушло в фон: без активного заказа подписка снимается (трек продолжает играть) */
+    public void onBackground() {
+        if (!hasTarget) {
+            stopUpdates();
+        }
+        Log.i(TAG, "fixes received=" + fixesReceived + " used=" + fixesUsed);
+    }
+
+    /** Остановить всё, включая поток проигрывания трека (экран уничтожается) */
+    public void stop() {
+        stopReplay();
+        stopUpdates();
+        if (replayExecutor != null) {
+            replayExecutor.shutdownNow();
+            replayExecutor = null;
+        }
+    }
+
+    /**
+     * Проигрывать трек из файла (GPX или CSV) вместо GPS, с ускорением speed
+     * (см. TracePlayer). Подписка на провайдеров снимается до stopReplay().
+     */
+    public void startReplay(File traceFile, double speed, boolean loop) {
+        stopReplay();
+        stopUpdates();
+        if (replayExecutor == null) {
+            replayExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "LocationReplay");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        int generation = ++replayGeneration;
+        long baseElapsedNanos = SystemClock.elapsedRealtimeNanos();
+        replaying = true;
+        replayExecutor.execute(() -> {
+            Trace trace;
+            try {
+                trace = TraceParser.parse(traceFile, TraceParser.DEFAULT_SPEED_MPS);
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot read trace " + traceFile, e);
+                mainExecutor.execute(() -> {
+                    if (generation == replayGeneration) {
+                        replaying = false;
+                        start();
+                    }
+                });
+                return;
+            }
+            TracePlayer player = new TracePlayer(trace, (lat, lng, accuracy, time) ->
+                    mainExecutor.execute(() -> {
+                        if (generation == replayGeneration) {
+                            onLocation(replayFix(lat, lng, accuracy, baseElapsedNanos + time * 1_000_000L));
+                        }
+                    }), replayExecutor, speed, loop);
+            mainExecutor.execute(() -> {
+                if (generation == replayGeneration) {
+                    replay = player;
+                    player.start();
+                    Log.i(TAG, "replay " + traceFile.getName() + ": " + trace.size() + " fixes, "
+                            + trace.getDurationMillis() / 1000 + " s at " + player.getSpeed() + "x");
+                }
+            });
+        });
+    }
+
+    /** Остановить трек; настоящий GPS включится следующим start() */
+    public void stopReplay() {
+        if (!replaying) {
+            return;
+        }
+        replaying = false;
+        replayGeneration++;
+        if (replay != null) {
+            replay.stop();
+            replay = null;
+        }
+        // Время трека не связано со временем настоящих фиксов
+        filter.reset();
+    }
+
+    public boolean isReplaying() {
+        return replaying;
+    }
+
+    private void stopUpdates() {
+        if (mode != Mode.STOPPED) {
+            LocationManagerCompat.removeUpdates(locationManager, listener);
+            mode = Mode.STOPPED;
+            // После паузы первый же фикс должен пройти
+            filter.reset();
+        }
+    }
+
+    /** Сколько фиксов пришло от всех провайдеров */
+    public long getFixesReceived() {
+        return fixesReceived;
+    }
+
+    /** Сколько из них прошло FixFilter и было передано в игру */
+    public long getFixesUsed() {
+        return fixesUsed;
+    }
+
+    private void onLocation(@NonNull Location location) {
+        fixesReceived++;
+        long timeMs = location.getElapsedRealtimeNanos() / 1_000_000L;
+        float accuracy = location.hasAccuracy() ? location.getAccuracy() : 0f;
+        if (!filter.accept(timeMs, accuracy)) {
+            return;
+        }
+        fixesUsed++;
+        if (hasTarget) {
+            double dSq = GeoMath.distanceSquaredMeters(location.getLatitude(), location.getLongitude(),
+                    targetLat, targetLng);
+            near = dSq <= APPROACH_RADIUS_METERS * APPROACH_RADIUS_METERS;
+            targetDistanceMeters = Math.sqrt(dSq);
+            speedMps = Math.max(ASSUMED_SPEED_MPS, location.hasSpeed() ? location.getSpeed() : 0);
+            reschedule();
+        }
+        callback.onFix(location);
+    }
+
+    // Фикс трека выглядит для игры как обычный; время — время трека, чтобы работал FixFilter
+    private static Location replayFix(double lat, double lng, float accuracy, long elapsedNanos) {
+        Location location = new Location("replay");
+        location.setLatitude(lat);
+        location.setLongitude(lng);
+        if (accuracy > 0) {
+            location.setAccuracy(accuracy);
+        }
+        location.setTime(System.currentTimeMillis());
+        location.setElapsedRealtimeNanos(elapsedNanos);
+        return location;
+    }
+
+    private Mode desiredMode() {
+        if (!hasTarget) {
+            return Mode.FAR;
+        }
+        if (near) {
+            return Mode.NEAR;
+        }
+        if (targetDistanceMeters < 0) {
+            return Mode.FAR_LIVE;
+        }
+        // Через сколько курьер может оказаться у цели; столько же может ждать новый фикс
+        double etaMs = targetDistanceMeters / speedMps * 1000;
+        if (etaMs >= FAR_INTERVAL_MS + FAR_MAX_UPDATE_DELAY_MS) {
+            return Mode.FAR;
+        }
+        return etaMs >= FAR_INTERVAL_MS ? Mode.FAR_LIVE : Mode.NEAR;
+    }
+
+    // Перерегистрируемся только при смене режима
+    private void reschedule() {
+        if (mode == Mode.STOPPED) {
+            return;
+        }
+        Mode wanted = desiredMode();
+        if (wanted != mode) {
+            LocationManagerCompat.removeUpdates(locationManager, listener);
+            mode = wanted;
+            register();
+        }
+    }
+
+    @SuppressLint("MissingPermission") // проверено в start()
+    private void register() {
+        LocationRequestCompat request = mode == Mode.NEAR
+                ? new LocationRequestCompat.Builder(NEAR_INTERVAL_MS)
+                        .setQuality(LocationRequestCompat.QUALITY_HIGH_ACCURACY)
+                        .setMinUpdateDistanceMeters(NEAR_MIN_DISTANCE_METERS)
+                        .build()
+                : new LocationRequestCompat.Builder(FAR_INTERVAL_MS)
+                        .setQuality(LocationRequestCompat.QUALITY_BALANCED_POWER_ACCURACY)
+                        .setMinUpdateDistanceMeters(FAR_MIN_DISTANCE_METERS)
+                        .setMaxUpdateDelayMillis(mode == Mode.FAR ? FAR_MAX_UPDATE_DELAY_MS : 0)
+                        .build();
+        for (String provider : providers()) {
+            LocationManagerCompat.requestLocationUpdates(locationManager, provider, request,
+                    mainExecutor, listener);
+        }
+        Log.i(TAG, "mode=" + mode + " providers=" + providers);
+    }
+
+    private List<String> providers() {
+        providers.clear();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S
+                && locationManager.hasProvider(LocationManager.FUSED_PROVIDER)) {
+            // Fused сам выбирает между GPS и сетью и уже объединяет их фиксы
+            providers.add(LocationManager.FUSED_PROVIDER);
+            return providers;
+        }
+        if (locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER)) {
+            providers.add(LocationManager.GPS_PROVIDER);
+        }
+        if (locationManager.isProviderEnabled(LocationManager.NETWORK_PROVIDER)) {
+            providers.add(LocationManager.NETWORK_PROVIDER);
+        }
+        return providers;
+    }
+
+    private boolean hasPermission() {
+        return ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION)
+                == PackageManager.PERMISSION_GRANTED
+                || ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_COARSE_LOCATION)
+                == PackageManager.PERMISSION_GRANTED;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.couriersimulator.location;
+
+import android.location.Location;
+
+import androidx.annotation.NonNull;
+
+import org.osmdroid.views.overlay.mylocation.IMyLocationConsumer;
+import org.osmdroid.views.overlay.mylocation.IMyLocationProvider;
+
+/**
+ * Источник для слоя "синей точки" (MyLocationNewOverlay) из фиксов, уже отобранных
+ * AdaptiveLocationScheduler. Своей подписки на GPS нет: без него слой завёл бы
+ * GpsMyLocationProvider с обновлениями раз в секунду и держал бы GPS включённым
+ * вопреки режиму планировщика. Вызывается только на главном потоке.
+ */
+public class ScheduledLocationProvider implements IMyLocationProvider {
+
+    private IMyLocationConsumer consumer;
+    private Location last;
+
+    /** Передать слою очередной фикс планировщика */
+    public void onFix(@NonNull Location location) {
+        last = location;
+        if (consumer != null) {
+            consumer.onLocationChanged(location, this);
+        }
+    }
+
+    @Override
+    public boolean startLocationProvider(IMyLocationConsumer consumer) {
+        this.consumer = consumer;
+        // Точка видна сразу, не дожидаясь следующего фикса
+        if (last != null) {
+            consumer.onLocationChanged(last, this);
+        }
+        return true;
+    }
+
+    @Override
+    public void stopLocationProvider() {
+        consumer = null;
+    }
+
+    @Override
+    public Location getLastKnownLocation() {
+        return last;
+    }
+
+    @Override
+    public void destroy() {
+        consumer = null;
+    }
+}
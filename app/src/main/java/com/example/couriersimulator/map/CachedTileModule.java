@@ -0,0 +1,92 @@
+package com.example.couriersimulator.map;
+
+import android.graphics.drawable.Drawable;
+
+import org.osmdroid.tileprovider.modules.CantContinueException;
+import org.osmdroid.tileprovider.modules.MapTileModuleProviderBase;
+import org.osmdroid.tileprovider.tilesource.BitmapTileSourceBase;
+import org.osmdroid.tileprovider.tilesource.ITileSource;
+import org.osmdroid.util.MapTileIndex;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * Модуль osmdroid поверх TileCache: тайл с диска, а при промахе — с сервера
+ * (только то, что карта сейчас показывает). Офлайн TileCache в сеть не ходит,
+ * и непоказанные тайлы достаются следующему модулю (архиву), если он есть.
+ */
+class CachedTileModule extends MapTileModuleProviderBase {
+
+    // Два потока загрузки, как у MapTileDownloader: сервер тайлов не любит больше
+    private static final int THREADS = 2;
+    private static final int PENDING_TILES = 40;
+
+    private final TileCache cache;
+    private volatile ITileSource tileSource;
+
+    CachedTileModule(TileCache cache, ITileSource tileSource) {
+        super(THREADS, PENDING_TILES);
+        this.cache = cache;
+        this.tileSource = tileSource;
+    }
+
+    @Override
+    protected String getName() {
+        return "LRU tile cache";
+    }
+
+    @Override
+    protected String getThreadGroupName() {
+        return "lrutilecache";
+    }
+
+    @Override
+    public TileLoader getTileLoader() {
+        return new TileLoader() {
+            @Override
+            public Drawable loadTile(long index) throws CantContinueException {
+                ITileSource source = tileSource;
+                if (!(source instanceof BitmapTileSourceBase)) {
+                    return null;
+                }
+                byte[] bytes;
+                try {
+                    bytes = cache.get(MapTileIndex.getZoom(index), MapTileIndex.getX(index),
+                            MapTileIndex.getY(index));
+                } catch (IOException e) {
+                    return null; // Кэш не записался: тайл покажем в следующий раз
+                }
+                if (bytes == null) {
+                    return null;
+                }
+                try {
+                    return ((BitmapTileSourceBase) source).getDrawable(new ByteArrayInputStream(bytes));
+                } catch (BitmapTileSourceBase.LowMemoryException e) {
+                    throw new CantContinueException(e);
+                }
+            }
+        };
+    }
+
+    // Сеть решает сам TileCache: иначе офлайн osmdroid не спросил бы и показанные тайлы
+    @Override
+    public boolean getUsesDataConnection() {
+        return false;
+    }
+
+    @Override
+    public int getMinimumZoomLevel() {
+        return tileSource.getMinimumZoomLevel();
+    }
+
+    @Override
+    public int getMaximumZoomLevel() {
+        return tileSource.getMaximumZoomLevel();
+    }
+
+    @Override
+    public void setTileSource(ITileSource tileSource) {
+        this.tileSource = tileSource;
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.couriersimulator.map;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Point;
+import android.graphics.Rect;
+
+import com.example.couriersimulator.concurrent.AppExecutors;
+import com.example.couriersimulator.concurrent.SerialExecutor;
+
+import org.osmdroid.util.BoundingBox;
+import org.osmdroid.util.GeoPoint;
+import org.osmdroid.views.MapView;
+import org.osmdroid.views.Projection;
+import org.osmdroid.views.overlay.Overlay;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * История на карте: след курьера и плотность доставок (HeatTiles), растеризованные
+ * тайлами сетки osmdroid. Отрисовка только копирует готовые Bitmap видимых тайлов;
+ * растеризация — в фоне, по одному тайлу, и только для новых тайлов и тех, которые
+ * новые точки сделали грязными. Пока тайл перерисовывается, виден прежний.
+ * Кэш — фиксированное число слотов без коллекций и упаковки long: кадр ничего не аллоцирует.
+ */
+public class HeatTrailOverlay extends Overlay {
+
+    // Экран телефона — около 50 тайлов; остальное — запас на панорамирование и соседний зум
+    private static final int MAX_CACHED_TILES = 96;
+    private static final int TILE = HeatTiles.TILE_SIZE;
+    // Сколько наложившихся точек дают насыщенный цвет
+    private static final float TRAIL_FULL_SCALE = 2f;
+    private static final float DELIVERY_FULL_SCALE = 3f;
+
+    private final MapView mapView;
+    private final HeatTiles trail;
+    private final HeatTiles deliveries;
+    private final int[] trailPalette = HeatTiles.gradient(
+            Color.argb(70, 0x1E, 0x88, 0xE5), Color.argb(170, 0x0D, 0x47, 0xA1));
+    private final int[] deliveryPalette = HeatTiles.gradient(
+            Color.argb(60, 0xFF, 0xEB, 0x3B), Color.argb(160, 0xFF, 0x98, 0x00),
+            Color.argb(210, 0xE5, 0x39, 0x35));
+
+    // Слоты кэша; только главный поток (пиксели занятого слота пишет фон в отдельный Bitmap)
+    private final long[] keys = new long[MAX_CACHED_TILES];
+    private final Bitmap[] bitmaps = new Bitmap[MAX_CACHED_TILES];
+    private final boolean[] ready = new boolean[MAX_CACHED_TILES];
+    private final boolean[] busy = new boolean[MAX_CACHED_TILES];
+    private final long[] lastUsedFrame = new long[MAX_CACHED_TILES];
+    private int slotCount;
+    private long frame;
+    private boolean detached;
+
+    // Растеризация: очередь по одному тайлу; буферы — только её
+    private final SerialExecutor lane = new SerialExecutor(AppExecutors.io());
+    private final float[] density = new float[TILE * TILE];
+    private final int[] argb = new int[TILE * TILE];
+    // Bitmap вытесненных и заменённых тайлов для повторного использования
+    private final ConcurrentLinkedQueue<Bitmap> spareBitmaps = new ConcurrentLinkedQueue<>();
+
+    private final Paint bitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect tileRect = new Rect();
+    private final Point screenPoint = new Point();
+    private final GeoPoint geoPoint = new GeoPoint(0.0, 0.0);
+
+    public HeatTrailOverlay(MapView mapView, HeatTiles trail, HeatTiles deliveries) {
+        this.mapView = mapView;
+        this.trail = trail;
+        this.deliveries = deliveries;
+        // Кэш прошлого экрана (поворот) с этим слоем не связан
+        trail.forgetAll();
+        deliveries.forgetAll();
+    }
+
+    @Override
+    public void draw(Canvas canvas, Projection projection) {
+        if (trail.getPointCount() == 0 && deliveries.getPointCount() == 0) {
+            return;
+        }
+        frame++;
+        int zoom = Math.max(HeatTiles.MIN_ZOOM,
+                Math.min(HeatTiles.MAX_ZOOM, (int) Math.floor(projection.getZoomLevel())));
+        BoundingBox box = projection.getBoundingBox();
+        int x0 = HeatTiles.tileX(box.getLonWest(), zoom);
+        int x1 = HeatTiles.tileX(box.getLonEast(), zoom);
+        int y0 = HeatTiles.tileY(box.getLatNorth(), zoom);
+        int y1 = HeatTiles.tileY(box.getLatSouth(), zoom);
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                long key = HeatTiles.tileKey(zoom, x, y);
+                int slot = slotOf(key);
+                if (slot < 0) {
+                    slot = claimSlot(key);
+                    if (slot < 0) {
+                        // Весь кэш занят этим кадром
+                        continue;
+                    }
+                    requestRender(slot, zoom, x, y);
+                } else if (!busy[slot] && (trail.isDirty(key) || deliveries.isDirty(key))) {
+                    requestRender(slot, zoom, x, y);
+                }
+                lastUsedFrame[slot] = frame;
+                if (ready[slot] && bitmaps[slot] != null) {
+                    drawTile(canvas, projection, bitmaps[slot], zoom, x, y);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onDetach(MapView mapView) {
+        detached = true;
+        lane.shutdown();
+        trail.forgetAll();
+        deliveries.forgetAll();
+        super.onDetach(mapView);
+    }
+
+    private void drawTile(Canvas canvas, Projection projection, Bitmap bitmap, int zoom, int x, int y) {
+        geoPoint.setCoords(HeatTiles.tileLat(y, zoom), HeatTiles.tileLng(x, zoom));
+        projection.toPixels(geoPoint, screenPoint);
+        int left = screenPoint.x;
+        int top = screenPoint.y;
+        geoPoint.setCoords(HeatTiles.tileLat(y + 1, zoom), HeatTiles.tileLng(x + 1, zoom));
+        projection.toPixels(geoPoint, screenPoint);
+        tileRect.set(left, top, screenPoint.x, screenPoint.y);
+        canvas.drawBitmap(bitmap, null, tileRect, bitmapPaint);
+    }
+
+    private int slotOf(long key) {
+        for (int s = 0; s < slotCount; s++) {
+            if (keys[s] == key) {
+                return s;
+            }
+        }
+        return -1;
+    }
+
+    // Свободный слот или давно не нужный тайл; растеризуемые и видимые в этом кадре не вытесняются
+    private int claimSlot(long key) {
+        int slot;
+        if (slotCount < MAX_CACHED_TILES) {
+            slot = slotCount++;
+        } else {
+            slot = -1;
+            for (int s = 0; s < slotCount; s++) {
+                if (!busy[s] && lastUsedFrame[s] < frame
+                        && (slot < 0 || lastUsedFrame[s] < lastUsedFrame[slot])) {
+                    slot = s;
+                }
+            }
+            if (slot < 0) {
+                return -1;
+            }
+            trail.forget(keys[slot]);
+            deliveries.forget(keys[slot]);
+            if (bitmaps[slot] != null) {
+                spareBitmaps.add(bitmaps[slot]);
+                bitmaps[slot] = null;
+            }
+        }
+        keys[slot] = key;
+        ready[slot] = false;
+        return slot;
+    }
+
+    private void requestRender(int slot, int zoom, int x, int y) {
+        busy[slot] = true;
+        long key = keys[slot];
+        lane.execute(() -> {
+            Bitmap bitmap = rasterize(zoom, x, y);
+            mapView.post(() -> onRendered(slot, key, bitmap));
+        });
+    }
+
+    // Фон: оба слоя в один тайл; null — в тайле нет точек
+    private Bitmap rasterize(int zoom, int x, int y) {
+        Arrays.fill(argb, 0);
+        boolean any = false;
+        if (trail.render(zoom, x, y, density) > 0) {
+            HeatTiles.paint(density, TRAIL_FULL_SCALE, trailPalette, argb);
+            any = true;
+        }
+        if (deliveries.render(zoom, x, y, density) > 0) {
+            HeatTiles.paint(density, DELIVERY_FULL_SCALE, deliveryPalette, argb);
+            any = true;
+        }
+        if (!any) {
+            return null;
+        }
+        Bitmap bitmap = spareBitmaps.poll();
+        if (bitmap == null) {
+            bitmap = Bitmap.createBitmap(TILE, TILE, Bitmap.Config.ARGB_8888);
+        }
+        bitmap.setPixels(argb, 0, TILE, 0, 0, TILE, TILE);
+        return bitmap;
+    }
+
+    private void onRendered(int slot, long key, Bitmap bitmap) {
+        busy[slot] = false;
+        if (detached || keys[slot] != key) {
+            return;
+        }
+        if (bitmaps[slot] != null) {
+            spareBitmaps.add(bitmaps[slot]);
+        }
+        bitmaps[slot] = bitmap;
+        ready[slot] = true;
+        mapView.invalidate();
+    }
+}
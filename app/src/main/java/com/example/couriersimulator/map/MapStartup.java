@@ -0,0 +1,59 @@
+package com.example.couriersimulator.map;
+
+import android.content.Context;
+import android.preference.PreferenceManager;
+
+import com.example.couriersimulator.BuildConfig;
+import com.example.couriersimulator.concurrent.AppExecutors;
+import com.example.couriersimulator.metrics.Metrics;
+import com.example.couriersimulator.metrics.Timer;
+
+import org.osmdroid.config.Configuration;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Подготовка osmdroid один раз на процесс и вне главного потока:
+ * Configuration.load читает SharedPreferences и проверяет каталоги кэша на диске,
+ * а MapView нельзя создавать до её окончания. Экран сначала показывает
+ * оболочку (кнопки), а карту создаёт в whenReady.
+ */
+public final class MapStartup {
+
+    private static final Timer CONFIG_TIMER = Metrics.timer("startup.osmdroidConfig");
+
+    private static final Object LOCK = new Object();
+    // Загрузка настроек; null, пока preload не вызван
+    private static CompletableFuture<Void> configFuture;
+
+    private MapStartup() {
+    }
+
+    /** Запустить загрузку настроек карты (повторные вызовы ничего не делают) */
+    public static void preload(Context context) {
+        synchronized (LOCK) {
+            if (configFuture == null) {
+                Context appContext = context.getApplicationContext();
+                configFuture = CompletableFuture.runAsync(() -> {
+                    long start = CONFIG_TIMER.start();
+                    // Серверы OSM требуют User-Agent приложения, а не библиотеки
+                    Configuration.getInstance().setUserAgentValue(BuildConfig.APPLICATION_ID);
+                    Configuration.getInstance().load(appContext,
+                            PreferenceManager.getDefaultSharedPreferences(appContext));
+                    TileCacheManager.configure();
+                    CONFIG_TIMER.stop(start);
+                }, AppExecutors.io());
+            }
+        }
+    }
+
+    /**
+     * Выполнить ready на главном потоке, когда карту можно создавать.
+     * Ссылка на ready живёт до этого момента — экраны передают ScreenTasks.bind.
+     */
+    public static void whenReady(Context context, Runnable ready) {
+        preload(context);
+        // Без сохранённых настроек (ошибка загрузки) osmdroid работает на значениях по умолчанию
+        configFuture.whenCompleteAsync((ignored, e) -> ready.run(), AppExecutors.main());
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.couriersimulator.map;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Point;
+import android.graphics.Rect;
+
+import org.osmdroid.util.BoundingBox;
+import org.osmdroid.util.GeoPoint;
+import org.osmdroid.views.Projection;
+import org.osmdroid.views.overlay.Overlay;
+
+/**
+ * Один слой карты для всех открытых заказов вместо отдельного Marker на каждый заказ.
+ * - точки хранятся примитивным массивом [lat, lng, ...]
+ * - кластеры пересчитываются только при смене целого уровня зума (PointClusterer)
+ * - рисуются только кластеры внутри видимой области карты
+ * - Paint, Rect, Point и буфер текста переиспользуются: отрисовка ничего не аллоцирует
+ */
+public class OrderClusterOverlay extends Overlay {
+
+    // Размер ячейки кластеризации и радиусы кружков на экране, dp
+    private static final float CELL_SIZE_DP = 48f;
+    private static final float MIN_RADIUS_DP = 8f;
+    private static final float MAX_RADIUS_DP = 22f;
+
+    private final PointClusterer clusterer;
+    private final float density;
+
+    private final Paint fillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint strokePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Rect textBounds = new Rect();
+    private final Point screenPoint = new Point();
+    private final GeoPoint geoPoint = new GeoPoint(0.0, 0.0);
+    private final char[] textBuffer = new char[11];
+
+    public OrderClusterOverlay(float density) {
+        this.density = density;
+        this.clusterer = new PointClusterer(CELL_SIZE_DP * density);
+
+        fillPaint.setStyle(Paint.Style.FILL);
+        fillPaint.setColor(Color.argb(200, 0x33, 0x99, 0xCC));
+        strokePaint.setStyle(Paint.Style.STROKE);
+        strokePaint.setStrokeWidth(2f * density);
+        strokePaint.setColor(Color.WHITE);
+        textPaint.setColor(Color.WHITE);
+        textPaint.setTextSize(12f * density);
+        textPaint.setFakeBoldText(true);
+        textPaint.setTextAlign(Paint.Align.CENTER);
+    }
+
+    /**
+     * Задать точки заказов. Массив не копируется; после вызова его нельзя менять
+     * до следующего setPoints. Перерисовку карты инициирует вызывающий код.
+     */
+    public void setPoints(double[] latLng, int count) {
+        clusterer.setPoints(latLng, count);
+    }
+
+    @Override
+    public void draw(Canvas canvas, Projection projection) {
+        if (clusterer.getPointCount() == 0) {
+            return;
+        }
+        clusterer.clusterFor((int) Math.floor(projection.getZoomLevel()));
+
+        // Видимая область с запасом на радиус кружка
+        BoundingBox box = projection.getBoundingBox();
+        double padLat = (box.getLatNorth() - box.getLatSouth()) * 0.1;
+        double padLng = (box.getLonEast() - box.getLonWest()) * 0.1;
+        double north = box.getLatNorth() + padLat;
+        double south = box.getLatSouth() - padLat;
+        double east = box.getLonEast() + padLng;
+        double west = box.getLonWest() - padLng;
+
+        int count = clusterer.getClusterCount();
+        for (int i = 0; i < count; i++) {
+            double lat = clusterer.getClusterLat(i);
+            double lng = clusterer.getClusterLng(i);
+            if (lat > north || lat < south || lng > east || lng < west) {
+                continue;
+            }
+            geoPoint.setCoords(lat, lng);
+            projection.toPixels(geoPoint, screenPoint);
+            drawCluster(canvas, screenPoint.x, screenPoint.y, clusterer.getClusterSize(i));
+        }
+    }
+
+    private void drawCluster(Canvas canvas, float x, float y, int size) {
+        // Радиус растёт логарифмически с числом заказов в кластере
+        float radiusDp = Math.min(MAX_RADIUS_DP, MIN_RADIUS_DP + 3f * (float) Math.log(size));
+        float radius = radiusDp * density;
+        canvas.drawCircle(x, y, radius, fillPaint);
+        canvas.drawCircle(x, y, radius, strokePaint);
+        if (size > 1) {
+            int len = writeDigits(size);
+            int start = textBuffer.length - len;
+            textPaint.getTextBounds(textBuffer, start, len, textBounds);
+            canvas.drawText(textBuffer, start, len, x, y + textBounds.height() / 2f, textPaint);
+        }
+    }
+
+    // Записать число в конец textBuffer без создания String; возвращает число символов
+    private int writeDigits(int value) {
+        int pos = textBuffer.length;
+        do {
+            textBuffer[--pos] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        return textBuffer.length - pos;
+    }
+}
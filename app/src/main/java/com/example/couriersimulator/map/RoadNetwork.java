@@ -0,0 +1,96 @@
+package com.example.couriersimulator.map;
+
+import android.content.Context;
+
+import com.example.couriersimulator.concurrent.AppExecutors;
+import com.example.couriersimulator.metrics.Metrics;
+import com.example.couriersimulator.metrics.Timer;
+import com.example.couriersimulator.road.RoadGraph;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Дорожный граф города для маршрутов без сети, один на процесс.
+ * Файл files/roads/roads.rgr отображается в память (RoadGraph.open); при первом запуске
+ * он копируется из assets/roads.rgr (собирается ./gradlew :core:buildRoadGraph).
+ * Если графа нет в сборке, маршруты и награды считаются по прямой.
+ * Загрузки никто не ждёт: результат приходит колбэком на главный поток.
+ */
+public final class RoadNetwork {
+
+    static final String GRAPH_ASSET = "roads.rgr";
+    private static final String DIR_NAME = "roads";
+
+    private static final Timer LOAD_TIMER = Metrics.timer("startup.roadGraph");
+
+    private static final Object LOCK = new Object();
+    // Загрузка графа; null, пока preload не вызван
+    private static CompletableFuture<RoadGraph> graphFuture;
+
+    private RoadNetwork() {
+    }
+
+    /** Запустить фоновую загрузку графа (повторные вызовы ничего не делают) */
+    public static void preload(Context context) {
+        synchronized (LOCK) {
+            if (graphFuture == null) {
+                Context appContext = context.getApplicationContext();
+                graphFuture = CompletableFuture.supplyAsync(() -> load(appContext), AppExecutors.io());
+            }
+        }
+    }
+
+    /**
+     * Передать граф в onLoaded на главном потоке, когда он загрузится (или сразу, если
+     * уже загружен). null — графа нет или файл повреждён.
+     */
+    public static void whenLoaded(Context context, Consumer<RoadGraph> onLoaded) {
+        preload(context);
+        graphFuture.whenCompleteAsync((graph, e) -> onLoaded.accept(e == null ? graph : null),
+                AppExecutors.main());
+    }
+
+    private static RoadGraph load(Context context) {
+        long start = LOAD_TIMER.start();
+        try {
+            File file = graphFile(context);
+            return file != null ? RoadGraph.open(file) : null;
+        } catch (IOException e) {
+            return null; // Повреждённый файл: играем без дорог
+        } finally {
+            LOAD_TIMER.stop(start);
+        }
+    }
+
+    /** Файл графа; при первом вызове копируется из assets. null — графа нет в сборке. */
+    private static File graphFile(Context context) {
+        File file = new File(new File(context.getFilesDir(), DIR_NAME), GRAPH_ASSET);
+        if (file.isFile()) {
+            return file;
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (InputStream in = context.getAssets().open(GRAPH_ASSET)) {
+            File dir = file.getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                return null;
+            }
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                byte[] buffer = new byte[64 * 1024];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, n);
+                }
+            }
+            return tmp.renameTo(file) ? file : null;
+        } catch (IOException e) {
+            tmp.delete();
+            return null;
+        }
+    }
+}
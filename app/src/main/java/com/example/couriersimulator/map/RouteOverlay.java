@@ -0,0 +1,67 @@
+package com.example.couriersimulator.map;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Point;
+
+import org.osmdroid.util.GeoPoint;
+import org.osmdroid.views.Projection;
+import org.osmdroid.views.overlay.Overlay;
+
+/**
+ * Линия маршрута курьера по дорогам (RoadRouter.routeVia).
+ * Точки хранятся примитивным массивом [lat, lng, ...]; Path, Point и GeoPoint
+ * переиспользуются, поэтому отрисовка ничего не аллоцирует.
+ */
+public class RouteOverlay extends Overlay {
+
+    private static final float WIDTH_DP = 5f;
+
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Path path = new Path();
+    private final Point screenPoint = new Point();
+    private final GeoPoint geoPoint = new GeoPoint(0.0, 0.0);
+    private double[] latLng = new double[0];
+    private int count;
+
+    public RouteOverlay(float density) {
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setStrokeWidth(WIDTH_DP * density);
+        linePaint.setStrokeJoin(Paint.Join.ROUND);
+        linePaint.setStrokeCap(Paint.Cap.ROUND);
+        linePaint.setColor(Color.argb(200, 0x1E, 0x88, 0xE5));
+    }
+
+    /**
+     * Задать линию. Массив не копируется; после вызова его нельзя менять
+     * до следующего setRoute. Перерисовку карты инициирует вызывающий код.
+     */
+    public void setRoute(double[] latLng, int count) {
+        this.latLng = latLng;
+        this.count = count;
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    @Override
+    public void draw(Canvas canvas, Projection projection) {
+        if (count < 2) {
+            return;
+        }
+        path.rewind();
+        for (int i = 0; i < count; i++) {
+            geoPoint.setCoords(latLng[i * 2], latLng[i * 2 + 1]);
+            projection.toPixels(geoPoint, screenPoint);
+            if (i == 0) {
+                path.moveTo(screenPoint.x, screenPoint.y);
+            } else {
+                path.lineTo(screenPoint.x, screenPoint.y);
+            }
+        }
+        canvas.drawPath(path, linePaint);
+    }
+}
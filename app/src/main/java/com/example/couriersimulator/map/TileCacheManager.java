@@ -0,0 +1,178 @@
+package com.example.couriersimulator.map;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.example.couriersimulator.concurrent.AppExecutors;
+import com.example.couriersimulator.concurrent.SerialExecutor;
+
+import org.osmdroid.config.Configuration;
+import org.osmdroid.config.IConfigurationProvider;
+import org.osmdroid.tileprovider.MapTileProviderArray;
+import org.osmdroid.tileprovider.modules.ArchiveFileFactory;
+import org.osmdroid.tileprovider.modules.IArchiveFile;
+import org.osmdroid.tileprovider.modules.MapTileFileArchiveProvider;
+import org.osmdroid.tileprovider.modules.MapTileModuleProviderBase;
+import org.osmdroid.tileprovider.modules.SqlTileWriter;
+import org.osmdroid.tileprovider.tilesource.OnlineTileSourceBase;
+import org.osmdroid.tileprovider.tilesource.TileSourceFactory;
+import org.osmdroid.tileprovider.util.SimpleRegisterReceiver;
+import org.osmdroid.views.MapView;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тайлы карты (MAPNIK).
+ * - дисковый кэш — TileCache: бюджет в байтах и вытеснение тайлов, которые дольше всех
+ *   не показывались (LRU). Тайл качается только тогда, когда карта его показывает:
+ *   массовой предзагрузки нет, правила tile.openstreetmap.org её запрещают
+ * - офлайн-режим: только тайлы, которые уже показывались, и архив
+ *   assets/offline_tiles.sqlite, если он есть в сборке (копируется в память
+ *   приложения при первом включении)
+ */
+public class TileCacheManager {
+
+    // Бюджет дискового кэша
+    static final long CACHE_MAX_BYTES = 80L * 1024 * 1024;
+    // Сколько тайл считается свежим (сервер OSM отдаёт слишком короткий срок)
+    static final long TILE_EXPIRATION_MS = TimeUnit.DAYS.toMillis(14);
+    // Тайлов в памяти: примерно два экрана планшета
+    private static final short MEMORY_CACHE_TILES = 64;
+
+    static final String OFFLINE_ARCHIVE_ASSET = "offline_tiles.sqlite";
+    private static final String CACHE_DIR_NAME = "map_tiles";
+    private static final String PREFS_NAME = "CourierSimulatorMapPrefs";
+    private static final String KEY_OFFLINE = "MAP_OFFLINE_MODE";
+
+    private final Context appContext;
+    private final OnlineTileSourceBase tileSource = TileSourceFactory.MAPNIK;
+    // Очередь поверх общего пула для файлов и настроек
+    private final SerialExecutor io = new SerialExecutor(AppExecutors.io());
+    // Флаг офлайн-режима; null — ещё не прочитан из настроек
+    private volatile Boolean offline;
+    // Создаётся при первом applyTo: к этому времени настройки osmdroid (User-Agent) загружены
+    private TileCache cache;
+
+    public TileCacheManager(Context context) {
+        this.appContext = context.getApplicationContext();
+        // Настройки читаются с диска — заранее и не на главном потоке
+        io.execute(this::isOfflineMode);
+        io.execute(TileCacheManager::deleteOsmdroidCache);
+    }
+
+    /** Настроить osmdroid. Вызывать после Configuration.load и до создания MapView. */
+    public static void configure() {
+        IConfigurationProvider config = Configuration.getInstance();
+        config.setCacheMapTileCount(MEMORY_CACHE_TILES);
+    }
+
+    public boolean isOfflineMode() {
+        Boolean value = offline;
+        if (value == null) {
+            value = prefs().getBoolean(KEY_OFFLINE, false);
+            offline = value;
+        }
+        return value;
+    }
+
+    public void setOfflineMode(boolean offline) {
+        this.offline = offline;
+        // apply пишет на диск сам, в фоне
+        prefs().edit().putBoolean(KEY_OFFLINE, offline).apply();
+    }
+
+    /**
+     * Подключить к карте источник тайлов по текущему режиму.
+     * Если офлайн-режим включён, но архива в сборке нет, карта показывает только
+     * просмотренные раньше тайлы и вызывается onArchiveMissing.
+     */
+    public void applyTo(MapView mapView, Runnable onArchiveMissing) {
+        TileCache tiles = cache();
+        boolean offline = isOfflineMode();
+        tiles.setOffline(offline);
+        if (!offline) {
+            mapView.setTileProvider(provider(tiles, null));
+            mapView.setUseDataConnection(true);
+            return;
+        }
+        io.execute(() -> {
+            File archive = offlineArchive();
+            AppExecutors.main().execute(() -> {
+                if (archive == null && onArchiveMissing != null) {
+                    onArchiveMissing.run();
+                }
+                mapView.setUseDataConnection(false);
+                mapView.setTileProvider(provider(tiles, archive));
+                mapView.invalidate();
+            });
+        });
+    }
+
+    /** Остановить фоновые задачи (кэш закрывать не нужно: файлы не держатся открытыми) */
+    public void shutdown() {
+        io.shutdown();
+    }
+
+    private TileCache cache() {
+        if (cache == null) {
+            String url = tileSource.getBaseUrl() + "{z}/{x}/{y}" + tileSource.imageFilenameEnding();
+            cache = new TileCache(new File(appContext.getCacheDir(), CACHE_DIR_NAME), CACHE_MAX_BYTES,
+                    TILE_EXPIRATION_MS, url, Configuration.getInstance().getUserAgentValue());
+        }
+        return cache;
+    }
+
+    // Сначала свой кэш (в офлайне — только показанные тайлы), затем архив
+    private MapTileProviderArray provider(TileCache tiles, File archive) {
+        SimpleRegisterReceiver receiver = new SimpleRegisterReceiver(appContext);
+        MapTileModuleProviderBase cached = new CachedTileModule(tiles, tileSource);
+        IArchiveFile archiveFile = archive != null ? ArchiveFileFactory.getArchiveFile(archive) : null;
+        MapTileModuleProviderBase[] modules = archiveFile == null
+                ? new MapTileModuleProviderBase[]{cached}
+                : new MapTileModuleProviderBase[]{cached, new MapTileFileArchiveProvider(
+                        receiver, tileSource, new IArchiveFile[]{archiveFile}, true)};
+        return new MapTileProviderArray(tileSource, receiver, modules);
+    }
+
+    /** Файл офлайн-архива; при первом вызове копируется из assets. null — архива нет. */
+    private File offlineArchive() {
+        File file = new File(new File(appContext.getFilesDir(), "tiles"), OFFLINE_ARCHIVE_ASSET);
+        if (file.isFile()) {
+            return file;
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (InputStream in = appContext.getAssets().open(OFFLINE_ARCHIVE_ASSET)) {
+            File dir = file.getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                return null;
+            }
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                byte[] buffer = new byte[64 * 1024];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, n);
+                }
+            }
+            return tmp.renameTo(file) ? file : null;
+        } catch (IOException e) {
+            tmp.delete();
+            return null; // Архив не входит в сборку
+        }
+    }
+
+    // Кэш osmdroid в SQLite прошлых версий больше не читается: освобождаем место
+    private static void deleteOsmdroidCache() {
+        File db = new File(Configuration.getInstance().getOsmdroidTileCache(), SqlTileWriter.DATABASE_FILENAME);
+        db.delete();
+        new File(db.getPath() + "-journal").delete();
+    }
+
+    private SharedPreferences prefs() {
+        return appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.couriersimulator.map;
+
+/**
+ * Точки истории для HeatTrailOverlay: фиксы игрока и места доставок. Живут, пока жив
+ * процесс, поэтому переживают пересоздание экрана (поворот), но не перезапуск.
+ */
+public final class TravelHistory {
+
+    // Радиус пятна в пикселях тайла: след — тонкий, доставки — заметные пятна
+    private static final int TRAIL_RADIUS_PX = 4;
+    private static final int DELIVERY_RADIUS_PX = 12;
+
+    private static final HeatTiles TRAIL = new HeatTiles(TRAIL_RADIUS_PX);
+    private static final HeatTiles DELIVERIES = new HeatTiles(DELIVERY_RADIUS_PX);
+
+    private TravelHistory() {
+    }
+
+    public static HeatTiles trail() {
+        return TRAIL;
+    }
+
+    public static HeatTiles deliveries() {
+        return DELIVERIES;
+    }
+}
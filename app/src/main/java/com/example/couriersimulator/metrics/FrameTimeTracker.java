@@ -0,0 +1,61 @@
+package com.example.couriersimulator.metrics;
+
+import android.view.Choreographer;
+
+/**
+ * Интервалы между кадрами через Choreographer: таймер "frame.interval"
+ * и счётчик "frame.janky" (кадр дольше полутора периодов обновления экрана).
+ * Пока трекер запущен, Choreographer просит vsync на каждый кадр,
+ * поэтому включать его стоит только на время замеров.
+ * Все методы — с главного потока.
+ */
+public class FrameTimeTracker implements Choreographer.FrameCallback {
+
+    private static final Timer FRAME_INTERVAL = Metrics.timer("frame.interval");
+    private static final Counter JANKY_FRAMES = Metrics.counter("frame.janky");
+
+    private final long jankThresholdNanos;
+    private boolean running;
+    private long lastFrameNanos;
+
+    /** @param refreshRate частота обновления экрана, Гц (Display.getRefreshRate) */
+    public FrameTimeTracker(float refreshRate) {
+        float hz = refreshRate > 1f ? refreshRate : 60f;
+        this.jankThresholdNanos = (long) (1.5e9 / hz);
+    }
+
+    public void start() {
+        if (!running) {
+            running = true;
+            lastFrameNanos = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    public void stop() {
+        if (running) {
+            running = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+        if (lastFrameNanos != 0) {
+            long interval = frameTimeNanos - lastFrameNanos;
+            FRAME_INTERVAL.record(interval);
+            if (interval > jankThresholdNanos) {
+                JANKY_FRAMES.inc();
+            }
+        }
+        lastFrameNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.couriersimulator.metrics;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.couriersimulator.concurrent.AppExecutors;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Выгрузка метрик в файл для разбора вне устройства:
+ * getExternalFilesDir("metrics")/metrics-&lt;время&gt;.tsv (формат — Metrics.writeReport).
+ * Забрать: adb pull /sdcard/Android/data/&lt;пакет&gt;/files/metrics
+ */
+public final class MetricsDump {
+
+    private static final String TAG = "MetricsDump";
+
+    private MetricsDump() {
+    }
+
+    /** Записать текущие значения в фоне (getExternalFilesDir тоже трогает диск, поэтому и он — там) */
+    public static void writeAsync(Context context) {
+        long now = System.currentTimeMillis();
+        Context appContext = context.getApplicationContext();
+        AppExecutors.io().execute(() -> {
+            File file = new File(appContext.getExternalFilesDir("metrics"), "metrics-" + now + ".tsv");
+            try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+                Metrics.writeReport(out, now);
+                Log.i(TAG, "Metrics written to " + file);
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot write " + file, e);
+            }
+        });
+    }
+}
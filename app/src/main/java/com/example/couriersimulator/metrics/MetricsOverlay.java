@@ -0,0 +1,108 @@
+package com.example.couriersimulator.metrics;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import org.osmdroid.views.MapView;
+import org.osmdroid.views.Projection;
+import org.osmdroid.views.overlay.Overlay;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Отладочная панель поверх карты: кадры и все таймеры из Metrics
+ * (число замеров, p50/p99/max в миллисекундах). Текст пересобирается
+ * не чаще раза в REFRESH_MS, карта при этом перерисовывается сама.
+ */
+public class MetricsOverlay extends Overlay {
+
+    private static final long REFRESH_MS = 500;
+    private static final int MAX_LINES = 14;
+
+    private final MapView mapView;
+    private final float density;
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint backgroundPaint = new Paint();
+    private final String[] lines = new String[MAX_LINES];
+    private int lineCount;
+    private long lastRefreshMillis;
+
+    private final Runnable refresh = new Runnable() {
+        @Override
+        public void run() {
+            if (isEnabled()) {
+                mapView.invalidate();
+                mapView.postDelayed(this, REFRESH_MS);
+            }
+        }
+    };
+
+    public MetricsOverlay(MapView mapView, float density) {
+        this.mapView = mapView;
+        this.density = density;
+        textPaint.setColor(Color.WHITE);
+        textPaint.setTextSize(11f * density);
+        textPaint.setTypeface(Typeface.MONOSPACE);
+        backgroundPaint.setColor(Color.argb(170, 0, 0, 0));
+        setEnabled(false);
+    }
+
+    /** Показать или скрыть панель */
+    public void setVisible(boolean visible) {
+        setEnabled(visible);
+        mapView.removeCallbacks(refresh);
+        if (visible) {
+            lastRefreshMillis = 0;
+            refresh.run();
+        } else {
+            mapView.invalidate();
+        }
+    }
+
+    @Override
+    public void draw(Canvas canvas, Projection projection) {
+        long now = System.currentTimeMillis();
+        if (now - lastRefreshMillis >= REFRESH_MS) {
+            lastRefreshMillis = now;
+            rebuildLines();
+        }
+        float lineHeight = textPaint.getTextSize() * 1.25f;
+        float pad = 6f * density;
+        float top = 64f * density;
+        float width = 0;
+        for (int i = 0; i < lineCount; i++) {
+            width = Math.max(width, textPaint.measureText(lines[i]));
+        }
+        // Панель рисуется в экранных координатах, без поворота и сдвига карты
+        projection.save(canvas, false, false);
+        canvas.drawRect(pad, top, pad * 3 + width, top + pad * 2 + lineHeight * lineCount, backgroundPaint);
+        for (int i = 0; i < lineCount; i++) {
+            canvas.drawText(lines[i], pad * 2, top + pad + lineHeight * (i + 0.8f), textPaint);
+        }
+        projection.restore(canvas, false);
+    }
+
+    private void rebuildLines() {
+        lineCount = 0;
+        Timer frames = Metrics.timer("frame.interval");
+        LatencyHistogram f = frames.getHistogram();
+        lines[lineCount++] = String.format(Locale.ROOT, "frames %d  p50 %.1f  p99 %.1f  janky %d  strict %d",
+                f.getCount(), f.valueAtPercentile(50) / 1e6, f.valueAtPercentile(99) / 1e6,
+                Metrics.counter("frame.janky").get(), Metrics.counter("strictmode.violations").get());
+        for (Map.Entry<String, Timer> e : Metrics.timers().entrySet()) {
+            if (lineCount == MAX_LINES) {
+                break;
+            }
+            if (e.getValue() == frames) {
+                continue;
+            }
+            LatencyHistogram h = e.getValue().getHistogram();
+            lines[lineCount++] = String.format(Locale.ROOT, "%-22s %5d  %.1f / %.1f / %.1f ms",
+                    e.getKey(), h.getCount(), h.valueAtPercentile(50) / 1e6,
+                    h.valueAtPercentile(99) / 1e6, h.getMaxNanos() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.couriersimulator.net;
+
+import com.example.couriersimulator.concurrent.AppExecutors;
+import com.example.couriersimulator.orders.Order;
+import com.example.couriersimulator.orders.OrderStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Подключение экрана к общему миру (WorldServer из :core). Копия заказов ведётся на потоке
+ * чтения WorldClient; экрану события приходят готовыми Order на главном потоке.
+ * Подключение и заявки — на io(): сокет блокирующий.
+ * После close() ни одно событие до экрана не доходит.
+ */
+public final class SharedWorld implements Closeable {
+
+    /** События общего мира; все вызовы — на главном потоке */
+    public interface Listener {
+        /** Весь набор открытых заказов заменён (подключение или пересинхронизация) */
+        void onOrdersReplaced(List<Order> orders);
+
+        void onOrderAdded(Order order);
+
+        /** Заказ взял кто-то (в том числе мы) или он истёк */
+        void onOrderRemoved(long orderId);
+
+        void onClaimResult(long orderId, boolean granted);
+
+        void onDisconnected(IOException e);
+    }
+
+    private final Listener listener;
+    private final WorldClient client;
+    // Только главный поток
+    private boolean closed;
+
+    public SharedWorld(Listener listener) {
+        this.listener = listener;
+        WorldMirror mirror = new WorldMirror();
+        mirror.setListener(new WorldMirror.Listener() {
+            @Override
+            public void onSnapshot(WorldMirror m) {
+                OrderStore store = m.getStore();
+                List<Order> orders = new ArrayList<>(store.size());
+                for (int s = store.first(); s >= 0; s = store.next(s)) {
+                    orders.add(store.toOrder(s));
+                }
+                post(() -> listener.onOrdersReplaced(orders));
+            }
+
+            @Override
+            public void onOrderAdded(WorldMirror m, int slot) {
+                Order order = m.getOrder(slot);
+                post(() -> listener.onOrderAdded(order));
+            }
+
+            @Override
+            public void onOrderRemoved(WorldMirror m, long orderId) {
+                post(() -> listener.onOrderRemoved(orderId));
+            }
+
+            @Override
+            public void onClaimResult(WorldMirror m, long orderId, boolean granted) {
+                post(() -> listener.onClaimResult(orderId, granted));
+            }
+        });
+        client = new WorldClient(mirror);
+        client.setOnDisconnected(e -> post(() -> listener.onDisconnected(e)));
+    }
+
+    /** Подключиться к "host:port" */
+    public void connect(String hostPort) {
+        int colon = hostPort.lastIndexOf(':');
+        String host = hostPort.substring(0, colon);
+        int port = Integer.parseInt(hostPort.substring(colon + 1));
+        AppExecutors.io().execute(() -> {
+            try {
+                client.connect(new InetSocketAddress(host, port));
+            } catch (IOException e) {
+                post(() -> listener.onDisconnected(e));
+            }
+        });
+    }
+
+    /** Попросить заказ; ответ — в onClaimResult */
+    public void claim(long orderId) {
+        AppExecutors.io().execute(() -> {
+            try {
+                client.claim(orderId);
+            } catch (IOException e) {
+                // Обрыв придёт и в onDisconnected; заявка считается отклонённой
+                post(() -> listener.onClaimResult(orderId, false));
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        AppExecutors.io().execute(() -> {
+            try {
+                client.close();
+            } catch (IOException ignored) {
+                // Соединение уже не нужно
+            }
+        });
+    }
+
+    private void post(Runnable event) {
+        AppExecutors.main().execute(() -> {
+            if (!closed) {
+                event.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.couriersimulator.orders;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.couriersimulator.R;
+
+import java.util.Locale;
+
+/**
+ * Строки списка заказов. Новые списки сравниваются со старыми через DiffUtil в фоне
+ * (ListAdapter): при сдвиге курьера перерисовываются только строки, у которых
+ * изменилось округлённое расстояние или место в списке.
+ */
+public class OrderRowAdapter extends ListAdapter<OrderRowAdapter.Row, OrderRowAdapter.OrderViewHolder> {
+
+    /** Заказ и расстояние до него, округлённое до ROUND_METERS */
+    public static final class Row {
+        public static final int ROUND_METERS = 10;
+
+        final Order order;
+        final int distanceMeters;
+
+        public Row(Order order, double distanceMeters) {
+            this.order = order;
+            this.distanceMeters = (int) Math.round(distanceMeters / ROUND_METERS) * ROUND_METERS;
+        }
+    }
+
+    /** Нажатие на заказ в списке */
+    public interface OnOrderClickListener {
+        void onOrderClick(Order order);
+    }
+
+    private static final DiffUtil.ItemCallback<Row> DIFF = new DiffUtil.ItemCallback<Row>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Row oldItem, @NonNull Row newItem) {
+            return oldItem.order.getId() == newItem.order.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Row oldItem, @NonNull Row newItem) {
+            // Заказы неизменяемы, меняется только расстояние
+            return oldItem.order == newItem.order && oldItem.distanceMeters == newItem.distanceMeters;
+        }
+    };
+
+    private final OnOrderClickListener listener;
+
+    public OrderRowAdapter(OnOrderClickListener listener) {
+        super(DIFF);
+        this.listener = listener;
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).order.getId();
+    }
+
+    @NonNull
+    @Override
+    public OrderViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_order, parent, false);
+        return new OrderViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull OrderViewHolder holder, int position) {
+        holder.bind(getItem(position));
+    }
+
+    class OrderViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvOrderTitle;
+        final TextView tvOrderDetails;
+
+        OrderViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvOrderTitle = itemView.findViewById(R.id.tvOrderTitle);
+            tvOrderDetails = itemView.findViewById(R.id.tvOrderDetails);
+            itemView.setOnClickListener(v -> {
+                int pos = getAdapterPosition();
+                if (pos != RecyclerView.NO_POSITION) {
+                    listener.onOrderClick(getItem(pos).order);
+                }
+            });
+        }
+
+        void bind(Row row) {
+            tvOrderTitle.setText(row.order.getTitle());
+            String distance = row.distanceMeters < 1000
+                    ? row.distanceMeters + " м"
+                    : String.format(Locale.ROOT, "%.1f км", row.distanceMeters / 1000.0);
+            tvOrderDetails.setText(distance + " · +" + row.order.getReward());
+        }
+    }
+}
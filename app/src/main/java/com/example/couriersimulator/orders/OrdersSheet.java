@@ -0,0 +1,111 @@
+package com.example.couriersimulator.orders;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.couriersimulator.R;
+import com.google.android.material.bottomsheet.BottomSheetDialog;
+import com.google.android.material.chip.ChipGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Нижний лист со списком заказов по возрастанию расстояния.
+ * Разметка, адаптер и диалог создаются один раз, при первом показе;
+ * дальше лист только показывается и скрывается.
+ * Порядок берётся из OrderDistanceList (его ведёт экран карты), лист лишь
+ * отрезает префикс в выбранном радиусе и отдаёт его адаптеру.
+ */
+public class OrdersSheet {
+
+    /** Пользователь выбрал заказ (лист уже закрыт) */
+    public interface Listener {
+        void onOrderSelected(Order order);
+    }
+
+    // Больше строк в списке не показываем: дальние заказы всё равно никто не листает
+    static final int MAX_ROWS = 1000;
+
+    private final Context context;
+    private final OrderDistanceList orders;
+    private final Listener listener;
+
+    private BottomSheetDialog dialog;
+    private TextView tvTitle;
+    private OrderRowAdapter adapter;
+    private double radiusMeters = 5000;
+
+    public OrdersSheet(Context context, OrderDistanceList orders, Listener listener) {
+        this.context = context;
+        this.orders = orders;
+        this.listener = listener;
+    }
+
+    public void show() {
+        if (dialog == null) {
+            build();
+        }
+        refresh();
+        dialog.show();
+    }
+
+    public boolean isShowing() {
+        return dialog != null && dialog.isShowing();
+    }
+
+    public void dismiss() {
+        if (dialog != null) {
+            dialog.dismiss();
+        }
+    }
+
+    /** Заказы или положение курьера изменились; открытый лист обновляется */
+    public void onOrdersChanged() {
+        if (isShowing()) {
+            refresh();
+        }
+    }
+
+    private void build() {
+        View sheetView = LayoutInflater.from(context).inflate(R.layout.bottom_sheet_orders, null);
+        tvTitle = sheetView.findViewById(R.id.tvOrdersTitle);
+
+        adapter = new OrderRowAdapter(order -> {
+            dialog.dismiss();
+            listener.onOrderSelected(order);
+        });
+        RecyclerView rvOrders = sheetView.findViewById(R.id.rvOrders);
+        rvOrders.setLayoutManager(new LinearLayoutManager(context));
+        rvOrders.setHasFixedSize(true);
+        rvOrders.setAdapter(adapter);
+
+        ChipGroup cgRadius = sheetView.findViewById(R.id.cgOrdersRadius);
+        cgRadius.setOnCheckedStateChangeListener((group, checkedIds) -> {
+            int id = checkedIds.isEmpty() ? R.id.chipRadius5 : checkedIds.get(0);
+            radiusMeters = id == R.id.chipRadius1 ? 1000 : id == R.id.chipRadius20 ? 20_000 : 5000;
+            refresh();
+        });
+
+        dialog = new BottomSheetDialog(context);
+        dialog.setContentView(sheetView);
+    }
+
+    private void refresh() {
+        int total = orders.countWithin(radiusMeters);
+        int n = Math.min(total, MAX_ROWS);
+        List<OrderRowAdapter.Row> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            rows.add(new OrderRowAdapter.Row(orders.get(i), orders.getDistanceMeters(i)));
+        }
+        adapter.submitList(rows);
+        tvTitle.setText(total == 0
+                ? "Нет заказов в радиусе " + (int) (radiusMeters / 1000) + " км"
+                : "Доступные заказы: " + total);
+    }
+}
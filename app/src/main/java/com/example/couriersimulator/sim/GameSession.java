@@ -0,0 +1,445 @@
+package com.example.couriersimulator.sim;
+
+import android.content.Context;
+
+import com.example.couriersimulator.cards.CardManager;
+import com.example.couriersimulator.cards.CollectibleCard;
+import com.example.couriersimulator.concurrent.AppExecutors;
+import com.example.couriersimulator.loot.LootState;
+import com.example.couriersimulator.loot.LootTable;
+import com.example.couriersimulator.orders.DemandHeatmap;
+import com.example.couriersimulator.orders.Order;
+import com.example.couriersimulator.orders.OrderGenerator;
+import com.example.couriersimulator.orders.SpawnScheduler;
+import com.example.couriersimulator.road.RoadGraph;
+import com.example.couriersimulator.road.RoadRouter;
+import com.example.couriersimulator.store.GameEvent;
+import com.example.couriersimulator.store.GameState;
+import com.example.couriersimulator.store.GameStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.function.Consumer;
+
+/**
+ * Игровой мир экрана карты на потоке AppExecutors.game().
+ * Simulation не потокобезопасна, поэтому все её изменения — появление, взятие, доставка
+ * и истечение заказов, движение курьера, ход часов — задачи этого потока, в одной очереди
+ * с журналом игры (GameStore) и коллекцией карточек (CardManager); события мира пишутся
+ * в журнал там же, без пересылок.
+ * Главный поток вызывает методы и получает неизменяемые снимки (Snapshot) и результаты
+ * действий. После close они больше не приходят, но уже отправленные изменения
+ * доходят до журнала.
+ */
+public final class GameSession {
+
+    /** Сколько заказов игрок может везти сразу */
+    public static final int MAX_BATCH_ORDERS = 5;
+
+    // Карта спроса вокруг игрока: полуразмер и ячейка (градусы), заказов в час в самый
+    // загруженный час по всей карте, срок жизни невзятого заказа и предел открытых заказов
+    private static final double DEMAND_RADIUS_DEG = OrderGenerator.DEFAULT_MAX_OFFSET_DEG;
+    private static final double DEMAND_CELL_DEG = 0.005;
+    private static final double DEMAND_PEAK_ORDERS_PER_HOUR = 60;
+    private static final long ORDER_TTL_MILLIS = 20 * 60 * 1000L;
+    private static final int MAX_OPEN_ORDERS = 40;
+    // Радиус, в котором кнопка "Доставить" активируется
+    private static final float DELIVERY_RADIUS_METERS = 20f;
+    // Курьер игрока в симуляции
+    private static final int PLAYER = 0;
+    // Больше тиков за раз не догоняем, остальное время пропускаем
+    private static final int MAX_CATCH_UP_TICKS = 100;
+
+    /** Вызывается на главном потоке */
+    public interface Listener {
+        void onWorldChanged(Snapshot snapshot);
+    }
+
+    /** Итог доставки (главный поток) */
+    public interface DeliveryListener {
+        /**
+         * @param awardedCard порядковый номер новой карточки, LootTable.NO_DROP,
+         *                    LootTable.EMPTY_CATALOG или дубликат (LootTable.isDuplicate)
+         * @param cards       карточки каталога по порядковому номеру
+         */
+        void onDelivered(int awardedCard, List<CollectibleCard> cards);
+    }
+
+    /**
+     * Что изменилось в мире с прошлого снимка и что видит игрок сейчас.
+     * Сначала применяются removed, затем added.
+     */
+    public static final class Snapshot {
+        private final List<Order> added;
+        private final long[] removed;
+        private final List<Order> delivered;
+        private final List<Order> route;
+        private final boolean routeChanged;
+        private final boolean canDeliver;
+
+        Snapshot(List<Order> added, long[] removed, List<Order> delivered, List<Order> route,
+                 boolean routeChanged, boolean canDeliver) {
+            this.added = added;
+            this.removed = removed;
+            this.delivered = delivered;
+            this.route = route;
+            this.routeChanged = routeChanged;
+            this.canDeliver = canDeliver;
+        }
+
+        /** Новые открытые заказы */
+        public List<Order> getAdded() {
+            return added;
+        }
+
+        /** id открытых заказов, которых больше нет: истекли, взяты или сняты сервером */
+        public long[] getRemoved() {
+            return removed;
+        }
+
+        public boolean hasOrderChanges() {
+            return !added.isEmpty() || removed.length > 0;
+        }
+
+        /** Заказы, доставленные игроком */
+        public List<Order> getDelivered() {
+            return delivered;
+        }
+
+        /** Принятые игроком заказы в порядке объезда; первый — текущий */
+        public List<Order> getRoute() {
+            return route;
+        }
+
+        /** Текущий заказ игрока или null */
+        public Order getCurrentOrder() {
+            return route.isEmpty() ? null : route.get(0);
+        }
+
+        public boolean isRouteChanged() {
+            return routeChanged;
+        }
+
+        /** Игрок в радиусе доставки текущего заказа */
+        public boolean canDeliver() {
+            return canDeliver;
+        }
+    }
+
+    private final Context appContext;
+    private final SimConfig config;
+    private final Listener listener;
+    // Только главный поток
+    private boolean closed;
+
+    // Дальше — только поток game()
+    private Simulation simulation;
+    private FixedStepLoop loop;
+    // Общий мир: заказы приходят с сервера, своего потока заказов нет
+    private boolean sharedWorld;
+    // Изменения с прошлого снимка
+    private final List<Order> added = new ArrayList<>();
+    private long[] removed = new long[16];
+    private int removedCount;
+    private final List<Order> delivered = new ArrayList<>();
+    // Что видел главный поток в прошлом снимке; null — снимков ещё не было
+    private List<Order> route;
+    private boolean canDeliver;
+
+    private GameSession(Context context, Listener listener) {
+        this.appContext = context.getApplicationContext();
+        this.listener = listener;
+        long now = System.currentTimeMillis();
+        this.config = new SimConfig()
+                .setSeed(now)
+                .setStartMillis(now)
+                .setDeliveryRadiusMeters(DELIVERY_RADIUS_METERS)
+                .setMaxBatchSize(MAX_BATCH_ORDERS);
+    }
+
+    /**
+     * Восстановить мир из журнала игры (пустое состояние — новая игра). Первый снимок
+     * содержит все открытые и принятые заказы; сразу после него вызывается onRestored
+     * с сохранённым состоянием (оно больше нигде не используется).
+     */
+    public static GameSession open(Context context, Listener listener, Consumer<GameState> onRestored) {
+        GameStore.preload(context);
+        GameSession session = new GameSession(context, listener);
+        AppExecutors.game().execute(() -> {
+            GameState saved = GameStore.getState(session.appContext);
+            session.restore(saved);
+            session.publish(() -> onRestored.accept(saved));
+        });
+        return session;
+    }
+
+    /** Скорость курьера, м/с (для оценки времени в пути) */
+    public double getCourierSpeedMps() {
+        return config.getCourierSpeedMps();
+    }
+
+    /** Новое положение игрока; поток заказов следует за ним */
+    public void moveTo(double lat, double lng) {
+        AppExecutors.game().execute(() -> {
+            syncClock();
+            simulation.moveCourier(PLAYER, lat, lng);
+            // Поток заказов запускается, как только стало известно положение, и следует
+            // за игроком, если тот уехал за край карты спроса; в общем мире заказы — с сервера
+            SpawnScheduler spawner = simulation.getSpawnScheduler();
+            if (!sharedWorld && (spawner == null || spawner.getHeatmap().cellOf(lat, lng) < 0)) {
+                startDemand(lat, lng);
+            }
+            publish(null);
+        });
+    }
+
+    /** Подтянуть часы симуляции к реальному времени: заказы появляются и исчезают */
+    public void advance() {
+        AppExecutors.game().execute(() -> {
+            syncClock();
+            publish(null);
+        });
+    }
+
+    /** Взять открытый заказ; onResult получает его или null, если заказа уже нет */
+    public void accept(long orderId, Consumer<Order> onResult) {
+        AppExecutors.game().execute(() -> {
+            syncClock();
+            Order accepted = simulation.accept(PLAYER, orderId);
+            publish(() -> onResult.accept(accepted));
+        });
+    }
+
+    /**
+     * Доставить текущий заказ. Карточку разыгрывает симуляция по коллекции игрока
+     * (CardManager); новая карточка сразу отмечается собранной, поэтому следующая
+     * доставка её уже учитывает. Если доставлять нечего, onResult не вызывается.
+     */
+    public void deliver(DeliveryListener onResult) {
+        CardManager.withCollection(appContext, (catalog, owned) -> {
+            if (simulation.getCourier(PLAYER).getOrder() == null) {
+                return;
+            }
+            simulation.setLootTable(catalog.getLootTable());
+            simulation.setOwnedCards(PLAYER, owned);
+            syncClock();
+            int awarded = simulation.deliver(PLAYER);
+            List<CollectibleCard> cards = catalog.getCards();
+            if (awarded >= 0 && !LootTable.isDuplicate(awarded)) {
+                CardManager.setCardOwned(appContext, cards.get(awarded).getId(), true);
+            }
+            publish(() -> onResult.onDelivered(awarded, cards));
+        });
+    }
+
+    /** Граф дорог загружен: награды и дедлайны новых заказов считаются по дорогам */
+    public void setRoads(RoadGraph graph) {
+        AppExecutors.game().execute(() ->
+                simulation.getOrderGenerator().setTravelDistance(new RoadRouter(graph)));
+    }
+
+    /** Дальше заказы приходят только из общего мира (replaceOrders/addOrder/removeOrder) */
+    public void useSharedWorld() {
+        AppExecutors.game().execute(() -> sharedWorld = true);
+    }
+
+    /**
+     * Заказы общего мира кладутся в книгу мимо журнала: они принадлежат серверу.
+     * Свои прежние открытые заказы из журнала больше не нужны.
+     */
+    public void replaceOrders(List<Order> orders) {
+        AppExecutors.game().execute(() -> {
+            for (Order o : simulation.getOrderBook().all()) {
+                remove(o.getId());
+            }
+            simulation.clearOrders();
+            GameStore.record(appContext, GameEvent.ordersCleared());
+            for (Order o : orders) {
+                simulation.restoreOpenOrder(o);
+                added.add(o);
+            }
+            publish(null);
+        });
+    }
+
+    public void addOrder(Order order) {
+        AppExecutors.game().execute(() -> {
+            simulation.restoreOpenOrder(order);
+            added.add(order);
+            publish(null);
+        });
+    }
+
+    public void removeOrder(long orderId) {
+        AppExecutors.game().execute(() -> {
+            if (simulation.removeOpenOrder(orderId) != null) {
+                remove(orderId);
+                publish(null);
+            }
+        });
+    }
+
+    /** Больше ничего не присылать на главный поток. Только главный поток */
+    public void close() {
+        closed = true;
+    }
+
+    // Поток game(): пересоздать мир из сохранённого состояния
+    private void restore(GameState saved) {
+        OrderGenerator generator = new OrderGenerator(
+                config.getSeed() ^ 0x5DEECE66DL, saved.getNextOrderId(), OrderGenerator.DEFAULT_MAX_OFFSET_DEG);
+        simulation = new Simulation(config, generator);
+        simulation.addCourier(saved.hasPosition() ? saved.getLat() : 0, saved.hasPosition() ? saved.getLng() : 0,
+                false);
+        // Заказы кладём в книгу напрямую, мимо журнала: они в нём уже есть
+        for (Order o : saved.getOpenOrders()) {
+            simulation.restoreOpenOrder(o);
+            added.add(o);
+        }
+        for (Order o : saved.getActiveOrders()) {
+            simulation.restoreActiveOrder(PLAYER, o);
+        }
+        simulation.getCourier(PLAYER).getLootState()
+                .restore(saved.getLootMissStreak(), saved.getLootDropsSinceRare());
+        simulation.setListener(journalListener);
+        loop = new FixedStepLoop(simulation, MAX_CATCH_UP_TICKS);
+        loop.advanceTo(System.currentTimeMillis());
+    }
+
+    private void syncClock() {
+        loop.advanceTo(System.currentTimeMillis());
+    }
+
+    /**
+     * Карта спроса вокруг текущего положения. Первый запуск потока в новой игре — "с прогревом":
+     * сразу появляется столько заказов, сколько было бы открыто в установившемся режиме.
+     * Если поток уже идёт, меняется только карта, открытые заказы остаются.
+     */
+    private void startDemand(double lat, double lng) {
+        // Центр на сетке, а seed — от центра: у одного и того же района одна и та же карта
+        double centerLat = Math.round(lat / DEMAND_CELL_DEG) * DEMAND_CELL_DEG;
+        double centerLng = Math.round(lng / DEMAND_CELL_DEG) * DEMAND_CELL_DEG;
+        long mapSeed = 31 * Double.doubleToLongBits(centerLat) + Double.doubleToLongBits(centerLng);
+        DemandHeatmap heatmap = DemandHeatmap.synthetic(centerLat, centerLng, DEMAND_RADIUS_DEG,
+                DEMAND_CELL_DEG, DEMAND_PEAK_ORDERS_PER_HOUR, mapSeed);
+
+        SpawnScheduler spawner = simulation.getSpawnScheduler();
+        if (spawner != null) {
+            spawner.setHeatmap(heatmap);
+            return;
+        }
+        long now = simulation.getNowMillis();
+        spawner = new SpawnScheduler(heatmap, simulation.getOrderGenerator(), now, ORDER_TTL_MILLIS);
+        spawner.setUtcOffsetMillis(TimeZone.getDefault().getOffset(now));
+        spawner.setMaxOpenOrders(MAX_OPEN_ORDERS);
+        if (simulation.getOrderBook().isEmpty()) {
+            spawner.startAt(now - ORDER_TTL_MILLIS);
+        }
+        simulation.setSpawnScheduler(spawner);
+    }
+
+    // Заказ, появившийся и исчезнувший между снимками, главному потоку не нужен
+    private void remove(long orderId) {
+        for (int i = added.size() - 1; i >= 0; i--) {
+            if (added.get(i).getId() == orderId) {
+                added.remove(i);
+                return;
+            }
+        }
+        if (removedCount == removed.length) {
+            removed = Arrays.copyOf(removed, removedCount * 2);
+        }
+        removed[removedCount++] = orderId;
+    }
+
+    /**
+     * Отправить на главный поток снимок, если с прошлого что-то изменилось, и затем
+     * thenOnMain (результат действия), если он есть. Порядок снимков сохраняется.
+     */
+    private void publish(Runnable thenOnMain) {
+        // canDeliver может сделать текущим другой заказ маршрута — до чтения маршрута
+        boolean deliverable = simulation.canDeliver(PLAYER);
+        Courier player = simulation.getCourier(PLAYER);
+        int held = player.getHeldCount();
+        boolean routeChanged = route == null || held != route.size();
+        for (int p = 0; p < held && !routeChanged; p++) {
+            routeChanged = player.getRouteOrder(p) != route.get(p);
+        }
+        if (routeChanged) {
+            Order[] next = new Order[held];
+            for (int p = 0; p < held; p++) {
+                next[p] = player.getRouteOrder(p);
+            }
+            route = Collections.unmodifiableList(Arrays.asList(next));
+        }
+        Snapshot snapshot = null;
+        if (routeChanged || deliverable != canDeliver || !added.isEmpty() || removedCount > 0
+                || !delivered.isEmpty()) {
+            canDeliver = deliverable;
+            snapshot = new Snapshot(new ArrayList<>(added), Arrays.copyOf(removed, removedCount),
+                    new ArrayList<>(delivered), route, routeChanged, deliverable);
+            added.clear();
+            removedCount = 0;
+            delivered.clear();
+        }
+        if (snapshot == null && thenOnMain == null) {
+            return;
+        }
+        Snapshot s = snapshot;
+        AppExecutors.main().execute(() -> {
+            if (closed) {
+                return;
+            }
+            if (s != null) {
+                listener.onWorldChanged(s);
+            }
+            if (thenOnMain != null) {
+                thenOnMain.run();
+            }
+        });
+    }
+
+    /** События мира: в журнал игры (этот же поток) и в изменения для следующего снимка */
+    private final SimListener journalListener = new SimListener() {
+        @Override
+        public void onOrderSpawned(Order order) {
+            added.add(order);
+            GameStore.record(appContext, GameEvent.orderSpawned(order));
+        }
+
+        @Override
+        public void onOrderExpired(Order order) {
+            remove(order.getId());
+            GameStore.record(appContext, GameEvent.orderExpired(order.getId()));
+        }
+
+        @Override
+        public void onOrderAccepted(Courier courier, Order order) {
+            if (courier.getId() == PLAYER) {
+                remove(order.getId());
+                if (sharedWorld) {
+                    // Открытые заказы общего мира в журнал не пишутся: взятый — первым делом
+                    GameStore.record(appContext, GameEvent.orderSpawned(order));
+                }
+                GameStore.record(appContext, GameEvent.orderAccepted(order.getId()));
+            }
+        }
+
+        @Override
+        public void onOrderDelivered(Courier courier, Order order, int awardedCard) {
+            if (courier.getId() == PLAYER) {
+                delivered.add(order);
+                long now = System.currentTimeMillis();
+                GameStore.record(appContext, GameEvent.orderDelivered(
+                        order.getId(), order.getReward(), awardedCard, now));
+                GameStore.recordDelivery(appContext, order.getId(), courier.getTripStartMillis(), now,
+                        (float) courier.getTripMeters(), order.getReward(), awardedCard);
+                LootState loot = courier.getLootState();
+                GameStore.record(appContext, GameEvent.lootPity(loot.getMissStreak(), loot.getDropsSinceRare()));
+            }
+        }
+    };
+}
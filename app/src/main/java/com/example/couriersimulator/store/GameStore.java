@@ -0,0 +1,171 @@
+package com.example.couriersimulator.store;
+
+import android.content.Context;
+
+import com.example.couriersimulator.concurrent.AppExecutors;
+import com.example.couriersimulator.history.DeliveryLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Единое хранилище состояния игры для всего процесса.
+ * На диске — GameJournal в files/game (снимок + хвост событий, fsync в фоне),
+ * в памяти — текущее GameState, к которому применяется каждое записанное событие.
+ * Экраны восстанавливаются из getState(), поэтому состояние переживает и поворот
+ * экрана, и смерть процесса.
+ * История доставок — отдельно, в DeliveryLog (files/game/history).
+ *
+ * Журнал и текущее состояние принадлежат потоку AppExecutors.game(): открытие,
+ * каждое событие и копия для getState — задачи этого потока, поэтому они
+ * упорядочены без блокировок, а record не ждёт диска. Поэтому об ошибках записи
+ * вызывающий узнаёт не из record, а через ErrorListener.
+ */
+public class GameStore {
+
+    private static final String DIR_NAME = "game";
+    private static final String HISTORY_DIR_NAME = "history";
+
+    private static final Object INIT_LOCK = new Object();
+
+    /** Ошибка записи на диск: изменение не сохранено. Вызывается на главном потоке */
+    public interface ErrorListener {
+        void onStoreError(String message, IOException e);
+    }
+    // Открытие журнала; null, пока preload не вызван
+    private static Future<GameJournal> journalFuture;
+    // Только поток game(); history после открытия не меняется
+    private static GameJournal journal;
+    private static GameState live;
+    private static DeliveryLog history;
+    // Только главный поток. Ошибка, случившаяся без слушателя, ждёт следующего
+    private static ErrorListener errorListener;
+    private static String pendingMessage;
+    private static IOException pendingError;
+
+    private GameStore() {
+    }
+
+    /**
+     * Запустить фоновое открытие журнала (повторные вызовы ничего не делают).
+     * Стоит вызывать как можно раньше, чтобы к первому обращению всё было готово.
+     */
+    public static void preload(Context context) {
+        synchronized (INIT_LOCK) {
+            if (journalFuture == null) {
+                Context appContext = context.getApplicationContext();
+                journalFuture = AppExecutors.game().submit(() -> {
+                    File dir = new File(appContext.getFilesDir(), DIR_NAME);
+                    journal = GameJournal.open(dir);
+                    journal.setErrorListener(e -> reportError("Не удалось сохранить игру", e));
+                    history = DeliveryLog.open(new File(dir, HISTORY_DIR_NAME), TimeZone.getDefault());
+                    live = journal.getRestoredState().copy();
+                    return journal;
+                });
+            }
+        }
+    }
+
+    /** Копия текущего состояния (со всеми событиями, записанными до вызова). Если журнал ещё открывается, ждёт. */
+    public static GameState getState(Context context) {
+        awaitJournal(context);
+        if (AppExecutors.isGameThread()) {
+            return live.copy();
+        }
+        return await(AppExecutors.game().submit(() -> live.copy()), "GameStore.getState");
+    }
+
+    /** Записать изменение: в память и на диск — на потоке game(), вызывающий не ждёт */
+    public static void record(Context context, GameEvent event) {
+        preload(context);
+        if (AppExecutors.isGameThread()) {
+            apply(event);
+        } else {
+            AppExecutors.game().execute(() -> apply(event));
+        }
+    }
+
+    /** История доставок: итоги и запросы по дням (методы DeliveryLog потокобезопасны) */
+    public static DeliveryLog getHistory(Context context) {
+        awaitJournal(context);
+        return history;
+    }
+
+    /**
+     * Дописать доставку в историю (запись на диск — в фоне, по порядку с событиями журнала).
+     * Если запись не удалась, об этом узнаёт ErrorListener.
+     */
+    public static void recordDelivery(Context context, long orderId, long acceptedMillis, long deliveredMillis,
+                                      float distanceMeters, int reward, int card) {
+        preload(context);
+        AppExecutors.game().execute(() -> {
+            if (history == null) {
+                return; // Журнал не открылся, об ошибке сообщит getState
+            }
+            try {
+                history.append(orderId, acceptedMillis, deliveredMillis, distanceMeters, reward, card);
+            } catch (IOException e) {
+                // Итоги в журнале обновлены, но доставки не будет в статистике по дням
+                reportError("Доставка не записана в историю", e);
+            }
+        });
+    }
+
+    /**
+     * Слушатель ошибок записи (null — снять). Ошибка, случившаяся без слушателя,
+     * приходит новому сразу. Только главный поток.
+     */
+    public static void setErrorListener(ErrorListener listener) {
+        errorListener = listener;
+        if (listener != null && pendingError != null) {
+            IOException e = pendingError;
+            pendingError = null;
+            listener.onStoreError(pendingMessage, e);
+        }
+    }
+
+    // Любой поток
+    private static void reportError(String message, IOException e) {
+        AppExecutors.main().execute(() -> {
+            if (errorListener != null) {
+                errorListener.onStoreError(message, e);
+            } else {
+                pendingMessage = message;
+                pendingError = e;
+            }
+        });
+    }
+
+    // Поток game()
+    private static void apply(GameEvent event) {
+        if (journal == null) {
+            return; // Журнал не открылся, об ошибке сообщит getState
+        }
+        live.apply(event);
+        journal.append(event);
+    }
+
+    private static void awaitJournal(Context context) {
+        preload(context);
+        if (AppExecutors.isGameThread() && !journalFuture.isDone()) {
+            // Открытие стоит в той же очереди позже нас: ожидание никогда не кончится
+            throw new IllegalStateException("Game journal is not open yet; call preload earlier");
+        }
+        await(journalFuture, "GameStore.open");
+    }
+
+    private static <T> T await(Future<T> future, String what) {
+        AppExecutors.noteBlockingWait(future, what);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + what, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Game journal failed: " + what, e.getCause());
+        }
+    }
+}
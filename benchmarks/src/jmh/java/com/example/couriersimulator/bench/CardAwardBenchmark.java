@@ -0,0 +1,48 @@
+package com.example.couriersimulator.bench;
+
+import com.example.couriersimulator.loot.LootState;
+import com.example.couriersimulator.loot.LootTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Розыгрыш карточки за доставку (LootTable, alias-таблицы) при разном размере каталога
+ * (половина уже собрана). Шанс 1.0, чтобы каждый вызов доходил до выбора карточки.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CardAwardBenchmark {
+
+    @Param({"2", "1000", "5000"})
+    public int catalogSize;
+
+    private final Random random = new Random(3);
+    private final BitSet owned = new BitSet();
+    private final LootState lootState = new LootState();
+    private LootTable lootTable;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < catalogSize; i += 2) {
+            owned.set(i);
+        }
+        lootTable = LootTable.uniform(catalogSize);
+    }
+
+    @Benchmark
+    public int lootRoll() {
+        return lootTable.roll(random, 1.0, 0, 0, owned, lootState);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.couriersimulator.bench;
+
+import com.example.couriersimulator.cards.CardCatalog;
+import com.example.couriersimulator.cards.CardItem;
+import com.example.couriersimulator.cards.CollectibleCard;
+import com.example.couriersimulator.cards.OwnershipBits;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Загрузка списка карточек для экрана коллекции.
+ * legacy — как было: копия каждой карточки и отдельный поиск флага по строковому ключу
+ * (HashMap вместо SharedPreferences); current — каталог без копий, флаги из одной строки.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CardListLoadingBenchmark {
+
+    private static final String KEY_OWNED_PREFIX = "CARD_OWNED_";
+
+    @Param({"2", "1000", "5000"})
+    public int catalogSize;
+
+    private CardCatalog catalog;
+    private final Map<String, Boolean> legacyPrefs = new HashMap<>();
+    private String encodedOwnership;
+
+    @Setup
+    public void setUp() {
+        List<CollectibleCard> cards = new ArrayList<>(catalogSize);
+        BitSet owned = new BitSet();
+        for (int i = 0; i < catalogSize; i++) {
+            String id = "card" + i;
+            cards.add(new CollectibleCard(id, i, "Велосипед #" + i, "Описание " + i, i));
+            if (i % 3 == 0) {
+                owned.set(i);
+                legacyPrefs.put(KEY_OWNED_PREFIX + id, true);
+            }
+        }
+        catalog = new CardCatalog(1, cards);
+        encodedOwnership = OwnershipBits.encode(owned);
+    }
+
+    @Benchmark
+    public List<CardItem> legacyCopyPerCard() {
+        List<CardItem> result = new ArrayList<>();
+        for (CollectibleCard base : catalog.getCards()) {
+            CollectibleCard copy = new CollectibleCard(base.getId(), base.getOrdinal(),
+                    base.getName(), base.getDescription(), base.getImageResId());
+            Boolean owned = legacyPrefs.get(KEY_OWNED_PREFIX + base.getId());
+            result.add(new CardItem(copy, owned != null && owned));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<CardItem> catalogWithOwnershipBits() {
+        BitSet owned = OwnershipBits.decode(encodedOwnership);
+        List<CollectibleCard> cards = catalog.getCards();
+        List<CardItem> result = new ArrayList<>(cards.size());
+        for (int i = 0; i < cards.size(); i++) {
+            result.add(new CardItem(cards.get(i), owned.get(i)));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.couriersimulator.bench;
+
+import com.example.couriersimulator.map.PointClusterer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подготовка кадра слоя заказов (OrderClusterOverlay) без Canvas:
+ * перекластеризация при смене зума и проход отсечения по видимой области,
+ * который выполняется на каждом кадре.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ClusterBenchmark {
+
+    // Ячейка 48dp при плотности экрана 3.0
+    private static final double CELL_SIZE_PX = 144;
+
+    @Param({"1000", "10000", "100000"})
+    public int points;
+
+    private PointClusterer clusterer;
+    private double[] coords;
+    private int zoom = 12;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(5);
+        coords = new double[points * 2];
+        for (int i = 0; i < points; i++) {
+            coords[i * 2] = 55.75 + (random.nextDouble() - 0.5) * 0.2;
+            coords[i * 2 + 1] = 37.62 + (random.nextDouble() - 0.5) * 0.3;
+        }
+        clusterer = new PointClusterer(CELL_SIZE_PX);
+        clusterer.setPoints(coords, points);
+        clusterer.clusterFor(15);
+    }
+
+    /** Кадр со сменой зума: полная перекластеризация + отсечение */
+    @Benchmark
+    public int zoomChangeFrame() {
+        zoom = zoom == 15 ? 12 : zoom + 1;
+        clusterer.clusterFor(zoom);
+        return cull();
+    }
+
+    /** Обычный кадр (панорамирование): только отсечение готовых кластеров */
+    @Benchmark
+    public int panFrame() {
+        clusterer.clusterFor(zoom);
+        return cull();
+    }
+
+    // Видимая область ~ экран телефона на зуме 15 вокруг центра
+    private int cull() {
+        double north = 55.76;
+        double south = 55.74;
+        double east = 37.64;
+        double west = 37.60;
+        int visible = 0;
+        int count = clusterer.getClusterCount();
+        for (int i = 0; i < count; i++) {
+            double lat = clusterer.getClusterLat(i);
+            double lng = clusterer.getClusterLng(i);
+            if (lat <= north && lat >= south && lng <= east && lng >= west) {
+                visible += clusterer.getClusterSize(i);
+            }
+        }
+        return visible;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.couriersimulator.bench;
+
+import com.example.couriersimulator.geo.GeoMath;
+import com.example.couriersimulator.geo.GeofenceIndex;
+import com.example.couriersimulator.orders.Order;
+import com.example.couriersimulator.sim.SimConfig;
+import com.example.couriersimulator.sim.Simulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка радиуса доставки на каждый GPS-фикс:
+ * старый путь (float[] + Винсенти) против квадрата расстояния в локальной проекции,
+ * а также поиск зоны среди многих (остановки маршрутов нескольких курьеров).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DeliveryCheckBenchmark {
+
+    private static final int FIXES = 1024;
+    private static final double RADIUS = 20.0;
+    private static final int FENCES = 2000;
+
+    private final double[] fixes = new double[FIXES * 2];
+    private double targetLat;
+    private double targetLng;
+    private Simulation simulation;
+    private final GeofenceIndex fences = new GeofenceIndex();
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        targetLat = 55.75;
+        targetLng = 37.62;
+        for (int i = 0; i < FIXES; i++) {
+            // Фиксы в пределах ~50 м от точки доставки: часть внутри радиуса, часть снаружи
+            fixes[i * 2] = targetLat + (random.nextDouble() - 0.5) * 0.0009;
+            fixes[i * 2 + 1] = targetLng + (random.nextDouble() - 0.5) * 0.0016;
+        }
+        simulation = new Simulation(new SimConfig().setDeliveryRadiusMeters(RADIUS));
+        simulation.addCourier(targetLat, targetLng, false);
+        simulation.getOrderBook().add(new Order(1, "bench", targetLat, targetLng, targetLat, targetLng, 0, 0));
+        simulation.accept(0, 1);
+
+        fences.add(0, targetLat, targetLng, RADIUS);
+        for (int id = 1; id < FENCES; id++) {
+            fences.add(id, targetLat + (random.nextDouble() - 0.5) * 0.1,
+                    targetLng + (random.nextDouble() - 0.5) * 0.15, RADIUS);
+        }
+    }
+
+    private int nextFix() {
+        next = (next + 1) & (FIXES - 1);
+        return next * 2;
+    }
+
+    @Benchmark
+    public boolean legacyDistanceBetween() {
+        int i = nextFix();
+        return LegacyDistance.distanceBetween(fixes[i], fixes[i + 1], targetLat, targetLng) <= RADIUS;
+    }
+
+    @Benchmark
+    public boolean geoMathSquared() {
+        int i = nextFix();
+        return GeoMath.distanceSquaredMeters(fixes[i], fixes[i + 1], targetLat, targetLng) <= RADIUS * RADIUS;
+    }
+
+    @Benchmark
+    public boolean simulationCanDeliver() {
+        int i = nextFix();
+        simulation.moveCourier(0, fixes[i], fixes[i + 1]);
+        return simulation.canDeliver(0);
+    }
+
+    @Benchmark
+    public int geofenceIndexFirstInside() {
+        int i = nextFix();
+        return fences.firstInside(fixes[i], fixes[i + 1]);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.couriersimulator.bench;
+
+import com.example.couriersimulator.map.HeatTiles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Растеризация одного тайла слоя истории (HeatTrailOverlay) без Canvas и Bitmap:
+ * плотность и раскраска палитрой на разных зумах при сотнях тысяч накопленных точек.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HeatTileBenchmark {
+
+    private static final double LAT = 55.75;
+    private static final double LNG = 37.62;
+    // Точек за один вызов addPoint
+    private static final int ADDS_PER_CALL = 10_000;
+
+    @Param({"10000", "300000"})
+    public int points;
+
+    @Param({"11", "14", "17"})
+    public int zoom;
+
+    private HeatTiles tiles;
+    private final float[] density = new float[HeatTiles.TILE_SIZE * HeatTiles.TILE_SIZE];
+    private final int[] argb = new int[HeatTiles.TILE_SIZE * HeatTiles.TILE_SIZE];
+    private final int[] palette = HeatTiles.gradient(0x40FFEB3B, 0xA0FF9800, 0xD0E53935);
+    private int x;
+    private int y;
+
+    @Setup
+    public void setUp() {
+        x = HeatTiles.tileX(LNG, zoom);
+        y = HeatTiles.tileY(LAT, zoom);
+        tiles = trail();
+    }
+
+    /** Тайл в центре следа: плотность + раскраска, как в фоне у слоя */
+    @Benchmark
+    public int renderTile() {
+        if (tiles.render(zoom, x, y, density) > 0) {
+            HeatTiles.paint(density, 3f, palette, argb);
+        }
+        return argb[HeatTiles.TILE_SIZE * HeatTiles.TILE_SIZE / 2];
+    }
+
+    /**
+     * Новая точка при полном кэше экрана: добавление и проверка грязных тайлов.
+     * Точки не удаляются, поэтому каждый вызов добавляет ADDS_PER_CALL точек к свежему следу:
+     * на общем следе замер рос бы без предела, пока не кончится память.
+     * gc.alloc.rate.norm здесь включает и построение следа в FreshTrail.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ADDS_PER_CALL)
+    public int addPoint(FreshTrail trail) {
+        int dirty = 0;
+        for (int i = 0; i < ADDS_PER_CALL; i++) {
+            trail.tiles.add(LAT, LNG);
+            if (trail.tiles.isDirty(trail.centerKey)) {
+                dirty++;
+            }
+        }
+        return dirty;
+    }
+
+    // Накопленный след и экран телефона в кэше слоя: 5 x 10 отслеживаемых тайлов
+    private HeatTiles trail() {
+        Random random = new Random(5);
+        HeatTiles trail = new HeatTiles(10);
+        double lat = LAT;
+        double lng = LNG;
+        for (int i = 0; i < points; i++) {
+            // Случайное блуждание по городу, как след курьера
+            lat += random.nextGaussian() * 0.0001 - (lat - LAT) * 0.001;
+            lng += random.nextGaussian() * 0.00015 - (lng - LNG) * 0.001;
+            trail.add(lat, lng);
+        }
+        for (int dy = -5; dy < 5; dy++) {
+            for (int dx = -2; dx <= 2; dx++) {
+                trail.render(zoom, x + dx, y + dy, density);
+            }
+        }
+        return trail;
+    }
+
+    /** След для addPoint: строится заново перед каждым вызовом */
+    @State(Scope.Thread)
+    public static class FreshTrail {
+        HeatTiles tiles;
+        long centerKey;
+
+        @Setup(Level.Invocation)
+        public void setUp(HeatTileBenchmark benchmark) {
+            tiles = benchmark.trail();
+            centerKey = HeatTiles.tileKey(benchmark.zoom, benchmark.x, benchmark.y);
+        }
+    }
+}
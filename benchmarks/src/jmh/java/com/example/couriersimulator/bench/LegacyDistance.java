@@ -0,0 +1,72 @@
+package com.example.couriersimulator.bench;
+
+/**
+ * Эталон старого пути проверки доставки: обратная задача Винсенти на эллипсоиде WGS84
+ * (тот же алгоритм, что у android.location.Location.distanceBetween) с выделением
+ * массива результата на каждый вызов, как это делал MainActivity.distanceBetween.
+ */
+final class LegacyDistance {
+
+    private static final int MAX_ITERATIONS = 20;
+    private static final double A = 6378137.0;
+    private static final double B = 6356752.3142;
+    private static final double F = (A - B) / A;
+
+    private LegacyDistance() {
+    }
+
+    static float distanceBetween(double lat1, double lon1, double lat2, double lon2) {
+        float[] results = new float[1];
+        computeDistance(lat1, lon1, lat2, lon2, results);
+        return results[0];
+    }
+
+    private static void computeDistance(double lat1, double lon1, double lat2, double lon2, float[] results) {
+        double aSqMinusBSqOverBSq = (A * A - B * B) / (B * B);
+
+        double l = Math.toRadians(lon2 - lon1);
+        double u1 = Math.atan((1.0 - F) * Math.tan(Math.toRadians(lat1)));
+        double u2 = Math.atan((1.0 - F) * Math.tan(Math.toRadians(lat2)));
+
+        double cosU1 = Math.cos(u1);
+        double cosU2 = Math.cos(u2);
+        double sinU1 = Math.sin(u1);
+        double sinU2 = Math.sin(u2);
+        double cosU1cosU2 = cosU1 * cosU2;
+        double sinU1sinU2 = sinU1 * sinU2;
+
+        double sigma = 0.0;
+        double deltaSigma = 0.0;
+        double lambda = l;
+        for (int iter = 0; iter < MAX_ITERATIONS; iter++) {
+            double lambdaOrig = lambda;
+            double cosLambda = Math.cos(lambda);
+            double sinLambda = Math.sin(lambda);
+            double t1 = cosU2 * sinLambda;
+            double t2 = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+            double sinSqSigma = t1 * t1 + t2 * t2;
+            double sinSigma = Math.sqrt(sinSqSigma);
+            double cosSigma = sinU1sinU2 + cosU1cosU2 * cosLambda;
+            sigma = Math.atan2(sinSigma, cosSigma);
+            double sinAlpha = (sinSigma == 0) ? 0.0 : cosU1cosU2 * sinLambda / sinSigma;
+            double cosSqAlpha = 1.0 - sinAlpha * sinAlpha;
+            double cos2SM = (cosSqAlpha == 0) ? 0.0 : cosSigma - 2.0 * sinU1sinU2 / cosSqAlpha;
+
+            double uSquared = cosSqAlpha * aSqMinusBSqOverBSq;
+            double a = 1 + (uSquared / 16384.0) * (4096.0 + uSquared * (-768 + uSquared * (320.0 - 175.0 * uSquared)));
+            double b = (uSquared / 1024.0) * (256.0 + uSquared * (-128.0 + uSquared * (74.0 - 47.0 * uSquared)));
+            double c = (F / 16.0) * cosSqAlpha * (4.0 + F * (4.0 - 3.0 * cosSqAlpha));
+            double cos2SMSq = cos2SM * cos2SM;
+            deltaSigma = b * sinSigma * (cos2SM + (b / 4.0) * (cosSigma * (-1.0 + 2.0 * cos2SMSq)
+                    - (b / 6.0) * cos2SM * (-3.0 + 4.0 * sinSigma * sinSigma) * (-3.0 + 4.0 * cos2SMSq)));
+
+            lambda = l + (1.0 - c) * F * sinAlpha
+                    * (sigma + c * sinSigma * (cos2SM + c * cosSigma * (-1.0 + 2.0 * cos2SM * cos2SM)));
+            if (Math.abs((lambda - lambdaOrig) / lambda) < 1.0e-12) {
+                results[0] = (float) (B * a * (sigma - deltaSigma));
+                return;
+            }
+        }
+        results[0] = (float) (B * (sigma - deltaSigma));
+    }
+}
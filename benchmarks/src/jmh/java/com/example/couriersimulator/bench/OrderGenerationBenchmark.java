@@ -0,0 +1,72 @@
+package com.example.couriersimulator.bench;
+
+import com.example.couriersimulator.orders.Order;
+import com.example.couriersimulator.orders.OrderBook;
+import com.example.couriersimulator.orders.OrderGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Генерация заказов и запрос "заказы рядом" по книге заданного размера.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderGenerationBenchmark {
+
+    private static final double CENTER_LAT = 55.75;
+    private static final double CENTER_LNG = 37.62;
+
+    @Param({"1000", "10000", "50000"})
+    public int openOrders;
+
+    private OrderGenerator generator;
+    private OrderBook book;
+    private final List<Order> found = new ArrayList<>();
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        random = new Random(7);
+        generator = new OrderGenerator(42);
+        book = new OrderBook();
+        for (int i = 0; i < openOrders; i++) {
+            book.add(generator.next(randomLat(), randomLng(), 0));
+        }
+    }
+
+    private double randomLat() {
+        return CENTER_LAT + (random.nextDouble() - 0.5) * 0.2;
+    }
+
+    private double randomLng() {
+        return CENTER_LNG + (random.nextDouble() - 0.5) * 0.3;
+    }
+
+    /** Новый заказ + добавление в индекс + удаление (размер книги не растёт) */
+    @Benchmark
+    public Order generateAndIndex() {
+        Order order = generator.next(CENTER_LAT, CENTER_LNG, 0);
+        book.add(order);
+        return book.remove(order.getId());
+    }
+
+    /** Заказы в радиусе 1 км от случайной точки */
+    @Benchmark
+    public int findNear1km() {
+        found.clear();
+        return book.findNear(randomLat(), randomLng(), 1000, found);
+    }
+}
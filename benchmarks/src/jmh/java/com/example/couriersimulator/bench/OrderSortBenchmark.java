@@ -0,0 +1,83 @@
+package com.example.couriersimulator.bench;
+
+import com.example.couriersimulator.geo.GeoMath;
+import com.example.couriersimulator.orders.Order;
+import com.example.couriersimulator.orders.OrderDistanceList;
+import com.example.couriersimulator.orders.OrderGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Порядок списка заказов по расстоянию на каждом GPS-фиксе (курьер сдвигается на ~10 м):
+ * досортировка OrderDistanceList против полной сортировки списка.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderSortBenchmark {
+
+    private static final double CENTER_LAT = 55.75;
+    private static final double CENTER_LNG = 37.62;
+    // Шаг курьера между фиксами, градусы широты (~10 м)
+    private static final double STEP_DEG = 0.00009;
+
+    @Param({"1000", "5000", "20000"})
+    public int openOrders;
+
+    private OrderDistanceList incremental;
+    private final List<Order> list = new ArrayList<>();
+    private double lat;
+    private double step;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        OrderGenerator generator = new OrderGenerator(42);
+        incremental = new OrderDistanceList();
+        for (int i = 0; i < openOrders; i++) {
+            Order o = generator.next(CENTER_LAT + (random.nextDouble() - 0.5) * 0.2,
+                    CENTER_LNG + (random.nextDouble() - 0.5) * 0.3, 0);
+            incremental.add(o);
+            list.add(o);
+        }
+        lat = CENTER_LAT;
+        step = STEP_DEG;
+        incremental.setOrigin(lat, CENTER_LNG);
+    }
+
+    // Курьер ходит туда-обратно по отрезку ~1 км
+    private double nextLat() {
+        if (Math.abs(lat + step - CENTER_LAT) > 0.009) {
+            step = -step;
+        }
+        lat += step;
+        return lat;
+    }
+
+    @Benchmark
+    public long incrementalResort() {
+        return incremental.setOrigin(nextLat(), CENTER_LNG);
+    }
+
+    /** Как было: сортировка всего списка с нуля на каждом фиксе */
+    @Benchmark
+    public Order fullSort() {
+        double la = nextLat();
+        list.sort((a, b) -> Double.compare(
+                GeoMath.distanceSquaredMeters(la, CENTER_LNG, a.getPickupLat(), a.getPickupLng()),
+                GeoMath.distanceSquaredMeters(la, CENTER_LNG, b.getPickupLat(), b.getPickupLng())));
+        return list.get(0);
+    }
+}
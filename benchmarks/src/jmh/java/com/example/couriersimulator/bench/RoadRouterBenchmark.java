@@ -0,0 +1,76 @@
+package com.example.couriersimulator.bench;
+
+import com.example.couriersimulator.geo.GeoMath;
+import com.example.couriersimulator.road.RoadGraph;
+import com.example.couriersimulator.road.RoadRoute;
+import com.example.couriersimulator.road.RoadRouter;
+import com.example.couriersimulator.road.SyntheticRoads;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Маршрут по дорогам синтетического города 400×400 перекрёстков (32 км):
+ * route — A* с привязкой к графу и восстановлением ломаной, на дистанции заказа
+ * (distanceMeters) от случайной точки; так считаются награда заказа и линия маршрута.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RoadRouterBenchmark {
+
+    private static final double CENTER_LAT = 55.75;
+    private static final double CENTER_LNG = 37.62;
+    private static final int SIDE = 400;
+    private static final double SPACING_METERS = 80;
+    private static final int PAIRS = 256;
+
+    @Param({"1000", "4000"})
+    public double distanceMeters;
+
+    private RoadRouter router;
+    private final RoadRoute route = new RoadRoute();
+    private final double[] pairs = new double[PAIRS * 4];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        RoadGraph graph = SyntheticRoads.city(CENTER_LAT, CENTER_LNG, SIDE, SPACING_METERS, 5).build();
+        router = new RoadRouter(graph);
+        Random random = new Random(17);
+        double half = SPACING_METERS * SIDE / 2 * 0.8;
+        for (int i = 0; i < PAIRS; i++) {
+            double x = (random.nextDouble() * 2 - 1) * half;
+            double y = (random.nextDouble() * 2 - 1) * half;
+            double angle = random.nextDouble() * 2 * Math.PI;
+            pairs[i * 4] = lat(y);
+            pairs[i * 4 + 1] = lng(x);
+            pairs[i * 4 + 2] = lat(y + Math.sin(angle) * distanceMeters);
+            pairs[i * 4 + 3] = lng(x + Math.cos(angle) * distanceMeters);
+        }
+    }
+
+    @Benchmark
+    public double route() {
+        int i = (next++ & (PAIRS - 1)) * 4;
+        router.route(pairs[i], pairs[i + 1], pairs[i + 2], pairs[i + 3], route);
+        return route.getMeters();
+    }
+
+    private static double lat(double y) {
+        return CENTER_LAT + y / GeoMath.METERS_PER_DEGREE_LAT;
+    }
+
+    private static double lng(double x) {
+        return CENTER_LNG + x / GeoMath.metersPerDegreeLng(CENTER_LAT);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.couriersimulator.bench;
+
+import com.example.couriersimulator.geo.GeoMath;
+import com.example.couriersimulator.route.RoutePlanner;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Порядок объезда stops точек доставки в квадрате 4×4 км:
+ * optimize — с нуля по готовой матрице (ближайший сосед + 2-opt/Or-opt),
+ * addRemove — одна точка добавляется и убирается с доулучшением маршрута
+ * (так маршрут меняется при принятии и доставке заказа).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RoutePlannerBenchmark {
+
+    private static final double CENTER_LAT = 55.75;
+    private static final double CENTER_LNG = 37.62;
+    private static final double AREA_METERS = 2000;
+
+    @Param({"10", "50"})
+    public int stops;
+
+    private final Random random = new Random(11);
+    private RoutePlanner planner;
+    private long nextId;
+
+    @Setup
+    public void setUp() {
+        planner = new RoutePlanner(stops + 1);
+        planner.setStart(lat(), lng());
+        for (int i = 0; i < stops; i++) {
+            planner.add(nextId++, lat(), lng());
+        }
+    }
+
+    @Benchmark
+    public double optimize() {
+        planner.optimize();
+        return planner.getLengthMeters();
+    }
+
+    @Benchmark
+    public double addRemove() {
+        long id = nextId++;
+        planner.add(id, lat(), lng());
+        planner.remove(id);
+        return planner.getLengthMeters();
+    }
+
+    private double lat() {
+        return CENTER_LAT + (random.nextDouble() * 2 - 1) * AREA_METERS / GeoMath.METERS_PER_DEGREE_LAT;
+    }
+
+    private double lng() {
+        return CENTER_LNG + (random.nextDouble() * 2 - 1) * AREA_METERS / GeoMath.metersPerDegreeLng(CENTER_LAT);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.couriersimulator.bench;
+
+import com.example.couriersimulator.orders.DemandHeatmap;
+import com.example.couriersimulator.orders.Order;
+import com.example.couriersimulator.orders.OrderBook;
+import com.example.couriersimulator.orders.OrderGenerator;
+import com.example.couriersimulator.orders.OrderStore;
+import com.example.couriersimulator.orders.SpawnScheduler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Один шаг симуляции (100 мс) для SpawnScheduler в установившемся режиме: приходы по
+ * карте спроса и истечения по таймерному колесу, книга — OrderStore. За шаг
+ * приходит и исчезает около spawnsPerSecond / 10 заказов; открыто около
+ * spawnsPerSecond * 60 (срок жизни минута).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SpawnSchedulerBenchmark {
+
+    private static final long STEP_MILLIS = 100;
+    private static final long TTL_MILLIS = 60_000;
+
+    @Param({"100", "1000", "10000"})
+    public int spawnsPerSecond;
+
+    private SpawnScheduler scheduler;
+    private OrderStore store;
+    private SpawnScheduler.Listener listener;
+    private long now;
+
+    @Setup
+    public void setUp() {
+        DemandHeatmap map = DemandHeatmap.uniform(55.75, 37.62, 0.05, spawnsPerSecond * 3600.0);
+        scheduler = new SpawnScheduler(map, new OrderGenerator(42), 7, TTL_MILLIS);
+        store = new OrderStore(spawnsPerSecond * 72, OrderBook.DEFAULT_CELL_SIZE_DEG);
+        listener = new SpawnScheduler.Listener() {
+            @Override
+            public void onOrderSpawned(Order order) {
+                store.add(order);
+            }
+
+            @Override
+            public void onOrderExpired(long orderId) {
+                store.remove(orderId);
+            }
+        };
+        scheduler.startAt(-TTL_MILLIS);
+        for (now = 0; now < TTL_MILLIS; now += STEP_MILLIS) {
+            scheduler.advanceTo(now, listener);
+        }
+    }
+
+    @Benchmark
+    public int advanceStep() {
+        now += STEP_MILLIS;
+        return scheduler.advanceTo(now, listener);
+    }
+}
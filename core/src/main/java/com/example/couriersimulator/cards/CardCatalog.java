@@ -0,0 +1,66 @@
+package com.example.couriersimulator.cards;
+
+import com.example.couriersimulator.loot.LootTable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Неизменяемый каталог карточек, загруженный из assets/cards_catalog.json.
+ * Порядковый номер карточки — её позиция в файле; по нему хранится флаг владения,
+ * поэтому новые карточки добавляются только в конец файла.
+ */
+public final class CardCatalog {
+
+    private final int version;
+    private final List<CollectibleCard> cards;
+    private final Map<String, CollectibleCard> byId;
+    private final LootTable lootTable;
+
+    public CardCatalog(int version, List<CollectibleCard> cards) {
+        this.version = version;
+        this.cards = Collections.unmodifiableList(new ArrayList<>(cards));
+        this.byId = new HashMap<>(cards.size() * 2);
+        for (int i = 0; i < cards.size(); i++) {
+            CollectibleCard card = cards.get(i);
+            if (card.getOrdinal() != i) {
+                throw new IllegalArgumentException("Card " + card.getId() + " has ordinal "
+                        + card.getOrdinal() + " at position " + i);
+            }
+            if (byId.put(card.getId(), card) != null) {
+                throw new IllegalArgumentException("Duplicate card id: " + card.getId());
+            }
+        }
+        this.lootTable = LootTable.of(this.cards);
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /** Все карточки в порядке каталога (только для чтения) */
+    public List<CollectibleCard> getCards() {
+        return cards;
+    }
+
+    public int size() {
+        return cards.size();
+    }
+
+    public CollectibleCard get(int ordinal) {
+        return cards.get(ordinal);
+    }
+
+    /** Таблица выпадения по редкостям и весам карточек каталога */
+    public LootTable getLootTable() {
+        return lootTable;
+    }
+
+    /** Карточка по id или null */
+    public CollectibleCard findById(String id) {
+        return byId.get(id);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.couriersimulator.cards;
+
+/**
+ * Строка экрана коллекции: неизменяемая пара "карточка + собрана ли она".
+ * Для несменившихся карточек между обновлениями переиспользуется тот же экземпляр,
+ * поэтому DiffUtil сравнивает такие строки мгновенно.
+ */
+public final class CardItem {
+
+    private final CollectibleCard card;
+    private final boolean owned;
+
+    public CardItem(CollectibleCard card, boolean owned) {
+        this.card = card;
+        this.owned = owned;
+    }
+
+    public CollectibleCard getCard() {
+        return card;
+    }
+
+    public boolean isOwned() {
+        return owned;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.couriersimulator.cards;
+
+import com.example.couriersimulator.loot.Rarity;
+
+/**
+ * Неизменяемая модель коллекционной карточки велосипеда.
+ * Хранит:
+ * - уникальный id
+ * - порядковый номер в каталоге (по нему хранится флаг владения)
+ * - название (например, "Ледяной велосипед")
+ * - описание (лор)
+ * - int-ресурс изображения (R.drawable.icy_bike)
+ * - редкость и вес выпадения (см. LootTable)
+ *
+ * Владение карточкой хранится отдельно, в CardManager, чтобы один и тот же
+ * экземпляр карточки можно было раздавать всем экранам без копирования.
+ */
+public final class CollectibleCard {
+
+    private final String id;
+    private final int ordinal;
+    private final String name;
+    private final String description;
+    private final int imageResId;   // ID ресурса изображения, например R.drawable.icy_bike
+    private final Rarity rarity;
+    private final double weight;
+
+    /** Обычная карточка с весом по умолчанию */
+    public CollectibleCard(String id, int ordinal, String name, String description, int imageResId) {
+        this(id, ordinal, name, description, imageResId, Rarity.COMMON, Rarity.COMMON.getDefaultWeight());
+    }
+
+    public CollectibleCard(String id, int ordinal, String name, String description, int imageResId,
+                           Rarity rarity, double weight) {
+        this.id = id;
+        this.ordinal = ordinal;
+        this.name = name;
+        this.description = description;
+        this.imageResId = imageResId;
+        this.rarity = rarity;
+        this.weight = weight;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getImageResId() {
+        return imageResId;
+    }
+
+    public Rarity getRarity() {
+        return rarity;
+    }
+
+    /** Относительный шанс выпадения (по умолчанию — вес редкости) */
+    public double getWeight() {
+        return weight;
+    }
+}
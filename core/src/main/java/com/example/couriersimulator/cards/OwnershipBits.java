@@ -0,0 +1,60 @@
+package com.example.couriersimulator.cards;
+
+import java.util.BitSet;
+
+/**
+ * Компактная сериализация набора собранных карточек.
+ * BitSet (бит = порядковый номер карточки) хранится одной строкой:
+ * каждое 64-битное слово записывается 16 hex-символами, младшее слово первым.
+ * 1000 карточек занимают 256 символов вместо 1000 отдельных ключей.
+ */
+public final class OwnershipBits {
+
+    private static final int CHARS_PER_WORD = 16;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private OwnershipBits() {
+    }
+
+    public static String encode(BitSet bits) {
+        long[] words = bits.toLongArray();
+        char[] out = new char[words.length * CHARS_PER_WORD];
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            int base = w * CHARS_PER_WORD;
+            for (int i = CHARS_PER_WORD - 1; i >= 0; i--) {
+                out[base + i] = HEX[(int) (word & 0xF)];
+                word >>>= 4;
+            }
+        }
+        return new String(out);
+    }
+
+    /**
+     * Разобрать строку, созданную encode(). Пустая строка или null — пустой набор.
+     *
+     * @throws IllegalArgumentException если строка повреждена
+     */
+    public static BitSet decode(String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return new BitSet();
+        }
+        if (encoded.length() % CHARS_PER_WORD != 0) {
+            throw new IllegalArgumentException("Bad ownership string length: " + encoded.length());
+        }
+        long[] words = new long[encoded.length() / CHARS_PER_WORD];
+        for (int w = 0; w < words.length; w++) {
+            long word = 0;
+            int base = w * CHARS_PER_WORD;
+            for (int i = 0; i < CHARS_PER_WORD; i++) {
+                int digit = Character.digit(encoded.charAt(base + i), 16);
+                if (digit < 0) {
+                    throw new IllegalArgumentException("Bad ownership character at " + (base + i));
+                }
+                word = (word << 4) | digit;
+            }
+            words[w] = word;
+        }
+        return BitSet.valueOf(words);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.couriersimulator.geo;
+
+/**
+ * Отбор координат от нескольких источников (GPS, сеть, fused) в один поток.
+ * Фикс отбрасывается, если он не новее уже принятого или пришёл почти
+ * одновременно с ним, но с худшей точностью (тот же момент от другого провайдера).
+ * Заметно менее точный фикс принимается, только когда принятый устарел.
+ * Время — монотонное (например, elapsedRealtime), в миллисекундах.
+ */
+public class FixFilter {
+
+    // Фиксы ближе по времени считаются одним и тем же моментом
+    public static final long DEFAULT_DUPLICATE_WINDOW_MS = 1000;
+    // Через столько принятый фикс устаревает и заменяется любым новым
+    public static final long DEFAULT_STALE_MS = 30_000;
+    // Насколько точность может ухудшиться, пока принятый фикс не устарел
+    public static final float DEFAULT_MAX_ACCURACY_LOSS_METERS = 50f;
+
+    private final long duplicateWindowMs;
+    private final long staleMs;
+    private final float maxAccuracyLossMeters;
+
+    private boolean hasLast;
+    private long lastTimeMs;
+    private float lastAccuracyMeters;
+
+    public FixFilter() {
+        this(DEFAULT_DUPLICATE_WINDOW_MS, DEFAULT_STALE_MS, DEFAULT_MAX_ACCURACY_LOSS_METERS);
+    }
+
+    public FixFilter(long duplicateWindowMs, long staleMs, float maxAccuracyLossMeters) {
+        this.duplicateWindowMs = duplicateWindowMs;
+        this.staleMs = staleMs;
+        this.maxAccuracyLossMeters = maxAccuracyLossMeters;
+    }
+
+    /**
+     * Решить, использовать ли фикс. Принятый фикс запоминается как последний.
+     *
+     * @param accuracyMeters радиус погрешности; 0 или меньше — точность неизвестна
+     */
+    public boolean accept(long timeMs, float accuracyMeters) {
+        float accuracy = accuracyMeters > 0 ? accuracyMeters : Float.MAX_VALUE;
+        if (hasLast && !better(timeMs, accuracy)) {
+            return false;
+        }
+        hasLast = true;
+        lastTimeMs = timeMs;
+        lastAccuracyMeters = accuracy;
+        return true;
+    }
+
+    /** Забыть последний фикс (например, после долгой паузы обновлений) */
+    public void reset() {
+        hasLast = false;
+    }
+
+    private boolean better(long timeMs, float accuracy) {
+        long dt = timeMs - lastTimeMs;
+        if (dt <= 0) {
+            return false;
+        }
+        if (dt >= staleMs) {
+            return true;
+        }
+        float loss = accuracy - lastAccuracyMeters;
+        if (loss <= 0) {
+            return true;
+        }
+        return dt >= duplicateWindowMs && loss <= maxAccuracyLossMeters;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.couriersimulator.geo;
+
+/**
+ * Быстрая геометрия на малых расстояниях (до десятков километров).
+ * Используется равнопромежуточная (equirectangular) проекция вместо
+ * полной формулы на эллипсоиде: для игровых дистанций погрешность ничтожна.
+ * Класс не зависит от Android и может использоваться в JVM-коде.
+ */
+public final class GeoMath {
+
+    /** Средний радиус Земли, метры */
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    /** Метров в одном градусе широты */
+    public static final double METERS_PER_DEGREE_LAT = Math.PI * EARTH_RADIUS_METERS / 180.0;
+
+    private GeoMath() {
+    }
+
+    /** Метров в одном градусе долготы на заданной широте */
+    public static double metersPerDegreeLng(double lat) {
+        return METERS_PER_DEGREE_LAT * Math.cos(Math.toRadians(lat));
+    }
+
+    /**
+     * Квадрат расстояния между точками в метрах².
+     * Удобно для сравнения с радиусом без вызова sqrt.
+     */
+    public static double distanceSquaredMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dy = (lat2 - lat1) * METERS_PER_DEGREE_LAT;
+        double dx = (lng2 - lng1) * metersPerDegreeLng((lat1 + lat2) * 0.5);
+        return dx * dx + dy * dy;
+    }
+
+    /** Расстояние между точками в метрах */
+    public static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        return Math.sqrt(distanceSquaredMeters(lat1, lng1, lat2, lng2));
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.couriersimulator.geo;
+
+import com.example.couriersimulator.util.LongIntMap;
+
+import java.util.Arrays;
+
+/**
+ * Набор круговых геозон (точки забора и доставки, остановки маршрута)
+ * с быстрой проверкой "в какой зоне находится точка".
+ * - для каждой зоны заранее считаются масштаб долготы (equirectangular) и квадрат радиуса,
+ *   поэтому проверка — несколько умножений без sqrt и тригонометрии
+ * - описанный прямоугольник зоны в градусах даёт дешёвый ранний отказ
+ * - зоны разложены по ячейкам равномерной сетки, запрос смотрит только одну ячейку
+ * Добавление зон может выделять память, проверки и запросы — нет.
+ * Класс не потокобезопасен.
+ */
+public class GeofenceIndex {
+
+    // Размер ячейки по умолчанию, градусы (~550 м по широте);
+    // зона заносится во все ячейки, которые задевает, поэтому ячейка
+    // должна быть сравнима с радиусами зон
+    public static final double DEFAULT_CELL_SIZE_DEG = 0.005;
+
+    /** Результат firstInside, если точка не попала ни в одну зону */
+    public static final int NO_FENCE = -1;
+
+    private static final int MISSING = LongIntMap.MISSING;
+
+    private final double cellSizeDeg;
+
+    // Зоны в параллельных массивах, индекс — слот
+    private int[] fenceIds = new int[8];
+    private double[] centerLat = new double[8];
+    private double[] centerLng = new double[8];
+    private double[] metersPerLng = new double[8];
+    private double[] radiusSq = new double[8];
+    private double[] halfLat = new double[8];
+    private double[] halfLng = new double[8];
+    private int slotCount;
+    private int[] freeSlots = new int[8];
+    private int freeCount;
+    private int size;
+
+    // id зоны -> слот
+    private final LongIntMap slotsById = new LongIntMap();
+    // ключ ячейки -> индекс в cellSlots; опустевшая ячейка сразу удаляется,
+    // её место занимает последняя (cellKeys — обратное отображение для этого)
+    private final LongIntMap cellIndex = new LongIntMap();
+    private long[] cellKeys = new long[16];
+    private int[][] cellSlots = new int[16][];
+    private int[] cellSizes = new int[16];
+    private int cellCount;
+
+    public GeofenceIndex() {
+        this(DEFAULT_CELL_SIZE_DEG);
+    }
+
+    public GeofenceIndex(double cellSizeDeg) {
+        if (cellSizeDeg <= 0) {
+            throw new IllegalArgumentException("cellSizeDeg must be positive: " + cellSizeDeg);
+        }
+        this.cellSizeDeg = cellSizeDeg;
+    }
+
+    /** Добавить зону. Зона с тем же id заменяется. */
+    public void add(int fenceId, double lat, double lng, double radiusMeters) {
+        if (!(radiusMeters > 0)) {
+            throw new IllegalArgumentException("radiusMeters must be positive: " + radiusMeters);
+        }
+        remove(fenceId);
+        int slot = allocateSlot();
+        double mPerLng = GeoMath.metersPerDegreeLng(lat);
+        fenceIds[slot] = fenceId;
+        centerLat[slot] = lat;
+        centerLng[slot] = lng;
+        metersPerLng[slot] = mPerLng;
+        radiusSq[slot] = radiusMeters * radiusMeters;
+        halfLat[slot] = radiusMeters / GeoMath.METERS_PER_DEGREE_LAT;
+        halfLng[slot] = radiusMeters / mPerLng;
+        slotsById.put(fenceId, slot);
+        size++;
+
+        for (long cx = cell(lat - halfLat[slot]); cx <= cell(lat + halfLat[slot]); cx++) {
+            for (long cy = cell(lng - halfLng[slot]); cy <= cell(lng + halfLng[slot]); cy++) {
+                addToCell(cellKey(cx, cy), slot);
+            }
+        }
+    }
+
+    /** Удалить зону по id. Возвращает false, если такой зоны нет. */
+    public boolean remove(int fenceId) {
+        int slot = slotsById.get(fenceId);
+        if (slot == MISSING) {
+            return false;
+        }
+        slotsById.remove(fenceId);
+        double lat = centerLat[slot];
+        double lng = centerLng[slot];
+        for (long cx = cell(lat - halfLat[slot]); cx <= cell(lat + halfLat[slot]); cx++) {
+            for (long cy = cell(lng - halfLng[slot]); cy <= cell(lng + halfLng[slot]); cy++) {
+                removeFromCell(cellKey(cx, cy), slot);
+            }
+        }
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        size--;
+        return true;
+    }
+
+    public boolean contains(int fenceId) {
+        return slotsById.get(fenceId) != MISSING;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Число непустых ячеек сетки (для тестов) */
+    int getCellCount() {
+        return cellCount;
+    }
+
+    public void clear() {
+        slotsById.clear();
+        cellIndex.clear();
+        Arrays.fill(cellSizes, 0, cellCount, 0);
+        cellCount = 0;
+        slotCount = 0;
+        freeCount = 0;
+        size = 0;
+    }
+
+    /** Находится ли точка внутри зоны fenceId (false, если зоны нет) */
+    public boolean isInside(int fenceId, double lat, double lng) {
+        int slot = slotsById.get(fenceId);
+        return slot != MISSING && inside(slot, lat, lng);
+    }
+
+    /** id какой-нибудь зоны, в которую попала точка, или NO_FENCE */
+    public int firstInside(double lat, double lng) {
+        int c = cellIndex.get(cellKey(cell(lat), cell(lng)));
+        if (c == MISSING) {
+            return NO_FENCE;
+        }
+        int[] slots = cellSlots[c];
+        for (int i = 0; i < cellSizes[c]; i++) {
+            if (inside(slots[i], lat, lng)) {
+                return fenceIds[slots[i]];
+            }
+        }
+        return NO_FENCE;
+    }
+
+    /**
+     * Все зоны, в которые попала точка. id записываются в out
+     * (не больше out.length штук).
+     *
+     * @return сколько id записано
+     */
+    public int query(double lat, double lng, int[] out) {
+        int c = cellIndex.get(cellKey(cell(lat), cell(lng)));
+        if (c == MISSING) {
+            return 0;
+        }
+        int found = 0;
+        int[] slots = cellSlots[c];
+        for (int i = 0; i < cellSizes[c] && found < out.length; i++) {
+            if (inside(slots[i], lat, lng)) {
+                out[found++] = fenceIds[slots[i]];
+            }
+        }
+        return found;
+    }
+
+    private boolean inside(int slot, double lat, double lng) {
+        double dLat = lat - centerLat[slot];
+        if (dLat > halfLat[slot] || dLat < -halfLat[slot]) {
+            return false;
+        }
+        double dLng = lng - centerLng[slot];
+        if (dLng > halfLng[slot] || dLng < -halfLng[slot]) {
+            return false;
+        }
+        double dy = dLat * GeoMath.METERS_PER_DEGREE_LAT;
+        double dx = dLng * metersPerLng[slot];
+        return dx * dx + dy * dy <= radiusSq[slot];
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotCount == fenceIds.length) {
+            int newLength = slotCount * 2;
+            fenceIds = Arrays.copyOf(fenceIds, newLength);
+            centerLat = Arrays.copyOf(centerLat, newLength);
+            centerLng = Arrays.copyOf(centerLng, newLength);
+            metersPerLng = Arrays.copyOf(metersPerLng, newLength);
+            radiusSq = Arrays.copyOf(radiusSq, newLength);
+            halfLat = Arrays.copyOf(halfLat, newLength);
+            halfLng = Arrays.copyOf(halfLng, newLength);
+        }
+        return slotCount++;
+    }
+
+    private void addToCell(long key, int slot) {
+        int c = cellIndex.get(key);
+        if (c == MISSING) {
+            c = cellCount++;
+            if (c == cellSlots.length) {
+                cellKeys = Arrays.copyOf(cellKeys, c * 2);
+                cellSlots = Arrays.copyOf(cellSlots, c * 2);
+                cellSizes = Arrays.copyOf(cellSizes, c * 2);
+            }
+            if (cellSlots[c] == null) {
+                cellSlots[c] = new int[4];
+            }
+            cellKeys[c] = key;
+            cellIndex.put(key, c);
+        }
+        if (cellSizes[c] == cellSlots[c].length) {
+            cellSlots[c] = Arrays.copyOf(cellSlots[c], cellSizes[c] * 2);
+        }
+        cellSlots[c][cellSizes[c]++] = slot;
+    }
+
+    private void removeFromCell(long key, int slot) {
+        int c = cellIndex.get(key);
+        if (c == MISSING) {
+            return;
+        }
+        int[] slots = cellSlots[c];
+        for (int i = 0; i < cellSizes[c]; i++) {
+            if (slots[i] == slot) {
+                slots[i] = slots[--cellSizes[c]];
+                if (cellSizes[c] == 0) {
+                    removeCell(key, c);
+                }
+                return;
+            }
+        }
+    }
+
+    // Убрать пустую ячейку c: на её место переезжает последняя, массив слотов остаётся в запасе
+    private void removeCell(long key, int c) {
+        cellIndex.remove(key);
+        int last = --cellCount;
+        if (c != last) {
+            int[] spare = cellSlots[c];
+            cellKeys[c] = cellKeys[last];
+            cellSlots[c] = cellSlots[last];
+            cellSizes[c] = cellSizes[last];
+            cellSlots[last] = spare;
+            cellIndex.put(cellKeys[c], c);
+        }
+        cellSizes[last] = 0;
+    }
+
+    private long cell(double deg) {
+        return (long) Math.floor(deg / cellSizeDeg);
+    }
+
+    private static long cellKey(long cx, long cy) {
+        return (cx << 32) | (cy & 0xffffffffL);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.couriersimulator.history;
+
+/**
+ * Итоги одного дня из индекса истории доставок (неизменяемые).
+ */
+public final class DayStats {
+
+    private final int epochDay;
+    private final int deliveries;
+    private final long reward;
+    private final double distanceMeters;
+    private final long durationMillis;
+
+    public DayStats(int epochDay, int deliveries, long reward, double distanceMeters, long durationMillis) {
+        this.epochDay = epochDay;
+        this.deliveries = deliveries;
+        this.reward = reward;
+        this.distanceMeters = distanceMeters;
+        this.durationMillis = durationMillis;
+    }
+
+    /** Номер дня: дней с 1970-01-01 по местному времени */
+    public int getEpochDay() {
+        return epochDay;
+    }
+
+    public int getDeliveries() {
+        return deliveries;
+    }
+
+    public long getReward() {
+        return reward;
+    }
+
+    public double getDistanceMeters() {
+        return distanceMeters;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+}
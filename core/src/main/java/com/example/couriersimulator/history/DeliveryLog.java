@@ -0,0 +1,343 @@
+package com.example.couriersimulator.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * История доставок на диске.
+ * - deliveries.dat: записи фиксированной длины (RECORD_BYTES) в порядке доставки,
+ *   поэтому i-я запись читается одним seek
+ * - days.idx: по одной записи на день с доставками: номер первой записи дня,
+ *   их количество и суммы за день; запись текущего дня переписывается на месте
+ * Итоги (всего, средняя скорость, серии дней подряд) обновляются при каждой
+ * доставке и при открытии считаются по индексу дней, а не по всей истории.
+ * Методы синхронизированы: писать можно с фонового потока, читать — с любого.
+ */
+public class DeliveryLog {
+
+    /** Размер записи доставки: orderId, accepted, delivered, distance, reward, card, резерв */
+    public static final int RECORD_BYTES = 40;
+    /** Размер записи индекса дня: day, deliveries, first, reward, distance, duration */
+    public static final int DAY_BYTES = 40;
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final String RECORDS_FILE = "deliveries.dat";
+    private static final String DAYS_FILE = "days.idx";
+
+    /** Одна доставка из истории */
+    public interface RecordVisitor {
+        void visit(long orderId, long acceptedMillis, long deliveredMillis,
+                   float distanceMeters, int reward, int card);
+    }
+
+    private final TimeZone timeZone;
+    private final RandomAccessFile records;
+    private final RandomAccessFile daysFile;
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_BYTES);
+    private final ByteBuffer dayBuffer = ByteBuffer.allocate(DAY_BYTES);
+    private long recordCount;
+
+    // Индекс дней в памяти (он же содержимое days.idx)
+    private int dayCount;
+    private int[] days = new int[16];
+    private long[] dayFirst = new long[16];
+    private int[] dayDeliveries = new int[16];
+    private long[] dayReward = new long[16];
+    private double[] dayDistance = new double[16];
+    private long[] dayDuration = new long[16];
+
+    // Итоги за всё время
+    private long totalReward;
+    private double totalDistance;
+    private long totalDuration;
+    private int streak;
+    private int bestStreak;
+
+    private DeliveryLog(File dir, TimeZone timeZone) throws IOException {
+        this.timeZone = timeZone;
+        this.records = new RandomAccessFile(new File(dir, RECORDS_FILE), "rw");
+        this.daysFile = new RandomAccessFile(new File(dir, DAYS_FILE), "rw");
+        load();
+    }
+
+    /**
+     * Открыть (или создать) историю в каталоге dir.
+     *
+     * @param timeZone часовой пояс, по которому доставки делятся на дни
+     */
+    public static DeliveryLog open(File dir, TimeZone timeZone) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create history directory " + dir);
+        }
+        return new DeliveryLog(dir, timeZone);
+    }
+
+    /** Дописать доставку и обновить итоги */
+    public synchronized void append(long orderId, long acceptedMillis, long deliveredMillis,
+                                    float distanceMeters, int reward, int card) throws IOException {
+        recordBuffer.clear();
+        recordBuffer.putLong(orderId)
+                .putLong(acceptedMillis)
+                .putLong(deliveredMillis)
+                .putFloat(distanceMeters)
+                .putInt(reward)
+                .putInt(card)
+                .putInt(0);
+        recordBuffer.flip();
+        writeAt(records.getChannel(), recordBuffer, recordCount * RECORD_BYTES);
+        addToIndex(recordCount, epochDay(deliveredMillis), distanceMeters,
+                deliveredMillis - acceptedMillis, reward);
+        recordCount++;
+        writeDay(dayCount - 1);
+    }
+
+    /** Сбросить обе части истории на диск */
+    public synchronized void sync() throws IOException {
+        records.getChannel().force(false);
+        daysFile.getChannel().force(false);
+    }
+
+    public synchronized void close() throws IOException {
+        records.close();
+        daysFile.close();
+    }
+
+    // ---------- Итоги, O(1) ----------
+
+    public synchronized long getTotalDeliveries() {
+        return recordCount;
+    }
+
+    public synchronized long getTotalReward() {
+        return totalReward;
+    }
+
+    public synchronized double getTotalDistanceMeters() {
+        return totalDistance;
+    }
+
+    /** Средняя скорость в пути (от принятия до доставки), м/с; 0 — доставок ещё не было */
+    public synchronized double getAverageSpeedMps() {
+        return totalDuration > 0 ? totalDistance / (totalDuration / 1000.0) : 0;
+    }
+
+    /** Лучшая серия: сколько дней подряд были доставки */
+    public synchronized int getBestStreakDays() {
+        return bestStreak;
+    }
+
+    /**
+     * Текущая серия дней подряд с доставками. Серия не прерывается,
+     * пока сегодня ещё не было доставок, но вчера были.
+     */
+    public synchronized int getCurrentStreakDays(long nowMillis) {
+        if (dayCount == 0) {
+            return 0;
+        }
+        int today = epochDay(nowMillis);
+        return days[dayCount - 1] >= today - 1 ? streak : 0;
+    }
+
+    /** Доставок за день, в который попадает момент timeMillis */
+    public synchronized int getDeliveriesOn(long timeMillis) {
+        int i = Arrays.binarySearch(days, 0, dayCount, epochDay(timeMillis));
+        return i >= 0 ? dayDeliveries[i] : 0;
+    }
+
+    // ---------- Запросы по дням ----------
+
+    /** Номер дня (дней с 1970-01-01 по местному времени) для момента timeMillis */
+    public int epochDay(long timeMillis) {
+        return (int) Math.floorDiv(timeMillis + timeZone.getOffset(timeMillis), DAY_MS);
+    }
+
+    /**
+     * Итоги дней из диапазона [fromDay, toDay] (только дни с доставками).
+     *
+     * @return сколько дней добавлено в out
+     */
+    public synchronized int queryDays(int fromDay, int toDay, List<DayStats> out) {
+        int added = 0;
+        for (int i = lowerBound(fromDay); i < dayCount && days[i] <= toDay; i++) {
+            out.add(new DayStats(days[i], dayDeliveries[i], dayReward[i], dayDistance[i], dayDuration[i]));
+            added++;
+        }
+        return added;
+    }
+
+    /**
+     * Прочитать записи доставок дней из диапазона [fromDay, toDay] по порядку.
+     * Индекс даёт номер первой записи, поэтому читается только нужный кусок файла.
+     */
+    public synchronized void readDays(int fromDay, int toDay, RecordVisitor visitor) throws IOException {
+        int first = lowerBound(fromDay);
+        int last = first;
+        while (last < dayCount && days[last] <= toDay) {
+            last++;
+        }
+        if (first == last) {
+            return;
+        }
+        long from = dayFirst[first];
+        long to = dayFirst[last - 1] + dayDeliveries[last - 1];
+        FileChannel channel = records.getChannel();
+        for (long r = from; r < to; r++) {
+            readAt(channel, recordBuffer, r * RECORD_BYTES);
+            visitor.visit(recordBuffer.getLong(), recordBuffer.getLong(), recordBuffer.getLong(),
+                    recordBuffer.getFloat(), recordBuffer.getInt(), recordBuffer.getInt());
+        }
+    }
+
+    // ---------- Внутреннее ----------
+
+    private void load() throws IOException {
+        recordCount = records.length() / RECORD_BYTES;
+        records.setLength(recordCount * RECORD_BYTES); // недописанная запись после сбоя
+
+        FileChannel channel = daysFile.getChannel();
+        int entries = (int) (daysFile.length() / DAY_BYTES);
+        for (int i = 0; i < entries; i++) {
+            readAt(channel, dayBuffer, (long) i * DAY_BYTES);
+            ensureDayCapacity(i + 1);
+            days[i] = dayBuffer.getInt();
+            dayDeliveries[i] = dayBuffer.getInt();
+            dayFirst[i] = dayBuffer.getLong();
+            dayReward[i] = dayBuffer.getLong();
+            dayDistance[i] = dayBuffer.getDouble();
+            dayDuration[i] = dayBuffer.getLong();
+            dayCount = i + 1;
+        }
+
+        long covered = dayCount == 0 ? 0 : dayFirst[dayCount - 1] + dayDeliveries[dayCount - 1];
+        if (covered > recordCount) {
+            // Индекс опередил записи (повреждение) — строим заново
+            dayCount = 0;
+            covered = 0;
+        }
+        // Хвост мог изменить последний день индекса и добавить новые
+        int firstDirtyDay = Math.max(0, dayCount - 1);
+        // Сбой между записью доставки и индекса: досчитываем только хвост
+        FileChannel recordsChannel = records.getChannel();
+        for (long r = covered; r < recordCount; r++) {
+            readAt(recordsChannel, recordBuffer, r * RECORD_BYTES);
+            recordBuffer.getLong();
+            long accepted = recordBuffer.getLong();
+            long delivered = recordBuffer.getLong();
+            float distance = recordBuffer.getFloat();
+            int reward = recordBuffer.getInt();
+            addToIndex(r, epochDay(delivered), distance, delivered - accepted, reward);
+        }
+        daysFile.setLength((long) dayCount * DAY_BYTES);
+        if (covered < recordCount) {
+            for (int i = firstDirtyDay; i < dayCount; i++) {
+                writeDay(i);
+            }
+        }
+
+        totalReward = 0;
+        totalDistance = 0;
+        totalDuration = 0;
+        streak = 0;
+        bestStreak = 0;
+        for (int i = 0; i < dayCount; i++) {
+            totalReward += dayReward[i];
+            totalDistance += dayDistance[i];
+            totalDuration += dayDuration[i];
+            streak = i > 0 && days[i] == days[i - 1] + 1 ? streak + 1 : 1;
+            bestStreak = Math.max(bestStreak, streak);
+        }
+    }
+
+    /** Учесть доставку r в индексе дней и итогах (без записи на диск) */
+    private void addToIndex(long r, int day, float distance, long duration, int reward) {
+        int i = dayCount - 1;
+        if (i < 0 || days[i] != day) {
+            // Дни идут по возрастанию; доставка "в прошлое" (перевод часов) идёт в последний день
+            if (i >= 0 && day < days[i]) {
+                day = days[i];
+            } else {
+                streak = i >= 0 && day == days[i] + 1 ? streak + 1 : 1;
+                bestStreak = Math.max(bestStreak, streak);
+                i = dayCount;
+                ensureDayCapacity(i + 1);
+                days[i] = day;
+                dayFirst[i] = r;
+                dayDeliveries[i] = 0;
+                dayReward[i] = 0;
+                dayDistance[i] = 0;
+                dayDuration[i] = 0;
+                dayCount++;
+            }
+        }
+        long positiveDuration = Math.max(0, duration);
+        dayDeliveries[i]++;
+        dayReward[i] += reward;
+        dayDistance[i] += distance;
+        dayDuration[i] += positiveDuration;
+        totalReward += reward;
+        totalDistance += distance;
+        totalDuration += positiveDuration;
+    }
+
+    private void writeDay(int i) throws IOException {
+        dayBuffer.clear();
+        dayBuffer.putInt(days[i])
+                .putInt(dayDeliveries[i])
+                .putLong(dayFirst[i])
+                .putLong(dayReward[i])
+                .putDouble(dayDistance[i])
+                .putLong(dayDuration[i]);
+        dayBuffer.flip();
+        writeAt(daysFile.getChannel(), dayBuffer, (long) i * DAY_BYTES);
+    }
+
+    private int lowerBound(int day) {
+        int lo = 0;
+        int hi = dayCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (days[mid] < day) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void ensureDayCapacity(int size) {
+        if (size > days.length) {
+            int n = Math.max(size, days.length * 2);
+            days = Arrays.copyOf(days, n);
+            dayFirst = Arrays.copyOf(dayFirst, n);
+            dayDeliveries = Arrays.copyOf(dayDeliveries, n);
+            dayReward = Arrays.copyOf(dayReward, n);
+            dayDistance = Arrays.copyOf(dayDistance, n);
+            dayDuration = Arrays.copyOf(dayDuration, n);
+        }
+    }
+
+    private static void writeAt(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readAt(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new IOException("Unexpected end of history file");
+            }
+            position += n;
+        }
+        buffer.flip();
+    }
+}
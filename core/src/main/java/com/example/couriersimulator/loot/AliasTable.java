@@ -0,0 +1,82 @@
+package com.example.couriersimulator.loot;
+
+import java.util.Random;
+
+/**
+ * Выбор индекса с вероятностью, пропорциональной весу, за O(1)
+ * (alias-метод Vose). Построение — O(n); массивы переиспользуются
+ * при повторной сборке с тем же или меньшим n.
+ */
+final class AliasTable {
+
+    // Вероятность оставить столбец i (иначе — alias[i])
+    private double[] prob = new double[0];
+    private int[] alias = new int[0];
+    private int size;
+    private double totalWeight;
+    // Рабочие стеки построения
+    private int[] small = new int[0];
+    private int[] large = new int[0];
+
+    int size() {
+        return size;
+    }
+
+    double getTotalWeight() {
+        return totalWeight;
+    }
+
+    /** Построить по первым n весам; веса неотрицательные, n = 0 допустим */
+    void build(double[] weights, int n) {
+        if (prob.length < n) {
+            prob = new double[n];
+            alias = new int[n];
+            small = new int[n];
+            large = new int[n];
+        }
+        size = n;
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            total += weights[i];
+        }
+        totalWeight = total;
+        if (n == 0 || total <= 0) {
+            size = 0;
+            return;
+        }
+        int ns = 0;
+        int nl = 0;
+        for (int i = 0; i < n; i++) {
+            prob[i] = weights[i] * n / total;
+            if (prob[i] < 1) {
+                small[ns++] = i;
+            } else {
+                large[nl++] = i;
+            }
+        }
+        while (ns > 0 && nl > 0) {
+            int s = small[--ns];
+            int l = large[--nl];
+            alias[s] = l;
+            prob[l] = prob[l] + prob[s] - 1;
+            if (prob[l] < 1) {
+                small[ns++] = l;
+            } else {
+                large[nl++] = l;
+            }
+        }
+        // Остатки — погрешность округления, такие столбцы полные
+        while (nl > 0) {
+            prob[large[--nl]] = 1;
+        }
+        while (ns > 0) {
+            prob[small[--ns]] = 1;
+        }
+    }
+
+    /** @return индекс в [0, size); таблица не должна быть пустой */
+    int sample(Random random) {
+        int i = random.nextInt(size);
+        return random.nextDouble() < prob[i] ? i : alias[i];
+    }
+}
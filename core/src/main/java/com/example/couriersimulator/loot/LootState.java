@@ -0,0 +1,126 @@
+package com.example.couriersimulator.loot;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Состояние розыгрышей одного курьера:
+ * - счётчики гарантий (доставок без карточки и карточек без редкой)
+ * - таблицы ещё не собранных карточек по редкостям; строятся лениво,
+ *   только когда большая часть редкости уже собрана и выборка
+ *   по полному каталогу начинает промахиваться
+ * Не потокобезопасно.
+ */
+public final class LootState {
+
+    private int missStreak;
+    private int dropsSinceRare;
+    // Таблицы несобранных карточек по Rarity.ordinal(); null — не построена
+    private final TierPool[] pools = new TierPool[Rarity.values().length];
+    // Для какой таблицы построены pools
+    private LootTable poolsTable;
+
+    /** Сколько доставок подряд закончились без карточки */
+    public int getMissStreak() {
+        return missStreak;
+    }
+
+    /** Сколько карточек подряд выпало без редкой (см. LootTable.getPityRarity) */
+    public int getDropsSinceRare() {
+        return dropsSinceRare;
+    }
+
+    /** Вернуть счётчики из сохранения */
+    public void restore(int missStreak, int dropsSinceRare) {
+        this.missStreak = Math.max(0, missStreak);
+        this.dropsSinceRare = Math.max(0, dropsSinceRare);
+    }
+
+    /** Коллекция изменилась не через розыгрыш: таблицы несобранных надо строить заново */
+    public void invalidate() {
+        for (int i = 0; i < pools.length; i++) {
+            pools[i] = null;
+        }
+    }
+
+    void onMiss() {
+        missStreak++;
+    }
+
+    void onDrop(boolean rare) {
+        missStreak = 0;
+        dropsSinceRare = rare ? 0 : dropsSinceRare + 1;
+    }
+
+    TierPool pool(LootTable table, int tier) {
+        if (poolsTable != table) {
+            invalidate();
+            poolsTable = table;
+        }
+        return pools[tier];
+    }
+
+    TierPool buildPool(LootTable table, int tier, BitSet owned) {
+        TierPool pool = new TierPool();
+        pool.rebuild(table, tier, owned);
+        pools[tier] = pool;
+        return pool;
+    }
+
+    /**
+     * Alias-таблица по несобранным карточкам одной редкости.
+     * Выданные карточки не вычёркиваются сразу: их вес вычитается из live,
+     * а попавшая на собранную карточку выборка повторяется. Пока live не меньше
+     * половины построенного веса, повторов в среднем меньше двух; ниже —
+     * таблица пересобирается, и амортизированно выдача остаётся O(1).
+     */
+    static final class TierPool {
+
+        private static final int MAX_REJECTS = 32;
+
+        private final AliasTable alias = new AliasTable();
+        private int[] cards = new int[0];
+        private double[] weights = new double[0];
+        private double builtWeight;
+        private double liveWeight;
+
+        void rebuild(LootTable table, int tier, BitSet owned) {
+            int[] all = table.tierCards(tier);
+            if (cards.length < all.length) {
+                cards = new int[all.length];
+                weights = new double[all.length];
+            }
+            int n = 0;
+            for (int card : all) {
+                if (!owned.get(card)) {
+                    cards[n] = card;
+                    weights[n] = table.getWeight(card);
+                    n++;
+                }
+            }
+            alias.build(weights, n);
+            builtWeight = alias.getTotalWeight();
+            liveWeight = builtWeight;
+        }
+
+        /** @return несобранная карточка или -1, если вся редкость собрана */
+        int draw(LootTable table, int tier, BitSet owned, Random random) {
+            if (liveWeight * 2 < builtWeight) {
+                rebuild(table, tier, owned);
+            }
+            for (int attempt = 0; alias.size() > 0; attempt++) {
+                int card = cards[alias.sample(random)];
+                if (!owned.get(card)) {
+                    liveWeight -= table.getWeight(card);
+                    return card;
+                }
+                if (attempt == MAX_REJECTS) {
+                    // Коллекцию поменяли мимо розыгрыша — счёт live неверен
+                    rebuild(table, tier, owned);
+                    attempt = 0;
+                }
+            }
+            return -1;
+        }
+    }
+}
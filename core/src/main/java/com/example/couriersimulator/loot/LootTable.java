@@ -0,0 +1,220 @@
+package com.example.couriersimulator.loot;
+
+import com.example.couriersimulator.cards.CollectibleCard;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Таблица выпадения карточек за доставку. Неизменяемая, одна на каталог
+ * и общая для всех курьеров; всё, что зависит от коллекции курьера, — в LootState.
+ *
+ * Розыгрыш:
+ * 1. карточка выпадает с шансом chance; после dropPity - 1 доставок
+ *    без карточки следующая выдаёт её гарантированно
+ * 2. редкость выбирается по суммарному весу её карточек во всём каталоге,
+ *    так что шанс редкости не падает по мере сбора коллекции;
+ *    после rarePity - 1 карточек без редкой (getPityRarity и выше)
+ *    выбор идёт только среди редких
+ * 3. внутри редкости — несобранная карточка пропорционально весу;
+ *    если собраны все карточки редкости, выпадает дубликат
+ * Каждый шаг — O(1) (alias-таблицы), а построение таблиц несобранных
+ * карточек амортизировано, см. LootState.
+ */
+public final class LootTable {
+
+    /** Карточка не выпала */
+    public static final int NO_DROP = -1;
+    /** Карточка выпала бы, но каталог пуст (полная коллекция даёт дубликаты, а не это) */
+    public static final int EMPTY_CATALOG = -2;
+    // Дубликаты кодируются как DUPLICATE_BASE - ordinal
+    private static final int DUPLICATE_BASE = -3;
+
+    /** Редкость по умолчанию, начиная с которой срабатывает гарантия редкой карточки */
+    public static final Rarity DEFAULT_PITY_RARITY = Rarity.EPIC;
+    // Сколько выборок по полному каталогу редкости делать до построения таблицы несобранных
+    private static final int FULL_TABLE_PROBES = 4;
+
+    private final Rarity[] rarities;
+    private final double[] weights;
+    private final Rarity pityRarity;
+    // Карточки каждой редкости и выбор среди всех них (для дубликатов и первых проб)
+    private final int[][] tierCards;
+    private final AliasTable[] tierAliases;
+    // Выбор редкости: обычный и среди редкостей не ниже pityRarity
+    private final int[] tiers;
+    private final AliasTable tierAlias = new AliasTable();
+    private final int[] pityTiers;
+    private final AliasTable pityAlias = new AliasTable();
+
+    /**
+     * @param rarities   редкость карточки по порядковому номеру
+     * @param weights    вес карточки; 0 — карточка не выпадает
+     * @param pityRarity редкость, которую гарантирует rarePity
+     */
+    public LootTable(Rarity[] rarities, double[] weights, Rarity pityRarity) {
+        if (rarities.length != weights.length) {
+            throw new IllegalArgumentException("rarities and weights differ in length");
+        }
+        this.rarities = rarities.clone();
+        this.weights = weights.clone();
+        this.pityRarity = pityRarity;
+        int tierCount = Rarity.values().length;
+        int[] counts = new int[tierCount];
+        double[] tierWeights = new double[tierCount];
+        for (int i = 0; i < rarities.length; i++) {
+            if (weights[i] < 0 || Double.isNaN(weights[i])) {
+                throw new IllegalArgumentException("Card #" + i + " has invalid weight: " + weights[i]);
+            }
+            counts[rarities[i].ordinal()]++;
+            tierWeights[rarities[i].ordinal()] += weights[i];
+        }
+        tierCards = new int[tierCount][];
+        tierAliases = new AliasTable[tierCount];
+        for (int t = 0; t < tierCount; t++) {
+            tierCards[t] = new int[counts[t]];
+            counts[t] = 0;
+        }
+        for (int i = 0; i < rarities.length; i++) {
+            int t = rarities[i].ordinal();
+            tierCards[t][counts[t]++] = i;
+        }
+        double[] scratch = new double[rarities.length];
+        for (int t = 0; t < tierCount; t++) {
+            for (int k = 0; k < tierCards[t].length; k++) {
+                scratch[k] = weights[tierCards[t][k]];
+            }
+            tierAliases[t] = new AliasTable();
+            tierAliases[t].build(scratch, tierCards[t].length);
+        }
+        tiers = presentTiers(tierWeights, 0);
+        pityTiers = presentTiers(tierWeights, pityRarity.ordinal());
+        buildTierAlias(tierAlias, tiers, tierWeights);
+        buildTierAlias(pityAlias, pityTiers, tierWeights);
+    }
+
+    /** Все карточки одной редкости и одного веса (старые правила: равновероятно) */
+    public static LootTable uniform(int catalogSize) {
+        Rarity[] rarities = new Rarity[catalogSize];
+        double[] weights = new double[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            rarities[i] = Rarity.COMMON;
+            weights[i] = 1;
+        }
+        return new LootTable(rarities, weights, DEFAULT_PITY_RARITY);
+    }
+
+    /** Таблица по каталогу; cards упорядочены по ordinal */
+    public static LootTable of(List<CollectibleCard> cards) {
+        Rarity[] rarities = new Rarity[cards.size()];
+        double[] weights = new double[cards.size()];
+        for (int i = 0; i < cards.size(); i++) {
+            CollectibleCard card = cards.get(i);
+            rarities[card.getOrdinal()] = card.getRarity();
+            weights[card.getOrdinal()] = card.getWeight();
+        }
+        return new LootTable(rarities, weights, DEFAULT_PITY_RARITY);
+    }
+
+    public static boolean isDuplicate(int result) {
+        return result <= DUPLICATE_BASE;
+    }
+
+    /** Порядковый номер карточки-дубликата из результата roll */
+    public static int duplicateOrdinal(int result) {
+        return DUPLICATE_BASE - result;
+    }
+
+    static int duplicate(int ordinal) {
+        return DUPLICATE_BASE - ordinal;
+    }
+
+    public int size() {
+        return rarities.length;
+    }
+
+    public Rarity getRarity(int ordinal) {
+        return rarities[ordinal];
+    }
+
+    public double getWeight(int ordinal) {
+        return weights[ordinal];
+    }
+
+    public Rarity getPityRarity() {
+        return pityRarity;
+    }
+
+    int[] tierCards(int tier) {
+        return tierCards[tier];
+    }
+
+    /**
+     * Разыграть карточку за доставку. Выданную новую карточку вызывающий
+     * сам отмечает в owned.
+     *
+     * @param dropPity  гарантированная карточка на dropPity-й доставке подряд без неё; 0 — без гарантии
+     * @param rarePity  гарантированная редкая на rarePity-й карточке подряд без неё; 0 — без гарантии
+     * @return порядковый номер новой карточки, NO_DROP, EMPTY_CATALOG
+     *         или дубликат (isDuplicate / duplicateOrdinal)
+     */
+    public int roll(Random random, double chance, int dropPity, int rarePity, BitSet owned, LootState state) {
+        if (tiers.length == 0) {
+            return random.nextDouble() < chance ? EMPTY_CATALOG : NO_DROP;
+        }
+        boolean forcedDrop = dropPity > 0 && state.getMissStreak() + 1 >= dropPity;
+        if (!forcedDrop && random.nextDouble() >= chance) {
+            state.onMiss();
+            return NO_DROP;
+        }
+        boolean forcedRare = rarePity > 0 && pityTiers.length > 0 && state.getDropsSinceRare() + 1 >= rarePity;
+        int tier = forcedRare ? pityTiers[pityAlias.sample(random)] : tiers[tierAlias.sample(random)];
+        state.onDrop(tier >= pityRarity.ordinal());
+
+        int card = drawNew(tier, random, owned, state);
+        return card >= 0 ? card : duplicate(tierCards[tier][tierAliases[tier].sample(random)]);
+    }
+
+    // Несобранная карточка редкости tier или -1
+    private int drawNew(int tier, Random random, BitSet owned, LootState state) {
+        LootState.TierPool pool = state.pool(this, tier);
+        if (pool == null) {
+            // Пока собрано мало, выборка по всей редкости почти всегда попадает в несобранную
+            for (int i = 0; i < FULL_TABLE_PROBES; i++) {
+                int card = tierCards[tier][tierAliases[tier].sample(random)];
+                if (!owned.get(card)) {
+                    return card;
+                }
+            }
+            pool = state.buildPool(this, tier, owned);
+        }
+        return pool.draw(this, tier, owned, random);
+    }
+
+    // Редкости не ниже from, у которых есть карточки с ненулевым весом
+    private static int[] presentTiers(double[] tierWeights, int from) {
+        int n = 0;
+        for (int t = from; t < tierWeights.length; t++) {
+            if (tierWeights[t] > 0) {
+                n++;
+            }
+        }
+        int[] out = new int[n];
+        n = 0;
+        for (int t = from; t < tierWeights.length; t++) {
+            if (tierWeights[t] > 0) {
+                out[n++] = t;
+            }
+        }
+        return out;
+    }
+
+    private static void buildTierAlias(AliasTable alias, int[] tiers, double[] tierWeights) {
+        double[] w = new double[tiers.length];
+        for (int i = 0; i < tiers.length; i++) {
+            w[i] = tierWeights[tiers[i]];
+        }
+        alias.build(w, tiers.length);
+    }
+}
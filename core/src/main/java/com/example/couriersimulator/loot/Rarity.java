@@ -0,0 +1,35 @@
+package com.example.couriersimulator.loot;
+
+/**
+ * Редкость карточки. Вес по умолчанию — относительный шанс выпадения одной
+ * карточки этой редкости; в каталоге его можно переопределить полем "weight".
+ */
+public enum Rarity {
+    COMMON(100),
+    RARE(30),
+    EPIC(8),
+    LEGENDARY(2);
+
+    private final double defaultWeight;
+
+    Rarity(double defaultWeight) {
+        this.defaultWeight = defaultWeight;
+    }
+
+    public double getDefaultWeight() {
+        return defaultWeight;
+    }
+
+    /** Разбор имени из каталога ("rare", "EPIC"); null — COMMON */
+    public static Rarity parse(String name) {
+        if (name == null) {
+            return COMMON;
+        }
+        for (Rarity r : values()) {
+            if (r.name().equalsIgnoreCase(name)) {
+                return r;
+            }
+        }
+        throw new IllegalArgumentException("Unknown rarity: " + name);
+    }
+}
@@ -0,0 +1,440 @@
+package com.example.couriersimulator.map;
+
+import com.example.couriersimulator.util.LongIntMap;
+
+import java.util.Arrays;
+
+/**
+ * Накопленные точки (след курьера, места доставок) для слоя "тепловой карты",
+ * растеризуемого тайлами той же сетки, что и тайлы osmdroid (256 px, Web Mercator).
+ * - точки хранятся целыми пиксельными координатами зума 22 и разложены по корзинам —
+ *   тайлам зума 13, поэтому тайл растеризуется по точкам рядом с ним, а не по всем
+ * - растеризация: подсчёт точек по пикселям тайла с полем на радиус пятна, затем
+ *   разделимое гауссово размытие; пятно одной точки в центре равно 1
+ * - тайлы, которые отрисованы и закэшированы у вызывающего кода, отслеживаются: новая точка
+ *   помечает грязными только те из них, до которых достаёт её пятно (isDirty)
+ * add и учёт тайлов синхронизированы (add — с главного потока, render — с фонового);
+ * render вызывается одним потоком за раз: у него свои рабочие буферы.
+ * Класс не зависит от Android.
+ */
+public class HeatTiles {
+
+    public static final int TILE_SIZE = 256;
+    public static final int MIN_ZOOM = 2;
+    public static final int MAX_ZOOM = 21;
+
+    // Пиксели карты на этом зуме — единицы координат точек (мир — 2^30, помещается в int)
+    private static final int REF_ZOOM = 22;
+    // Корзины — тайлы этого зума
+    private static final int BUCKET_ZOOM = 13;
+    private static final int BUCKET_SHIFT = REF_ZOOM - BUCKET_ZOOM + 8;
+    private static final int BUCKETS_PER_SIDE = 1 << BUCKET_ZOOM;
+    private static final double WORLD_PX = (double) TILE_SIZE * (1 << REF_ZOOM);
+    private static final double MAX_LAT = 85.05112878;
+
+    private final int radiusPx;
+    // Веса пятна по одной оси для смещений -radiusPx..radiusPx
+    private final float[] kernel;
+
+    // Корзины: (x << 32 | y) -> номер корзины, точки — [x, y, ...]
+    private final LongIntMap bucketIndex = new LongIntMap(32);
+    private int[] bucketX = new int[32];
+    private int[] bucketY = new int[32];
+    private int[][] bucketPoints = new int[32][];
+    private int[] bucketSizes = new int[32];
+    private int bucketCount;
+    private int pointCount;
+
+    // Отслеживаемые тайлы: ключ, границы с полем на пятно (единицы REF_ZOOM), грязный ли
+    private long[] trackedKeys = new long[16];
+    private long[] trackedBounds = new long[16 * 4];
+    private boolean[] trackedDirty = new boolean[16];
+    private int trackedCount;
+
+    // Рабочие буферы render
+    private float[] counts = new float[0];
+    private float[] rows = new float[0];
+    // Крайние занятые столбцы строки counts; rowMin > rowMax — строка пустая
+    private int[] rowMin = new int[0];
+    private int[] rowMax = new int[0];
+
+    /**
+     * @param radiusPx радиус пятна точки в пикселях тайла (на любом зуме одинаковый на экране)
+     */
+    public HeatTiles(int radiusPx) {
+        if (radiusPx < 1 || radiusPx > TILE_SIZE / 2) {
+            throw new IllegalArgumentException("radiusPx out of range: " + radiusPx);
+        }
+        this.radiusPx = radiusPx;
+        this.kernel = new float[radiusPx * 2 + 1];
+        double sigma = radiusPx / 2.0;
+        for (int d = -radiusPx; d <= radiusPx; d++) {
+            kernel[d + radiusPx] = (float) Math.exp(-d * d / (2 * sigma * sigma));
+        }
+    }
+
+    public int getRadiusPx() {
+        return radiusPx;
+    }
+
+    public synchronized int getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * Добавить точку; отслеживаемые тайлы, до которых достаёт её пятно, становятся грязными.
+     *
+     * @return true, если грязным стал хоть один тайл, который до этого был чистым
+     *         (иначе перерисовывать нечего: точка вне закэшированных тайлов или они уже ждут)
+     */
+    public synchronized boolean add(double lat, double lng) {
+        int x = refX(lng);
+        int y = refY(lat);
+        int b = bucketFor(x >>> BUCKET_SHIFT, y >>> BUCKET_SHIFT);
+        int size = bucketSizes[b];
+        int[] points = bucketPoints[b];
+        if (size * 2 == points.length) {
+            points = Arrays.copyOf(points, points.length * 2);
+            bucketPoints[b] = points;
+        }
+        points[size * 2] = x;
+        points[size * 2 + 1] = y;
+        bucketSizes[b] = size + 1;
+        pointCount++;
+        boolean dirtied = false;
+        for (int t = 0; t < trackedCount; t++) {
+            int i = t * 4;
+            if (!trackedDirty[t] && x >= trackedBounds[i] && x < trackedBounds[i + 1]
+                    && y >= trackedBounds[i + 2] && y < trackedBounds[i + 3]) {
+                trackedDirty[t] = true;
+                dirtied = true;
+            }
+        }
+        return dirtied;
+    }
+
+    /** Убрать все точки; отслеживаемые тайлы становятся грязными */
+    public synchronized void clear() {
+        bucketIndex.clear();
+        for (int b = 0; b < bucketCount; b++) {
+            bucketPoints[b] = null;
+        }
+        bucketCount = 0;
+        pointCount = 0;
+        Arrays.fill(trackedDirty, 0, trackedCount, true);
+    }
+
+    /**
+     * Растеризовать тайл и начать отслеживать его: до следующего add, задевающего тайл,
+     * isDirty вернёт false.
+     *
+     * @param density TILE_SIZE * TILE_SIZE значений по строкам; заполняется, только если
+     *                в тайл попала хоть одна точка
+     * @return сколько точек попало в тайл (с полем на радиус пятна)
+     */
+    public int render(int zoom, int x, int y, float[] density) {
+        if (zoom < MIN_ZOOM || zoom > MAX_ZOOM) {
+            throw new IllegalArgumentException("zoom out of range: " + zoom);
+        }
+        int r = radiusPx;
+        int shift = REF_ZOOM - zoom;
+        long minX = ((long) x * TILE_SIZE - r) << shift;
+        long maxX = ((long) (x + 1) * TILE_SIZE + r) << shift;
+        long minY = ((long) y * TILE_SIZE - r) << shift;
+        long maxY = ((long) (y + 1) * TILE_SIZE + r) << shift;
+        int w = TILE_SIZE + 2 * r;
+        if (counts.length < w * w) {
+            counts = new float[w * w];
+            rows = new float[w * TILE_SIZE];
+            rowMin = new int[w];
+            rowMax = new int[w];
+        }
+        int found;
+        synchronized (this) {
+            track(tileKey(zoom, x, y), minX, maxX, minY, maxY);
+            found = count(minX, maxX, minY, maxY, shift, w);
+        }
+        if (found > 0) {
+            blur(w, density);
+        }
+        return found;
+    }
+
+    /** Изменился ли отслеживаемый тайл после последнего render (неотслеживаемый — false) */
+    public synchronized boolean isDirty(long tileKey) {
+        int t = indexOfTracked(tileKey);
+        return t >= 0 && trackedDirty[t];
+    }
+
+    /** Тайл вытеснен из кэша вызывающего кода: больше не отслеживать */
+    public synchronized void forget(long tileKey) {
+        int t = indexOfTracked(tileKey);
+        if (t < 0) {
+            return;
+        }
+        int last = --trackedCount;
+        trackedKeys[t] = trackedKeys[last];
+        trackedDirty[t] = trackedDirty[last];
+        System.arraycopy(trackedBounds, last * 4, trackedBounds, t * 4, 4);
+    }
+
+    public synchronized void forgetAll() {
+        trackedCount = 0;
+    }
+
+    public synchronized int getTrackedCount() {
+        return trackedCount;
+    }
+
+    public static long tileKey(int zoom, int x, int y) {
+        return ((long) zoom << 58) | ((long) x << 29) | y;
+    }
+
+    /** Номер столбца тайла, содержащего долготу (в пределах мира) */
+    public static int tileX(double lng, int zoom) {
+        int x = (int) Math.floor((lng + 180.0) / 360.0 * (1 << zoom));
+        return Math.max(0, Math.min((1 << zoom) - 1, x));
+    }
+
+    /** Номер строки тайла, содержащего широту (в пределах мира) */
+    public static int tileY(double lat, int zoom) {
+        int y = (int) Math.floor(mercatorY(lat) * (1 << zoom));
+        return Math.max(0, Math.min((1 << zoom) - 1, y));
+    }
+
+    /** Долгота западного края тайла */
+    public static double tileLng(int x, int zoom) {
+        return (double) x / (1 << zoom) * 360.0 - 180.0;
+    }
+
+    /** Широта северного края тайла */
+    public static double tileLat(int y, int zoom) {
+        double n = Math.PI * (1 - 2.0 * y / (1 << zoom));
+        return Math.toDegrees(Math.atan(Math.sinh(n)));
+    }
+
+    /**
+     * Палитра из 256 цветов ARGB (без предумножения альфы), линейно через опорные цвета:
+     * первый — для слабого пятна, последний — для насыщенного.
+     */
+    public static int[] gradient(int... stops) {
+        int[] palette = new int[256];
+        for (int i = 0; i < 256; i++) {
+            double pos = i / 255.0 * (stops.length - 1);
+            int s = Math.min(stops.length - 2, (int) pos);
+            double f = pos - s;
+            int a = stops[s];
+            int b = stops[s + 1];
+            palette[i] = lerp(a >>> 24, b >>> 24, f) << 24
+                    | lerp((a >> 16) & 0xff, (b >> 16) & 0xff, f) << 16
+                    | lerp((a >> 8) & 0xff, (b >> 8) & 0xff, f) << 8
+                    | lerp(a & 0xff, b & 0xff, f);
+        }
+        return palette;
+    }
+
+    /**
+     * Раскрасить плотность палитрой поверх argb (обычное наложение по альфе, без предумножения).
+     * Насыщение плавное: fullScale точек в одном месте — около 63% палитры.
+     */
+    public static void paint(float[] density, float fullScale, int[] palette, int[] argb) {
+        float k = 1f / fullScale;
+        for (int i = 0; i < TILE_SIZE * TILE_SIZE; i++) {
+            float d = density[i];
+            if (d <= 0) {
+                continue;
+            }
+            int src = palette[Math.min(255, (int) (256 * (1 - Math.exp(-d * k))))];
+            int dst = argb[i];
+            argb[i] = (dst >>> 24) == 0 ? src : over(src, dst);
+        }
+    }
+
+    private static int over(int src, int dst) {
+        float sa = (src >>> 24) / 255f;
+        float da = (dst >>> 24) / 255f * (1 - sa);
+        float oa = sa + da;
+        if (oa <= 0) {
+            return 0;
+        }
+        int r = (int) ((((src >> 16) & 0xff) * sa + ((dst >> 16) & 0xff) * da) / oa + 0.5f);
+        int g = (int) ((((src >> 8) & 0xff) * sa + ((dst >> 8) & 0xff) * da) / oa + 0.5f);
+        int b = (int) (((src & 0xff) * sa + (dst & 0xff) * da) / oa + 0.5f);
+        return (int) (oa * 255 + 0.5f) << 24 | r << 16 | g << 8 | b;
+    }
+
+    private static int lerp(int a, int b, double f) {
+        return (int) Math.round(a + (b - a) * f);
+    }
+
+    private void track(long key, long minX, long maxX, long minY, long maxY) {
+        int t = indexOfTracked(key);
+        if (t < 0) {
+            t = trackedCount++;
+            if (t == trackedKeys.length) {
+                trackedKeys = Arrays.copyOf(trackedKeys, t * 2);
+                trackedDirty = Arrays.copyOf(trackedDirty, t * 2);
+                trackedBounds = Arrays.copyOf(trackedBounds, t * 2 * 4);
+            }
+            trackedKeys[t] = key;
+            trackedBounds[t * 4] = minX;
+            trackedBounds[t * 4 + 1] = maxX;
+            trackedBounds[t * 4 + 2] = minY;
+            trackedBounds[t * 4 + 3] = maxY;
+        }
+        trackedDirty[t] = false;
+    }
+
+    // Тайлов в кэше немного (десятки): линейный поиск быстрее хэша
+    private int indexOfTracked(long key) {
+        for (int t = 0; t < trackedCount; t++) {
+            if (trackedKeys[t] == key) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    // Точки в границах — в counts (w x w, пиксель с полем на пятно); под блокировкой
+    private int count(long minX, long maxX, long minY, long maxY, int shift, int w) {
+        Arrays.fill(counts, 0, w * w, 0f);
+        Arrays.fill(rowMin, 0, w, Integer.MAX_VALUE);
+        Arrays.fill(rowMax, 0, w, -1);
+        int bx0 = clampBucket(minX >> BUCKET_SHIFT);
+        int bx1 = clampBucket((maxX - 1) >> BUCKET_SHIFT);
+        int by0 = clampBucket(minY >> BUCKET_SHIFT);
+        int by1 = clampBucket((maxY - 1) >> BUCKET_SHIFT);
+        int found = 0;
+        if ((long) (bx1 - bx0 + 1) * (by1 - by0 + 1) > bucketCount) {
+            // Мелкий зум: тайл накрывает больше корзин, чем их есть
+            for (int b = 0; b < bucketCount; b++) {
+                if (bucketX[b] >= bx0 && bucketX[b] <= bx1 && bucketY[b] >= by0 && bucketY[b] <= by1) {
+                    found += countBucket(b, minX, maxX, minY, maxY, shift, w);
+                }
+            }
+        } else {
+            for (int by = by0; by <= by1; by++) {
+                for (int bx = bx0; bx <= bx1; bx++) {
+                    int b = findBucket(bx, by);
+                    if (b >= 0) {
+                        found += countBucket(b, minX, maxX, minY, maxY, shift, w);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private int countBucket(int b, long minX, long maxX, long minY, long maxY, int shift, int w) {
+        int[] points = bucketPoints[b];
+        int size = bucketSizes[b];
+        int found = 0;
+        for (int i = 0; i < size; i++) {
+            int x = points[i * 2];
+            int y = points[i * 2 + 1];
+            if (x < minX || x >= maxX || y < minY || y >= maxY) {
+                continue;
+            }
+            int cx = (int) ((x - minX) >> shift);
+            int cy = (int) ((y - minY) >> shift);
+            counts[cy * w + cx]++;
+            rowMin[cy] = Math.min(rowMin[cy], cx);
+            rowMax[cy] = Math.max(rowMax[cy], cx);
+            found++;
+        }
+        return found;
+    }
+
+    // Разделимое размытие: по строкам (только непустым, разбрасывая каждую точку) в rows,
+    // затем по столбцам в density; в обоих проходах — только столбцы, до которых достают точки
+    private void blur(int w, float[] density) {
+        int r = radiusPx;
+        Arrays.fill(density, 0, TILE_SIZE * TILE_SIZE, 0f);
+        for (int cy = 0; cy < w; cy++) {
+            if (rowMin[cy] > rowMax[cy]) {
+                continue;
+            }
+            // Столбец cx с полем — пиксель cx - r, пятно — до r в обе стороны
+            int from = Math.max(0, rowMin[cy] - 2 * r);
+            int to = Math.min(TILE_SIZE - 1, rowMax[cy]);
+            int out = cy * TILE_SIZE;
+            Arrays.fill(rows, out + from, out + to + 1, 0f);
+            int in = cy * w;
+            for (int cx = rowMin[cy]; cx <= rowMax[cy]; cx++) {
+                float c = counts[in + cx];
+                if (c == 0) {
+                    continue;
+                }
+                for (int k = 0; k <= 2 * r; k++) {
+                    int px = cx - 2 * r + k;
+                    if (px >= 0 && px < TILE_SIZE) {
+                        rows[out + px] += c * kernel[k];
+                    }
+                }
+            }
+            // Строка cy с полем влияет на пиксели py = cy - 2r + k, k = 0..2r
+            for (int k = 0; k <= 2 * r; k++) {
+                int py = cy - 2 * r + k;
+                if (py < 0 || py >= TILE_SIZE) {
+                    continue;
+                }
+                float weight = kernel[k];
+                int dst = py * TILE_SIZE;
+                for (int px = from; px <= to; px++) {
+                    density[dst + px] += rows[out + px] * weight;
+                }
+            }
+        }
+    }
+
+    private int bucketFor(int bx, int by) {
+        int b = findBucket(bx, by);
+        if (b >= 0) {
+            return b;
+        }
+        if (bucketCount == bucketSizes.length) {
+            int n = bucketCount * 2;
+            bucketX = Arrays.copyOf(bucketX, n);
+            bucketY = Arrays.copyOf(bucketY, n);
+            bucketPoints = Arrays.copyOf(bucketPoints, n);
+            bucketSizes = Arrays.copyOf(bucketSizes, n);
+        }
+        b = bucketCount++;
+        bucketX[b] = bx;
+        bucketY[b] = by;
+        bucketPoints[b] = new int[16];
+        bucketSizes[b] = 0;
+        bucketIndex.put(bucketKey(bx, by), b);
+        return b;
+    }
+
+    // Номер корзины или -1
+    private int findBucket(int bx, int by) {
+        return bucketIndex.get(bucketKey(bx, by));
+    }
+
+    private static long bucketKey(int bx, int by) {
+        return ((long) bx << 32) | by;
+    }
+
+    private static int clampBucket(long b) {
+        return (int) Math.max(0, Math.min(BUCKETS_PER_SIDE - 1, b));
+    }
+
+    private static int refX(double lng) {
+        double x = Math.floor((lng + 180.0) / 360.0 * WORLD_PX);
+        return (int) Math.max(0, Math.min(WORLD_PX - 1, x));
+    }
+
+    private static int refY(double lat) {
+        double y = Math.floor(mercatorY(lat) * WORLD_PX);
+        return (int) Math.max(0, Math.min(WORLD_PX - 1, y));
+    }
+
+    // Доля высоты мира от северного края, [0; 1]
+    private static double mercatorY(double lat) {
+        double clamped = Math.max(-MAX_LAT, Math.min(MAX_LAT, lat));
+        double sin = Math.sin(Math.toRadians(clamped));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+}
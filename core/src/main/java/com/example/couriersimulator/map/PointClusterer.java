@@ -0,0 +1,139 @@
+package com.example.couriersimulator.map;
+
+import com.example.couriersimulator.util.LongIntMap;
+
+import java.util.Arrays;
+
+/**
+ * Сеточная кластеризация точек в пиксельных координатах Web Mercator.
+ * Точки задаются примитивным массивом [lat0, lng0, lat1, lng1, ...].
+ * Кластеры пересчитываются только при смене целого уровня зума или набора точек;
+ * все рабочие массивы переиспользуются между пересчётами.
+ * Класс не зависит от Android.
+ */
+public class PointClusterer {
+
+    // Размер тайла osmdroid/OSM в пикселях
+    private static final double TILE_SIZE = 256.0;
+    private static final double MAX_LAT = 85.05112878;
+
+    private final double cellSizePx;
+
+    private double[] points = new double[0];
+    private int pointCount;
+
+    // Результат: центры кластеров и количество точек в каждом
+    private double[] clusterLat = new double[16];
+    private double[] clusterLng = new double[16];
+    private int[] clusterCount = new int[16];
+    private int clusterSize;
+
+    // Ключ ячейки -> индекс кластера
+    private final LongIntMap clusterByCell = new LongIntMap(32);
+
+    private int clusteredZoom = -1;
+    private boolean dirty = true;
+
+    public PointClusterer(double cellSizePx) {
+        this.cellSizePx = cellSizePx;
+    }
+
+    /**
+     * Задать точки. Массив не копируется: вызывающий код не должен менять его
+     * до следующего setPoints.
+     */
+    public void setPoints(double[] latLng, int count) {
+        if (latLng.length < count * 2) {
+            throw new IllegalArgumentException("latLng too short for " + count + " points");
+        }
+        this.points = latLng;
+        this.pointCount = count;
+        this.dirty = true;
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * Пересчитать кластеры для уровня зума, если он изменился или изменились точки.
+     *
+     * @return true, если кластеры были пересчитаны
+     */
+    public boolean clusterFor(int zoom) {
+        if (!dirty && zoom == clusteredZoom) {
+            return false;
+        }
+        recluster(zoom);
+        clusteredZoom = zoom;
+        dirty = false;
+        return true;
+    }
+
+    public int getClusterCount() {
+        return clusterSize;
+    }
+
+    public double getClusterLat(int i) {
+        return clusterLat[i];
+    }
+
+    public double getClusterLng(int i) {
+        return clusterLng[i];
+    }
+
+    public int getClusterSize(int i) {
+        return clusterCount[i];
+    }
+
+    private void recluster(int zoom) {
+        double mapSize = TILE_SIZE * (1L << zoom);
+        clusterSize = 0;
+        clusterByCell.clear();
+
+        for (int i = 0; i < pointCount; i++) {
+            double lat = points[i * 2];
+            double lng = points[i * 2 + 1];
+            long cx = (long) (mercatorX(lng, mapSize) / cellSizePx);
+            long cy = (long) (mercatorY(lat, mapSize) / cellSizePx);
+            long key = (cx << 32) | (cy & 0xffffffffL);
+
+            int c = clusterByCell.get(key);
+            if (c == LongIntMap.MISSING) {
+                c = clusterSize++;
+                ensureClusterCapacity(clusterSize);
+                clusterByCell.put(key, c);
+                clusterLat[c] = 0;
+                clusterLng[c] = 0;
+                clusterCount[c] = 0;
+            }
+            // Пока накапливаем суммы, затем превращаем в средние
+            clusterLat[c] += lat;
+            clusterLng[c] += lng;
+            clusterCount[c]++;
+        }
+        for (int c = 0; c < clusterSize; c++) {
+            clusterLat[c] /= clusterCount[c];
+            clusterLng[c] /= clusterCount[c];
+        }
+    }
+
+    private void ensureClusterCapacity(int size) {
+        if (size > clusterCount.length) {
+            int newLength = Math.max(size, clusterCount.length * 2);
+            clusterLat = Arrays.copyOf(clusterLat, newLength);
+            clusterLng = Arrays.copyOf(clusterLng, newLength);
+            clusterCount = Arrays.copyOf(clusterCount, newLength);
+        }
+    }
+
+    static double mercatorX(double lng, double mapSize) {
+        return (lng + 180.0) / 360.0 * mapSize;
+    }
+
+    static double mercatorY(double lat, double mapSize) {
+        double clamped = Math.max(-MAX_LAT, Math.min(MAX_LAT, lat));
+        double sin = Math.sin(Math.toRadians(clamped));
+        return (0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI)) * mapSize;
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.couriersimulator.map;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Дисковый кэш тайлов карты с бюджетом в байтах и вытеснением по давности показа (LRU).
+ * - тайл качается с сервера только тогда, когда карта его показывает (get):
+ *   предзагрузки и массового скачивания нет
+ * - каждый показ делает тайл самым свежим; при превышении maxBytes удаляются тайлы,
+ *   которые дольше всех не показывались (а не самые давно скачанные)
+ * - порядок переживает перезапуск: время последнего показа хранится в mtime файла
+ * - офлайн сеть не трогается: доступны только уже показанные тайлы
+ * - тайл старше maxAgeMillis перекачивается, если есть сеть; без неё отдаётся как есть
+ * Файл тайла: [время скачивания, long][байты тайла].
+ * Потокобезопасен: сеть и чтение файлов — вне блокировки, индекс — под ней.
+ */
+public class TileCache {
+
+    private static final String SUFFIX = ".tile";
+    private static final int TIMEOUT_MS = 10_000;
+    // Защита от ответа не с тайлом
+    private static final int MAX_TILE_BYTES = 1024 * 1024;
+    private static final int HEADER_BYTES = 8;
+
+    private final File dir;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    // Адрес тайла: {z}, {x}, {y} заменяются номерами
+    private final String urlTemplate;
+    private final String userAgent;
+
+    // Имя файла → его размер; порядок обхода — от давно показанных к недавним
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(256, 0.75f, true);
+    private boolean loaded;
+    private long sizeBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private volatile boolean offline;
+
+    public TileCache(File dir, long maxBytes, long maxAgeMillis, String urlTemplate, String userAgent) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        this.urlTemplate = urlTemplate;
+        this.userAgent = userAgent;
+    }
+
+    /** Офлайн: только тайлы из кэша, без обращений к серверу */
+    public void setOffline(boolean offline) {
+        this.offline = offline;
+    }
+
+    public boolean isOffline() {
+        return offline;
+    }
+
+    /**
+     * Байты тайла (PNG) или null, если его нет ни в кэше, ни на сервере (или нельзя в сеть).
+     * Первый вызов читает каталог кэша — не на главном потоке.
+     */
+    public byte[] get(int zoom, int x, int y) throws IOException {
+        String name = zoom + "-" + x + "-" + y + SUFFIX;
+        File file = new File(dir, name);
+        boolean cached;
+        synchronized (this) {
+            load();
+            // get в LinkedHashMap с accessOrder переносит тайл в конец очереди
+            cached = index.get(name) != null;
+        }
+        byte[] body = null;
+        long fetchedMillis = 0;
+        if (cached) {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                fetchedMillis = in.readLong();
+                body = readAll(in, (int) Math.max(0, file.length() - HEADER_BYTES));
+            } catch (IOException e) {
+                forget(name); // Файл удалён или испорчен: качаем заново
+            }
+        }
+        long now = System.currentTimeMillis();
+        if (body != null && (offline || now - fetchedMillis < maxAgeMillis)) {
+            file.setLastModified(now);
+            synchronized (this) {
+                hits++;
+            }
+            return body;
+        }
+        synchronized (this) {
+            misses++;
+        }
+        if (offline) {
+            return body;
+        }
+        byte[] fresh = download(zoom, x, y);
+        if (fresh == null) {
+            return body; // Сервер не отдал тайл: устаревший лучше пустого места
+        }
+        store(name, fresh, now);
+        return fresh;
+    }
+
+    public synchronized long getSizeBytes() {
+        load();
+        return sizeBytes;
+    }
+
+    public synchronized int getTileCount() {
+        load();
+        return index.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    // Под блокировкой: индекс по файлам каталога, от давно показанных к недавним
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        int n = 0;
+        for (File f : files) {
+            if (f.getName().endsWith(SUFFIX)) {
+                files[n++] = f;
+            } else if (f.getName().endsWith(".tmp")) {
+                f.delete(); // Недописанный тайл прошлого запуска
+            }
+        }
+        files = Arrays.copyOf(files, n);
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File f : files) {
+            long length = f.length();
+            index.put(f.getName(), length);
+            sizeBytes += length;
+        }
+        trim();
+    }
+
+    private void store(String name, byte[] body, long fetchedMillis) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create tile cache directory " + dir);
+        }
+        // Через временный файл: параллельное чтение не увидит недописанный тайл
+        File tmp = File.createTempFile(name, ".tmp", dir);
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.writeLong(fetchedMillis);
+            out.write(body);
+        }
+        File file = new File(dir, name);
+        synchronized (this) {
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                throw new IOException("Cannot rename " + tmp);
+            }
+            long length = HEADER_BYTES + body.length;
+            Long previous = index.put(name, length);
+            sizeBytes += length - (previous != null ? previous : 0);
+            trim();
+        }
+    }
+
+    // Под блокировкой: удалить давно не показанные тайлы, пока кэш не влезет в бюджет
+    private void trim() {
+        Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+        while (sizeBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            new File(dir, eldest.getKey()).delete();
+            sizeBytes -= eldest.getValue();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private synchronized void forget(String name) {
+        Long length = index.remove(name);
+        if (length != null) {
+            sizeBytes -= length;
+        }
+    }
+
+    private byte[] download(int zoom, int x, int y) {
+        String url = urlTemplate
+                .replace("{z}", Integer.toString(zoom))
+                .replace("{x}", Integer.toString(x))
+                .replace("{y}", Integer.toString(y));
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setRequestProperty("User-Agent", userAgent);
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                return null;
+            }
+            try (InputStream in = connection.getInputStream()) {
+                return readAll(in, connection.getContentLength());
+            }
+        } catch (IOException e) {
+            return null; // Нет сети: карта покажет то, что есть
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private static byte[] readAll(InputStream in, int expected) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(expected > 0 ? expected : 16 * 1024);
+        byte[] buffer = new byte[16 * 1024];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+            if (out.size() > MAX_TILE_BYTES) {
+                throw new IOException("Tile is too large");
+            }
+        }
+        return out.toByteArray();
+    }
+}
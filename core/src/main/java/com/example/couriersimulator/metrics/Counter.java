@@ -0,0 +1,25 @@
+package com.example.couriersimulator.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Счётчик событий; инкремент с любого потока почти без конкуренции */
+public final class Counter {
+
+    private final LongAdder value = new LongAdder();
+
+    public void inc() {
+        value.increment();
+    }
+
+    public void add(long n) {
+        value.add(n);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+
+    void reset() {
+        value.reset();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.couriersimulator.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Гистограмма задержек в наносекундах с лог-линейными корзинами, как в HdrHistogram:
+ * значения до 64 хранятся точно, дальше каждая степень двойки делится на 32 корзины,
+ * поэтому относительная погрешность процентилей не больше ~3%.
+ * Память постоянная (около 9 КБ), запись — без блокировок и без выделений.
+ * Значения больше MAX_TRACKABLE_NANOS (~18 минут) попадают в последнюю корзину.
+ */
+public final class LatencyHistogram {
+
+    public static final long MAX_TRACKABLE_NANOS = (1L << 40) - 1;
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Точная часть: 0..63
+    private static final int LINEAR = SUB_BUCKETS * 2;
+    private static final int BUCKETS = LINEAR + (40 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long v = Math.max(0, Math.min(nanos, MAX_TRACKABLE_NANOS));
+        counts.incrementAndGet(indexOf(v));
+        count.incrementAndGet();
+        sum.addAndGet(v);
+        long m;
+        while (v > (m = max.get())) {
+            if (max.compareAndSet(m, v)) {
+                break;
+            }
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    public double getMeanNanos() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Значение, не больше которого percentile процентов записей (середина корзины).
+     *
+     * @param percentile от 0 до 100
+     */
+    public long valueAtPercentile(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        // Сначала умножение: у percentile / 100.0 * n ошибка округления (99.9 / 100 * 1000
+        // чуть больше 999), и ceil сдвигает ранг на одну запись
+        long rank = Math.max(1, (long) Math.ceil(percentile * n / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(middleOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    static int indexOf(long v) {
+        if (v < LINEAR) {
+            return (int) v;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(v);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int top = (int) (v >>> shift);
+        return LINEAR + (magnitude - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + (top - SUB_BUCKETS);
+    }
+
+    static long lowerBoundOf(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int octave = (index - LINEAR) / SUB_BUCKETS;
+        int top = SUB_BUCKETS + (index - LINEAR) % SUB_BUCKETS;
+        int shift = octave + 1;
+        return (long) top << shift;
+    }
+
+    static long middleOf(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int shift = (index - LINEAR) / SUB_BUCKETS + 1;
+        return lowerBoundOf(index) + (1L << shift) / 2;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.couriersimulator.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр метрик процесса: счётчики и таймеры по имени.
+ * Метрику стоит получить один раз и хранить в static final поле —
+ * тогда на горячем пути нет ни поиска по имени, ни выделений памяти.
+ * Имена — через точку, от общего к частному: "startup.onCreate", "ui.ordersSheet".
+ */
+public final class Metrics {
+
+    private static final ConcurrentHashMap<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Timer> TIMERS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name) {
+        Counter c = COUNTERS.get(name);
+        return c != null ? c : COUNTERS.computeIfAbsent(name, n -> new Counter());
+    }
+
+    public static Timer timer(String name) {
+        Timer t = TIMERS.get(name);
+        return t != null ? t : TIMERS.computeIfAbsent(name, n -> new Timer());
+    }
+
+    /** Все счётчики по имени (копия для чтения) */
+    public static Map<String, Counter> counters() {
+        return new TreeMap<>(COUNTERS);
+    }
+
+    /** Все таймеры по имени (копия для чтения) */
+    public static Map<String, Timer> timers() {
+        return new TreeMap<>(TIMERS);
+    }
+
+    /** Обнулить значения; сами метрики остаются зарегистрированными */
+    public static void reset() {
+        for (Counter c : COUNTERS.values()) {
+            c.reset();
+        }
+        for (Timer t : TIMERS.values()) {
+            t.getHistogram().reset();
+        }
+    }
+
+    /**
+     * Отчёт в TSV для разбора вне устройства: по строке на метрику.
+     * Для таймеров — число замеров, среднее, процентили и максимум в микросекундах.
+     */
+    public static void writeReport(Writer out, long timeMillis) throws IOException {
+        out.write("# metrics at " + timeMillis + "\n");
+        out.write("name\ttype\tcount\tmean_us\tp50_us\tp90_us\tp99_us\tp999_us\tmax_us\n");
+        for (Map.Entry<String, Counter> e : counters().entrySet()) {
+            out.write(e.getKey() + "\tcounter\t" + e.getValue().get() + "\t\t\t\t\t\t\n");
+        }
+        for (Map.Entry<String, Timer> e : timers().entrySet()) {
+            LatencyHistogram h = e.getValue().getHistogram();
+            out.write(String.format(Locale.ROOT, "%s\ttimer\t%d\t%.1f\t%.1f\t%.1f\t%.1f\t%.1f\t%.1f\n",
+                    e.getKey(), h.getCount(), h.getMeanNanos() / 1000.0,
+                    h.valueAtPercentile(50) / 1000.0, h.valueAtPercentile(90) / 1000.0,
+                    h.valueAtPercentile(99) / 1000.0, h.valueAtPercentile(99.9) / 1000.0,
+                    h.getMaxNanos() / 1000.0));
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.couriersimulator.metrics;
+
+/**
+ * Замер длительности участка кода:
+ * <pre>
+ * long t = timer.start();
+ * ...
+ * timer.stop(t);
+ * </pre>
+ * Без выделений памяти, можно вызывать на горячем пути.
+ */
+public final class Timer {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /** @return длительность участка, нс */
+    public long stop(long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        histogram.record(elapsed);
+        return elapsed;
+    }
+
+    public void record(long nanos) {
+        histogram.record(nanos);
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+}
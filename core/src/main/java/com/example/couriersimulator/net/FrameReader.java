@@ -0,0 +1,68 @@
+package com.example.couriersimulator.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Нарезка входящего потока на кадры протокола (см. Wire). Байты читаются в один
+ * растущий буфер; next() отдаёт очередной полный кадр [тип][данные] как срез этого
+ * буфера — он действителен до следующего read().
+ */
+final class FrameReader {
+
+    private ByteBuffer buf;
+    // Начало ещё не отданных байт
+    private int start;
+
+    FrameReader(int initialBytes) {
+        buf = ByteBuffer.allocate(initialBytes);
+    }
+
+    /** @return сколько байт прочитано; -1 — канал закрыт */
+    int read(ReadableByteChannel channel) throws IOException {
+        if (start > 0) {
+            buf.flip();
+            buf.position(start);
+            buf.compact();
+            start = 0;
+        }
+        if (!buf.hasRemaining()) {
+            grow(buf.capacity() * 2);
+        }
+        return channel.read(buf);
+    }
+
+    /** Следующий полный кадр без поля длины или null, если кадр ещё не дочитан */
+    ByteBuffer next() throws IOException {
+        int available = buf.position() - start;
+        if (available < 4) {
+            return null;
+        }
+        int length = buf.getInt(start);
+        if (length <= 0 || length > Wire.MAX_FRAME_BYTES) {
+            throw new IOException("Bad frame length: " + length);
+        }
+        if (available < 4 + length) {
+            if (buf.capacity() - start < 4 + length) {
+                grow(4 + length);
+            }
+            return null;
+        }
+        ByteBuffer frame = buf.duplicate();
+        frame.limit(start + 4 + length);
+        frame.position(start + 4);
+        start += 4 + length;
+        return frame.slice();
+    }
+
+    // Не меньше minCapacity после сдвига непрочитанного в начало
+    private void grow(int minCapacity) {
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(minCapacity, buf.capacity() * 2));
+        buf.flip();
+        buf.position(start);
+        grown.put(buf);
+        buf = grown;
+        start = 0;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.couriersimulator.net;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Сборка одного кадра протокола (см. Wire) в растущем буфере. Буфер переиспользуется
+ * между кадрами; finish() отдаёт копию ровно по размеру кадра, которую можно
+ * разослать нескольким клиентам через duplicate().
+ */
+final class FrameWriter {
+
+    private ByteBuffer buf = ByteBuffer.allocate(4096);
+
+    void begin(byte type) {
+        buf.clear();
+        buf.putInt(0);
+        buf.put(type);
+    }
+
+    ByteBuffer finish() {
+        buf.putInt(0, buf.position() - 4);
+        ByteBuffer frame = ByteBuffer.allocate(buf.position());
+        buf.flip();
+        frame.put(buf);
+        frame.flip();
+        return frame;
+    }
+
+    void putByte(byte v) {
+        ensure(1);
+        buf.put(v);
+    }
+
+    void putInt(int v) {
+        ensure(4);
+        buf.putInt(v);
+    }
+
+    void putLong(long v) {
+        ensure(8);
+        buf.putLong(v);
+    }
+
+    /** Без знака, 7 бит на байт: значения до 127 — один байт */
+    void putVarLong(long v) {
+        ensure(10);
+        while ((v & ~0x7fL) != 0) {
+            buf.put((byte) ((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        buf.put((byte) v);
+    }
+
+    /** Со знаком: малые по модулю значения (разности) — в один-два байта */
+    void putZigZag(long v) {
+        putVarLong((v << 1) ^ (v >> 63));
+    }
+
+    void putString(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        putVarLong(bytes.length);
+        ensure(bytes.length);
+        buf.put(bytes);
+    }
+
+    private void ensure(int bytes) {
+        if (buf.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + bytes));
+            buf.flip();
+            grown.put(buf);
+            buf = grown;
+        }
+    }
+}
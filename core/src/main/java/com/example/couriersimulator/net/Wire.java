@@ -0,0 +1,81 @@
+package com.example.couriersimulator.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Двоичный протокол общего мира. Кадр: [int длина][byte тип][данные], длина считает тип и данные.
+ * Клиент → сервер:
+ * - HELLO: int версия протокола. Сервер отвечает WELCOME и полным снимком; повторный HELLO
+ *   (клиент потерял синхронизацию) — снова снимок
+ * - CLAIM: long id заказа
+ * Сервер → клиент:
+ * - WELCOME: int id клиента
+ * - SNAPSHOT: long версия, long базовое время, varint число заказов, заказы (OrderCodec)
+ * - DELTA: long версия (предыдущая + 1), long базовое время, varint число новых заказов,
+ *   новые заказы, varint число удалённых, id удалённых (по возрастанию, разностями)
+ * - CLAIM_RESULT: long id заказа, byte CLAIM_GRANTED или CLAIM_TAKEN
+ * Целые переменной длины — LEB128 без знака, со знаком — через zigzag.
+ */
+final class Wire {
+
+    static final int PROTOCOL_VERSION = 1;
+    // Больше не бывает даже у снимка на сотни тысяч заказов
+    static final int MAX_FRAME_BYTES = 64 << 20;
+
+    static final byte HELLO = 1;
+    static final byte CLAIM = 2;
+
+    static final byte WELCOME = 101;
+    static final byte SNAPSHOT = 102;
+    static final byte DELTA = 103;
+    static final byte CLAIM_RESULT = 104;
+
+    static final byte CLAIM_GRANTED = 1;
+    static final byte CLAIM_TAKEN = 2;
+
+    private Wire() {
+    }
+
+    static ByteBuffer hello() {
+        ByteBuffer b = ByteBuffer.allocate(9);
+        b.putInt(5).put(HELLO).putInt(PROTOCOL_VERSION);
+        b.flip();
+        return b;
+    }
+
+    static ByteBuffer claim(long orderId) {
+        ByteBuffer b = ByteBuffer.allocate(13);
+        b.putInt(9).put(CLAIM).putLong(orderId);
+        b.flip();
+        return b;
+    }
+
+    static long getVarLong(ByteBuffer in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            v |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return v;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static long getZigZag(ByteBuffer in) throws IOException {
+        long v = getVarLong(in);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    static String getString(ByteBuffer in) throws IOException {
+        int length = (int) getVarLong(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new IOException("Bad string length: " + length);
+        }
+        String s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return s;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.couriersimulator.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.function.Consumer;
+
+/**
+ * Подключение к WorldServer на блокирующем сокете: отдельный поток-демон читает кадры
+ * и применяет их к WorldMirror, поэтому слушатель копии вызывается на этом потоке.
+ * claim() можно звать с любого потока.
+ */
+public final class WorldClient implements Closeable {
+
+    private final WorldMirror mirror;
+    private volatile SocketChannel channel;
+    private volatile boolean closed;
+    private volatile Consumer<IOException> onDisconnected;
+
+    public WorldClient(WorldMirror mirror) {
+        this.mirror = mirror;
+    }
+
+    public WorldMirror getMirror() {
+        return mirror;
+    }
+
+    /** Вызывается на потоке чтения, если соединение оборвалось не через close() */
+    public void setOnDisconnected(Consumer<IOException> onDisconnected) {
+        this.onDisconnected = onDisconnected;
+    }
+
+    /** Подключиться и запросить снимок; блокирует до установки соединения */
+    public void connect(InetSocketAddress address) throws IOException {
+        channel = SocketChannel.open(address);
+        if (closed) {
+            // close() успел раньше, чем соединение установилось
+            channel.close();
+            throw new IOException("Client closed");
+        }
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        send(Wire.hello());
+        Thread reader = new Thread(this::readLoop, "world-client");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /** Попросить заказ; ответ придёт в WorldMirror.Listener.onClaimResult */
+    public void claim(long orderId) throws IOException {
+        send(Wire.claim(orderId));
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private synchronized void send(ByteBuffer frame) throws IOException {
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+
+    private void readLoop() {
+        FrameReader frames = new FrameReader(64 * 1024);
+        try {
+            while (true) {
+                if (frames.read(channel) < 0) {
+                    throw new IOException("Server closed the connection");
+                }
+                ByteBuffer frame;
+                while ((frame = frames.next()) != null) {
+                    if (!mirror.apply(frame)) {
+                        // Пропущена дельта: заново весь мир
+                        send(Wire.hello());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Consumer<IOException> callback = onDisconnected;
+            if (!closed && callback != null) {
+                callback.accept(e);
+            }
+        }
+    }
+}
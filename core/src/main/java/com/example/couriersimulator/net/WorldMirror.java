@@ -0,0 +1,138 @@
+package com.example.couriersimulator.net;
+
+import com.example.couriersimulator.orders.Order;
+import com.example.couriersimulator.orders.OrderStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Копия открытых заказов общего мира у клиента: применяет кадры сервера (снимок и дельты)
+ * к своему OrderStore и сообщает слушателю об изменениях по одному заказу.
+ * Транспорт — снаружи (WorldClient или свой цикл на NIO); все вызовы — с одного потока.
+ */
+public final class WorldMirror {
+
+    /** События копии; вызываются на потоке, который применяет кадры */
+    public interface Listener {
+        /** Копия целиком заменена снимком сервера (первое подключение или потеря синхронизации) */
+        default void onSnapshot(WorldMirror mirror) {
+        }
+
+        default void onOrderAdded(WorldMirror mirror, int slot) {
+        }
+
+        default void onOrderRemoved(WorldMirror mirror, long orderId) {
+        }
+
+        /** Ответ на claim: granted — заказ наш, иначе его уже взял другой или он исчез */
+        default void onClaimResult(WorldMirror mirror, long orderId, boolean granted) {
+        }
+    }
+
+    private static final Listener NO_LISTENER = new Listener() {
+    };
+
+    private final OrderStore store;
+    private final OrderCodec codec = new OrderCodec();
+    private Listener listener = NO_LISTENER;
+    private int clientId;
+    // -1 — снимка ещё нет
+    private long version = -1;
+
+    public WorldMirror() {
+        this(new OrderStore());
+    }
+
+    public WorldMirror(OrderStore store) {
+        this.store = store;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener != null ? listener : NO_LISTENER;
+    }
+
+    /** Открытые заказы (только для чтения) */
+    public OrderStore getStore() {
+        return store;
+    }
+
+    public Order getOrder(int slot) {
+        return store.toOrder(slot);
+    }
+
+    /** id, выданный сервером при подключении (0 — ещё не выдан) */
+    public int getClientId() {
+        return clientId;
+    }
+
+    /** Версия мира, до которой копия догнала сервер; -1 — снимка ещё нет */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Применить кадр сервера (без поля длины).
+     *
+     * @return false, если пропущена дельта: копия недействительна до нового снимка,
+     *         клиент должен заново отправить HELLO
+     */
+    boolean apply(ByteBuffer frame) throws IOException {
+        byte type = frame.get();
+        switch (type) {
+            case Wire.WELCOME:
+                clientId = frame.getInt();
+                return true;
+            case Wire.SNAPSHOT:
+                applySnapshot(frame);
+                return true;
+            case Wire.DELTA:
+                return applyDelta(frame);
+            case Wire.CLAIM_RESULT:
+                long orderId = frame.getLong();
+                listener.onClaimResult(this, orderId, frame.get() == Wire.CLAIM_GRANTED);
+                return true;
+            default:
+                throw new IOException("Unknown frame type: " + type);
+        }
+    }
+
+    private void applySnapshot(ByteBuffer in) throws IOException {
+        long v = in.getLong();
+        codec.reset(in.getLong());
+        int count = (int) Wire.getVarLong(in);
+        store.clear();
+        for (int i = 0; i < count; i++) {
+            codec.read(in, store);
+        }
+        version = v;
+        listener.onSnapshot(this);
+    }
+
+    private boolean applyDelta(ByteBuffer in) throws IOException {
+        long v = in.getLong();
+        if (version < 0 || v != version + 1) {
+            // Снимок ещё в пути (после повторного HELLO) или дельта пропущена
+            boolean lost = version >= 0;
+            version = -1;
+            return !lost;
+        }
+        codec.reset(in.getLong());
+        int added = (int) Wire.getVarLong(in);
+        for (int i = 0; i < added; i++) {
+            int slot = codec.read(in, store);
+            listener.onOrderAdded(this, slot);
+        }
+        int removed = (int) Wire.getVarLong(in);
+        long id = 0;
+        for (int i = 0; i < removed; i++) {
+            id += Wire.getVarLong(in);
+            // Свой взятый заказ или заказ, который появился и исчез до нашего снимка
+            if (store.remove(id)) {
+                listener.onOrderRemoved(this, id);
+            }
+        }
+        version = v;
+        return true;
+    }
+}
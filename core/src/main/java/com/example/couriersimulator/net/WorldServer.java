@@ -0,0 +1,501 @@
+package com.example.couriersimulator.net;
+
+import com.example.couriersimulator.orders.Order;
+import com.example.couriersimulator.orders.OrderStore;
+import com.example.couriersimulator.orders.SpawnScheduler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Сервер общего мира: владеет книгой открытых заказов (OrderStore), заказы появляются
+ * и исчезают по SpawnScheduler, клиенты получают снимок при подключении и дальше —
+ * дельты раз в тик (см. Wire).
+ * Один поток на NIO Selector обслуживает все соединения, книгу и тики, поэтому
+ * заявки на один и тот же заказ разрешаются строго по очереди: первая получает заказ,
+ * остальные — CLAIM_TAKEN. Блокировок нет.
+ * Дельта кодируется один раз и рассылается всем клиентам через duplicate() одного буфера.
+ * Клиент, который не успевает читать, не копит дельты без предела: при переполнении
+ * его очередь сбрасывается, а когда он дочитает начатое, получает свежий снимок.
+ */
+public final class WorldServer implements Closeable {
+
+    public static final long DEFAULT_TICK_MILLIS = 100;
+    public static final int DEFAULT_MAX_QUEUED_BYTES = 4 << 20;
+
+    /** Соединение клиента; все поля — только с потока сервера */
+    private static final class Connection {
+        final SocketChannel channel;
+        final FrameReader reader = new FrameReader(256);
+        final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+        // Байт дельт в очереди (снимок не считается: он заменяет все дельты до него)
+        long queuedDeltaBytes;
+        int clientId;
+        boolean welcomed;
+        boolean needsSnapshot;
+        SelectionKey key;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private final SpawnScheduler spawner;
+    private final long tickMillis;
+    private final OrderStore store = new OrderStore();
+    private final List<Connection> connections = new ArrayList<>();
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final FrameWriter writer = new FrameWriter();
+    private final OrderCodec codec = new OrderCodec();
+    private final SpawnScheduler.Listener spawnEvents = new SpawnScheduler.Listener() {
+        @Override
+        public void onOrderSpawned(Order order) {
+            store.add(order);
+            added = push(added, addedCount++, order.getId());
+        }
+
+        @Override
+        public void onOrderExpired(long orderId) {
+            if (store.remove(orderId)) {
+                removed = push(removed, removedCount++, orderId);
+            }
+        }
+    };
+
+    // Изменения с прошлой дельты
+    private long[] added = new long[64];
+    private int addedCount;
+    private long[] removed = new long[64];
+    private int removedCount;
+    private int[] slots = new int[64];
+
+    private int maxQueuedBytes = DEFAULT_MAX_QUEUED_BYTES;
+    private int socketSendBufferBytes;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread thread;
+    private volatile boolean running;
+    private volatile boolean paused;
+    private int nextClientId = 1;
+    private ByteBuffer snapshotFrame;
+    private long snapshotVersion = -1;
+
+    // Пишутся только потоком сервера; читать можно откуда угодно
+    private volatile long version;
+    private volatile int clientCount;
+    private volatile long claimsGranted;
+    private volatile long claimsTaken;
+    private volatile long deltaFrames;
+    private volatile long deltaBytes;
+    private volatile long deltaOrders;
+    private volatile long snapshots;
+    private volatile long resyncs;
+
+    /**
+     * @param spawner    появление и истечение заказов; используется только потоком сервера
+     * @param tickMillis как часто продвигается время и рассылаются дельты
+     */
+    public WorldServer(SpawnScheduler spawner, long tickMillis) {
+        this.spawner = spawner;
+        this.tickMillis = tickMillis;
+    }
+
+    /** Предел байт неотправленных дельт на клиента; вызывать до start */
+    public void setMaxQueuedBytes(int maxQueuedBytes) {
+        this.maxQueuedBytes = maxQueuedBytes;
+    }
+
+    /** SO_SNDBUF принятых соединений (0 — по умолчанию системы); вызывать до start */
+    public void setSocketSendBufferBytes(int socketSendBufferBytes) {
+        this.socketSendBufferBytes = socketSendBufferBytes;
+    }
+
+    /** Открыть порт (port 0 — любой свободный) и запустить поток сервера */
+    public void start(InetSocketAddress address) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        thread = new Thread(this::loop, "world-server");
+        thread.start();
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /** Остановить время: заказы не появляются и не исчезают, заявки обрабатываются */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    /** Выполнить задачу на потоке сервера (например, прочитать книгу) */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getClientCount() {
+        return clientCount;
+    }
+
+    public long getClaimsGranted() {
+        return claimsGranted;
+    }
+
+    public long getClaimsTaken() {
+        return claimsTaken;
+    }
+
+    public long getDeltaFrames() {
+        return deltaFrames;
+    }
+
+    /** Байт во всех закодированных дельтах (один раз на дельту, не на клиента) */
+    public long getDeltaBytes() {
+        return deltaBytes;
+    }
+
+    /** Новых заказов во всех дельтах */
+    public long getDeltaOrders() {
+        return deltaOrders;
+    }
+
+    public long getSnapshots() {
+        return snapshots;
+    }
+
+    /** Сколько раз очередь отстающего клиента сбрасывалась в пользу снимка */
+    public long getResyncs() {
+        return resyncs;
+    }
+
+    /** Книга заказов; только с потока сервера (см. execute) */
+    public OrderStore getStore() {
+        return store;
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void loop() {
+        long nextTick = System.currentTimeMillis() + tickMillis;
+        try {
+            while (running) {
+                long wait = nextTick - System.currentTimeMillis();
+                if (wait > 0) {
+                    selector.select(wait);
+                } else {
+                    selector.selectNow();
+                }
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection c = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                read(c);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                flush(c);
+                            }
+                        } catch (IOException e) {
+                            disconnect(c);
+                        }
+                    }
+                }
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                long now = System.currentTimeMillis();
+                if (now >= nextTick) {
+                    tick(now);
+                    nextTick = now + tickMillis;
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("World server failed", e);
+        } finally {
+            for (Connection c : new ArrayList<>(connections)) {
+                disconnect(c);
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException ignored) {
+                // Закрываемся в любом случае
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel ch;
+        while ((ch = serverChannel.accept()) != null) {
+            ch.configureBlocking(false);
+            ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            if (socketSendBufferBytes > 0) {
+                ch.setOption(StandardSocketOptions.SO_SNDBUF, socketSendBufferBytes);
+            }
+            Connection c = new Connection(ch);
+            c.key = ch.register(selector, SelectionKey.OP_READ, c);
+            connections.add(c);
+            clientCount = connections.size();
+        }
+    }
+
+    private void disconnect(Connection c) {
+        c.key.cancel();
+        try {
+            c.channel.close();
+        } catch (IOException ignored) {
+            // Соединение уже не нужно
+        }
+        connections.remove(c);
+        clientCount = connections.size();
+    }
+
+    private void read(Connection c) throws IOException {
+        if (c.reader.read(c.channel) < 0) {
+            disconnect(c);
+            return;
+        }
+        ByteBuffer frame;
+        while ((frame = c.reader.next()) != null) {
+            byte type = frame.get();
+            if (type == Wire.HELLO) {
+                int protocol = frame.getInt();
+                if (protocol != Wire.PROTOCOL_VERSION) {
+                    throw new IOException("Unsupported protocol " + protocol);
+                }
+                // Повторный HELLO: клиент потерял синхронизацию — снимок вместо всего, что в очереди
+                dropQueued(c);
+                c.needsSnapshot = true;
+                if (!c.welcomed) {
+                    c.welcomed = true;
+                    c.clientId = nextClientId++;
+                    writer.begin(Wire.WELCOME);
+                    writer.putInt(c.clientId);
+                    c.out.add(writer.finish());
+                }
+            } else if (type == Wire.CLAIM && c.welcomed) {
+                long orderId = frame.getLong();
+                boolean granted = claim(orderId);
+                writer.begin(Wire.CLAIM_RESULT);
+                writer.putLong(orderId);
+                writer.putByte(granted ? Wire.CLAIM_GRANTED : Wire.CLAIM_TAKEN);
+                c.out.add(writer.finish());
+            } else {
+                throw new IOException("Unexpected frame type " + type);
+            }
+        }
+        flush(c);
+    }
+
+    // Атомарно: весь сервер — один поток
+    private boolean claim(long orderId) {
+        if (!store.remove(orderId)) {
+            claimsTaken++;
+            return false;
+        }
+        spawner.forget(orderId);
+        removed = push(removed, removedCount++, orderId);
+        claimsGranted++;
+        return true;
+    }
+
+    private void tick(long now) {
+        if (!paused) {
+            spawner.advanceTo(now, spawnEvents);
+        }
+        ByteBuffer frame = null;
+        if (hasPendingChanges()) {
+            frame = encodeDelta(now);
+            addedCount = 0;
+            removedCount = 0;
+            deltaFrames++;
+            deltaBytes += frame.remaining();
+        }
+        for (int i = connections.size() - 1; i >= 0; i--) {
+            Connection c = connections.get(i);
+            if (!c.welcomed) {
+                continue;
+            }
+            if (frame != null && !c.needsSnapshot) {
+                if (c.queuedDeltaBytes + frame.remaining() > maxQueuedBytes) {
+                    dropQueued(c);
+                    c.needsSnapshot = true;
+                    resyncs++;
+                } else {
+                    c.out.add(frame.duplicate());
+                    c.queuedDeltaBytes += frame.remaining();
+                }
+            }
+            // Ждущие снимка получают его здесь, когда книга совпадает с версией
+            try {
+                flush(c);
+            } catch (IOException e) {
+                disconnect(c);
+            }
+        }
+    }
+
+    private ByteBuffer encodeDelta(long now) {
+        version++;
+        Arrays.sort(added, 0, addedCount);
+        Arrays.sort(removed, 0, removedCount);
+        // Заказ мог появиться и исчезнуть за один тик: клиенты его не видели и не увидят
+        int live = 0;
+        if (slots.length < addedCount) {
+            slots = new int[added.length];
+        }
+        for (int i = 0; i < addedCount; i++) {
+            int slot = store.slotOf(added[i]);
+            if (slot >= 0) {
+                slots[live++] = slot;
+            }
+        }
+        writer.begin(Wire.DELTA);
+        writer.putLong(version);
+        writer.putLong(now);
+        writer.putVarLong(live);
+        codec.reset(now);
+        for (int i = 0; i < live; i++) {
+            codec.write(writer, store, slots[i]);
+        }
+        int gone = 0;
+        for (int i = 0; i < removedCount; i++) {
+            if (Arrays.binarySearch(added, 0, addedCount, removed[i]) < 0) {
+                removed[gone++] = removed[i];
+            }
+        }
+        writer.putVarLong(gone);
+        long prev = 0;
+        for (int i = 0; i < gone; i++) {
+            writer.putVarLong(removed[i] - prev);
+            prev = removed[i];
+        }
+        deltaOrders += live;
+        return writer.finish();
+    }
+
+    // Снимок текущей версии кодируется один раз для всех, кто его ждёт
+    private ByteBuffer snapshot() {
+        if (snapshotVersion != version) {
+            long[] ids = new long[store.size()];
+            int n = 0;
+            for (int s = store.first(); s >= 0; s = store.next(s)) {
+                ids[n++] = store.getId(s);
+            }
+            Arrays.sort(ids);
+            long now = System.currentTimeMillis();
+            writer.begin(Wire.SNAPSHOT);
+            writer.putLong(version);
+            writer.putLong(now);
+            writer.putVarLong(n);
+            codec.reset(now);
+            for (long id : ids) {
+                codec.write(writer, store, store.slotOf(id));
+            }
+            snapshotFrame = writer.finish();
+            snapshotVersion = version;
+            snapshots++;
+        }
+        return snapshotFrame.duplicate();
+    }
+
+    private void flush(Connection c) throws IOException {
+        while (true) {
+            ByteBuffer head = c.out.peek();
+            if (head == null) {
+                // Между тиками книга впереди версии: снимок подождёт ближайшей дельты
+                if (!c.needsSnapshot || hasPendingChanges()) {
+                    break;
+                }
+                c.needsSnapshot = false;
+                c.out.add(snapshot());
+                continue;
+            }
+            c.channel.write(head);
+            if (head.hasRemaining()) {
+                break;
+            }
+            c.out.poll();
+            if (c.queuedDeltaBytes > 0 && head.get(4) == Wire.DELTA) {
+                c.queuedDeltaBytes -= head.limit();
+            }
+        }
+        int ops = c.out.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+        if (c.key.interestOps() != ops) {
+            c.key.interestOps(ops);
+        }
+    }
+
+    private boolean hasPendingChanges() {
+        return addedCount > 0 || removedCount > 0;
+    }
+
+    // Выбросить дельты и снимки, которые ещё не начали отправлять: их заменит новый снимок.
+    // WELCOME и CLAIM_RESULT остаются по порядку: заказ уже снят с книги, и без ответа
+    // победитель о нём не узнает. Начатый кадр дописывается целиком.
+    private static void dropQueued(Connection c) {
+        c.queuedDeltaBytes = 0;
+        for (int i = c.out.size(); i > 0; i--) {
+            ByteBuffer frame = c.out.poll();
+            byte type = frame.get(4);
+            boolean replaced = type == Wire.DELTA || type == Wire.SNAPSHOT;
+            if (frame.position() > 0 || !replaced) {
+                c.out.add(frame);
+                if (type == Wire.DELTA) {
+                    c.queuedDeltaBytes += frame.limit();
+                }
+            }
+        }
+    }
+
+    private static long[] push(long[] array, int index, long value) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, index * 2);
+        }
+        array[index] = value;
+        return array;
+    }
+}
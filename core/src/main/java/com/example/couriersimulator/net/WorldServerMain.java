@@ -0,0 +1,72 @@
+package com.example.couriersimulator.net;
+
+import com.example.couriersimulator.orders.DemandHeatmap;
+import com.example.couriersimulator.orders.OrderGenerator;
+import com.example.couriersimulator.orders.SpawnScheduler;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Локальный сервер общего мира для разработки: заказы появляются по синтетической карте
+ * спроса вокруг точки и исчезают по сроку, все подключённые клиенты видят одну книгу.
+ * Аргументы: --port N --lat X --lng X --demand N (заказов в час в пик) --ttl N (минут) --seed N
+ * Раз в 10 секунд печатает клиентов, версию, заявки и трафик дельт.
+ */
+public final class WorldServerMain {
+
+    private static final long REPORT_MILLIS = 10_000;
+
+    private WorldServerMain() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = 7455;
+        double lat = 55.751244;
+        double lng = 37.618423;
+        double demand = 600;
+        long ttlMillis = SpawnScheduler.DEFAULT_ORDER_TTL_MILLIS;
+        long seed = 42L;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "--lat":
+                    lat = Double.parseDouble(value);
+                    break;
+                case "--lng":
+                    lng = Double.parseDouble(value);
+                    break;
+                case "--demand":
+                    demand = Double.parseDouble(value);
+                    break;
+                case "--ttl":
+                    ttlMillis = Long.parseLong(value) * 60_000L;
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        DemandHeatmap heatmap = DemandHeatmap.synthetic(lat, lng, 0.05, 0.005, demand, seed);
+        SpawnScheduler spawner = new SpawnScheduler(heatmap, new OrderGenerator(seed), seed, ttlMillis);
+        // Установившийся набор заказов — уже к первому клиенту
+        spawner.startAt(System.currentTimeMillis() - ttlMillis);
+        WorldServer server = new WorldServer(spawner, WorldServer.DEFAULT_TICK_MILLIS);
+        server.start(new InetSocketAddress(port));
+        System.out.printf("world server on port %d, demand %.0f/h at %.6f,%.6f%n",
+                server.getPort(), demand, lat, lng);
+        while (true) {
+            Thread.sleep(REPORT_MILLIS);
+            System.out.printf("clients=%d version=%d claims=%d/%d deltas=%d (%.1f KB) resyncs=%d%n",
+                    server.getClientCount(), server.getVersion(),
+                    server.getClaimsGranted(), server.getClaimsGranted() + server.getClaimsTaken(),
+                    server.getDeltaFrames(), server.getDeltaBytes() / 1024.0, server.getResyncs());
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.couriersimulator.orders;
+
+import java.util.Random;
+
+/**
+ * Карта спроса: прямоугольная сетка ячеек, у каждой ячейки — интенсивность появления
+ * заказов (заказов в час) на каждый час суток. По ней SpawnScheduler решает,
+ * когда и где появится следующий заказ.
+ * Ячейки нумеруются row * cols + col, строка 0 — южная.
+ * Для выбора ячейки по часу хранится накопленная сумма интенсивностей; она
+ * пересчитывается лениво после setRate. Не потокобезопасна.
+ */
+public final class DemandHeatmap {
+
+    public static final int HOURS = 24;
+
+    // Суточные профили районов (доля от пика по часам): деловой, жилой, рестораны
+    private static final float[] PROFILE_OFFICE = {
+            0.02f, 0.01f, 0.01f, 0.01f, 0.01f, 0.02f, 0.08f, 0.35f, 0.80f, 1.00f, 0.70f, 0.75f,
+            0.95f, 0.90f, 0.60f, 0.55f, 0.60f, 0.55f, 0.35f, 0.15f, 0.08f, 0.05f, 0.03f, 0.02f};
+    private static final float[] PROFILE_HOME = {
+            0.15f, 0.08f, 0.04f, 0.02f, 0.02f, 0.03f, 0.10f, 0.25f, 0.30f, 0.25f, 0.25f, 0.30f,
+            0.35f, 0.35f, 0.30f, 0.30f, 0.40f, 0.60f, 0.85f, 1.00f, 0.95f, 0.75f, 0.50f, 0.30f};
+    private static final float[] PROFILE_FOOD = {
+            0.10f, 0.05f, 0.03f, 0.02f, 0.02f, 0.02f, 0.05f, 0.15f, 0.25f, 0.30f, 0.45f, 0.80f,
+            1.00f, 0.95f, 0.60f, 0.45f, 0.50f, 0.70f, 0.95f, 1.00f, 0.85f, 0.55f, 0.30f, 0.20f};
+    private static final float[][] PROFILES = {PROFILE_OFFICE, PROFILE_HOME, PROFILE_FOOD};
+    // Доля спроса, равномерно размазанная по всей карте
+    private static final double BACKGROUND_SHARE = 0.1;
+
+    private final double minLat;
+    private final double minLng;
+    private final double cellDeg;
+    private final int rows;
+    private final int cols;
+    // Заказов в час: [hour * cellCount + cell]
+    private final float[] rates;
+    // Накопленные суммы rates по ячейкам для каждого часа и полные суммы по часам
+    private final double[] cumulative;
+    private final double[] totals = new double[HOURS];
+    private boolean dirty = true;
+
+    public DemandHeatmap(double minLat, double minLng, double cellDeg, int rows, int cols) {
+        if (rows <= 0 || cols <= 0 || cellDeg <= 0) {
+            throw new IllegalArgumentException("Bad grid: " + rows + "x" + cols + ", cell " + cellDeg);
+        }
+        this.minLat = minLat;
+        this.minLng = minLng;
+        this.cellDeg = cellDeg;
+        this.rows = rows;
+        this.cols = cols;
+        this.rates = new float[HOURS * rows * cols];
+        this.cumulative = new double[rates.length];
+    }
+
+    /** Карта из одной ячейки с постоянной интенсивностью во все часы */
+    public static DemandHeatmap uniform(double centerLat, double centerLng, double radiusDeg,
+                                        double ordersPerHour) {
+        DemandHeatmap map = new DemandHeatmap(centerLat - radiusDeg, centerLng - radiusDeg,
+                2 * radiusDeg, 1, 1);
+        for (int h = 0; h < HOURS; h++) {
+            map.setRate(0, h, ordersPerHour);
+        }
+        return map;
+    }
+
+    /**
+     * Правдоподобная карта спроса без реальных данных: несколько "районов" (деловой,
+     * жилой, рестораны) в виде гауссовых пятен со своими суточными профилями плюс
+     * равномерный фон. Интенсивности масштабируются так, что в самый загруженный
+     * час по всей карте появляется peakOrdersPerHour заказов.
+     *
+     * @param radiusDeg полуразмер карты вокруг центра, градусы
+     * @param cellDeg   сторона ячейки, градусы
+     */
+    public static DemandHeatmap synthetic(double centerLat, double centerLng, double radiusDeg,
+                                          double cellDeg, double peakOrdersPerHour, long seed) {
+        int side = Math.max(1, (int) Math.ceil(2 * radiusDeg / cellDeg));
+        DemandHeatmap map = new DemandHeatmap(centerLat - radiusDeg, centerLng - radiusDeg,
+                cellDeg, side, side);
+        Random random = new Random(seed);
+        int spots = 6;
+        double[] spotRow = new double[spots];
+        double[] spotCol = new double[spots];
+        double[] spotSigma = new double[spots];
+        double[] spotWeight = new double[spots];
+        for (int k = 0; k < spots; k++) {
+            // Ближе к центру карты, чтобы пятна не обрезались краем
+            spotRow[k] = side * (0.2 + 0.6 * random.nextDouble());
+            spotCol[k] = side * (0.2 + 0.6 * random.nextDouble());
+            spotSigma[k] = side * (0.05 + 0.1 * random.nextDouble());
+            spotWeight[k] = 0.5 + random.nextDouble();
+        }
+        double[] raw = new double[HOURS * side * side];
+        double[] hourTotals = new double[HOURS];
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                int cell = r * side + c;
+                for (int k = 0; k < spots; k++) {
+                    double dr = r + 0.5 - spotRow[k];
+                    double dc = c + 0.5 - spotCol[k];
+                    double g = spotWeight[k]
+                            * Math.exp(-(dr * dr + dc * dc) / (2 * spotSigma[k] * spotSigma[k]));
+                    float[] profile = PROFILES[k % PROFILES.length];
+                    for (int h = 0; h < HOURS; h++) {
+                        raw[h * side * side + cell] += g * profile[h];
+                    }
+                }
+            }
+        }
+        for (int h = 0; h < HOURS; h++) {
+            double sum = 0;
+            for (int cell = 0; cell < side * side; cell++) {
+                sum += raw[h * side * side + cell];
+            }
+            hourTotals[h] = sum;
+        }
+        // Фон повторяет суммарный суточный профиль пятен
+        double spotPeak = 0;
+        for (double t : hourTotals) {
+            spotPeak = Math.max(spotPeak, t);
+        }
+        double background = spotPeak * BACKGROUND_SHARE / (1 - BACKGROUND_SHARE) / (side * side);
+        double peak = 0;
+        for (int h = 0; h < HOURS; h++) {
+            double share = hourTotals[h] / spotPeak;
+            for (int cell = 0; cell < side * side; cell++) {
+                raw[h * side * side + cell] += background * share;
+            }
+            peak = Math.max(peak, hourTotals[h] + background * share * side * side);
+        }
+        double scale = peakOrdersPerHour / peak;
+        for (int h = 0; h < HOURS; h++) {
+            for (int cell = 0; cell < side * side; cell++) {
+                map.setRate(cell, h, raw[h * side * side + cell] * scale);
+            }
+        }
+        return map;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getCellCount() {
+        return rows * cols;
+    }
+
+    public double getCellDeg() {
+        return cellDeg;
+    }
+
+    /** Южная граница ячейки */
+    public double cellLat(int cell) {
+        return minLat + (cell / cols) * cellDeg;
+    }
+
+    /** Западная граница ячейки */
+    public double cellLng(int cell) {
+        return minLng + (cell % cols) * cellDeg;
+    }
+
+    /** Ячейка точки или -1, если точка вне карты */
+    public int cellOf(double lat, double lng) {
+        int r = (int) Math.floor((lat - minLat) / cellDeg);
+        int c = (int) Math.floor((lng - minLng) / cellDeg);
+        return r < 0 || c < 0 || r >= rows || c >= cols ? -1 : r * cols + c;
+    }
+
+    /** @param ordersPerHour интенсивность ячейки в этот час, неотрицательная */
+    public void setRate(int cell, int hour, double ordersPerHour) {
+        if (ordersPerHour < 0) {
+            throw new IllegalArgumentException("Negative rate: " + ordersPerHour);
+        }
+        rates[hour * rows * cols + cell] = (float) ordersPerHour;
+        dirty = true;
+    }
+
+    public double getRate(int cell, int hour) {
+        return rates[hour * rows * cols + cell];
+    }
+
+    /** Заказов в час по всей карте в этот час суток */
+    public double getTotalRate(int hour) {
+        prepare();
+        return totals[hour];
+    }
+
+    /**
+     * Ячейка, выбранная с вероятностью, пропорциональной её интенсивности в этот час.
+     *
+     * @param u равномерно в [0; 1)
+     */
+    int sampleCell(int hour, double u) {
+        prepare();
+        int cells = rows * cols;
+        int base = hour * cells;
+        double target = u * totals[hour];
+        // Первая ячейка, у которой накопленная сумма больше target
+        int lo = 0;
+        int hi = cells - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cumulative[base + mid] > target) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    private void prepare() {
+        if (!dirty) {
+            return;
+        }
+        int cells = rows * cols;
+        for (int h = 0; h < HOURS; h++) {
+            double sum = 0;
+            for (int cell = 0; cell < cells; cell++) {
+                sum += rates[h * cells + cell];
+                cumulative[h * cells + cell] = sum;
+            }
+            totals[h] = sum;
+        }
+        dirty = false;
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.couriersimulator.orders;
+
+import com.example.couriersimulator.util.LongIntMap;
+
+import java.util.Arrays;
+
+/**
+ * Таймерное колесо сроков жизни заказов (hashed timing wheel): время делится на тики,
+ * запись со сроком в тике t лежит в ячейке t mod slots. Продвижение часов обходит
+ * только ячейки прошедших тиков, поэтому постановка, отмена и срабатывание — O(1)
+ * в среднем, независимо от числа записей. Записи со сроком дальше одного оборота
+ * колеса остаются в ячейке до своего оборота.
+ * Записи — примитивные массивы с двусвязными списками по ячейкам и стеком свободных
+ * мест; id → запись — LongIntMap. Не потокобезопасно.
+ */
+final class ExpiryWheel {
+
+    private static final int NONE = -1;
+    private static final long UNSET = Long.MIN_VALUE;
+
+    private final long tickMillis;
+    private final int mask;
+    private final int[] heads;
+    private final LongIntMap index;
+
+    private long[] ids;
+    private long[] dueTicks;
+    private int[] next;
+    private int[] prev;
+    private int freeHead = NONE;
+    private int highWater;
+    private int size;
+    // Все записи со сроком не позже этого тика уже сработали
+    private long currentTick = UNSET;
+    private int expiredCount;
+
+    /** @param slots число ячеек, степень двойки */
+    ExpiryWheel(long tickMillis, int slots, int expected) {
+        if (Integer.bitCount(slots) != 1) {
+            throw new IllegalArgumentException("slots must be a power of two: " + slots);
+        }
+        this.tickMillis = tickMillis;
+        this.mask = slots - 1;
+        this.heads = new int[slots];
+        Arrays.fill(heads, NONE);
+        int capacity = Math.max(16, expected);
+        this.index = new LongIntMap(capacity);
+        ids = new long[capacity];
+        dueTicks = new long[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Поставить (или переставить) срок для id. Уже прошедший срок сработает
+     * при следующем advance.
+     */
+    void schedule(long id, long expiresAtMillis) {
+        cancel(id);
+        // Срок округляется вверх: запись срабатывает не раньше expiresAtMillis
+        long due = -Math.floorDiv(-expiresAtMillis, tickMillis);
+        if (currentTick == UNSET) {
+            currentTick = due - 1;
+        }
+        due = Math.max(due, currentTick + 1);
+        int e = takeEntry();
+        ids[e] = id;
+        dueTicks[e] = due;
+        int slot = (int) due & mask;
+        prev[e] = NONE;
+        next[e] = heads[slot];
+        if (heads[slot] != NONE) {
+            prev[heads[slot]] = e;
+        }
+        heads[slot] = e;
+        index.put(id, e);
+        size++;
+    }
+
+    /** @return true, если у id был срок */
+    boolean cancel(long id) {
+        int e = index.remove(id);
+        if (e == LongIntMap.MISSING) {
+            return false;
+        }
+        unlink(e);
+        return true;
+    }
+
+    void clear() {
+        Arrays.fill(heads, NONE);
+        index.clear();
+        freeHead = NONE;
+        highWater = 0;
+        size = 0;
+    }
+
+    /**
+     * Продвинуть часы до nowMillis и собрать id, чей срок наступил. Если с прошлого
+     * вызова прошло больше оборота колеса, каждая ячейка обходится один раз.
+     *
+     * @param out буфер для сработавших id; растёт при нехватке места
+     * @return буфер (тот же или увеличенный); число id — expiredCount()
+     */
+    long[] advance(long nowMillis, long[] out) {
+        expiredCount = 0;
+        long nowTick = Math.floorDiv(nowMillis, tickMillis);
+        if (currentTick == UNSET) {
+            currentTick = nowTick;
+            return out;
+        }
+        if (nowTick <= currentTick) {
+            return out;
+        }
+        long from = currentTick + 1;
+        long ticks = nowTick - currentTick;
+        int slots = mask + 1;
+        for (long t = 0; t < Math.min(ticks, slots); t++) {
+            out = expireSlot((int) (from + t) & mask, nowTick, out);
+        }
+        currentTick = nowTick;
+        return out;
+    }
+
+    /** Сколько id собрал последний advance */
+    int expiredCount() {
+        return expiredCount;
+    }
+
+    private long[] expireSlot(int slot, long nowTick, long[] out) {
+        int e = heads[slot];
+        while (e != NONE) {
+            int n = next[e];
+            if (dueTicks[e] <= nowTick) {
+                if (expiredCount == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                out[expiredCount++] = ids[e];
+                index.remove(ids[e]);
+                unlink(e);
+            }
+            e = n;
+        }
+        return out;
+    }
+
+    private void unlink(int e) {
+        int p = prev[e];
+        int n = next[e];
+        if (p != NONE) {
+            next[p] = n;
+        } else {
+            heads[(int) dueTicks[e] & mask] = n;
+        }
+        if (n != NONE) {
+            prev[n] = p;
+        }
+        next[e] = freeHead;
+        freeHead = e;
+        size--;
+    }
+
+    private int takeEntry() {
+        if (freeHead != NONE) {
+            int e = freeHead;
+            freeHead = next[e];
+            return e;
+        }
+        if (highWater == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            dueTicks = Arrays.copyOf(dueTicks, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+        }
+        return highWater++;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.couriersimulator.orders;
+
+/**
+ * Неизменяемая модель заказа.
+ * Хранит:
+ * - уникальный id
+ * - название (например, "Доставка пиццы")
+ * - точку забора (pickup) и точку доставки (dropoff)
+ * - награду в монетах
+ * - дедлайн (время в миллисекундах, как System.currentTimeMillis())
+ */
+public final class Order {
+
+    private final long id;
+    private final String title;
+    private final double pickupLat;
+    private final double pickupLng;
+    private final double dropoffLat;
+    private final double dropoffLng;
+    private final int reward;
+    private final long deadlineMillis;
+
+    public Order(long id, String title,
+                 double pickupLat, double pickupLng,
+                 double dropoffLat, double dropoffLng,
+                 int reward, long deadlineMillis) {
+        this.id = id;
+        this.title = title;
+        this.pickupLat = pickupLat;
+        this.pickupLng = pickupLng;
+        this.dropoffLat = dropoffLat;
+        this.dropoffLng = dropoffLng;
+        this.reward = reward;
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public double getPickupLat() {
+        return pickupLat;
+    }
+
+    public double getPickupLng() {
+        return pickupLng;
+    }
+
+    public double getDropoffLat() {
+        return dropoffLat;
+    }
+
+    public double getDropoffLng() {
+        return dropoffLng;
+    }
+
+    public int getReward() {
+        return reward;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    @Override
+    public String toString() {
+        return title;
+    }
+}
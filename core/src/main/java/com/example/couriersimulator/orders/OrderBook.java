@@ -0,0 +1,207 @@
+package com.example.couriersimulator.orders;
+
+import com.example.couriersimulator.geo.GeoMath;
+import com.example.couriersimulator.util.LongIntMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Книга открытых заказов с пространственным индексом.
+ * Заказы раскладываются по ячейкам равномерной сетки (по точке забора),
+ * поэтому запрос "заказы рядом со мной" просматривает только несколько ячеек,
+ * а не весь список.
+ */
+public class OrderBook {
+
+    // Размер ячейки по умолчанию, градусы (~1.1 км по широте)
+    public static final double DEFAULT_CELL_SIZE_DEG = 0.01;
+
+    /** Ячейка сетки: плотный массив заказов с удалением через перестановку */
+    private static final class Cell {
+        Order[] items = new Order[4];
+        int size;
+
+        void add(Order order) {
+            if (size == items.length) {
+                Order[] grown = new Order[size * 2];
+                System.arraycopy(items, 0, grown, 0, size);
+                items = grown;
+            }
+            items[size++] = order;
+        }
+
+        boolean remove(long orderId) {
+            for (int i = 0; i < size; i++) {
+                if (items[i].getId() == orderId) {
+                    items[i] = items[--size];
+                    items[size] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final double cellSizeDeg;
+    // Ключ ячейки -> индекс в cells без упаковки ключа: findNear не аллоцирует на поиске ячеек.
+    // Опустевшая ячейка удаляется, её место занимает последняя (cellKeys — обратное отображение)
+    private final LongIntMap cellIndex = new LongIntMap();
+    private Cell[] cells = new Cell[16];
+    private long[] cellKeys = new long[16];
+    private int cellCount;
+    private final Map<Long, Order> byId = new HashMap<>();
+
+    public OrderBook() {
+        this(DEFAULT_CELL_SIZE_DEG);
+    }
+
+    public OrderBook(double cellSizeDeg) {
+        if (cellSizeDeg <= 0) {
+            throw new IllegalArgumentException("cellSizeDeg must be positive: " + cellSizeDeg);
+        }
+        this.cellSizeDeg = cellSizeDeg;
+    }
+
+    /** Добавить заказ. Заказ с тем же id заменяется. */
+    public void add(Order order) {
+        Order previous = byId.put(order.getId(), order);
+        if (previous != null) {
+            removeFromCell(previous);
+        }
+        long key = cellKey(cellLat(order.getPickupLat()), cellLng(order.getPickupLng()));
+        int c = cellIndex.get(key);
+        if (c == LongIntMap.MISSING) {
+            c = addCell(key);
+        }
+        cells[c].add(order);
+    }
+
+    /** Удалить заказ по id. Возвращает удалённый заказ или null. */
+    public Order remove(long orderId) {
+        Order order = byId.remove(orderId);
+        if (order != null) {
+            removeFromCell(order);
+        }
+        return order;
+    }
+
+    public Order get(long orderId) {
+        return byId.get(orderId);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public boolean isEmpty() {
+        return byId.isEmpty();
+    }
+
+    public void clear() {
+        cellIndex.clear();
+        Arrays.fill(cells, 0, cellCount, null);
+        cellCount = 0;
+        byId.clear();
+    }
+
+    /** Все заказы (только для чтения, без определённого порядка) */
+    public Collection<Order> all() {
+        return Collections.unmodifiableCollection(byId.values());
+    }
+
+    /**
+     * Найти заказы, точка забора которых лежит в радиусе radiusMeters от (lat, lng).
+     * Результаты добавляются в out (список не очищается), чтобы вызывающий код
+     * мог переиспользовать один и тот же список между обновлениями.
+     *
+     * @return количество найденных заказов
+     */
+    public int findNear(double lat, double lng, double radiusMeters, List<Order> out) {
+        double radiusSq = radiusMeters * radiusMeters;
+        double dLat = radiusMeters / GeoMath.METERS_PER_DEGREE_LAT;
+        double dLng = radiusMeters / Math.max(GeoMath.metersPerDegreeLng(lat), 1.0);
+
+        int minLat = cellLat(lat - dLat);
+        int maxLat = cellLat(lat + dLat);
+        int minLng = cellLng(lng - dLng);
+        int maxLng = cellLng(lng + dLng);
+
+        int found = 0;
+        for (int cLat = minLat; cLat <= maxLat; cLat++) {
+            for (int cLng = minLng; cLng <= maxLng; cLng++) {
+                int c = cellIndex.get(cellKey(cLat, cLng));
+                if (c == LongIntMap.MISSING) {
+                    continue;
+                }
+                Cell cell = cells[c];
+                Order[] items = cell.items;
+                for (int i = 0; i < cell.size; i++) {
+                    Order o = items[i];
+                    if (GeoMath.distanceSquaredMeters(lat, lng, o.getPickupLat(), o.getPickupLng()) <= radiusSq) {
+                        out.add(o);
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /** Удобная обёртка над findNear с новым списком */
+    public List<Order> findNear(double lat, double lng, double radiusMeters) {
+        List<Order> out = new ArrayList<>();
+        findNear(lat, lng, radiusMeters, out);
+        return out;
+    }
+
+    /** Число непустых ячеек сетки (для тестов) */
+    int getCellCount() {
+        return cellCount;
+    }
+
+    private int addCell(long key) {
+        if (cellCount == cells.length) {
+            cells = Arrays.copyOf(cells, cellCount * 2);
+            cellKeys = Arrays.copyOf(cellKeys, cellCount * 2);
+        }
+        int c = cellCount++;
+        cells[c] = new Cell();
+        cellKeys[c] = key;
+        cellIndex.put(key, c);
+        return c;
+    }
+
+    private void removeFromCell(Order order) {
+        long key = cellKey(cellLat(order.getPickupLat()), cellLng(order.getPickupLng()));
+        int c = cellIndex.get(key);
+        if (c == LongIntMap.MISSING || !cells[c].remove(order.getId()) || cells[c].size > 0) {
+            return;
+        }
+        cellIndex.remove(key);
+        int last = --cellCount;
+        if (c != last) {
+            cells[c] = cells[last];
+            cellKeys[c] = cellKeys[last];
+            cellIndex.put(cellKeys[c], c);
+        }
+        cells[last] = null;
+    }
+
+    private int cellLat(double lat) {
+        return (int) Math.floor(lat / cellSizeDeg);
+    }
+
+    private int cellLng(double lng) {
+        return (int) Math.floor(lng / cellSizeDeg);
+    }
+
+    private static long cellKey(int cellLat, int cellLng) {
+        return ((long) cellLat << 32) | (cellLng & 0xffffffffL);
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.couriersimulator.orders;
+
+import com.example.couriersimulator.geo.GeoMath;
+import com.example.couriersimulator.util.LongIntMap;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Заказы, упорядоченные по расстоянию от курьера до точки забора.
+ * Порядок поддерживается постепенно, а не сортировкой с нуля:
+ * - add и remove только отмечают изменение за O(1): новые заказы копятся в хвосте,
+ *   удалённые помечаются по id в таблице (ленивое удаление)
+ * - перед первым чтением пачка применяется за один проход: помеченные выбрасываются,
+ *   хвост сортируется и сливается с основным массивом — O(n + k log k) на пачку из k
+ *   изменений вместо O(n) сдвига на каждое
+ * - при сдвиге курьера расстояния пересчитываются, а массив досортировывается
+ *   вставками: между соседними фиксами почти всё уже на месте, поэтому это
+ *   O(n + число перестановок), а не O(n log n)
+ * Фильтр по радиусу — просто префикс массива (countWithin).
+ * Не потокобезопасен.
+ */
+public class OrderDistanceList {
+
+    private Order[] orders = new Order[16];
+    // Квадрат расстояния до точки забора, м²; по нему отсортирован префикс [0, sorted)
+    private double[] distSq = new double[16];
+    // [0, sorted) — упорядоченная часть, [sorted, count) — добавленные после последнего чтения
+    private int sorted;
+    private int count;
+    // Id всех заказов в списке и id удалённых, которые ещё лежат в массиве
+    private final LongIntMap live = new LongIntMap();
+    private final LongIntMap removed = new LongIntMap();
+    private final Comparator<Order> byDistance =
+            (a, b) -> Double.compare(distanceSq(a), distanceSq(b));
+    private double originLat;
+    private double originLng;
+
+    public int size() {
+        return live.size();
+    }
+
+    public Order get(int index) {
+        flush();
+        return orders[index];
+    }
+
+    public double getDistanceMeters(int index) {
+        flush();
+        return Math.sqrt(distSq[index]);
+    }
+
+    public void clear() {
+        Arrays.fill(orders, 0, count, null);
+        sorted = 0;
+        count = 0;
+        live.clear();
+        removed.clear();
+    }
+
+    /** Добавить заказ. Заказ с тем же id заменяется. */
+    public void add(Order order) {
+        long id = order.getId();
+        remove(id);
+        if (removed.containsKey(id)) {
+            // Старая запись с тем же id ещё в массиве: выбросить её до добавления новой
+            dropRemoved();
+        }
+        if (count == orders.length) {
+            orders = Arrays.copyOf(orders, count * 2);
+            distSq = Arrays.copyOf(distSq, count * 2);
+        }
+        orders[count++] = order;
+        live.put(id, 1);
+    }
+
+    /** @return true, если заказ был в списке */
+    public boolean remove(long orderId) {
+        if (live.remove(orderId) == LongIntMap.MISSING) {
+            return false;
+        }
+        removed.put(orderId, 1);
+        return true;
+    }
+
+    /**
+     * Новое положение курьера: пересчитать расстояния и восстановить порядок.
+     *
+     * @return сколько сдвигов понадобилось (0 — порядок не изменился)
+     */
+    public long setOrigin(double lat, double lng) {
+        originLat = lat;
+        originLng = lng;
+        dropRemoved();
+        for (int i = 0; i < sorted; i++) {
+            distSq[i] = distanceSq(orders[i]);
+        }
+        long shifts = 0;
+        for (int i = 1; i < sorted; i++) {
+            double d = distSq[i];
+            if (d >= distSq[i - 1]) {
+                continue;
+            }
+            Order o = orders[i];
+            int j = i - 1;
+            while (j >= 0 && distSq[j] > d) {
+                distSq[j + 1] = distSq[j];
+                orders[j + 1] = orders[j];
+                j--;
+                shifts++;
+            }
+            distSq[j + 1] = d;
+            orders[j + 1] = o;
+        }
+        mergeAdded();
+        return shifts;
+    }
+
+    /** Сколько первых заказов списка лежит в радиусе radiusMeters */
+    public int countWithin(double radiusMeters) {
+        flush();
+        return upperBound(radiusMeters * radiusMeters);
+    }
+
+    /** Добавить в out первые заказы в радиусе, не больше limit */
+    public int copyWithin(double radiusMeters, int limit, List<Order> out) {
+        int n = Math.min(countWithin(radiusMeters), limit);
+        for (int i = 0; i < n; i++) {
+            out.add(orders[i]);
+        }
+        return n;
+    }
+
+    // Применить накопленные add и remove: после этого весь массив [0, count) упорядочен
+    private void flush() {
+        dropRemoved();
+        mergeAdded();
+    }
+
+    // Выбросить помеченные записи из обеих частей массива, сохраняя порядок
+    private void dropRemoved() {
+        if (removed.isEmpty()) {
+            return;
+        }
+        int w = 0;
+        int newSorted = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == sorted) {
+                newSorted = w;
+            }
+            Order o = orders[i];
+            if (removed.containsKey(o.getId())) {
+                continue;
+            }
+            orders[w] = o;
+            distSq[w] = distSq[i];
+            w++;
+        }
+        if (sorted == count) {
+            newSorted = w;
+        }
+        Arrays.fill(orders, w, count, null);
+        sorted = newSorted;
+        count = w;
+        removed.clear();
+    }
+
+    // Отсортировать хвост и слить с упорядоченной частью, заполняя массив с конца
+    private void mergeAdded() {
+        if (sorted == count) {
+            return;
+        }
+        Arrays.sort(orders, sorted, count, byDistance);
+        for (int i = sorted; i < count; i++) {
+            distSq[i] = distanceSq(orders[i]);
+        }
+        if (sorted > 0 && distSq[sorted] < distSq[sorted - 1]) {
+            // Копия нужна только хвосту: он обычно много короче упорядоченной части
+            int k = count - sorted;
+            Order[] addedOrders = Arrays.copyOfRange(orders, sorted, count);
+            double[] addedDist = Arrays.copyOfRange(distSq, sorted, count);
+            int i = sorted - 1;
+            int j = k - 1;
+            for (int w = count - 1; j >= 0; w--) {
+                // При равных расстояниях новый заказ идёт после старых
+                if (i >= 0 && distSq[i] > addedDist[j]) {
+                    orders[w] = orders[i];
+                    distSq[w] = distSq[i];
+                    i--;
+                } else {
+                    orders[w] = addedOrders[j];
+                    distSq[w] = addedDist[j];
+                    j--;
+                }
+            }
+        }
+        sorted = count;
+    }
+
+    private double distanceSq(Order o) {
+        return GeoMath.distanceSquaredMeters(originLat, originLng, o.getPickupLat(), o.getPickupLng());
+    }
+
+    // Первая позиция с расстоянием строго больше d
+    private int upperBound(double d) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (distSq[mid] <= d) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
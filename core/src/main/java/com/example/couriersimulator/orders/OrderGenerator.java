@@ -0,0 +1,123 @@
+package com.example.couriersimulator.orders;
+
+import java.util.Random;
+
+/**
+ * Генератор заказов.
+ * Все случайные величины берутся из одного Random с заданным seed,
+ * поэтому последовательность заказов воспроизводима.
+ * Награда и дедлайн считаются по длине пути от забора до доставки (TravelDistance):
+ * по прямой или, если подключён дорожный граф, по дорогам.
+ */
+public class OrderGenerator {
+
+    // Смещение точки доставки от курьера, градусы (~3 км)
+    public static final double DEFAULT_MAX_OFFSET_DEG = 0.03;
+    // Точка забора — рядом с курьером, градусы (~500 м)
+    private static final double PICKUP_OFFSET_DEG = 0.005;
+
+    // Базовая награда и надбавка за километр пути
+    private static final int BASE_REWARD = 50;
+    private static final int REWARD_PER_KM = 30;
+
+    // Расчётная скорость курьера (велосипед), м/с, и запас по времени
+    private static final double COURIER_SPEED_MPS = 4.0;
+    private static final long DEADLINE_SLACK_MILLIS = 10 * 60 * 1000L;
+
+    private static final String[] TITLES = {
+            "Доставка пиццы",
+            "Доставка документов",
+            "Продукты из магазина",
+            "Заказ из аптеки",
+            "Новая посылка",
+            "Цветы на праздник"
+    };
+
+    private final Random random;
+    private final double maxOffsetDeg;
+    private TravelDistance travelDistance = TravelDistance.STRAIGHT_LINE;
+    private long nextId;
+
+    public OrderGenerator(long seed) {
+        this(seed, 1L, DEFAULT_MAX_OFFSET_DEG);
+    }
+
+    public OrderGenerator(long seed, long firstId, double maxOffsetDeg) {
+        this.random = new Random(seed);
+        this.nextId = firstId;
+        this.maxOffsetDeg = maxOffsetDeg;
+    }
+
+    /** Как считать путь для награды и дедлайна; null — по прямой. Случайную последовательность не меняет. */
+    public void setTravelDistance(TravelDistance travelDistance) {
+        this.travelDistance = travelDistance != null ? travelDistance : TravelDistance.STRAIGHT_LINE;
+    }
+
+    /**
+     * Сгенерировать заказ рядом с точкой (lat, lng).
+     * Название выбирается случайно из списка TITLES.
+     */
+    public Order next(double lat, double lng, long nowMillis) {
+        return next(TITLES[random.nextInt(TITLES.length)], lat, lng, nowMillis);
+    }
+
+    /** Сгенерировать заказ с заданным названием рядом с точкой (lat, lng) */
+    public Order next(String title, double lat, double lng, long nowMillis) {
+        double pickupLat = lat + symmetric(PICKUP_OFFSET_DEG);
+        double pickupLng = lng + symmetric(PICKUP_OFFSET_DEG);
+        return create(title, pickupLat, pickupLng, lat, lng, nowMillis);
+    }
+
+    /**
+     * Сгенерировать заказ с точкой забора ровно в (pickupLat, pickupLng)
+     * (например, в ячейке карты спроса); точка доставки — вокруг неё.
+     */
+    public Order nextAt(double pickupLat, double pickupLng, long nowMillis) {
+        String title = TITLES[random.nextInt(TITLES.length)];
+        return create(title, pickupLat, pickupLng, pickupLat, pickupLng, nowMillis);
+    }
+
+    private Order create(String title, double pickupLat, double pickupLng,
+                         double lat, double lng, long nowMillis) {
+        double dropoffLat = lat + symmetric(maxOffsetDeg);
+        double dropoffLng = lng + symmetric(maxOffsetDeg);
+
+        double meters = travelDistance.meters(pickupLat, pickupLng, dropoffLat, dropoffLng);
+        int reward = BASE_REWARD + (int) Math.round(meters / 1000.0 * REWARD_PER_KM);
+        long deadline = nowMillis + DEADLINE_SLACK_MILLIS
+                + (long) (meters / COURIER_SPEED_MPS * 1000.0 * 1.5);
+
+        return new Order(nextId++, title,
+                pickupLat, pickupLng,
+                dropoffLat, dropoffLng,
+                reward, deadline);
+    }
+
+    /** Заполнить книгу count заказами вокруг точки (lat, lng) */
+    public void fill(OrderBook book, int count, double lat, double lng, long nowMillis) {
+        for (int i = 0; i < count; i++) {
+            book.add(next(lat, lng, nowMillis));
+        }
+    }
+
+    /** Следующий id, который получит заказ (для сохранения состояния) */
+    public long peekNextId() {
+        return nextId;
+    }
+
+    /**
+     * Контрольная точка для сохранения состояния: берёт из генератора новый seed
+     * и сам генератор переключается на него. Генератор, созданный заново с этим
+     * seed и peekNextId(), продолжит ту же самую последовательность.
+     */
+    public long checkpointSeed() {
+        long seed = random.nextLong();
+        random.setSeed(seed);
+        return seed;
+    }
+
+    // Равномерно в [-range; range)
+    private double symmetric(double range) {
+        return (random.nextDouble() - 0.5) * (2 * range);
+    }
+}
@@ -0,0 +1,414 @@
+package com.example.couriersimulator.orders;
+
+import com.example.couriersimulator.geo.GeoMath;
+import com.example.couriersimulator.util.LongIntMap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Книга заказов для больших симуляций: те же данные, что в OrderBook, но без объекта
+ * на заказ ("структура массивов").
+ * - заказ живёт в слоте; поля — в параллельных примитивных массивах, координаты —
+ *   целые градусы × 1e7 (точность ~1 см)
+ * - названия хранятся один раз в таблице строк, у заказа — номер названия
+ * - освободившиеся слоты попадают в список свободных и занимаются следующими добавлениями
+ * - id → слот и ячейка сетки → первый слот ячейки — в LongIntMap без упаковки ключей;
+ *   слоты одной ячейки связаны в двусвязный список через массивы
+ * Обход (first/next), поиск рядом (findNear в Slots) и запись/чтение (writeTo/readFrom)
+ * не создают объектов на заказ. Order создаётся только по запросу (toOrder).
+ * Таблица названий не сокращается: названий мало, и они повторяются.
+ * Не потокобезопасен.
+ */
+public class OrderStore {
+
+    /** Координаты хранятся как градусы × COORD_SCALE */
+    public static final double COORD_SCALE = 1e7;
+    private static final int FORMAT_VERSION = 1;
+    private static final int NONE = -1;
+
+    /** Переиспользуемый список номеров слотов (результат findNear) */
+    public static final class Slots {
+        private int[] items = new int[64];
+        private int size;
+
+        public int size() {
+            return size;
+        }
+
+        public int get(int i) {
+            return items[i];
+        }
+
+        public void clear() {
+            size = 0;
+        }
+
+        void add(int slot) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = slot;
+        }
+    }
+
+    private final int cellE7;
+
+    // Поля заказа по слотам
+    private long[] ids;
+    private int[] titles;        // номер в titleTable; NONE — слот свободен
+    private int[] pickupLat;
+    private int[] pickupLng;
+    private int[] dropoffLat;
+    private int[] dropoffLng;
+    private int[] rewards;
+    private long[] deadlines;
+    // Списки слотов по ячейкам сетки (по точке забора)
+    private int[] cellNext;
+    private int[] cellPrev;
+    // Свободные слоты — стек через cellNext
+    private int freeHead = NONE;
+    // Слотов когда-либо занято (дальше — нетронутые)
+    private int highWater;
+    private int size;
+
+    private final LongIntMap slotById;
+    private final LongIntMap cellHead = new LongIntMap(256);
+    private String[] titleTable = new String[16];
+    private int titleCount;
+    private final Map<String, Integer> titleIndex = new HashMap<>();
+
+    public OrderStore() {
+        this(1024, OrderBook.DEFAULT_CELL_SIZE_DEG);
+    }
+
+    /**
+     * @param capacity    ожидаемое число заказов (при необходимости растёт)
+     * @param cellSizeDeg размер ячейки сетки, градусы
+     */
+    public OrderStore(int capacity, double cellSizeDeg) {
+        if (cellSizeDeg <= 0) {
+            throw new IllegalArgumentException("cellSizeDeg must be positive: " + cellSizeDeg);
+        }
+        this.cellE7 = Math.max(1, (int) Math.round(cellSizeDeg * COORD_SCALE));
+        this.slotById = new LongIntMap(capacity);
+        allocate(Math.max(16, capacity));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Добавить заказ. Заказ с тем же id заменяется. @return слот заказа */
+    public int add(long id, String title, double pickupLat, double pickupLng,
+                   double dropoffLat, double dropoffLng, int reward, long deadlineMillis) {
+        remove(id);
+        int slot = takeSlot();
+        ids[slot] = id;
+        titles[slot] = intern(title);
+        this.pickupLat[slot] = toFixed(pickupLat);
+        this.pickupLng[slot] = toFixed(pickupLng);
+        this.dropoffLat[slot] = toFixed(dropoffLat);
+        this.dropoffLng[slot] = toFixed(dropoffLng);
+        rewards[slot] = reward;
+        deadlines[slot] = deadlineMillis;
+        linkCell(slot);
+        slotById.put(id, slot);
+        size++;
+        return slot;
+    }
+
+    public int add(Order order) {
+        return add(order.getId(), order.getTitle(), order.getPickupLat(), order.getPickupLng(),
+                order.getDropoffLat(), order.getDropoffLng(), order.getReward(), order.getDeadlineMillis());
+    }
+
+    /** Удалить заказ по id. @return false, если его не было */
+    public boolean remove(long id) {
+        int slot = slotById.remove(id);
+        if (slot == LongIntMap.MISSING) {
+            return false;
+        }
+        unlinkCell(slot);
+        titles[slot] = NONE;
+        cellNext[slot] = freeHead;
+        freeHead = slot;
+        size--;
+        return true;
+    }
+
+    /** Слот заказа или -1 */
+    public int slotOf(long id) {
+        return slotById.get(id);
+    }
+
+    public void clear() {
+        Arrays.fill(titles, 0, highWater, NONE);
+        slotById.clear();
+        cellHead.clear();
+        freeHead = NONE;
+        highWater = 0;
+        size = 0;
+    }
+
+    /** Первый занятый слот или -1; обход: for (s = first(); s >= 0; s = next(s)) */
+    public int first() {
+        return next(-1);
+    }
+
+    /** Следующий после slot занятый слот или -1 */
+    public int next(int slot) {
+        for (int s = slot + 1; s < highWater; s++) {
+            if (titles[s] != NONE) {
+                return s;
+            }
+        }
+        return NONE;
+    }
+
+    public long getId(int slot) {
+        return ids[slot];
+    }
+
+    public String getTitle(int slot) {
+        return titleTable[titles[slot]];
+    }
+
+    public double getPickupLat(int slot) {
+        return pickupLat[slot] / COORD_SCALE;
+    }
+
+    public double getPickupLng(int slot) {
+        return pickupLng[slot] / COORD_SCALE;
+    }
+
+    public double getDropoffLat(int slot) {
+        return dropoffLat[slot] / COORD_SCALE;
+    }
+
+    public double getDropoffLng(int slot) {
+        return dropoffLng[slot] / COORD_SCALE;
+    }
+
+    public int getReward(int slot) {
+        return rewards[slot];
+    }
+
+    public long getDeadlineMillis(int slot) {
+        return deadlines[slot];
+    }
+
+    /** Объект заказа для кода, которому он нужен (список в UI, журнал) */
+    public Order toOrder(int slot) {
+        return new Order(ids[slot], getTitle(slot), getPickupLat(slot), getPickupLng(slot),
+                getDropoffLat(slot), getDropoffLng(slot), rewards[slot], deadlines[slot]);
+    }
+
+    /**
+     * Найти заказы, точка забора которых лежит в радиусе radiusMeters от (lat, lng),
+     * как OrderBook.findNear. Слоты добавляются в out (список не очищается).
+     *
+     * @return количество найденных заказов
+     */
+    public int findNear(double lat, double lng, double radiusMeters, Slots out) {
+        double radiusSq = radiusMeters * radiusMeters;
+        double dLat = radiusMeters / GeoMath.METERS_PER_DEGREE_LAT;
+        double dLng = radiusMeters / Math.max(GeoMath.metersPerDegreeLng(lat), 1.0);
+        // Метры на единицу координаты; косинус широты — один на запрос
+        double mLat = GeoMath.METERS_PER_DEGREE_LAT / COORD_SCALE;
+        double mLng = GeoMath.metersPerDegreeLng(lat) / COORD_SCALE;
+        int qLat = toFixed(lat);
+        int qLng = toFixed(lng);
+
+        int minX = cellOf(toFixed(lat - dLat));
+        int maxX = cellOf(toFixed(lat + dLat));
+        int minY = cellOf(toFixed(lng - dLng));
+        int maxY = cellOf(toFixed(lng + dLng));
+        int found = 0;
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int s = cellHead.get(cellKey(x, y)); s != NONE; s = cellNext[s]) {
+                    double dy = (pickupLat[s] - qLat) * mLat;
+                    double dx = (pickupLng[s] - qLng) * mLng;
+                    if (dx * dx + dy * dy <= radiusSq) {
+                        out.add(s);
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Записать все заказы: таблица названий, затем поля заказов подряд.
+     * Порядок заказов — порядок слотов.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(titleCount);
+        for (int t = 0; t < titleCount; t++) {
+            out.writeUTF(titleTable[t]);
+        }
+        out.writeInt(size);
+        for (int s = first(); s >= 0; s = next(s)) {
+            out.writeLong(ids[s]);
+            out.writeInt(titles[s]);
+            out.writeInt(pickupLat[s]);
+            out.writeInt(pickupLng[s]);
+            out.writeInt(dropoffLat[s]);
+            out.writeInt(dropoffLng[s]);
+            out.writeInt(rewards[s]);
+            out.writeLong(deadlines[s]);
+        }
+    }
+
+    /** Заменить содержимое заказами, записанными writeTo */
+    public void readFrom(DataInput in) throws IOException {
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported order store version " + version);
+        }
+        clear();
+        int fileTitles = in.readInt();
+        // Номера названий файла → номера в этой таблице
+        int[] titleMap = new int[fileTitles];
+        for (int t = 0; t < fileTitles; t++) {
+            titleMap[t] = intern(in.readUTF());
+        }
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            long id = in.readLong();
+            int title = in.readInt();
+            if (title < 0 || title >= fileTitles) {
+                throw new IOException("Bad title index " + title);
+            }
+            remove(id);
+            int slot = takeSlot();
+            ids[slot] = id;
+            titles[slot] = titleMap[title];
+            pickupLat[slot] = in.readInt();
+            pickupLng[slot] = in.readInt();
+            dropoffLat[slot] = in.readInt();
+            dropoffLng[slot] = in.readInt();
+            rewards[slot] = in.readInt();
+            deadlines[slot] = in.readLong();
+            linkCell(slot);
+            slotById.put(id, slot);
+            size++;
+        }
+    }
+
+    /** Приблизительный размер данных в куче, байт (массивы слотов, индексы, названия) */
+    public long estimateBytes() {
+        long perSlot = 8 + 4 + 4 * 4 + 4 + 8 + 4 + 4;
+        long titlesBytes = 0;
+        for (int t = 0; t < titleCount; t++) {
+            titlesBytes += 40 + 2L * titleTable[t].length();
+        }
+        return ids.length * perSlot + slotById.byteSize() + cellHead.byteSize() + titlesBytes;
+    }
+
+    // Слот из списка свободных или следующий нетронутый
+    private int takeSlot() {
+        if (freeHead != NONE) {
+            int slot = freeHead;
+            freeHead = cellNext[slot];
+            return slot;
+        }
+        if (highWater == ids.length) {
+            grow();
+        }
+        return highWater++;
+    }
+
+    private int intern(String title) {
+        Integer index = titleIndex.get(title);
+        if (index != null) {
+            return index;
+        }
+        if (titleCount == titleTable.length) {
+            titleTable = Arrays.copyOf(titleTable, titleCount * 2);
+        }
+        titleTable[titleCount] = title;
+        titleIndex.put(title, titleCount);
+        return titleCount++;
+    }
+
+    private void linkCell(int slot) {
+        long key = cellKey(cellOf(pickupLat[slot]), cellOf(pickupLng[slot]));
+        int head = cellHead.get(key);
+        cellPrev[slot] = NONE;
+        cellNext[slot] = head;
+        if (head != NONE) {
+            cellPrev[head] = slot;
+        }
+        cellHead.put(key, slot);
+    }
+
+    private void unlinkCell(int slot) {
+        int prev = cellPrev[slot];
+        int next = cellNext[slot];
+        if (next != NONE) {
+            cellPrev[next] = prev;
+        }
+        if (prev != NONE) {
+            cellNext[prev] = next;
+            return;
+        }
+        long key = cellKey(cellOf(pickupLat[slot]), cellOf(pickupLng[slot]));
+        if (next != NONE) {
+            cellHead.put(key, next);
+        } else {
+            cellHead.remove(key);
+        }
+    }
+
+    private int cellOf(int coord) {
+        return Math.floorDiv(coord, cellE7);
+    }
+
+    private static long cellKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    private static int toFixed(double degrees) {
+        return (int) Math.round(degrees * COORD_SCALE);
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        pickupLat = Arrays.copyOf(pickupLat, capacity);
+        pickupLng = Arrays.copyOf(pickupLng, capacity);
+        dropoffLat = Arrays.copyOf(dropoffLat, capacity);
+        dropoffLng = Arrays.copyOf(dropoffLng, capacity);
+        rewards = Arrays.copyOf(rewards, capacity);
+        deadlines = Arrays.copyOf(deadlines, capacity);
+        cellNext = Arrays.copyOf(cellNext, capacity);
+        cellPrev = Arrays.copyOf(cellPrev, capacity);
+    }
+
+    private void allocate(int capacity) {
+        ids = new long[capacity];
+        titles = new int[capacity];
+        Arrays.fill(titles, NONE);
+        pickupLat = new int[capacity];
+        pickupLng = new int[capacity];
+        dropoffLat = new int[capacity];
+        dropoffLng = new int[capacity];
+        rewards = new int[capacity];
+        deadlines = new long[capacity];
+        cellNext = new int[capacity];
+        cellPrev = new int[capacity];
+    }
+}
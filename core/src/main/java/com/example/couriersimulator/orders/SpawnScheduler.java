@@ -0,0 +1,226 @@
+package com.example.couriersimulator.orders;
+
+import java.util.Random;
+
+/**
+ * Появление и исчезновение заказов во времени.
+ * - Заказы приходят пуассоновским потоком с интенсивностью из карты спроса на текущий
+ *   час суток: интервал до следующего — экспоненциальный, внутри часа интенсивность
+ *   постоянна, на границе часа интервал разыгрывается заново (поток без памяти, так что
+ *   это точно, а не приближение).
+ * - Ячейка выбирается пропорционально её интенсивности, точка забора — равномерно в ячейке.
+ * - Каждый заказ живёт orderTtlMillis; невзятые исчезают через таймерное колесо (ExpiryWheel).
+ * События отдаются слушателю по одному (появился / исчез), так что потребитель обновляет
+ * своё состояние постепенно, без полной перестройки.
+ * Если часы прыгнули дальше срока жизни заказа (приложение было свёрнуто), поток
+ * разыгрывается только за последние orderTtlMillis: более ранние заказы всё равно уже исчезли бы.
+ * Все случайные величины — из своего Random с seed. Не потокобезопасен.
+ */
+public final class SpawnScheduler {
+
+    /** Получатель событий; вызывается внутри advanceTo и может менять планировщик */
+    public interface Listener {
+        void onOrderSpawned(Order order);
+
+        void onOrderExpired(long orderId);
+    }
+
+    public static final long DEFAULT_ORDER_TTL_MILLIS = 20 * 60 * 1000L;
+
+    // Точность сроков жизни и размер колеса: 4096 тиков по секунде — чуть больше часа за оборот
+    private static final long WHEEL_TICK_MILLIS = 1000;
+    private static final int WHEEL_SLOTS = 4096;
+    private static final long HOUR_MILLIS = 60 * 60 * 1000L;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+
+    private final OrderGenerator generator;
+    private final Random random;
+    private final long orderTtlMillis;
+    private final ExpiryWheel wheel;
+    private DemandHeatmap heatmap;
+    private long utcOffsetMillis;
+    private int maxOpenOrders = Integer.MAX_VALUE;
+
+    // Момент, с которого разыгран интервал pending, и время следующего прихода (может
+    // оказаться за границей часа — тогда это не приход, а точка перерозыгрыша)
+    private boolean started;
+    private double cursor;
+    private double pending;
+    private long[] expired = new long[64];
+
+    private long spawned;
+    private long expiredTotal;
+    private long dropped;
+
+    /**
+     * @param generator      генератор заказов (общий с симуляцией, чтобы id не пересекались)
+     * @param orderTtlMillis сколько невзятый заказ остаётся открытым
+     */
+    public SpawnScheduler(DemandHeatmap heatmap, OrderGenerator generator, long seed, long orderTtlMillis) {
+        if (orderTtlMillis <= 0) {
+            throw new IllegalArgumentException("orderTtlMillis must be positive: " + orderTtlMillis);
+        }
+        this.heatmap = heatmap;
+        this.generator = generator;
+        this.random = new Random(seed);
+        this.orderTtlMillis = orderTtlMillis;
+        this.wheel = new ExpiryWheel(WHEEL_TICK_MILLIS, WHEEL_SLOTS, 1024);
+    }
+
+    public DemandHeatmap getHeatmap() {
+        return heatmap;
+    }
+
+    /** Сменить карту спроса (например, игрок уехал за её край); открытые заказы остаются */
+    public void setHeatmap(DemandHeatmap heatmap) {
+        this.heatmap = heatmap;
+        if (started) {
+            draw();
+        }
+    }
+
+    /** Смещение местного времени от UTC: часы суток карты спроса — местные */
+    public void setUtcOffsetMillis(long utcOffsetMillis) {
+        this.utcOffsetMillis = utcOffsetMillis;
+        if (started) {
+            draw();
+        }
+    }
+
+    /** Больше открытых заказов не держим: приход сверх лимита теряется (getDroppedCount) */
+    public void setMaxOpenOrders(int maxOpenOrders) {
+        this.maxOpenOrders = maxOpenOrders;
+    }
+
+    public long getOrderTtlMillis() {
+        return orderTtlMillis;
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Начать поток прихода с момента fromMillis. Если fromMillis = now - getOrderTtlMillis(),
+     * первый advanceTo(now) сразу выдаст установившийся набор открытых заказов
+     * с разными оставшимися сроками. Без вызова поток начинается с первого advanceTo.
+     */
+    public void startAt(long fromMillis) {
+        started = true;
+        cursor = fromMillis;
+        draw();
+    }
+
+    /** Следить за сроком заказа, появившегося не через планировщик (восстановленного, ручного) */
+    public void track(long orderId, long spawnedMillis) {
+        wheel.schedule(orderId, spawnedMillis + orderTtlMillis);
+    }
+
+    /**
+     * Заказ ушёл из открытых по другой причине (его взяли): срок больше не нужен.
+     *
+     * @return true, если планировщик следил за этим заказом
+     */
+    public boolean forget(long orderId) {
+        return wheel.cancel(orderId);
+    }
+
+    /** Забыть все открытые заказы (книга очищена); поток прихода продолжается */
+    public void clear() {
+        wheel.clear();
+    }
+
+    /** Открытые заказы, за сроком которых следит планировщик */
+    public int getOpenCount() {
+        return wheel.size();
+    }
+
+    public long getSpawnedCount() {
+        return spawned;
+    }
+
+    public long getExpiredCount() {
+        return expiredTotal;
+    }
+
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    /** Местный час суток [0; 24) для момента millis */
+    public int hourOfDay(long millis) {
+        return (int) (Math.floorMod(millis + utcOffsetMillis, DAY_MILLIS) / HOUR_MILLIS);
+    }
+
+    /**
+     * Выдать все приходы и истечения сроков до момента nowMillis включительно.
+     * Сначала приходы (каждый с моментом своего появления), затем истечения.
+     *
+     * @return сколько событий получил слушатель
+     */
+    public int advanceTo(long nowMillis, Listener listener) {
+        if (!started) {
+            startAt(nowMillis);
+        }
+        int events = 0;
+        if (nowMillis - orderTtlMillis > cursor) {
+            cursor = nowMillis - orderTtlMillis;
+            draw();
+        }
+        while (pending <= nowMillis) {
+            double hourEnd = hourEnd(cursor);
+            cursor = pending;
+            if (pending >= hourEnd) {
+                // Граница часа без прихода: дальше — с интенсивностью следующего часа
+                draw();
+                continue;
+            }
+            long at = (long) pending;
+            draw();
+            if (wheel.size() >= maxOpenOrders) {
+                dropped++;
+                continue;
+            }
+            Order order = spawnAt(at);
+            wheel.schedule(order.getId(), at + orderTtlMillis);
+            spawned++;
+            events++;
+            listener.onOrderSpawned(order);
+        }
+
+        // Колесо отдаёт id в буфер: слушатель может трогать планировщик без риска для обхода
+        expired = wheel.advance(nowMillis, expired);
+        int n = wheel.expiredCount();
+        expiredTotal += n;
+        for (int i = 0; i < n; i++) {
+            listener.onOrderExpired(expired[i]);
+        }
+        return events + n;
+    }
+
+    private Order spawnAt(long atMillis) {
+        int cell = heatmap.sampleCell(hourOfDay(atMillis), random.nextDouble());
+        double cellDeg = heatmap.getCellDeg();
+        double lat = heatmap.cellLat(cell) + random.nextDouble() * cellDeg;
+        double lng = heatmap.cellLng(cell) + random.nextDouble() * cellDeg;
+        return generator.nextAt(lat, lng, atMillis);
+    }
+
+    // Следующий приход после cursor при интенсивности текущего часа; при нулевой
+    // интенсивности — граница часа
+    private void draw() {
+        double perMilli = heatmap.getTotalRate(hourOfDay((long) Math.floor(cursor))) / HOUR_MILLIS;
+        double hourEnd = hourEnd(cursor);
+        if (perMilli <= 0) {
+            pending = hourEnd;
+            return;
+        }
+        double gap = -Math.log(1 - random.nextDouble()) / perMilli;
+        pending = Math.min(cursor + gap, hourEnd);
+    }
+
+    private double hourEnd(double millis) {
+        double local = millis + utcOffsetMillis;
+        return Math.floor(local / HOUR_MILLIS) * HOUR_MILLIS + HOUR_MILLIS - utcOffsetMillis;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.couriersimulator.orders;
+
+import com.example.couriersimulator.geo.GeoMath;
+
+/**
+ * Длина пути курьера между двумя точками, по которой считаются награда и дедлайн заказа.
+ * По умолчанию — по прямой; с дорожным графом — по дорогам (RoadRouter).
+ */
+public interface TravelDistance {
+
+    TravelDistance STRAIGHT_LINE = GeoMath::distanceMeters;
+
+    /** Длина пути, метры */
+    double meters(double fromLat, double fromLng, double toLat, double toLng);
+}
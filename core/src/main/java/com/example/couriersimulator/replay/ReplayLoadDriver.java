@@ -0,0 +1,253 @@
+package com.example.couriersimulator.replay;
+
+import com.example.couriersimulator.orders.Order;
+import com.example.couriersimulator.sim.Courier;
+import com.example.couriersimulator.sim.SimConfig;
+import com.example.couriersimulator.sim.Simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Нагрузка на проверку доставки и выдачу карточек потоком GPS-фиксов от множества
+ * виртуальных курьеров. Каждый курьер берёт заказ поблизости, получает
+ * сгенерированный трек до точки доставки и "едет" по нему с ускорением speed:
+ * на каждый фикс — тот же путь, что у игрока (moveCourier, canDeliver, deliver).
+ *
+ * Simulation не потокобезопасна, поэтому курьеры разбиты на шарды:
+ * у каждого потока пула свой мир со своей частью курьеров.
+ * Пропускная способность растёт с числом потоков, пока хватает ядер.
+ */
+public class ReplayLoadDriver {
+
+    /** Итоги прогона */
+    public static final class Result {
+        public final long fixes;
+        public final long deliveries;
+        public final long awards;
+        public final double seconds;
+        // Время обработки одного фикса (move + canDeliver + deliver)
+        public final long totalFixNanos;
+        public final long maxFixNanos;
+        // Насколько самый опоздавший фикс отстал от расписания трека
+        public final long maxLagMillis;
+
+        Result(long fixes, long deliveries, long awards, double seconds,
+               long totalFixNanos, long maxFixNanos, long maxLagMillis) {
+            this.fixes = fixes;
+            this.deliveries = deliveries;
+            this.awards = awards;
+            this.seconds = seconds;
+            this.totalFixNanos = totalFixNanos;
+            this.maxFixNanos = maxFixNanos;
+            this.maxLagMillis = maxLagMillis;
+        }
+
+        public double fixesPerSecond() {
+            return fixes / seconds;
+        }
+
+        public double meanFixMicros() {
+            return fixes == 0 ? 0 : totalFixNanos / 1000.0 / fixes;
+        }
+    }
+
+    // Интервал между фиксами виртуального GPS (время трека)
+    static final long FIX_INTERVAL_MS = 1000;
+    static final double GPS_NOISE_METERS = 3;
+
+    private final SimConfig config;
+    private final int couriers;
+    private final int threads;
+    private final double speed;
+
+    /**
+     * @param speed ускорение треков, [TracePlayer.MIN_SPEED, TracePlayer.MAX_SPEED]
+     */
+    public ReplayLoadDriver(SimConfig config, int couriers, int threads, double speed) {
+        if (couriers <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("couriers and threads must be positive");
+        }
+        this.config = config;
+        this.couriers = couriers;
+        this.threads = Math.min(threads, couriers);
+        this.speed = TracePlayer.clampSpeed(speed);
+    }
+
+    /** Ожидаемый поток фиксов в секунду при успевающем процессоре */
+    public double offeredFixesPerSecond() {
+        return couriers * speed * 1000.0 / FIX_INTERVAL_MS;
+    }
+
+    /** Прогнать нагрузку durationMillis реального времени */
+    public Result run(long durationMillis) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "ReplayLoad");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<Shard>> futures = new ArrayList<>(threads);
+            long startNanos = System.nanoTime();
+            long endNanos = startNanos + durationMillis * 1_000_000L;
+            for (int s = 0; s < threads; s++) {
+                // Курьеры делятся поровну, остаток — первым шардам
+                int count = couriers / threads + (s < couriers % threads ? 1 : 0);
+                Shard shard = new Shard(s, count);
+                futures.add(pool.submit(() -> {
+                    shard.run(startNanos, endNanos);
+                    return shard;
+                }));
+            }
+            long fixes = 0, deliveries = 0, awards = 0, totalNanos = 0, maxNanos = 0, maxLag = 0;
+            for (Future<Shard> f : futures) {
+                Shard shard;
+                try {
+                    shard = f.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Load shard failed", e.getCause());
+                }
+                fixes += shard.fixes;
+                deliveries += shard.sim.getDeliveries();
+                awards += shard.sim.getAwards();
+                totalNanos += shard.totalFixNanos;
+                maxNanos = Math.max(maxNanos, shard.maxFixNanos);
+                maxLag = Math.max(maxLag, shard.maxLagMillis);
+            }
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            return new Result(fixes, deliveries, awards, seconds, totalNanos, maxNanos, maxLag);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Свой мир и свои курьеры; все вызовы — с одного потока пула */
+    private final class Shard {
+
+        final Simulation sim;
+        private final Random random;
+        private final Trace[] traces;
+        // Момент (время трека с ускорением) начала текущего трека и индекс следующей точки
+        private final long[] traceStart;
+        private final int[] cursor;
+        private final List<Order> scratch = new ArrayList<>();
+
+        long fixes;
+        long totalFixNanos;
+        long maxFixNanos;
+        long maxLagMillis;
+
+        Shard(int index, int count) {
+            long seed = config.getSeed() + index * 0x9E3779B97F4A7C15L;
+            sim = new Simulation(new SimConfig()
+                    .setSeed(seed)
+                    .setDeliveryRadiusMeters(config.getDeliveryRadiusMeters())
+                    .setCourierSpeedMps(config.getCourierSpeedMps())
+                    .setSearchRadiusMeters(config.getSearchRadiusMeters())
+                    .setAwardChance(config.getAwardChance())
+                    .setDropPity(config.getDropPity())
+                    .setRarePity(config.getRarePity())
+                    .setCardCatalogSize(config.getCardCatalogSize())
+                    .setTargetOpenOrders(Math.max(1, config.getTargetOpenOrders() / threads))
+                    .setOrigin(config.getOriginLat(), config.getOriginLng())
+                    .setAreaRadiusDeg(config.getAreaRadiusDeg()));
+            random = new Random(seed);
+            traces = new Trace[count];
+            traceStart = new long[count];
+            cursor = new int[count];
+            double r = config.getAreaRadiusDeg();
+            for (int i = 0; i < count; i++) {
+                sim.addCourier(config.getOriginLat() + (random.nextDouble() - 0.5) * 2 * r,
+                        config.getOriginLng() + (random.nextDouble() - 0.5) * 2 * r, false);
+            }
+        }
+
+        void run(long startNanos, long endNanos) {
+            // Заказы появляются раз в тик; курьеры на автопилот не переводятся
+            sim.tick();
+            for (int i = 0; i < traces.length; i++) {
+                takeOrder(i, 0);
+            }
+            long now;
+            while ((now = System.nanoTime()) < endNanos) {
+                long virtualMillis = (long) ((now - startNanos) / 1e6 * speed);
+                boolean emitted = false;
+                for (int i = 0; i < traces.length; i++) {
+                    emitted |= emitDue(i, virtualMillis);
+                }
+                if (sim.getOrderBook().size() < traces.length) {
+                    sim.tick();
+                }
+                if (!emitted) {
+                    Thread.yield();
+                }
+            }
+        }
+
+        // Все наступившие фиксы курьера i; true, если был хотя бы один
+        private boolean emitDue(int i, long virtualMillis) {
+            Trace trace = traces[i];
+            if (trace == null) {
+                return takeOrder(i, virtualMillis);
+            }
+            boolean emitted = false;
+            while (cursor[i] < trace.size()) {
+                long due = traceStart[i] + trace.getTimeMillis(cursor[i]);
+                if (due > virtualMillis) {
+                    break;
+                }
+                long t0 = System.nanoTime();
+                sim.moveCourier(i, trace.getLat(cursor[i]), trace.getLng(cursor[i]));
+                if (sim.canDeliver(i)) {
+                    sim.deliver(i);
+                    traces[i] = null;
+                }
+                long spent = System.nanoTime() - t0;
+                fixes++;
+                totalFixNanos += spent;
+                maxFixNanos = Math.max(maxFixNanos, spent);
+                maxLagMillis = Math.max(maxLagMillis, (long) ((virtualMillis - due) / speed));
+                cursor[i]++;
+                emitted = true;
+                if (traces[i] == null) {
+                    return true;
+                }
+            }
+            if (cursor[i] == trace.size()) {
+                // Трек кончился, а радиус так и не достигнут (шум) — заказ остаётся, трек новый
+                startTrace(i, sim.getCourier(i).getOrder(), virtualMillis);
+            }
+            return emitted;
+        }
+
+        // Взять случайный заказ поблизости и построить трек к точке доставки
+        private boolean takeOrder(int i, long virtualMillis) {
+            Courier c = sim.getCourier(i);
+            scratch.clear();
+            if (sim.getOrderBook().findNear(c.getLat(), c.getLng(), config.getSearchRadiusMeters(), scratch) == 0) {
+                sim.spawnOrders(1, c.getLat(), c.getLng());
+                return false;
+            }
+            Order order = sim.accept(i, scratch.get(random.nextInt(scratch.size())).getId());
+            if (order == null) {
+                return false;
+            }
+            startTrace(i, order, virtualMillis);
+            return true;
+        }
+
+        private void startTrace(int i, Order order, long virtualMillis) {
+            Courier c = sim.getCourier(i);
+            traces[i] = TraceGenerator.line(c.getLat(), c.getLng(), order.getDropoffLat(), order.getDropoffLng(),
+                    config.getCourierSpeedMps(), FIX_INTERVAL_MS, GPS_NOISE_METERS, random);
+            traceStart[i] = virtualMillis;
+            // Первая точка трека — текущее положение, её пропускаем
+            cursor[i] = 1;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.couriersimulator.replay;
+
+import com.example.couriersimulator.sim.SimConfig;
+
+/**
+ * Нагрузочный прогон проверки доставки потоком фиксов, без устройства.
+ * Аргументы: --couriers N --threads N --speed X (1..1000) --seconds N --seed N
+ * Печатает предложенный и фактический поток фиксов, время обработки фикса
+ * и наибольшее отставание от расписания треков.
+ */
+public final class ReplayLoadMain {
+
+    private ReplayLoadMain() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int couriers = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double speed = 100;
+        long seconds = 10;
+        long seed = 42L;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--couriers":
+                    couriers = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--speed":
+                    speed = Double.parseDouble(value);
+                    break;
+                case "--seconds":
+                    seconds = Long.parseLong(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        SimConfig config = new SimConfig()
+                .setSeed(seed)
+                .setTargetOpenOrders(couriers * 2)
+                .setCardCatalogSize(100);
+        ReplayLoadDriver driver = new ReplayLoadDriver(config, couriers, threads, speed);
+        ReplayLoadDriver.Result r = driver.run(seconds * 1000);
+
+        System.out.printf("couriers=%d threads=%d speed=%.0fx seconds=%.1f%n",
+                couriers, Math.min(threads, couriers), TracePlayer.clampSpeed(speed), r.seconds);
+        System.out.printf("offered=%.0f fixes/s achieved=%.0f fixes/s%n",
+                driver.offeredFixesPerSecond(), r.fixesPerSecond());
+        System.out.printf("fixes=%d deliveries=%d awards=%d%n", r.fixes, r.deliveries, r.awards);
+        System.out.printf("fix handling: mean=%.2f us max=%.1f us; max lag=%d ms%n",
+                r.meanFixMicros(), r.maxFixNanos / 1000.0, r.maxLagMillis);
+    }
+}
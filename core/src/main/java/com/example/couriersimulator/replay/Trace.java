@@ -0,0 +1,81 @@
+package com.example.couriersimulator.replay;
+
+import com.example.couriersimulator.geo.GeoMath;
+
+import java.util.Arrays;
+
+/**
+ * Записанный или сгенерированный трек: последовательность фиксов с временем
+ * от начала трека. Неизменяемый; точки хранятся в параллельных массивах,
+ * время не убывает.
+ */
+public final class Trace {
+
+    private final double[] lat;
+    private final double[] lng;
+    private final long[] timeMillis;
+    // 0 — точность неизвестна
+    private final float[] accuracy;
+
+    Trace(double[] lat, double[] lng, long[] timeMillis, float[] accuracy) {
+        this.lat = lat;
+        this.lng = lng;
+        this.timeMillis = timeMillis;
+        this.accuracy = accuracy;
+    }
+
+    /** Трек из готовых массивов (копируются); время сдвигается так, чтобы начиналось с 0 */
+    public static Trace of(double[] lat, double[] lng, long[] timeMillis, float[] accuracy) {
+        int n = lat.length;
+        if (lng.length != n || timeMillis.length != n || accuracy.length != n) {
+            throw new IllegalArgumentException("Arrays have different lengths");
+        }
+        long[] t = new long[n];
+        long t0 = n > 0 ? timeMillis[0] : 0;
+        for (int i = 0; i < n; i++) {
+            t[i] = timeMillis[i] - t0;
+            if (i > 0 && t[i] < t[i - 1]) {
+                throw new IllegalArgumentException("Time goes backwards at point " + i);
+            }
+        }
+        return new Trace(Arrays.copyOf(lat, n), Arrays.copyOf(lng, n), t, Arrays.copyOf(accuracy, n));
+    }
+
+    public int size() {
+        return lat.length;
+    }
+
+    public boolean isEmpty() {
+        return lat.length == 0;
+    }
+
+    public double getLat(int i) {
+        return lat[i];
+    }
+
+    public double getLng(int i) {
+        return lng[i];
+    }
+
+    /** Время точки от начала трека, мс */
+    public long getTimeMillis(int i) {
+        return timeMillis[i];
+    }
+
+    public float getAccuracy(int i) {
+        return accuracy[i];
+    }
+
+    public long getDurationMillis() {
+        return timeMillis.length == 0 ? 0 : timeMillis[timeMillis.length - 1];
+    }
+
+    /** Длина трека по точкам, метры */
+    public double getLengthMeters() {
+        double sum = 0;
+        for (int i = 1; i < lat.length; i++) {
+            sum += GeoMath.distanceMeters(lat[i - 1], lng[i - 1], lat[i], lng[i]);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.couriersimulator.replay;
+
+import com.example.couriersimulator.geo.GeoMath;
+
+import java.util.Arrays;
+
+/**
+ * Накопление точек трека в растущих массивах.
+ * Точкам без времени (NO_TIME) время расставляется при build() по расстоянию
+ * от предыдущей точки и заданной скорости.
+ */
+final class TraceBuilder {
+
+    static final long NO_TIME = Long.MIN_VALUE;
+
+    private double[] lat = new double[64];
+    private double[] lng = new double[64];
+    private long[] time = new long[64];
+    private float[] accuracy = new float[64];
+    private int size;
+
+    void add(double pointLat, double pointLng, long timeMillis, float accuracyMeters) {
+        if (size == lat.length) {
+            int cap = size * 2;
+            lat = Arrays.copyOf(lat, cap);
+            lng = Arrays.copyOf(lng, cap);
+            time = Arrays.copyOf(time, cap);
+            accuracy = Arrays.copyOf(accuracy, cap);
+        }
+        lat[size] = pointLat;
+        lng[size] = pointLng;
+        time[size] = timeMillis;
+        accuracy[size] = accuracyMeters;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param speedMps скорость для точек без времени
+     */
+    Trace build(double speedMps) {
+        for (int i = 0; i < size; i++) {
+            if (time[i] != NO_TIME) {
+                continue;
+            }
+            if (i == 0) {
+                time[i] = 0;
+            } else {
+                double d = GeoMath.distanceMeters(lat[i - 1], lng[i - 1], lat[i], lng[i]);
+                time[i] = time[i - 1] + Math.max(1, Math.round(d / speedMps * 1000));
+            }
+        }
+        return Trace.of(Arrays.copyOf(lat, size), Arrays.copyOf(lng, size),
+                Arrays.copyOf(time, size), Arrays.copyOf(accuracy, size));
+    }
+}
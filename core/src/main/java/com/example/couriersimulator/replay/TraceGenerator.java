@@ -0,0 +1,67 @@
+package com.example.couriersimulator.replay;
+
+import com.example.couriersimulator.geo.GeoMath;
+
+import java.util.Random;
+
+/**
+ * Синтетические треки: движение по прямой между точками с постоянной скоростью
+ * и фиксом каждые intervalMillis, с шумом как у настоящего GPS.
+ * Последняя точка всегда точно в конце маршрута, чтобы курьер гарантированно
+ * попадал в радиус доставки.
+ */
+public final class TraceGenerator {
+
+    private TraceGenerator() {
+    }
+
+    /**
+     * @param noiseMeters  стандартное отклонение шума по каждой оси; 0 — без шума
+     * @param random       источник шума (с seed — для повторяемых прогонов)
+     */
+    public static Trace line(double fromLat, double fromLng, double toLat, double toLng,
+                             double speedMps, long intervalMillis, double noiseMeters, Random random) {
+        return route(new double[]{fromLat, toLat}, new double[]{fromLng, toLng},
+                speedMps, intervalMillis, noiseMeters, random);
+    }
+
+    /** Маршрут через точки (lats[i], lngs[i]) по порядку */
+    public static Trace route(double[] lats, double[] lngs, double speedMps, long intervalMillis,
+                              double noiseMeters, Random random) {
+        if (lats.length != lngs.length || lats.length == 0) {
+            throw new IllegalArgumentException("Route needs at least one point");
+        }
+        TraceBuilder points = new TraceBuilder();
+        double stepMeters = speedMps * intervalMillis / 1000.0;
+        long time = 0;
+        points.add(lats[0], lngs[0], time, 0f);
+        if (lats.length == 1) {
+            return points.build(speedMps);
+        }
+        // Сколько метров осталось до следующего фикса с прошлого отрезка
+        double carry = stepMeters;
+        for (int s = 1; s < lats.length; s++) {
+            double lat0 = lats[s - 1];
+            double lng0 = lngs[s - 1];
+            double length = GeoMath.distanceMeters(lat0, lng0, lats[s], lngs[s]);
+            double pos = carry;
+            while (pos < length) {
+                double k = pos / length;
+                double lat = lat0 + (lats[s] - lat0) * k;
+                double lng = lng0 + (lngs[s] - lng0) * k;
+                if (noiseMeters > 0) {
+                    lat += random.nextGaussian() * noiseMeters / GeoMath.METERS_PER_DEGREE_LAT;
+                    lng += random.nextGaussian() * noiseMeters / GeoMath.metersPerDegreeLng(lat);
+                }
+                time += intervalMillis;
+                points.add(lat, lng, time, (float) noiseMeters);
+                pos += stepMeters;
+            }
+            carry = pos - length;
+        }
+        int last = lats.length - 1;
+        time += Math.max(1, Math.round((stepMeters - carry) / speedMps * 1000));
+        points.add(lats[last], lngs[last], time, 0f);
+        return points.build(speedMps);
+    }
+}
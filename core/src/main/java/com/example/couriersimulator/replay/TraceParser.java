@@ -0,0 +1,191 @@
+package com.example.couriersimulator.replay;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+/**
+ * Чтение треков из GPX и CSV.
+ * GPX: точки trkpt и rtept, время — из элемента time (ISO-8601).
+ * GPX читается без DOCTYPE и внешних сущностей: файл трека приходит извне.
+ * CSV: строки "lat,lng[,timeMillis[,accuracy]]", пустые время и точность — нет данных;
+ * строки с '#' и заголовок (первая строка с данными, если она не число) пропускаются.
+ * Точкам без времени оно расставляется по расстоянию при скорости speedMps.
+ */
+public final class TraceParser {
+
+    /** Скорость для треков без времени — быстрый шаг, м/с */
+    public static final double DEFAULT_SPEED_MPS = 1.5;
+
+    private TraceParser() {
+    }
+
+    /** Формат определяется по расширению (.gpx, иначе CSV) */
+    public static Trace parse(File file, double speedMps) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            if (file.getName().toLowerCase(Locale.ROOT).endsWith(".gpx")) {
+                return parseGpx(in, speedMps);
+            }
+            return parseCsv(new InputStreamReader(in, StandardCharsets.UTF_8), speedMps);
+        }
+    }
+
+    public static Trace parseGpx(InputStream in, double speedMps) throws IOException {
+        GpxHandler handler = new GpxHandler();
+        try {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            secure(factory);
+            factory.newSAXParser().parse(new InputSource(in), handler);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Invalid GPX: " + e.getMessage(), e);
+        }
+        return build(handler.points, speedMps);
+    }
+
+    /**
+     * Запретить DOCTYPE (а с ним XXE и "миллиард смеха") и включить лимиты разбора.
+     * Парсер Android этих свойств не знает; там внешние сущности отклоняет GpxHandler.
+     */
+    private static void secure(SAXParserFactory factory) throws ParserConfigurationException {
+        try {
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        } catch (SAXNotRecognizedException | SAXNotSupportedException e) {
+            // Не Xerces: остаётся защита в GpxHandler.resolveEntity
+        }
+    }
+
+    public static Trace parseCsv(Reader reader, double speedMps) throws IOException {
+        TraceBuilder points = new TraceBuilder();
+        BufferedReader in = new BufferedReader(reader);
+        String line;
+        int lineNo = 0;
+        boolean first = true;
+        while ((line = in.readLine()) != null) {
+            lineNo++;
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            String[] cols = line.split("[,;]");
+            if (first) {
+                first = false;
+                if (!isNumber(cols[0])) {
+                    continue; // заголовок
+                }
+            }
+            if (cols.length < 2) {
+                throw new IOException("Line " + lineNo + ": expected lat,lng");
+            }
+            try {
+                double lat = Double.parseDouble(cols[0].trim());
+                double lng = Double.parseDouble(cols[1].trim());
+                long time = cols.length > 2 && !cols[2].trim().isEmpty()
+                        ? Long.parseLong(cols[2].trim()) : TraceBuilder.NO_TIME;
+                float accuracy = cols.length > 3 && !cols[3].trim().isEmpty()
+                        ? Float.parseFloat(cols[3].trim()) : 0f;
+                points.add(lat, lng, time, accuracy);
+            } catch (NumberFormatException e) {
+                throw new IOException("Line " + lineNo + ": " + e.getMessage(), e);
+            }
+        }
+        return build(points, speedMps);
+    }
+
+    // Время назад — ошибка файла, а не программы: наружу только IOException
+    private static Trace build(TraceBuilder points, double speedMps) throws IOException {
+        try {
+            return points.build(speedMps);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid trace: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isNumber(String s) {
+        try {
+            Double.parseDouble(s.trim());
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static final class GpxHandler extends DefaultHandler {
+
+        final TraceBuilder points = new TraceBuilder();
+        private final StringBuilder text = new StringBuilder();
+        private boolean inPoint;
+        private boolean inTime;
+        private double lat;
+        private double lng;
+        private long time;
+
+        /** Внешние сущности (XXE) не читаются, даже если парсер пропустил DOCTYPE */
+        @Override
+        public InputSource resolveEntity(String publicId, String systemId) throws SAXException {
+            throw new SAXException("External entity not allowed: " + systemId);
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attrs)
+                throws SAXException {
+            String name = localName.isEmpty() ? qName : localName;
+            if ("trkpt".equals(name) || "rtept".equals(name)) {
+                try {
+                    lat = Double.parseDouble(attrs.getValue("lat"));
+                    lng = Double.parseDouble(attrs.getValue("lon"));
+                } catch (NullPointerException | NumberFormatException e) {
+                    throw new SAXException("Point without lat/lon", e);
+                }
+                time = TraceBuilder.NO_TIME;
+                inPoint = true;
+            } else if (inPoint && "time".equals(name)) {
+                inTime = true;
+                text.setLength(0);
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inTime) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            String name = localName.isEmpty() ? qName : localName;
+            if (inTime && "time".equals(name)) {
+                inTime = false;
+                try {
+                    time = OffsetDateTime.parse(text.toString().trim()).toInstant().toEpochMilli();
+                } catch (DateTimeParseException e) {
+                    throw new SAXException("Bad time: " + text, e);
+                }
+            } else if (inPoint && ("trkpt".equals(name) || "rtept".equals(name))) {
+                inPoint = false;
+                points.add(lat, lng, time, 0f);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.couriersimulator.replay;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проигрывание трека в реальном времени с ускорением от MIN_SPEED до MAX_SPEED.
+ * Каждая точка планируется от момента старта (а не от предыдущей точки),
+ * поэтому задержки планировщика не накапливаются. Фиксы отдаются в Sink
+ * на потоке планировщика; передавать их дальше (например, на главный поток) — дело Sink.
+ */
+public class TracePlayer {
+
+    public static final double MIN_SPEED = 1;
+    public static final double MAX_SPEED = 1000;
+
+    /** Получатель фиксов трека */
+    public interface Sink {
+        /**
+         * @param traceTimeMillis время точки от начала трека (без ускорения)
+         */
+        void onFix(double lat, double lng, float accuracyMeters, long traceTimeMillis);
+
+        /** Трек закончился (при loop не вызывается) */
+        default void onFinished() {
+        }
+    }
+
+    private final Trace trace;
+    private final Sink sink;
+    private final ScheduledExecutorService executor;
+    private final double speed;
+    private final boolean loop;
+
+    // Поля ниже меняются только на потоке планировщика (кроме флага остановки)
+    private volatile boolean stopped;
+    private ScheduledFuture<?> pending;
+    private long startNanos;
+    private int next;
+    private long lapOffsetMillis;
+
+    /**
+     * @param speed ускорение; ограничивается диапазоном [MIN_SPEED, MAX_SPEED]
+     * @param loop  начинать трек заново после последней точки
+     */
+    public TracePlayer(Trace trace, Sink sink, ScheduledExecutorService executor, double speed, boolean loop) {
+        this.trace = trace;
+        this.sink = sink;
+        this.executor = executor;
+        this.speed = clampSpeed(speed);
+        this.loop = loop;
+    }
+
+    public static double clampSpeed(double speed) {
+        return Math.max(MIN_SPEED, Math.min(MAX_SPEED, speed));
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    public synchronized void start() {
+        if (pending != null || trace.isEmpty()) {
+            return;
+        }
+        stopped = false;
+        startNanos = System.nanoTime();
+        next = 0;
+        lapOffsetMillis = 0;
+        pending = executor.schedule(this::emitDue, 0, TimeUnit.NANOSECONDS);
+    }
+
+    public synchronized void stop() {
+        stopped = true;
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return !stopped && pending != null;
+    }
+
+    // Отдать все точки, чьё время уже наступило, и запланировать следующую
+    private synchronized void emitDue() {
+        if (stopped) {
+            return;
+        }
+        double virtualMillis = (System.nanoTime() - startNanos) / 1e6 * speed;
+        while (true) {
+            if (next == trace.size()) {
+                if (!loop) {
+                    pending = null;
+                    stopped = true;
+                    sink.onFinished();
+                    return;
+                }
+                // Новый круг: пауза между концом и началом как один обычный шаг
+                lapOffsetMillis += trace.getDurationMillis() + lastStepMillis();
+                next = 0;
+            }
+            long due = lapOffsetMillis + trace.getTimeMillis(next);
+            if (due > virtualMillis) {
+                long delayNanos = (long) ((due - virtualMillis) / speed * 1e6);
+                pending = executor.schedule(this::emitDue, delayNanos, TimeUnit.NANOSECONDS);
+                return;
+            }
+            sink.onFix(trace.getLat(next), trace.getLng(next), trace.getAccuracy(next), due);
+            next++;
+            if (stopped) {
+                return; // Sink вызвал stop(): остальные точки не отдавать и не планировать
+            }
+        }
+    }
+
+    private long lastStepMillis() {
+        int n = trace.size();
+        return n > 1 ? Math.max(1, trace.getTimeMillis(n - 1) - trace.getTimeMillis(n - 2)) : 1000;
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.couriersimulator.road;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+/**
+ * Дороги из выгрузки OpenStreetMap (.osm, XML) для RoadGraphBuilder.
+ * Файл читается потоково (SAX) в два прохода, потому что в выгрузке узлы идут раньше линий:
+ * 1. линии (way) с подходящим тегом highway — их узлы и направление движения
+ * 2. координаты только тех узлов, которые входят в эти дороги
+ * Поэтому в памяти — дороги, а не все точки выгрузки (дома, деревья и т. п.).
+ * Курьер на велосипеде: магистрали без велосипедов пропускаются, oneway соблюдается,
+ * кроме oneway:bicycle=no.
+ */
+public final class OsmRoadReader {
+
+    // Типы дорог, по которым проезжает велокурьер
+    private static final String[] HIGHWAYS = {
+            "primary", "primary_link", "secondary", "secondary_link", "tertiary", "tertiary_link",
+            "unclassified", "residential", "living_street", "service", "road",
+            "cycleway", "pedestrian", "path", "track"
+    };
+
+    // Узлы дорог по порядку всех линий и границы линий в этом списке
+    private long[] refs = new long[4096];
+    private int refCount;
+    private int[] wayEnd = new int[256];
+    // 0 — в обе стороны, 1 — по порядку узлов, -1 — против
+    private byte[] wayDirection = new byte[256];
+    private int wayCount;
+
+    private OsmRoadReader() {
+    }
+
+    /** Прочитать выгрузку и собрать граф */
+    public static RoadGraphBuilder read(File osmFile) throws IOException {
+        OsmRoadReader reader = new OsmRoadReader();
+        reader.parse(osmFile, reader.new WayHandler());
+        Map<Long, Integer> nodeIndex = new HashMap<>(reader.refCount);
+        for (int i = 0; i < reader.refCount; i++) {
+            nodeIndex.put(reader.refs[i], -1);
+        }
+        RoadGraphBuilder builder = new RoadGraphBuilder();
+        reader.parse(osmFile, new NodeHandler(nodeIndex, builder));
+        reader.addSegments(nodeIndex, builder);
+        return builder;
+    }
+
+    private void parse(File file, DefaultHandler handler) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024)) {
+            SAXParserFactory.newInstance().newSAXParser().parse(in, handler);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Cannot parse " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void addSegments(Map<Long, Integer> nodeIndex, RoadGraphBuilder builder) {
+        int start = 0;
+        for (int w = 0; w < wayCount; w++) {
+            int end = wayEnd[w];
+            int direction = wayDirection[w];
+            int prev = -1;
+            for (int i = start; i < end; i++) {
+                // Узла может не быть, если линия обрезана границей выгрузки
+                int node = nodeIndex.get(refs[i]);
+                if (prev >= 0 && node >= 0) {
+                    if (direction >= 0) {
+                        builder.addSegment(prev, node, direction > 0);
+                    } else {
+                        builder.addSegment(node, prev, true);
+                    }
+                }
+                prev = node;
+            }
+            start = end;
+        }
+    }
+
+    private void addWay(long[] wayRefs, int count, int direction) {
+        if (count < 2) {
+            return;
+        }
+        if (refCount + count > refs.length) {
+            refs = Arrays.copyOf(refs, Math.max(refs.length * 2, refCount + count));
+        }
+        System.arraycopy(wayRefs, 0, refs, refCount, count);
+        refCount += count;
+        if (wayCount == wayEnd.length) {
+            wayEnd = Arrays.copyOf(wayEnd, wayCount * 2);
+            wayDirection = Arrays.copyOf(wayDirection, wayCount * 2);
+        }
+        wayEnd[wayCount] = refCount;
+        wayDirection[wayCount] = (byte) direction;
+        wayCount++;
+    }
+
+    static boolean isRoad(String highway) {
+        if (highway == null) {
+            return false;
+        }
+        for (String h : HIGHWAYS) {
+            if (h.equals(highway)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Первый проход: линии дорог */
+    private final class WayHandler extends DefaultHandler {
+        private boolean inWay;
+        private long[] wayRefs = new long[256];
+        private int count;
+        private String highway;
+        private String oneway;
+        private String onewayBicycle;
+        private String junction;
+        private String access;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if ("way".equals(qName)) {
+                inWay = true;
+                count = 0;
+                highway = oneway = onewayBicycle = junction = access = null;
+            } else if (!inWay) {
+                return;
+            } else if ("nd".equals(qName)) {
+                if (count == wayRefs.length) {
+                    wayRefs = Arrays.copyOf(wayRefs, count * 2);
+                }
+                wayRefs[count++] = Long.parseLong(attributes.getValue("ref"));
+            } else if ("tag".equals(qName)) {
+                String k = attributes.getValue("k");
+                String v = attributes.getValue("v");
+                if ("highway".equals(k)) {
+                    highway = v;
+                } else if ("oneway".equals(k)) {
+                    oneway = v;
+                } else if ("oneway:bicycle".equals(k)) {
+                    onewayBicycle = v;
+                } else if ("junction".equals(k)) {
+                    junction = v;
+                } else if ("access".equals(k)) {
+                    access = v;
+                }
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (!"way".equals(qName)) {
+                return;
+            }
+            inWay = false;
+            if (!isRoad(highway) || "private".equals(access) || "no".equals(access)) {
+                return;
+            }
+            int direction = 0;
+            if ("yes".equals(oneway) || "1".equals(oneway) || "true".equals(oneway)
+                    || "roundabout".equals(junction)) {
+                direction = 1;
+            } else if ("-1".equals(oneway)) {
+                direction = -1;
+            }
+            if ("no".equals(onewayBicycle)) {
+                direction = 0;
+            }
+            addWay(wayRefs, count, direction);
+        }
+    }
+
+    /** Второй проход: координаты узлов дорог */
+    private static final class NodeHandler extends DefaultHandler {
+        private final Map<Long, Integer> nodeIndex;
+        private final RoadGraphBuilder builder;
+
+        NodeHandler(Map<Long, Integer> nodeIndex, RoadGraphBuilder builder) {
+            this.nodeIndex = nodeIndex;
+            this.builder = builder;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (!"node".equals(qName)) {
+                return;
+            }
+            Long id = Long.valueOf(attributes.getValue("id"));
+            Integer index = nodeIndex.get(id);
+            if (index != null && index < 0) {
+                double lat = Double.parseDouble(attributes.getValue("lat"));
+                double lng = Double.parseDouble(attributes.getValue("lon"));
+                nodeIndex.put(id, builder.addNode(lat, lng));
+            }
+        }
+    }
+}
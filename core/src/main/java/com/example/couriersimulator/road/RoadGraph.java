@@ -0,0 +1,243 @@
+package com.example.couriersimulator.road;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Дорожный граф в компактном формате CSR (compressed sparse row), только для чтения.
+ * Файл (.rgr) целиком состоит из int в little-endian и отображается в память (mmap):
+ * в куче — только объект графа, страницы файла подгружает ОС по мере обращения.
+ *
+ * Раскладка файла:
+ * - заголовок из HEADER_INTS int: магия, версия, число узлов и рёбер, сетка индекса
+ * - firstEdge[nodeCount + 1]: рёбра узла u — с firstEdge[u] по firstEdge[u + 1] - 1
+ * - edgeTarget[edgeCount], edgeLength[edgeCount] (дециметры)
+ * - nodeLat[nodeCount], nodeLng[nodeCount] (градусы × 1e7)
+ * - cellStart[cells + 1]: узлы ячейки c сетки — с cellStart[c] по cellStart[c + 1] - 1
+ * Узлы пронумерованы по ячейкам сетки (строка за строкой), поэтому соседние на карте
+ * узлы лежат рядом и в файле, а поиск ближайшего узла смотрит несколько ячеек.
+ *
+ * Собирается RoadGraphBuilder (на обычной JVM, из выгрузки OSM). Объект неизменяем,
+ * чтение потокобезопасно; маршруты ищет RoadRouter (свой на каждый поток).
+ */
+public final class RoadGraph {
+
+    static final int MAGIC = 0x46524752; // "RGRF"
+    static final int VERSION = 1;
+    static final int HEADER_INTS = 12;
+    /** Координаты узлов — в градусах × E7 */
+    public static final double E7 = 1e7;
+
+    private final int nodeCount;
+    private final int edgeCount;
+    // Сетка индекса: левый нижний угол, размер ячейки (градусы × 1e7), число столбцов и строк
+    private final int gridMinLat;
+    private final int gridMinLng;
+    private final int cellE7;
+    private final int cols;
+    private final int rows;
+
+    private final IntBuffer firstEdge;
+    private final IntBuffer edgeTarget;
+    private final IntBuffer edgeLength;
+    private final IntBuffer nodeLat;
+    private final IntBuffer nodeLng;
+    private final IntBuffer cellStart;
+    private final int byteSize;
+    // Байты файла целиком (для writeTo)
+    private final ByteBuffer data;
+
+    private RoadGraph(ByteBuffer buffer) throws IOException {
+        IntBuffer ints = buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        if (ints.limit() < HEADER_INTS || ints.get(0) != MAGIC) {
+            throw new IOException("Not a road graph");
+        }
+        if (ints.get(1) != VERSION) {
+            throw new IOException("Unsupported road graph version " + ints.get(1));
+        }
+        nodeCount = ints.get(2);
+        edgeCount = ints.get(3);
+        gridMinLat = ints.get(4);
+        gridMinLng = ints.get(5);
+        cellE7 = ints.get(6);
+        cols = ints.get(7);
+        rows = ints.get(8);
+        long expected = intCount(nodeCount, edgeCount, cols, rows);
+        if (nodeCount < 0 || edgeCount < 0 || cellE7 <= 0 || cols <= 0 || rows <= 0
+                || expected > ints.limit()) {
+            throw new IOException("Truncated or corrupt road graph");
+        }
+        int pos = HEADER_INTS;
+        firstEdge = slice(ints, pos, nodeCount + 1);
+        pos += nodeCount + 1;
+        edgeTarget = slice(ints, pos, edgeCount);
+        pos += edgeCount;
+        edgeLength = slice(ints, pos, edgeCount);
+        pos += edgeCount;
+        nodeLat = slice(ints, pos, nodeCount);
+        pos += nodeCount;
+        nodeLng = slice(ints, pos, nodeCount);
+        pos += nodeCount;
+        cellStart = slice(ints, pos, cols * rows + 1);
+        byteSize = (int) expected * 4;
+        data = buffer;
+    }
+
+    /** Отобразить файл графа в память. Файл не должен меняться, пока граф используется. */
+    public static RoadGraph open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            // Отображение остаётся действительным и после закрытия канала
+            return new RoadGraph(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /** Граф поверх уже готовых байтов файла (например, собранного в памяти) */
+    public static RoadGraph wrap(ByteBuffer buffer) throws IOException {
+        return new RoadGraph(buffer.duplicate());
+    }
+
+    /** Записать граф в файл (через временный файл и rename) */
+    public void writeTo(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp);
+             FileChannel channel = out.getChannel()) {
+            ByteBuffer bytes = data.duplicate();
+            bytes.position(0);
+            bytes.limit(byteSize);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Cannot rename " + tmp + " to " + file);
+        }
+    }
+
+    /** Прочитать файл в кучу вместо отображения (для платформ без mmap или маленьких графов) */
+    public static RoadGraph read(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file);
+             FileChannel channel = in.getChannel()) {
+            ByteBuffer bytes = ByteBuffer.allocate((int) channel.size());
+            while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                // читаем до конца
+            }
+            bytes.flip();
+            return new RoadGraph(bytes);
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /** Размер данных графа в байтах (столько же занимает файл) */
+    public int getByteSize() {
+        return byteSize;
+    }
+
+    public int firstEdge(int node) {
+        return firstEdge.get(node);
+    }
+
+    /** Конец (не включительно) рёбер узла node */
+    public int endEdge(int node) {
+        return firstEdge.get(node + 1);
+    }
+
+    public int edgeTarget(int edge) {
+        return edgeTarget.get(edge);
+    }
+
+    /** Длина ребра, дециметры */
+    public int edgeLength(int edge) {
+        return edgeLength.get(edge);
+    }
+
+    public int latE7(int node) {
+        return nodeLat.get(node);
+    }
+
+    public int lngE7(int node) {
+        return nodeLng.get(node);
+    }
+
+    public double lat(int node) {
+        return nodeLat.get(node) / E7;
+    }
+
+    public double lng(int node) {
+        return nodeLng.get(node) / E7;
+    }
+
+    int getCols() {
+        return cols;
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    /** Столбец сетки для долготы (может выйти за пределы сетки) */
+    int col(double lng) {
+        return (int) Math.floor((lng * E7 - gridMinLng) / cellE7);
+    }
+
+    /** Строка сетки для широты (может выйти за пределы сетки) */
+    int row(double lat) {
+        return (int) Math.floor((lat * E7 - gridMinLat) / cellE7);
+    }
+
+    int cellStart(int cell) {
+        return cellStart.get(cell);
+    }
+
+    /** Размер ячейки сетки, градусы */
+    double getCellDeg() {
+        return cellE7 / E7;
+    }
+
+    static long intCount(int nodeCount, int edgeCount, int cols, int rows) {
+        return HEADER_INTS + (nodeCount + 1L) + 2L * edgeCount + 2L * nodeCount + (long) cols * rows + 1;
+    }
+
+    /** Байты файла графа по готовым массивам (см. RoadGraphBuilder) */
+    static ByteBuffer encode(int nodeCount, int edgeCount, int gridMinLat, int gridMinLng, int cellE7,
+                             int cols, int rows, int[] firstEdge, int[] edgeTarget, int[] edgeLength,
+                             int[] nodeLat, int[] nodeLng, int[] cellStart) {
+        long ints = intCount(nodeCount, edgeCount, cols, rows);
+        if (ints * 4 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Road graph too large: " + ints * 4 + " bytes");
+        }
+        ByteBuffer bytes = ByteBuffer.allocateDirect((int) ints * 4).order(ByteOrder.LITTLE_ENDIAN);
+        IntBuffer out = bytes.asIntBuffer();
+        out.put(new int[]{MAGIC, VERSION, nodeCount, edgeCount, gridMinLat, gridMinLng, cellE7, cols, rows, 0, 0, 0});
+        out.put(firstEdge, 0, nodeCount + 1);
+        out.put(edgeTarget, 0, edgeCount);
+        out.put(edgeLength, 0, edgeCount);
+        out.put(nodeLat, 0, nodeCount);
+        out.put(nodeLng, 0, nodeCount);
+        out.put(cellStart, 0, cols * rows + 1);
+        return bytes;
+    }
+
+    private static IntBuffer slice(IntBuffer ints, int offset, int length) {
+        IntBuffer dup = ints.duplicate();
+        dup.position(offset);
+        dup.limit(offset + length);
+        return dup.slice();
+    }
+}
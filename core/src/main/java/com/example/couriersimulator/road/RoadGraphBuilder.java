@@ -0,0 +1,192 @@
+package com.example.couriersimulator.road;
+
+import com.example.couriersimulator.geo.GeoMath;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Сборка RoadGraph из узлов и отрезков дорог (разбор выгрузки OSM — OsmRoadReader).
+ * При сборке:
+ * - остаётся только самая большая связная часть: до узлов с островков
+ *   (парковки, дворы без въезда в выгрузке) маршрута всё равно нет
+ * - узлы перенумеровываются по ячейкам сетки индекса
+ * - рёбра раскладываются в CSR, длины — в дециметрах
+ * Работает на обычной JVM при подготовке файла графа, в приложении не используется.
+ */
+public class RoadGraphBuilder {
+
+    /** Размер ячейки индекса по умолчанию, градусы (~550 м по широте) */
+    public static final double DEFAULT_CELL_DEG = 0.005;
+
+    private int nodeCount;
+    private int[] lat = new int[1024];
+    private int[] lng = new int[1024];
+    // Направленные рёбра: откуда, куда, длина в дециметрах
+    private int edgeCount;
+    private int[] from = new int[1024];
+    private int[] to = new int[1024];
+    private int[] length = new int[1024];
+
+    /** @return номер узла для addSegment */
+    public int addNode(double lat, double lng) {
+        if (nodeCount == this.lat.length) {
+            this.lat = Arrays.copyOf(this.lat, nodeCount * 2);
+            this.lng = Arrays.copyOf(this.lng, nodeCount * 2);
+        }
+        this.lat[nodeCount] = (int) Math.round(lat * RoadGraph.E7);
+        this.lng[nodeCount] = (int) Math.round(lng * RoadGraph.E7);
+        return nodeCount++;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /** Отрезок дороги между узлами a и b; oneway — проезд только от a к b */
+    public void addSegment(int a, int b, boolean oneway) {
+        if (a == b) {
+            return;
+        }
+        double meters = GeoMath.distanceMeters(lat[a] / RoadGraph.E7, lng[a] / RoadGraph.E7,
+                lat[b] / RoadGraph.E7, lng[b] / RoadGraph.E7);
+        int dm = Math.max(1, (int) Math.round(meters * 10));
+        addEdge(a, b, dm);
+        if (!oneway) {
+            addEdge(b, a, dm);
+        }
+    }
+
+    public RoadGraph build() {
+        return build(DEFAULT_CELL_DEG);
+    }
+
+    public RoadGraph build(double cellDeg) {
+        boolean[] keep = largestComponent();
+        int minLat = Integer.MAX_VALUE;
+        int minLng = Integer.MAX_VALUE;
+        int maxLat = Integer.MIN_VALUE;
+        int maxLng = Integer.MIN_VALUE;
+        int kept = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            if (keep[i]) {
+                kept++;
+                minLat = Math.min(minLat, lat[i]);
+                minLng = Math.min(minLng, lng[i]);
+                maxLat = Math.max(maxLat, lat[i]);
+                maxLng = Math.max(maxLng, lng[i]);
+            }
+        }
+        if (kept == 0) {
+            minLat = minLng = maxLat = maxLng = 0;
+        }
+        int cellE7 = Math.max(1, (int) Math.round(cellDeg * RoadGraph.E7));
+        int cols = (maxLng - minLng) / cellE7 + 1;
+        int rows = (maxLat - minLat) / cellE7 + 1;
+
+        // Подсчётом по ячейкам: новые номера узлов идут ячейка за ячейкой
+        int[] cellStart = new int[cols * rows + 1];
+        int[] cellOf = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            if (keep[i]) {
+                int cell = (lat[i] - minLat) / cellE7 * cols + (lng[i] - minLng) / cellE7;
+                cellOf[i] = cell;
+                cellStart[cell + 1]++;
+            }
+        }
+        for (int c = 0; c < cols * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] fill = Arrays.copyOf(cellStart, cols * rows);
+        int[] newId = new int[nodeCount];
+        int[] nodeLat = new int[kept];
+        int[] nodeLng = new int[kept];
+        for (int i = 0; i < nodeCount; i++) {
+            if (keep[i]) {
+                int id = fill[cellOf[i]]++;
+                newId[i] = id;
+                nodeLat[id] = lat[i];
+                nodeLng[id] = lng[i];
+            } else {
+                newId[i] = -1;
+            }
+        }
+
+        int[] firstEdge = new int[kept + 1];
+        int edges = 0;
+        for (int e = 0; e < edgeCount; e++) {
+            if (keep[from[e]]) {
+                firstEdge[newId[from[e]] + 1]++;
+                edges++;
+            }
+        }
+        for (int u = 0; u < kept; u++) {
+            firstEdge[u + 1] += firstEdge[u];
+        }
+        int[] next = Arrays.copyOf(firstEdge, kept);
+        int[] edgeTarget = new int[edges];
+        int[] edgeLength = new int[edges];
+        for (int e = 0; e < edgeCount; e++) {
+            if (keep[from[e]]) {
+                int slot = next[newId[from[e]]]++;
+                edgeTarget[slot] = newId[to[e]];
+                edgeLength[slot] = length[e];
+            }
+        }
+        try {
+            return RoadGraph.wrap(RoadGraph.encode(kept, edges, minLat, minLng, cellE7, cols, rows,
+                    firstEdge, edgeTarget, edgeLength, nodeLat, nodeLng, cellStart));
+        } catch (IOException e) {
+            throw new IllegalStateException("Encoded road graph is unreadable", e);
+        }
+    }
+
+    private void addEdge(int a, int b, int dm) {
+        if (edgeCount == from.length) {
+            from = Arrays.copyOf(from, edgeCount * 2);
+            to = Arrays.copyOf(to, edgeCount * 2);
+            length = Arrays.copyOf(length, edgeCount * 2);
+        }
+        from[edgeCount] = a;
+        to[edgeCount] = b;
+        length[edgeCount] = dm;
+        edgeCount++;
+    }
+
+    // Связность без учёта направлений (система непересекающихся множеств)
+    private boolean[] largestComponent() {
+        int[] parent = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            parent[i] = i;
+        }
+        for (int e = 0; e < edgeCount; e++) {
+            int a = find(parent, from[e]);
+            int b = find(parent, to[e]);
+            if (a != b) {
+                parent[a] = b;
+            }
+        }
+        int[] size = new int[nodeCount];
+        int best = -1;
+        for (int i = 0; i < nodeCount; i++) {
+            int root = find(parent, i);
+            if (++size[root] > (best < 0 ? 0 : size[best])) {
+                best = root;
+            }
+        }
+        boolean[] keep = new boolean[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            // Узел без единого отрезка — не дорога
+            keep[i] = find(parent, i) == best && size[best] > 1;
+        }
+        return keep;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.couriersimulator.road;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Подготовка файла дорожного графа для приложения из выгрузки OSM:
+ * ./gradlew :core:buildRoadGraph --args="--osm moscow-center.osm --out app/src/main/assets/roads.rgr"
+ * Выгрузку района можно взять, например, через Overpass API или osmium extract (в формате .osm).
+ * Аргументы: --osm файл, --out файл, --cell размер ячейки индекса в градусах.
+ */
+public final class RoadGraphTool {
+
+    private RoadGraphTool() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        File osm = null;
+        File out = null;
+        double cellDeg = RoadGraphBuilder.DEFAULT_CELL_DEG;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--osm":
+                    osm = new File(value);
+                    break;
+                case "--out":
+                    out = new File(value);
+                    break;
+                case "--cell":
+                    cellDeg = Double.parseDouble(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (osm == null || out == null) {
+            throw new IllegalArgumentException("Usage: --osm <file.osm> --out <file.rgr> [--cell deg]");
+        }
+
+        long start = System.nanoTime();
+        RoadGraphBuilder builder = OsmRoadReader.read(osm);
+        int rawNodes = builder.getNodeCount();
+        RoadGraph graph = builder.build(cellDeg);
+        graph.writeTo(out);
+        System.out.printf("%s: %d road nodes, %d kept (largest component), %d edges, %.1f MB, %.1f s%n",
+                out, rawNodes, graph.getNodeCount(), graph.getEdgeCount(),
+                graph.getByteSize() / (1024.0 * 1024.0), (System.nanoTime() - start) / 1e9);
+    }
+}
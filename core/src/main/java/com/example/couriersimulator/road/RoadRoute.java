@@ -0,0 +1,73 @@
+package com.example.couriersimulator.road;
+
+import java.util.Arrays;
+
+/**
+ * Найденный маршрут: ломаная [lat, lng, ...] от точки старта через узлы графа до точки
+ * назначения и её длина. Объект переиспользуется между запросами (RoadRouter.route
+ * перезаписывает его), массив точек растёт только при более длинном маршруте.
+ */
+public final class RoadRoute {
+
+    private double[] latLng = new double[256];
+    private int pointCount;
+    private double meters;
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    public double getLat(int i) {
+        return latLng[i * 2];
+    }
+
+    public double getLng(int i) {
+        return latLng[i * 2 + 1];
+    }
+
+    /** Точки маршрута [lat, lng, ...]; действительны первые getPointCount() пар. Не копируется. */
+    public double[] getPoints() {
+        return latLng;
+    }
+
+    /** Длина маршрута, метры */
+    public double getMeters() {
+        return meters;
+    }
+
+    /** Время в пути при скорости speedMps, секунды */
+    public long etaSeconds(double speedMps) {
+        return Math.round(meters / speedMps);
+    }
+
+    /** Копия для передачи на другой поток */
+    public RoadRoute copy() {
+        RoadRoute c = new RoadRoute();
+        c.latLng = Arrays.copyOf(latLng, Math.max(2, pointCount * 2));
+        c.pointCount = pointCount;
+        c.meters = meters;
+        return c;
+    }
+
+    void reset(int points, double meters) {
+        if (latLng.length < points * 2) {
+            latLng = Arrays.copyOf(latLng, Math.max(points * 2, latLng.length * 2));
+        }
+        this.pointCount = points;
+        this.meters = meters;
+    }
+
+    /** Дописать отрезок маршрута; его первая точка совпадает с последней точкой этого маршрута */
+    void append(RoadRoute leg) {
+        int skip = pointCount > 0 ? 1 : 0;
+        int start = pointCount;
+        int added = leg.pointCount - skip;
+        reset(pointCount + added, meters + leg.meters);
+        System.arraycopy(leg.latLng, skip * 2, latLng, start * 2, added * 2);
+    }
+
+    void set(int i, double lat, double lng) {
+        latLng[i * 2] = lat;
+        latLng[i * 2 + 1] = lng;
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.couriersimulator.road;
+
+import com.example.couriersimulator.geo.GeoMath;
+import com.example.couriersimulator.orders.TravelDistance;
+
+import java.util.Arrays;
+
+/**
+ * Кратчайший путь по RoadGraph алгоритмом A*.
+ * - точки старта и назначения привязываются к ближайшим узлам графа (индекс-сетка графа)
+ * - эвристика — расстояние по прямой до цели, длины и ключи очереди — целые дециметры
+ * - рабочие массивы на узел (расстояние, предок, отметка) выделяются один раз,
+ *   между запросами не очищаются: узел считается нетронутым, пока его отметка
+ *   не совпадает с номером текущего запроса
+ * - очередь — двоичная куча long (ключ << 32 | узел) с ленивым удалением
+ * Запрос не аллоцирует (кроме роста кучи и RoadRoute на длинных маршрутах).
+ * Память: 12 байт на узел графа плюс куча.
+ * Не потокобезопасен: у каждого потока свой RoadRouter поверх общего RoadGraph.
+ */
+public class RoadRouter implements TravelDistance {
+
+    /** Дальше этого от дороги точка к графу не привязывается */
+    public static final double MAX_SNAP_METERS = 300;
+    // Эвристика чуть занижена: длины рёбер считались с косинусом своей широты, а она — с косинусом цели
+    private static final double HEURISTIC_SCALE = 0.99;
+
+    private final RoadGraph graph;
+    private final int[] dist;
+    private final int[] parent;
+    // 2 * query — узел в очереди, 2 * query + 1 — расстояние окончательное
+    private final int[] stamp;
+    private int query;
+    private long[] heap = new long[1024];
+    private int heapSize;
+    private int lastSettled;
+    // Отрезок маршрута для routeVia
+    private RoadRoute leg;
+
+    // Цель текущего запроса для эвристики, градусы × 1e7 и дециметры на единицу
+    private int targetLat;
+    private int targetLng;
+    private double dmPerLatE7;
+    private double dmPerLngE7;
+
+    public RoadRouter(RoadGraph graph) {
+        this.graph = graph;
+        int n = graph.getNodeCount();
+        this.dist = new int[n];
+        this.parent = new int[n];
+        this.stamp = new int[n];
+    }
+
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    /** Сколько узлов закрыл последний поиск (для метрик и проверок) */
+    public int getLastSettled() {
+        return lastSettled;
+    }
+
+    /** Ближайший к точке узел не дальше MAX_SNAP_METERS или -1 */
+    public int nearestNode(double lat, double lng) {
+        int cols = graph.getCols();
+        int rows = graph.getRows();
+        int row0 = graph.row(lat);
+        int col0 = graph.col(lng);
+        double mPerLng = GeoMath.metersPerDegreeLng(lat);
+        // Ячейка кольца k не ближе (k - 1) * cellMeters от точки
+        double cellMeters = graph.getCellDeg() * Math.min(GeoMath.METERS_PER_DEGREE_LAT, mPerLng);
+        int best = -1;
+        double bestSq = MAX_SNAP_METERS * MAX_SNAP_METERS;
+        for (int k = 0; (k - 1) * cellMeters <= Math.sqrt(bestSq); k++) {
+            for (int r = row0 - k; r <= row0 + k; r++) {
+                if (r < 0 || r >= rows) {
+                    continue;
+                }
+                // Внутренние строки кольца — только крайние столбцы
+                int step = (r == row0 - k || r == row0 + k) ? 1 : Math.max(1, 2 * k);
+                for (int c = col0 - k; c <= col0 + k; c += step) {
+                    if (c < 0 || c >= cols) {
+                        continue;
+                    }
+                    int cell = r * cols + c;
+                    int end = graph.cellStart(cell + 1);
+                    for (int u = graph.cellStart(cell); u < end; u++) {
+                        double dy = (graph.lat(u) - lat) * GeoMath.METERS_PER_DEGREE_LAT;
+                        double dx = (graph.lng(u) - lng) * mPerLng;
+                        double d = dx * dx + dy * dy;
+                        if (d < bestSq) {
+                            bestSq = d;
+                            best = u;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Маршрут между точками по дорогам.
+     *
+     * @return false, если точка дальше MAX_SNAP_METERS от дорог или пути нет; out тогда не меняется
+     */
+    public boolean route(double fromLat, double fromLng, double toLat, double toLng, RoadRoute out) {
+        int source = nearestNode(fromLat, fromLng);
+        int target = source < 0 ? -1 : nearestNode(toLat, toLng);
+        if (target < 0) {
+            return false;
+        }
+        int dm = search(source, target);
+        if (dm < 0) {
+            return false;
+        }
+        int nodes = 1;
+        for (int u = target; u != source; u = parent[u]) {
+            nodes++;
+        }
+        double meters = dm / 10.0
+                + GeoMath.distanceMeters(fromLat, fromLng, graph.lat(source), graph.lng(source))
+                + GeoMath.distanceMeters(graph.lat(target), graph.lng(target), toLat, toLng);
+        out.reset(nodes + 2, meters);
+        out.set(0, fromLat, fromLng);
+        out.set(nodes + 1, toLat, toLng);
+        int i = nodes;
+        for (int u = target; ; u = parent[u]) {
+            out.set(i--, graph.lat(u), graph.lng(u));
+            if (u == source) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Маршрут через точки [lat, lng, ...] по порядку (курьер и точки доставки).
+     * Отрезок, который не проложить по дорогам, идёт по прямой.
+     *
+     * @param legMeters если не null — длина маршрута от начала до каждой точки, начиная со второй
+     * @return true, если все отрезки проложены по дорогам
+     */
+    public boolean routeVia(double[] latLng, int count, RoadRoute out, double[] legMeters) {
+        if (leg == null) {
+            leg = new RoadRoute();
+        }
+        boolean onRoads = true;
+        out.reset(0, 0);
+        for (int i = 1; i < count; i++) {
+            double fromLat = latLng[(i - 1) * 2];
+            double fromLng = latLng[(i - 1) * 2 + 1];
+            double toLat = latLng[i * 2];
+            double toLng = latLng[i * 2 + 1];
+            if (!route(fromLat, fromLng, toLat, toLng, leg)) {
+                onRoads = false;
+                leg.reset(2, GeoMath.distanceMeters(fromLat, fromLng, toLat, toLng));
+                leg.set(0, fromLat, fromLng);
+                leg.set(1, toLat, toLng);
+            }
+            out.append(leg);
+            if (legMeters != null) {
+                legMeters[i - 1] = out.getMeters();
+            }
+        }
+        return onRoads;
+    }
+
+    /** Длина пути по дорогам; если маршрута нет — по прямой */
+    @Override
+    public double meters(double fromLat, double fromLng, double toLat, double toLng) {
+        int source = nearestNode(fromLat, fromLng);
+        int target = source < 0 ? -1 : nearestNode(toLat, toLng);
+        int dm = target < 0 ? -1 : search(source, target);
+        if (dm < 0) {
+            return GeoMath.distanceMeters(fromLat, fromLng, toLat, toLng);
+        }
+        return dm / 10.0
+                + GeoMath.distanceMeters(fromLat, fromLng, graph.lat(source), graph.lng(source))
+                + GeoMath.distanceMeters(graph.lat(target), graph.lng(target), toLat, toLng);
+    }
+
+    /**
+     * Длина кратчайшего пути между узлами, дециметры, или -1, если пути нет.
+     * После успешного поиска parent ведёт от target к source.
+     */
+    int search(int source, int target) {
+        nextQuery();
+        int open = 2 * query;
+        int closed = open + 1;
+        targetLat = graph.latE7(target);
+        targetLng = graph.lngE7(target);
+        dmPerLatE7 = GeoMath.METERS_PER_DEGREE_LAT / RoadGraph.E7 * 10 * HEURISTIC_SCALE;
+        dmPerLngE7 = GeoMath.metersPerDegreeLng(targetLat / RoadGraph.E7) / RoadGraph.E7 * 10 * HEURISTIC_SCALE;
+
+        heapSize = 0;
+        lastSettled = 0;
+        dist[source] = 0;
+        parent[source] = source;
+        stamp[source] = open;
+        push(heuristic(source), source);
+        while (heapSize > 0) {
+            long top = pop();
+            int u = (int) top;
+            if (stamp[u] == closed) {
+                continue; // Устаревшая запись: узел уже закрыт с меньшим ключом
+            }
+            stamp[u] = closed;
+            lastSettled++;
+            if (u == target) {
+                return dist[u];
+            }
+            int du = dist[u];
+            int end = graph.endEdge(u);
+            for (int e = graph.firstEdge(u); e < end; e++) {
+                int v = graph.edgeTarget(e);
+                int s = stamp[v];
+                if (s == closed) {
+                    continue;
+                }
+                int dv = du + graph.edgeLength(e);
+                if (s != open || dv < dist[v]) {
+                    dist[v] = dv;
+                    parent[v] = u;
+                    stamp[v] = open;
+                    push(dv + heuristic(v), v);
+                }
+            }
+        }
+        return -1;
+    }
+
+    private int heuristic(int node) {
+        double dy = (graph.latE7(node) - targetLat) * dmPerLatE7;
+        double dx = (graph.lngE7(node) - targetLng) * dmPerLngE7;
+        return (int) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private void nextQuery() {
+        if (query >= Integer.MAX_VALUE / 2 - 1) {
+            Arrays.fill(stamp, 0);
+            query = 0;
+        }
+        query++;
+    }
+
+    private void push(int key, int node) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+        }
+        long entry = ((long) key << 32) | node;
+        int i = heapSize++;
+        while (i > 0) {
+            int p = (i - 1) >>> 1;
+            if (heap[p] <= entry) {
+                break;
+            }
+            heap[i] = heap[p];
+            i = p;
+        }
+        heap[i] = entry;
+    }
+
+    private long pop() {
+        long top = heap[0];
+        long last = heap[--heapSize];
+        int i = 0;
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (last <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.couriersimulator.road;
+
+import com.example.couriersimulator.geo.GeoMath;
+
+import java.util.Random;
+
+/**
+ * Синтетическая дорожная сеть для проверок и бенчмарков без выгрузки OSM:
+ * кривоватая сетка кварталов side × side с пропусками улиц, односторонними
+ * улицами и редкими диагоналями — по размеру и форме как сеть района города.
+ */
+public final class SyntheticRoads {
+
+    // Доля выброшенных отрезков, односторонних отрезков и кварталов с диагональю
+    private static final double DROP_RATE = 0.08;
+    private static final double ONEWAY_RATE = 0.10;
+    private static final double DIAGONAL_RATE = 0.05;
+
+    private SyntheticRoads() {
+    }
+
+    /**
+     * @param side          узлов по стороне сетки (всего side²)
+     * @param spacingMeters расстояние между соседними перекрёстками
+     */
+    public static RoadGraphBuilder city(double centerLat, double centerLng, int side, double spacingMeters,
+                                        long seed) {
+        Random random = new Random(seed);
+        RoadGraphBuilder builder = new RoadGraphBuilder();
+        double dLat = spacingMeters / GeoMath.METERS_PER_DEGREE_LAT;
+        double dLng = spacingMeters / GeoMath.metersPerDegreeLng(centerLat);
+        double lat0 = centerLat - dLat * (side - 1) / 2;
+        double lng0 = centerLng - dLng * (side - 1) / 2;
+        // Узел (r, c) получает номер r * side + c
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                double jitterLat = (random.nextDouble() - 0.5) * dLat * 0.3;
+                double jitterLng = (random.nextDouble() - 0.5) * dLng * 0.3;
+                builder.addNode(lat0 + r * dLat + jitterLat, lng0 + c * dLng + jitterLng);
+            }
+        }
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                int u = r * side + c;
+                if (c + 1 < side) {
+                    street(builder, random, u, u + 1);
+                }
+                if (r + 1 < side) {
+                    street(builder, random, u, u + side);
+                }
+                if (r + 1 < side && c + 1 < side && random.nextDouble() < DIAGONAL_RATE) {
+                    builder.addSegment(u, u + side + 1, false);
+                }
+            }
+        }
+        return builder;
+    }
+
+    private static void street(RoadGraphBuilder builder, Random random, int a, int b) {
+        if (random.nextDouble() < DROP_RATE) {
+            return;
+        }
+        if (random.nextDouble() < ONEWAY_RATE) {
+            if (random.nextBoolean()) {
+                builder.addSegment(a, b, true);
+            } else {
+                builder.addSegment(b, a, true);
+            }
+        } else {
+            builder.addSegment(a, b, false);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.example.couriersimulator.route;
+
+import com.example.couriersimulator.geo.GeoMath;
+
+import java.util.Arrays;
+
+/**
+ * Порядок объезда нескольких точек доставки (открытый маршрут от курьера, без возврата).
+ *
+ * Расстояния между всеми точками считаются один раз при добавлении точки и хранятся
+ * в плоской матрице; дальше эвристики работают только с ней:
+ * - optimize: ближайший сосед с нуля, затем локальный поиск
+ * - add: вставка в самое дешёвое место, затем локальный поиск от готового маршрута
+ * - remove: точка вырезается, соседи сшиваются, затем локальный поиск
+ * Локальный поиск — 2-opt (разворот отрезка) и Or-opt (перенос отрезка из 1–3 точек,
+ * в том числе задом наперёд) до тех пор, пока есть улучшение. От почти готового
+ * маршрута он сходится за один-два прохода, поэтому add и remove дешевле, чем optimize.
+ *
+ * Узел 0 матрицы — начало маршрута (положение курьера), узлы 1..size — точки.
+ * Не потокобезопасен.
+ */
+public class RoutePlanner {
+
+    /** Самый длинный отрезок, который переносит Or-opt */
+    static final int MAX_SEGMENT = 3;
+    // Улучшения меньше миллиметра не засчитываются: иначе погрешность округления может зациклить поиск
+    private static final double EPS = 1e-3;
+    // Предел проходов локального поиска на одно изменение маршрута
+    private static final int MAX_PASSES = 64;
+
+    // Ширина строки матрицы = ёмкость + 1 (узел начала)
+    private int cap;
+    private double[] dist;
+    private double[] lats;
+    private double[] lngs;
+    private long[] ids;
+    // Узлы точек в порядке объезда
+    private int[] tour;
+    private int size;
+    private final int[] segment = new int[MAX_SEGMENT];
+
+    public RoutePlanner() {
+        this(8);
+    }
+
+    /** @param capacity ожидаемое число точек (при необходимости растёт) */
+    public RoutePlanner(int capacity) {
+        allocate(Math.max(2, capacity + 1));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /** Новое начало маршрута (положение курьера); порядок сам по себе не меняется */
+    public void setStart(double lat, double lng) {
+        lats[0] = lat;
+        lngs[0] = lng;
+        for (int node = 1; node <= size; node++) {
+            double d = distance(0, node);
+            dist[node] = d;
+            dist[node * cap] = d;
+        }
+    }
+
+    /** id точки на позиции position маршрута (0 — ехать первой) */
+    public long getStopId(int position) {
+        return ids[tour[position]];
+    }
+
+    /** Позиция точки в маршруте или -1 */
+    public int indexOf(long id) {
+        for (int p = 0; p < size; p++) {
+            if (ids[tour[p]] == id) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    /** Длина маршрута от начала через все точки, метры */
+    public double getLengthMeters() {
+        double length = 0;
+        int prev = 0;
+        for (int p = 0; p < size; p++) {
+            length += dist[prev * cap + tour[p]];
+            prev = tour[p];
+        }
+        return length;
+    }
+
+    /**
+     * Добавить точку и доулучшить маршрут.
+     *
+     * @return позиция новой точки в итоговом маршруте
+     */
+    public int add(long id, double lat, double lng) {
+        if (size + 1 == cap) {
+            grow();
+        }
+        int node = ++size;
+        ids[node] = id;
+        lats[node] = lat;
+        lngs[node] = lng;
+        int row = node * cap;
+        for (int j = 0; j < node; j++) {
+            double d = distance(j, node);
+            dist[row + j] = d;
+            dist[j * cap + node] = d;
+        }
+        dist[row + node] = 0;
+
+        // Самая дешёвая вставка среди size - 1 уже упорядоченных точек
+        int n = size - 1;
+        int bestPos = n;
+        double bestCost = Double.MAX_VALUE;
+        int prev = 0;
+        for (int p = 0; p <= n; p++) {
+            double cost = dist[prev * cap + node];
+            if (p < n) {
+                int next = tour[p];
+                cost += dist[row + next] - dist[prev * cap + next];
+                prev = next;
+            }
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestPos = p;
+            }
+        }
+        System.arraycopy(tour, bestPos, tour, bestPos + 1, n - bestPos);
+        tour[bestPos] = node;
+        improve();
+        return indexOf(id);
+    }
+
+    /**
+     * Убрать точку (доставлена или отменена) и доулучшить маршрут.
+     *
+     * @return true, если точка была в маршруте
+     */
+    public boolean remove(long id) {
+        int pos = indexOf(id);
+        if (pos < 0) {
+            return false;
+        }
+        int node = tour[pos];
+        System.arraycopy(tour, pos + 1, tour, pos, size - pos - 1);
+        // Последний узел переезжает на место удалённого, чтобы узлы оставались 1..size
+        int last = size;
+        if (node != last) {
+            int row = node * cap;
+            int lastRow = last * cap;
+            for (int j = 0; j < last; j++) {
+                dist[row + j] = dist[lastRow + j];
+                dist[j * cap + node] = dist[j * cap + last];
+            }
+            dist[row + node] = 0;
+            ids[node] = ids[last];
+            lats[node] = lats[last];
+            lngs[node] = lngs[last];
+            for (int p = 0; p < size - 1; p++) {
+                if (tour[p] == last) {
+                    tour[p] = node;
+                    break;
+                }
+            }
+        }
+        size--;
+        improve();
+        return true;
+    }
+
+    /** Построить маршрут заново: ближайший сосед от начала, затем локальный поиск */
+    public void optimize() {
+        if (size == 0) {
+            return;
+        }
+        // tour используется как список ещё не посещённых узлов после позиции p
+        for (int p = 0; p < size; p++) {
+            tour[p] = p + 1;
+        }
+        int prev = 0;
+        for (int p = 0; p < size; p++) {
+            int best = p;
+            double bestD = Double.MAX_VALUE;
+            int row = prev * cap;
+            for (int q = p; q < size; q++) {
+                double d = dist[row + tour[q]];
+                if (d < bestD) {
+                    bestD = d;
+                    best = q;
+                }
+            }
+            int t = tour[p];
+            tour[p] = tour[best];
+            tour[best] = t;
+            prev = tour[p];
+        }
+        improve();
+    }
+
+    /**
+     * Локальный поиск 2-opt + Or-opt до отсутствия улучшений.
+     *
+     * @return сколько улучшающих перестановок сделано
+     */
+    public int improve() {
+        int moves = 0;
+        for (int pass = 0; pass < MAX_PASSES; pass++) {
+            int found = twoOpt() + orOpt();
+            if (found == 0) {
+                break;
+            }
+            moves += found;
+        }
+        return moves;
+    }
+
+    /** Расстояние между узлами матрицы (0 — начало, 1..size — точки) */
+    double nodeDistance(int from, int to) {
+        return dist[from * cap + to];
+    }
+
+    // Развернуть отрезок tour[i..j], если после этого маршрут короче
+    private int twoOpt() {
+        int moves = 0;
+        int n = size;
+        for (int i = 0; i < n - 1; i++) {
+            int a = i == 0 ? 0 : tour[i - 1];
+            int aRow = a * cap;
+            for (int j = i + 1; j < n; j++) {
+                int b = tour[i];
+                int e = tour[j];
+                double delta = dist[aRow + e] - dist[aRow + b];
+                if (j + 1 < n) {
+                    int f = tour[j + 1];
+                    delta += dist[b * cap + f] - dist[e * cap + f];
+                }
+                if (delta < -EPS) {
+                    reverse(i, j);
+                    moves++;
+                }
+            }
+        }
+        return moves;
+    }
+
+    // Перенести отрезок из 1..MAX_SEGMENT точек в другое место маршрута (как есть или развёрнутым)
+    private int orOpt() {
+        int moves = 0;
+        int n = size;
+        for (int len = 1; len <= MAX_SEGMENT && len < n; len++) {
+            for (int i = 0; i + len <= n; i++) {
+                int j = i + len - 1;
+                int p = i == 0 ? 0 : tour[i - 1];
+                int s0 = tour[i];
+                int s1 = tour[j];
+                int next = j + 1 < n ? tour[j + 1] : -1;
+                // Сколько экономит вырезание отрезка
+                double gain = dist[p * cap + s0];
+                if (next >= 0) {
+                    gain += dist[s1 * cap + next] - dist[p * cap + next];
+                }
+                // Вставка перед позицией k (k == n — в конец); k = i и k = j + 1 — то же место
+                for (int k = 0; k <= n; k++) {
+                    if (k >= i && k <= j + 1) {
+                        continue;
+                    }
+                    int x = k == 0 ? 0 : tour[k - 1];
+                    int xRow = x * cap;
+                    double forward = dist[xRow + s0];
+                    double reversed = dist[xRow + s1];
+                    if (k < n) {
+                        int y = tour[k];
+                        double cut = dist[xRow + y];
+                        forward += dist[s1 * cap + y] - cut;
+                        reversed += dist[s0 * cap + y] - cut;
+                    }
+                    boolean reverse = reversed < forward;
+                    if (Math.min(forward, reversed) - gain < -EPS) {
+                        moveSegment(i, len, k, reverse);
+                        moves++;
+                        break;
+                    }
+                }
+            }
+        }
+        return moves;
+    }
+
+    private void reverse(int i, int j) {
+        while (i < j) {
+            int t = tour[i];
+            tour[i++] = tour[j];
+            tour[j--] = t;
+        }
+    }
+
+    // Переставить tour[i..i+len-1] перед позицией k исходного маршрута
+    private void moveSegment(int i, int len, int k, boolean reversed) {
+        System.arraycopy(tour, i, segment, 0, len);
+        if (k > i) {
+            System.arraycopy(tour, i + len, tour, i, k - i - len);
+            k -= len;
+        } else {
+            System.arraycopy(tour, k, tour, k + len, i - k);
+        }
+        for (int s = 0; s < len; s++) {
+            tour[k + s] = segment[reversed ? len - 1 - s : s];
+        }
+    }
+
+    private double distance(int a, int b) {
+        return GeoMath.distanceMeters(lats[a], lngs[a], lats[b], lngs[b]);
+    }
+
+    private void allocate(int newCap) {
+        double[] old = dist;
+        int oldCap = cap;
+        cap = newCap;
+        dist = new double[newCap * newCap];
+        if (old != null) {
+            for (int r = 0; r <= size; r++) {
+                System.arraycopy(old, r * oldCap, dist, r * newCap, size + 1);
+            }
+        }
+        lats = lats == null ? new double[newCap] : Arrays.copyOf(lats, newCap);
+        lngs = lngs == null ? new double[newCap] : Arrays.copyOf(lngs, newCap);
+        ids = ids == null ? new long[newCap] : Arrays.copyOf(ids, newCap);
+        tour = tour == null ? new int[newCap] : Arrays.copyOf(tour, newCap);
+    }
+
+    private void grow() {
+        allocate(cap * 2);
+    }
+}
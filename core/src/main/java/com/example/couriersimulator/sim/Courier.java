@@ -0,0 +1,230 @@
+package com.example.couriersimulator.sim;
+
+import com.example.couriersimulator.geo.GeoMath;
+import com.example.couriersimulator.loot.LootState;
+import com.example.couriersimulator.orders.Order;
+import com.example.couriersimulator.route.RoutePlanner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Курьер в симуляции.
+ * Виртуальный курьер (autopilot) сам ищет заказы и едет к ним;
+ * курьер игрока двигается только по внешним координатам (GPS).
+ * Курьер игрока может везти несколько заказов сразу (SimConfig.maxBatchSize):
+ * текущий заказ — первая точка маршрута, остальные ждут в порядке объезда.
+ */
+public final class Courier {
+
+    /** Этап работы курьера */
+    public enum Phase {
+        IDLE,        // нет заказа
+        TO_PICKUP,   // едет забирать заказ
+        TO_DROPOFF   // везёт заказ получателю
+    }
+
+    private final int id;
+    private final boolean autopilot;
+    private double lat;
+    private double lng;
+    private Phase phase = Phase.IDLE;
+    private Order order;
+    // Собранные карточки по порядковому номеру
+    private final BitSet ownedCards = new BitSet();
+    // Гарантии выпадения и таблицы несобранных карточек
+    private final LootState loot = new LootState();
+    private int deliveries;
+    private long earnings;
+    // Последняя завершённая поездка: от принятия заказа до доставки
+    private long tripStartMillis;
+    private double tripMeters;
+    // Принятые и не доставленные заказы (текущий тоже); у каждого своя поездка с момента принятия
+    private final ArrayList<Order> held = new ArrayList<>();
+    private long[] heldSince = new long[4];
+    private double[] heldMeters = new double[4];
+    // Порядок объезда, пока заказов больше одного
+    private final RoutePlanner route = new RoutePlanner(4);
+
+    Courier(int id, double lat, double lng, boolean autopilot) {
+        this.id = id;
+        this.lat = lat;
+        this.lng = lng;
+        this.autopilot = autopilot;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public boolean isAutopilot() {
+        return autopilot;
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public double getLng() {
+        return lng;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /** Текущий заказ (первая точка маршрута) или null */
+    public Order getOrder() {
+        return order;
+    }
+
+    /** Сколько заказов курьер везёт сейчас (вместе с текущим) */
+    public int getHeldCount() {
+        return held.size();
+    }
+
+    /** Заказ на позиции position маршрута (0 — текущий) */
+    public Order getRouteOrder(int position) {
+        if (route.size() == 0) {
+            if (position != 0 || order == null) {
+                throw new IndexOutOfBoundsException("position " + position);
+            }
+            return order;
+        }
+        return find(route.getStopId(position));
+    }
+
+    /** Длина маршрута от курьера через все точки доставки, метры */
+    public double getRouteMeters() {
+        if (route.size() > 0) {
+            return route.getLengthMeters();
+        }
+        return order == null ? 0
+                : GeoMath.distanceMeters(lat, lng, order.getDropoffLat(), order.getDropoffLng());
+    }
+
+    public boolean isOwned(int cardOrdinal) {
+        return ownedCards.get(cardOrdinal);
+    }
+
+    public LootState getLootState() {
+        return loot;
+    }
+
+    public int getDeliveries() {
+        return deliveries;
+    }
+
+    public long getEarnings() {
+        return earnings;
+    }
+
+    /** Когда был принят последний доставленный заказ */
+    public long getTripStartMillis() {
+        return tripStartMillis;
+    }
+
+    /** Сколько метров курьер проехал от принятия до доставки последнего доставленного заказа */
+    public double getTripMeters() {
+        return tripMeters;
+    }
+
+    void moveTo(double lat, double lng) {
+        int n = held.size();
+        if (n > 0) {
+            double step = GeoMath.distanceMeters(this.lat, this.lng, lat, lng);
+            for (int i = 0; i < n; i++) {
+                heldMeters[i] += step;
+            }
+        }
+        this.lat = lat;
+        this.lng = lng;
+    }
+
+    /** Единственный заказ курьера: всё, что он вёз, сбрасывается */
+    void assign(Order order, Phase phase, long nowMillis) {
+        held.clear();
+        route.clear();
+        hold(order, nowMillis);
+        this.order = order;
+        this.phase = phase;
+    }
+
+    /**
+     * Добавить заказ к уже принятым и перестроить порядок объезда.
+     * Текущим становится первая точка нового маршрута.
+     */
+    void addToBatch(Order order, long nowMillis) {
+        if (route.size() == 0) {
+            // Второй заказ: текущий тоже становится точкой маршрута
+            route.setStart(lat, lng);
+            route.add(this.order.getId(), this.order.getDropoffLat(), this.order.getDropoffLng());
+        }
+        hold(order, nowMillis);
+        route.setStart(lat, lng);
+        route.add(order.getId(), order.getDropoffLat(), order.getDropoffLng());
+        this.order = find(route.getStopId(0));
+        this.phase = Phase.TO_DROPOFF;
+    }
+
+    /** Сделать текущим другой принятый заказ (курьер оказался у его точки раньше) */
+    void switchTo(Order order) {
+        this.order = order;
+    }
+
+    void setPhase(Phase phase) {
+        this.phase = phase;
+    }
+
+    BitSet ownedCards() {
+        return ownedCards;
+    }
+
+    /**
+     * Текущий заказ доставлен. Если курьер вёз ещё заказы, маршрут доулучшается
+     * от текущего положения и текущим становится его первая точка.
+     */
+    void completeDelivery() {
+        deliveries++;
+        earnings += order.getReward();
+        int i = held.indexOf(order);
+        tripStartMillis = heldSince[i];
+        tripMeters = heldMeters[i];
+        held.remove(i);
+        System.arraycopy(heldSince, i + 1, heldSince, i, held.size() - i);
+        System.arraycopy(heldMeters, i + 1, heldMeters, i, held.size() - i);
+        if (route.size() > 0) {
+            route.remove(order.getId());
+        }
+        if (held.isEmpty()) {
+            order = null;
+            phase = Phase.IDLE;
+        } else {
+            route.setStart(lat, lng);
+            route.improve();
+            order = find(route.getStopId(0));
+        }
+    }
+
+    private void hold(Order order, long nowMillis) {
+        int n = held.size();
+        if (n == heldSince.length) {
+            heldSince = Arrays.copyOf(heldSince, n * 2);
+            heldMeters = Arrays.copyOf(heldMeters, n * 2);
+        }
+        held.add(order);
+        heldSince[n] = nowMillis;
+        heldMeters[n] = 0;
+    }
+
+    private Order find(long orderId) {
+        for (int i = 0; i < held.size(); i++) {
+            Order o = held.get(i);
+            if (o.getId() == orderId) {
+                return o;
+            }
+        }
+        throw new IllegalStateException("Order " + orderId + " is not held by courier " + id);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.couriersimulator.sim;
+
+/**
+ * Цикл с фиксированным шагом: переводит реальное (или любое внешнее) время
+ * в целое число тиков симуляции. Остаток меньше одного шага копится до следующего вызова.
+ * Если отставание слишком большое (приложение было свёрнуто), лишнее время
+ * пропускается через Simulation.skip, а не догоняется тиками.
+ */
+public final class FixedStepLoop {
+
+    private final Simulation simulation;
+    private final long tickMillis;
+    private final int maxTicksPerAdvance;
+    private long lastMillis = Long.MIN_VALUE;
+    private long accumulator;
+
+    public FixedStepLoop(Simulation simulation, int maxTicksPerAdvance) {
+        this.simulation = simulation;
+        this.tickMillis = simulation.getConfig().getTickMillis();
+        this.maxTicksPerAdvance = maxTicksPerAdvance;
+    }
+
+    /**
+     * Продвинуть симуляцию до момента nowMillis.
+     *
+     * @return сколько тиков выполнено
+     */
+    public int advanceTo(long nowMillis) {
+        if (lastMillis == Long.MIN_VALUE || nowMillis < lastMillis) {
+            lastMillis = nowMillis;
+            return 0;
+        }
+        accumulator += nowMillis - lastMillis;
+        lastMillis = nowMillis;
+
+        int steps = 0;
+        while (accumulator >= tickMillis && steps < maxTicksPerAdvance) {
+            simulation.tick();
+            accumulator -= tickMillis;
+            steps++;
+        }
+        if (accumulator >= tickMillis) {
+            long skipped = accumulator - accumulator % tickMillis;
+            simulation.skip(skipped);
+            accumulator -= skipped;
+        }
+        return steps;
+    }
+}
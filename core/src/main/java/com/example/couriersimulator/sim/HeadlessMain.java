@@ -0,0 +1,106 @@
+package com.example.couriersimulator.sim;
+
+import com.example.couriersimulator.orders.DemandHeatmap;
+import com.example.couriersimulator.orders.SpawnScheduler;
+
+import java.util.Random;
+
+/**
+ * Нагрузочный прогон симуляции на обычной JVM, без устройства.
+ * Аргументы: --couriers N --ticks N --orders N --cards N --seed N --demand N
+ * С --demand заказы появляются по синтетической карте спроса (N — заказов в час в пик)
+ * и исчезают по сроку, вместо поддержания --orders открытых заказов.
+ * В конце печатает скорость (тиков и курьеро-тиков в секунду) и контрольную сумму
+ * состояния: при одинаковых аргументах она одинакова на любом запуске.
+ */
+public final class HeadlessMain {
+
+    private HeadlessMain() {
+    }
+
+    public static void main(String[] args) {
+        int couriers = 1000;
+        long ticks = 10_000;
+        int orders = 20_000;
+        int cards = 100;
+        long seed = 42L;
+        double demand = 0;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--couriers":
+                    couriers = Integer.parseInt(value);
+                    break;
+                case "--ticks":
+                    ticks = Long.parseLong(value);
+                    break;
+                case "--orders":
+                    orders = Integer.parseInt(value);
+                    break;
+                case "--cards":
+                    cards = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--demand":
+                    demand = Double.parseDouble(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        SimConfig config = new SimConfig()
+                .setSeed(seed)
+                .setTargetOpenOrders(demand > 0 ? 0 : orders)
+                .setCardCatalogSize(cards);
+        Simulation sim = new Simulation(config);
+        if (demand > 0) {
+            DemandHeatmap heatmap = DemandHeatmap.synthetic(config.getOriginLat(), config.getOriginLng(),
+                    config.getAreaRadiusDeg(), 0.005, demand, seed);
+            SpawnScheduler spawner = new SpawnScheduler(heatmap, sim.getOrderGenerator(), seed,
+                    SpawnScheduler.DEFAULT_ORDER_TTL_MILLIS);
+            // Установившийся набор заказов появляется сразу
+            spawner.startAt(sim.getNowMillis() - spawner.getOrderTtlMillis());
+            sim.setSpawnScheduler(spawner);
+        }
+        Random placement = new Random(seed ^ 0x5DEECE66DL);
+        double r = config.getAreaRadiusDeg();
+        for (int i = 0; i < couriers; i++) {
+            sim.addCourier(
+                    config.getOriginLat() + (placement.nextDouble() - 0.5) * 2 * r,
+                    config.getOriginLng() + (placement.nextDouble() - 0.5) * 2 * r,
+                    true);
+        }
+
+        long start = System.nanoTime();
+        sim.runTicks(ticks);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("couriers=%d ticks=%d simulated=%.1f h%n",
+                couriers, ticks, ticks * config.getTickMillis() / 3_600_000.0);
+        System.out.printf("deliveries=%d awards=%d duplicates=%d openOrders=%d%n",
+                sim.getDeliveries(), sim.getAwards(), sim.getDuplicates(), sim.getOrderBook().size());
+        SpawnScheduler spawner = sim.getSpawnScheduler();
+        if (spawner != null) {
+            System.out.printf("spawned=%d expired=%d%n", spawner.getSpawnedCount(), spawner.getExpiredCount());
+        }
+        System.out.printf("%.0f ticks/s, %.0f courier-ticks/s%n",
+                ticks / seconds, ticks * (double) couriers / seconds);
+        System.out.printf("checksum=%016x%n", checksum(sim));
+    }
+
+    // Контрольная сумма положения и результатов всех курьеров
+    static long checksum(Simulation sim) {
+        long h = 1125899906842597L;
+        for (int i = 0; i < sim.getCourierCount(); i++) {
+            Courier c = sim.getCourier(i);
+            h = 31 * h + Double.doubleToLongBits(c.getLat());
+            h = 31 * h + Double.doubleToLongBits(c.getLng());
+            h = 31 * h + c.getDeliveries();
+            h = 31 * h + c.getEarnings();
+        }
+        return h;
+    }
+}
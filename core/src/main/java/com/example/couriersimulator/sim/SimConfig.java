@@ -0,0 +1,171 @@
+package com.example.couriersimulator.sim;
+
+/**
+ * Параметры симуляции. Значения по умолчанию совпадают с правилами игры в приложении.
+ * Сеттеры возвращают this, чтобы конфигурацию можно было собрать одной цепочкой.
+ */
+public class SimConfig {
+
+    private long seed = 1L;
+    // Фиксированный шаг симуляции, мс
+    private long tickMillis = 100;
+    // Время симуляции в момент нулевого тика (как System.currentTimeMillis())
+    private long startMillis = 0;
+    // Радиус, в котором заказ считается доставленным (и забранным)
+    private double deliveryRadiusMeters = 20;
+    // Скорость виртуальных курьеров, м/с
+    private double courierSpeedMps = 4.0;
+    // Радиус поиска заказа автопилотом
+    private double searchRadiusMeters = 3000;
+    // Шанс получить карточку за доставку и размер каталога карточек
+    private double awardChance = 0.4;
+    private int cardCatalogSize = 0;
+    // Гарантии: карточка на N-й доставке подряд без неё, редкая — на M-й карточке без редкой (0 — нет)
+    private int dropPity = 8;
+    private int rarePity = 10;
+    // Сколько заказов курьер игрока может везти сразу (1 — новый заказ заменяет текущий)
+    private int maxBatchSize = 1;
+    // Сколько открытых заказов поддерживать (0 — заказы появляются только через spawnOrders)
+    private int targetOpenOrders = 0;
+    // Центр и полуразмер (в градусах) района, где появляются заказы
+    private double originLat = 55.751244;
+    private double originLng = 37.618423;
+    private double areaRadiusDeg = 0.05;
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public SimConfig setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    public SimConfig setTickMillis(long tickMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        return this;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public SimConfig setStartMillis(long startMillis) {
+        this.startMillis = startMillis;
+        return this;
+    }
+
+    public double getDeliveryRadiusMeters() {
+        return deliveryRadiusMeters;
+    }
+
+    public SimConfig setDeliveryRadiusMeters(double deliveryRadiusMeters) {
+        this.deliveryRadiusMeters = deliveryRadiusMeters;
+        return this;
+    }
+
+    public double getCourierSpeedMps() {
+        return courierSpeedMps;
+    }
+
+    public SimConfig setCourierSpeedMps(double courierSpeedMps) {
+        this.courierSpeedMps = courierSpeedMps;
+        return this;
+    }
+
+    public double getSearchRadiusMeters() {
+        return searchRadiusMeters;
+    }
+
+    public SimConfig setSearchRadiusMeters(double searchRadiusMeters) {
+        this.searchRadiusMeters = searchRadiusMeters;
+        return this;
+    }
+
+    public double getAwardChance() {
+        return awardChance;
+    }
+
+    public SimConfig setAwardChance(double awardChance) {
+        this.awardChance = awardChance;
+        return this;
+    }
+
+    public int getCardCatalogSize() {
+        return cardCatalogSize;
+    }
+
+    public SimConfig setCardCatalogSize(int cardCatalogSize) {
+        this.cardCatalogSize = cardCatalogSize;
+        return this;
+    }
+
+    public int getDropPity() {
+        return dropPity;
+    }
+
+    public SimConfig setDropPity(int dropPity) {
+        this.dropPity = dropPity;
+        return this;
+    }
+
+    public int getRarePity() {
+        return rarePity;
+    }
+
+    public SimConfig setRarePity(int rarePity) {
+        this.rarePity = rarePity;
+        return this;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public SimConfig setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+        }
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    public int getTargetOpenOrders() {
+        return targetOpenOrders;
+    }
+
+    public SimConfig setTargetOpenOrders(int targetOpenOrders) {
+        this.targetOpenOrders = targetOpenOrders;
+        return this;
+    }
+
+    public double getOriginLat() {
+        return originLat;
+    }
+
+    public double getOriginLng() {
+        return originLng;
+    }
+
+    public SimConfig setOrigin(double lat, double lng) {
+        this.originLat = lat;
+        this.originLng = lng;
+        return this;
+    }
+
+    public double getAreaRadiusDeg() {
+        return areaRadiusDeg;
+    }
+
+    public SimConfig setAreaRadiusDeg(double areaRadiusDeg) {
+        this.areaRadiusDeg = areaRadiusDeg;
+        return this;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.couriersimulator.sim;
+
+import com.example.couriersimulator.orders.Order;
+
+/**
+ * События симуляции. Все методы вызываются на потоке, который двигает симуляцию.
+ */
+public interface SimListener {
+
+    /** В книге появился новый открытый заказ */
+    default void onOrderSpawned(Order order) {
+    }
+
+    /** Открытый заказ никто не взял за отведённое время, и он исчез из книги (см. SpawnScheduler) */
+    default void onOrderExpired(Order order) {
+    }
+
+    /** Курьер взял заказ (автопилот — на точке забора, игрок — из списка) */
+    default void onOrderAccepted(Courier courier, Order order) {
+    }
+
+    /**
+     * Заказ доставлен.
+     *
+     * @param awardedCard порядковый номер новой карточки, LootTable.NO_DROP, LootTable.EMPTY_CATALOG
+     *                    или дубликат (LootTable.isDuplicate)
+     */
+    default void onOrderDelivered(Courier courier, Order order, int awardedCard) {
+    }
+}
@@ -0,0 +1,480 @@
+package com.example.couriersimulator.sim;
+
+import com.example.couriersimulator.geo.GeoMath;
+import com.example.couriersimulator.geo.GeofenceIndex;
+import com.example.couriersimulator.loot.LootTable;
+import com.example.couriersimulator.orders.Order;
+import com.example.couriersimulator.orders.OrderBook;
+import com.example.couriersimulator.orders.OrderGenerator;
+import com.example.couriersimulator.orders.SpawnScheduler;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Игровой мир без Android: открытые заказы, курьеры, правила доставки и выдачи карточек.
+ * Время идёт фиксированными шагами (tick), все случайные величины берутся из генераторов
+ * с seed из SimConfig, поэтому одинаковая конфигурация даёт одинаковый прогон.
+ * Класс не потокобезопасен: все вызовы — с одного потока.
+ */
+public class Simulation {
+
+    private static final SimListener NO_LISTENER = new SimListener() {
+    };
+
+    private final SimConfig config;
+    private final Random random;
+    private final OrderGenerator generator;
+    private final OrderBook book = new OrderBook();
+    private final List<Courier> couriers = new ArrayList<>();
+    // Переиспользуемый список для поиска заказов рядом с курьером
+    private final List<Order> scratch = new ArrayList<>();
+    // Текущая цель каждого курьера (забор или доставка); id зоны = id курьера
+    private final GeofenceIndex targets = new GeofenceIndex();
+    private final double stepMeters;
+    private SimListener listener = NO_LISTENER;
+    private LootTable lootTable;
+    // Появление заказов по карте спроса и их истечение (null — только replenish и spawnOrders)
+    private SpawnScheduler spawner;
+    private final SpawnScheduler.Listener spawnEvents = new SpawnScheduler.Listener() {
+        @Override
+        public void onOrderSpawned(Order order) {
+            addOrder(order);
+        }
+
+        @Override
+        public void onOrderExpired(long orderId) {
+            Order order = book.remove(orderId);
+            if (order != null) {
+                listener.onOrderExpired(order);
+            }
+        }
+    };
+
+    private long ticks;
+    private long nowMillis;
+    private long deliveries;
+    private long awards;
+    private long duplicates;
+
+    public Simulation(SimConfig config) {
+        this(config, null);
+    }
+
+    /**
+     * @param generator генератор заказов (например, восстановленный из сохранения);
+     *                  null — создать новый с seed из основного генератора
+     */
+    public Simulation(SimConfig config, OrderGenerator generator) {
+        this.config = config;
+        this.random = new Random(config.getSeed());
+        this.generator = generator != null ? generator : new OrderGenerator(random.nextLong());
+        this.stepMeters = config.getCourierSpeedMps() * config.getTickMillis() / 1000.0;
+        this.lootTable = LootTable.uniform(config.getCardCatalogSize());
+        this.nowMillis = config.getStartMillis();
+    }
+
+    public void setListener(SimListener listener) {
+        this.listener = listener != null ? listener : NO_LISTENER;
+    }
+
+    /**
+     * Размер каталога карточек может стать известен позже (каталог грузится в фоне).
+     * Все карточки равновероятны; редкости задаёт setLootTable.
+     */
+    public void setCardCatalogSize(int cardCatalogSize) {
+        if (lootTable.size() != cardCatalogSize) {
+            lootTable = LootTable.uniform(cardCatalogSize);
+        }
+    }
+
+    /** Таблица выпадения карточек по каталогу (заменяет setCardCatalogSize) */
+    public void setLootTable(LootTable lootTable) {
+        this.lootTable = lootTable;
+    }
+
+    public LootTable getLootTable() {
+        return lootTable;
+    }
+
+    /**
+     * Заказы появляются по карте спроса и исчезают по сроку (см. SpawnScheduler);
+     * планировщик должен использовать генератор этой симуляции. Заказы, уже лежащие
+     * в книге, получают срок от текущего времени. Если планировщик ещё не запущен,
+     * поток прихода начинается с текущего времени; если запущен раньше (startAt в прошлом),
+     * заказы за прошедшее время появляются сразу. null — выключить.
+     */
+    public void setSpawnScheduler(SpawnScheduler spawner) {
+        this.spawner = spawner;
+        if (spawner == null) {
+            return;
+        }
+        for (Order o : book.all()) {
+            spawner.track(o.getId(), nowMillis);
+        }
+        if (!spawner.isStarted()) {
+            spawner.startAt(nowMillis);
+        }
+        spawner.advanceTo(nowMillis, spawnEvents);
+    }
+
+    public SpawnScheduler getSpawnScheduler() {
+        return spawner;
+    }
+
+    public SimConfig getConfig() {
+        return config;
+    }
+
+    public OrderBook getOrderBook() {
+        return book;
+    }
+
+    public OrderGenerator getOrderGenerator() {
+        return generator;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public long getNowMillis() {
+        return nowMillis;
+    }
+
+    public long getDeliveries() {
+        return deliveries;
+    }
+
+    public long getAwards() {
+        return awards;
+    }
+
+    /** Сколько раз выпал дубликат уже собранной карточки */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public int getCourierCount() {
+        return couriers.size();
+    }
+
+    public Courier getCourier(int courierId) {
+        return couriers.get(courierId);
+    }
+
+    /** Добавить курьера. id курьера — его индекс (0, 1, 2, ...). */
+    public Courier addCourier(double lat, double lng, boolean autopilot) {
+        Courier courier = new Courier(couriers.size(), lat, lng, autopilot);
+        couriers.add(courier);
+        return courier;
+    }
+
+    /**
+     * Контрольная точка для сохранения: новый seed основного генератора
+     * (генератор переключается на него, как OrderGenerator.checkpointSeed).
+     */
+    public long checkpointSeed() {
+        long seed = random.nextLong();
+        random.setSeed(seed);
+        return seed;
+    }
+
+    /** Один шаг симуляции длиной config.getTickMillis() */
+    public void tick() {
+        ticks++;
+        nowMillis += config.getTickMillis();
+        if (spawner != null) {
+            spawner.advanceTo(nowMillis, spawnEvents);
+        }
+        replenishOrders();
+        for (int i = 0; i < couriers.size(); i++) {
+            Courier c = couriers.get(i);
+            if (c.isAutopilot()) {
+                stepAutopilot(c);
+            }
+        }
+    }
+
+    public void runTicks(long count) {
+        for (long i = 0; i < count; i++) {
+            tick();
+        }
+    }
+
+    /** Сдвинуть часы без расчёта шагов (например, пока приложение было свёрнуто) */
+    public void skip(long millis) {
+        nowMillis += millis;
+    }
+
+    /** Сгенерировать count заказов вокруг точки (lat, lng) */
+    public void spawnOrders(int count, double lat, double lng) {
+        for (int i = 0; i < count; i++) {
+            Order order = generator.next(lat, lng, nowMillis);
+            if (spawner != null) {
+                spawner.track(order.getId(), nowMillis);
+            }
+            addOrder(order);
+        }
+    }
+
+    /**
+     * Вернуть в книгу открытый заказ после пересоздания (восстановление состояния),
+     * без события onOrderSpawned. Срок жизни отсчитывается заново от текущего времени.
+     */
+    public void restoreOpenOrder(Order order) {
+        book.add(order);
+        if (spawner != null) {
+            spawner.track(order.getId(), nowMillis);
+        }
+    }
+
+    /**
+     * Убрать открытый заказ, который ушёл не по событию этой симуляции
+     * (общий мир: его взял другой игрок или он истёк на сервере), без событий.
+     *
+     * @return заказ или null, если его уже нет
+     */
+    public Order removeOpenOrder(long orderId) {
+        Order order = book.remove(orderId);
+        if (order != null) {
+            forgetExpiry(orderId);
+        }
+        return order;
+    }
+
+    /** Убрать все открытые заказы (без событий) */
+    public void clearOrders() {
+        book.clear();
+        if (spawner != null) {
+            spawner.clear();
+        }
+    }
+
+    /**
+     * Курьер берёт заказ из книги (игрок — удалённо, из списка).
+     * Пока курьер везёт меньше config.getMaxBatchSize() заказов, новый добавляется
+     * в маршрут и порядок объезда перестраивается; иначе заменяет текущий.
+     *
+     * @return принятый заказ или null, если его уже нет
+     */
+    public Order accept(int courierId, long orderId) {
+        Courier c = couriers.get(courierId);
+        Order order = book.remove(orderId);
+        if (order != null) {
+            forgetExpiry(orderId);
+            if (canBatch(c) && c.getHeldCount() < config.getMaxBatchSize()) {
+                c.addToBatch(order, nowMillis);
+                updateTarget(c);
+            } else {
+                assign(c, order, Courier.Phase.TO_DROPOFF);
+            }
+            listener.onOrderAccepted(c, order);
+        }
+        return order;
+    }
+
+    /**
+     * Вернуть курьеру заказ, принятый до пересоздания (восстановление состояния).
+     * Несколько вызовов подряд восстанавливают весь набор заказов курьера.
+     */
+    public void restoreActiveOrder(int courierId, Order order) {
+        Courier c = couriers.get(courierId);
+        if (canBatch(c)) {
+            c.addToBatch(order, nowMillis);
+            updateTarget(c);
+        } else {
+            assign(c, order, Courier.Phase.TO_DROPOFF);
+        }
+    }
+
+    /** Новые координаты курьера от внешнего источника (GPS) */
+    public void moveCourier(int courierId, double lat, double lng) {
+        couriers.get(courierId).moveTo(lat, lng);
+    }
+
+    /** Подменить набор собранных карточек курьера (например, из сохранённой коллекции) */
+    public void setOwnedCards(int courierId, BitSet owned) {
+        Courier c = couriers.get(courierId);
+        BitSet bits = c.ownedCards();
+        if (bits.equals(owned)) {
+            // Обычно так и есть: коллекция менялась только розыгрышами
+            return;
+        }
+        bits.clear();
+        bits.or(owned);
+        c.getLootState().invalidate();
+    }
+
+    /**
+     * Находится ли курьер в радиусе доставки своего заказа (вызывается на каждый GPS-фикс).
+     * Если курьер везёт несколько заказов и оказался у точки не первого из них,
+     * текущим становится этот заказ.
+     */
+    public boolean canDeliver(int courierId) {
+        Courier c = couriers.get(courierId);
+        if (c.getPhase() != Courier.Phase.TO_DROPOFF) {
+            return false;
+        }
+        if (atTarget(c)) {
+            return true;
+        }
+        int held = c.getHeldCount();
+        if (held > 1) {
+            double radiusSq = config.getDeliveryRadiusMeters() * config.getDeliveryRadiusMeters();
+            for (int p = 1; p < held; p++) {
+                Order o = c.getRouteOrder(p);
+                if (GeoMath.distanceSquaredMeters(c.getLat(), c.getLng(),
+                        o.getDropoffLat(), o.getDropoffLng()) <= radiusSq) {
+                    c.switchTo(o);
+                    updateTarget(c);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Завершить доставку текущего заказа курьера и разыграть карточку.
+     *
+     * @return порядковый номер новой карточки, LootTable.NO_DROP, LootTable.EMPTY_CATALOG
+     *         или дубликат (LootTable.isDuplicate)
+     * @throws IllegalStateException если у курьера нет заказа
+     */
+    public int deliver(int courierId) {
+        Courier c = couriers.get(courierId);
+        Order order = c.getOrder();
+        if (order == null) {
+            throw new IllegalStateException("Courier " + courierId + " has no order");
+        }
+        // Если в маршруте остались заказы, цель переходит на следующую точку
+        c.completeDelivery();
+        updateTarget(c);
+        deliveries++;
+
+        int card = lootTable.roll(random, config.getAwardChance(), config.getDropPity(), config.getRarePity(),
+                c.ownedCards(), c.getLootState());
+        if (card >= 0) {
+            c.ownedCards().set(card);
+            awards++;
+        } else if (LootTable.isDuplicate(card)) {
+            duplicates++;
+        }
+        listener.onOrderDelivered(c, order, card);
+        return card;
+    }
+
+    private void stepAutopilot(Courier c) {
+        Order o = c.getOrder();
+        switch (c.getPhase()) {
+            case IDLE:
+                claimNearest(c);
+                break;
+            case TO_PICKUP:
+                if (stepToward(c, o.getPickupLat(), o.getPickupLng())) {
+                    c.setPhase(Courier.Phase.TO_DROPOFF);
+                    updateTarget(c);
+                    listener.onOrderAccepted(c, o);
+                }
+                break;
+            case TO_DROPOFF:
+                if (stepToward(c, o.getDropoffLat(), o.getDropoffLng())) {
+                    deliver(c.getId());
+                }
+                break;
+        }
+    }
+
+    // Автопилот резервирует ближайший заказ и едет его забирать
+    private void claimNearest(Courier c) {
+        scratch.clear();
+        if (book.findNear(c.getLat(), c.getLng(), config.getSearchRadiusMeters(), scratch) == 0) {
+            return;
+        }
+        Order best = null;
+        double bestSq = Double.MAX_VALUE;
+        for (int i = 0; i < scratch.size(); i++) {
+            Order o = scratch.get(i);
+            double d = GeoMath.distanceSquaredMeters(c.getLat(), c.getLng(), o.getPickupLat(), o.getPickupLng());
+            if (d < bestSq) {
+                bestSq = d;
+                best = o;
+            }
+        }
+        book.remove(best.getId());
+        forgetExpiry(best.getId());
+        assign(c, best, Courier.Phase.TO_PICKUP);
+    }
+
+    /**
+     * Сдвинуть курьера на один шаг к цели.
+     *
+     * @return true, если после шага курьер в зоне своей цели
+     */
+    private boolean stepToward(Courier c, double lat, double lng) {
+        double mPerLng = GeoMath.metersPerDegreeLng(c.getLat());
+        double dy = (lat - c.getLat()) * GeoMath.METERS_PER_DEGREE_LAT;
+        double dx = (lng - c.getLng()) * mPerLng;
+        double dist = Math.sqrt(dx * dx + dy * dy);
+        if (dist <= stepMeters) {
+            c.moveTo(lat, lng);
+        } else {
+            double k = stepMeters / dist;
+            c.moveTo(c.getLat() + dy * k / GeoMath.METERS_PER_DEGREE_LAT,
+                    c.getLng() + dx * k / mPerLng);
+        }
+        return atTarget(c);
+    }
+
+    // Везёт заказ и может взять ещё (автопилот всегда работает с одним заказом)
+    private boolean canBatch(Courier c) {
+        return !c.isAutopilot() && c.getOrder() != null && c.getPhase() == Courier.Phase.TO_DROPOFF;
+    }
+
+    private void assign(Courier c, Order order, Courier.Phase phase) {
+        c.assign(order, phase, nowMillis);
+        updateTarget(c);
+    }
+
+    // Зона цели пересчитывается только при смене фазы, а не на каждом шаге
+    private void updateTarget(Courier c) {
+        Order o = c.getOrder();
+        double radius = config.getDeliveryRadiusMeters();
+        if (o == null || c.getPhase() == Courier.Phase.IDLE) {
+            targets.remove(c.getId());
+        } else if (c.getPhase() == Courier.Phase.TO_PICKUP) {
+            targets.add(c.getId(), o.getPickupLat(), o.getPickupLng(), radius);
+        } else {
+            targets.add(c.getId(), o.getDropoffLat(), o.getDropoffLng(), radius);
+        }
+    }
+
+    private boolean atTarget(Courier c) {
+        return targets.isInside(c.getId(), c.getLat(), c.getLng());
+    }
+
+    // Поддерживаем нужное число открытых заказов в районе из конфигурации
+    private void replenishOrders() {
+        int target = config.getTargetOpenOrders();
+        double r = config.getAreaRadiusDeg();
+        while (book.size() < target) {
+            double lat = config.getOriginLat() + (random.nextDouble() - 0.5) * 2 * r;
+            double lng = config.getOriginLng() + (random.nextDouble() - 0.5) * 2 * r;
+            addOrder(generator.next(lat, lng, nowMillis));
+        }
+    }
+
+    private void forgetExpiry(long orderId) {
+        if (spawner != null) {
+            spawner.forget(orderId);
+        }
+    }
+
+    private void addOrder(Order order) {
+        book.add(order);
+        listener.onOrderSpawned(order);
+    }
+}
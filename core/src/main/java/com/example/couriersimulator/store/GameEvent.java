@@ -0,0 +1,202 @@
+package com.example.couriersimulator.store;
+
+import com.example.couriersimulator.orders.Order;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Запись журнала игры: одно изменение состояния игрока.
+ * Неизменяемая; поля, не нужные для данного типа, равны нулю.
+ */
+public final class GameEvent {
+
+    public static final byte ORDER_SPAWNED = 1;
+    public static final byte ORDERS_CLEARED = 2;
+    public static final byte ORDER_ACCEPTED = 3;
+    public static final byte ORDER_DELIVERED = 4;
+    public static final byte CARD_OWNED = 5;
+    public static final byte POSITION = 6;
+    public static final byte LOOT_PITY = 7;
+    public static final byte ORDER_EXPIRED = 8;
+
+    private final byte type;
+    private final Order order;
+    private final long orderId;
+    private final int reward;
+    private final int card;
+    private final boolean owned;
+    private final long timeMillis;
+    private final double lat;
+    private final double lng;
+
+    private GameEvent(byte type, Order order, long orderId, int reward, int card, boolean owned,
+                      long timeMillis, double lat, double lng) {
+        this.type = type;
+        this.order = order;
+        this.orderId = orderId;
+        this.reward = reward;
+        this.card = card;
+        this.owned = owned;
+        this.timeMillis = timeMillis;
+        this.lat = lat;
+        this.lng = lng;
+    }
+
+    public static GameEvent orderSpawned(Order order) {
+        return new GameEvent(ORDER_SPAWNED, order, order.getId(), 0, 0, false, 0, 0, 0);
+    }
+
+    public static GameEvent ordersCleared() {
+        return new GameEvent(ORDERS_CLEARED, null, 0, 0, 0, false, 0, 0, 0);
+    }
+
+    public static GameEvent orderAccepted(long orderId) {
+        return new GameEvent(ORDER_ACCEPTED, null, orderId, 0, 0, false, 0, 0, 0);
+    }
+
+    /** Открытый заказ исчез по сроку, его никто не взял */
+    public static GameEvent orderExpired(long orderId) {
+        return new GameEvent(ORDER_EXPIRED, null, orderId, 0, 0, false, 0, 0, 0);
+    }
+
+    /** @param card выпавшая карточка или отрицательное значение (см. LootTable.roll) */
+    public static GameEvent orderDelivered(long orderId, int reward, int card, long timeMillis) {
+        return new GameEvent(ORDER_DELIVERED, null, orderId, reward, card, false, timeMillis, 0, 0);
+    }
+
+    public static GameEvent cardOwned(int ordinal, boolean owned) {
+        return new GameEvent(CARD_OWNED, null, 0, 0, ordinal, owned, 0, 0, 0);
+    }
+
+    public static GameEvent position(double lat, double lng) {
+        return new GameEvent(POSITION, null, 0, 0, 0, false, 0, lat, lng);
+    }
+
+    /** Счётчики гарантий выпадения после розыгрыша (см. LootState); хранятся в полях card и reward */
+    public static GameEvent lootPity(int missStreak, int dropsSinceRare) {
+        return new GameEvent(LOOT_PITY, null, 0, dropsSinceRare, missStreak, false, 0, 0, 0);
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public long getOrderId() {
+        return orderId;
+    }
+
+    public int getReward() {
+        return reward;
+    }
+
+    public int getCard() {
+        return card;
+    }
+
+    public boolean isOwned() {
+        return owned;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public double getLng() {
+        return lng;
+    }
+
+    public int getMissStreak() {
+        return card;
+    }
+
+    public int getDropsSinceRare() {
+        return reward;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeByte(type);
+        switch (type) {
+            case ORDER_SPAWNED:
+                writeOrder(out, order);
+                break;
+            case ORDERS_CLEARED:
+                break;
+            case ORDER_ACCEPTED:
+            case ORDER_EXPIRED:
+                out.writeLong(orderId);
+                break;
+            case ORDER_DELIVERED:
+                out.writeLong(orderId);
+                out.writeInt(reward);
+                out.writeInt(card);
+                out.writeLong(timeMillis);
+                break;
+            case CARD_OWNED:
+                out.writeInt(card);
+                out.writeBoolean(owned);
+                break;
+            case POSITION:
+                out.writeDouble(lat);
+                out.writeDouble(lng);
+                break;
+            case LOOT_PITY:
+                out.writeInt(card);
+                out.writeInt(reward);
+                break;
+            default:
+                throw new IllegalStateException("Unknown event type: " + type);
+        }
+    }
+
+    static GameEvent read(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case ORDER_SPAWNED:
+                return orderSpawned(readOrder(in));
+            case ORDERS_CLEARED:
+                return ordersCleared();
+            case ORDER_ACCEPTED:
+                return orderAccepted(in.readLong());
+            case ORDER_DELIVERED:
+                return orderDelivered(in.readLong(), in.readInt(), in.readInt(), in.readLong());
+            case CARD_OWNED:
+                return cardOwned(in.readInt(), in.readBoolean());
+            case POSITION:
+                return position(in.readDouble(), in.readDouble());
+            case LOOT_PITY:
+                return lootPity(in.readInt(), in.readInt());
+            case ORDER_EXPIRED:
+                return orderExpired(in.readLong());
+            default:
+                throw new IOException("Unknown event type: " + type);
+        }
+    }
+
+    static void writeOrder(DataOutput out, Order o) throws IOException {
+        out.writeLong(o.getId());
+        out.writeUTF(o.getTitle());
+        out.writeDouble(o.getPickupLat());
+        out.writeDouble(o.getPickupLng());
+        out.writeDouble(o.getDropoffLat());
+        out.writeDouble(o.getDropoffLng());
+        out.writeInt(o.getReward());
+        out.writeLong(o.getDeadlineMillis());
+    }
+
+    static Order readOrder(DataInput in) throws IOException {
+        return new Order(in.readLong(), in.readUTF(),
+                in.readDouble(), in.readDouble(),
+                in.readDouble(), in.readDouble(),
+                in.readInt(), in.readLong());
+    }
+}
@@ -0,0 +1,512 @@
+package com.example.couriersimulator.store;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал состояния игры на диске: снимок + хвост событий.
+ * - каждое изменение дописывается записью [длина][GameEvent][CRC32] в текущий сегмент
+ *   journal-N.log; запись идёт на отдельном потоке, а fsync (FileChannel.force)
+ *   делается не чаще раза в forceIntervalMs для всех накопившихся записей
+ * - при ошибке записи или fsync сегмент обрезается до последней записи, прошедшей fsync
+ *   (не вышло — начинается новый сегмент), а недошедшие события отбрасываются: состояние
+ *   потока записи меняется только после fsync, поэтому снимок не опережает диск
+ * - каждые snapshotEvery событий поток пишет снимок snapshot-N.bin
+ *   (через временный файл, rename и fsync каталога) и начинает новый сегмент;
+ *   старые файлы удаляются
+ * - при открытии читается последний целый снимок и сегменты после него;
+ *   недописанная или повреждённая запись в конце (сбой посреди записи) отрезается
+ * Поэтому восстановление стоит одного снимка и не больше snapshotEvery событий,
+ * сколько бы ни длилась игра.
+ */
+public class GameJournal {
+
+    public static final int DEFAULT_SNAPSHOT_EVERY = 5_000;
+    public static final long DEFAULT_FORCE_INTERVAL_MS = 200;
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int SNAPSHOT_MAGIC = 0x47534e50; // "GSNP"
+    // 2: счётчики гарантий выпадения карточек; 3: несколько активных заказов.
+    // Снимки прошлых версий читаются
+    private static final int SNAPSHOT_VERSION = 3;
+    // Защита от мусора в поле длины повреждённой записи
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+
+    private static final Object CLOSE = new Object();
+
+    /** Ошибки ввода-вывода потока записи; вызывается на этом потоке */
+    public interface ErrorListener {
+        void onJournalError(IOException e);
+    }
+
+    /** Открывает файл сегмента на запись; тесты подменяют его, чтобы обрывать запись */
+    interface SegmentOpener {
+        FileChannel open(File file) throws IOException;
+    }
+
+    private static final SegmentOpener FILES = file -> new RandomAccessFile(file, "rw").getChannel();
+
+    private final File dir;
+    private final SegmentOpener opener;
+    private final int snapshotEvery;
+    private final long forceIntervalMs;
+    private final GameState restored;
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+
+    // Дальше — только поток writer
+    private final GameState state;
+    private long segmentSeq;
+    private FileChannel segment;
+    // Длина сегмента по последний fsync: до неё файл откатывается после ошибки
+    private long committedSize;
+    // Записаны, но ещё без fsync: в state попадают только после него
+    private final List<GameEvent> unforced = new ArrayList<>();
+    private int eventsSinceSnapshot;
+    private final ByteArrayOutputStream batchBytes = new ByteArrayOutputStream();
+    private final DataOutputStream batch = new DataOutputStream(batchBytes);
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+    private final DataOutputStream record = new DataOutputStream(recordBytes);
+    private final CRC32 crc = new CRC32();
+
+    private volatile boolean closed;
+    private volatile IOException lastError;
+    private volatile ErrorListener errorListener;
+
+    private GameJournal(File dir, int snapshotEvery, long forceIntervalMs, SegmentOpener opener)
+            throws IOException {
+        this.dir = dir;
+        this.opener = opener;
+        this.snapshotEvery = snapshotEvery;
+        this.forceIntervalMs = forceIntervalMs;
+        this.state = recover();
+        this.restored = state.copy();
+        this.writer = new Thread(this::writeLoop, "GameJournal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Открыть (или создать) журнал в каталоге dir и восстановить состояние */
+    public static GameJournal open(File dir) throws IOException {
+        return open(dir, DEFAULT_SNAPSHOT_EVERY, DEFAULT_FORCE_INTERVAL_MS);
+    }
+
+    public static GameJournal open(File dir, int snapshotEvery, long forceIntervalMs) throws IOException {
+        return open(dir, snapshotEvery, forceIntervalMs, FILES);
+    }
+
+    static GameJournal open(File dir, int snapshotEvery, long forceIntervalMs, SegmentOpener opener)
+            throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + dir);
+        }
+        if (snapshotEvery <= 0) {
+            throw new IllegalArgumentException("snapshotEvery must be positive: " + snapshotEvery);
+        }
+        return new GameJournal(dir, snapshotEvery, forceIntervalMs, opener);
+    }
+
+    /** Состояние на момент открытия журнала (копия, её можно читать с любого потока) */
+    public GameState getRestoredState() {
+        return restored;
+    }
+
+    /** Дописать событие. Не блокирует: запись и fsync идут в фоне. */
+    public void append(GameEvent event) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        queue.add(event);
+    }
+
+    /** Дождаться, пока всё дописанное до вызова окажется на диске */
+    public void flush() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        queue.add(done);
+        done.await();
+    }
+
+    /** Записать хвост, закрыть файлы и остановить поток записи */
+    public void close() throws InterruptedException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(CLOSE);
+        writer.join();
+    }
+
+    /** Последняя ошибка ввода-вывода потока записи или null */
+    public IOException getLastError() {
+        return lastError;
+    }
+
+    /** События, на которых случилась ошибка, на диск не попали и в журнале их не будет */
+    public void setErrorListener(ErrorListener listener) {
+        errorListener = listener;
+    }
+
+    // ---------- Восстановление ----------
+
+    private GameState recover() throws IOException {
+        GameState loaded = null;
+        long baseSeq = 0;
+        long[] snapshots = listSeqs(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        for (int i = snapshots.length - 1; i >= 0 && loaded == null; i--) {
+            loaded = readSnapshot(snapshotFile(snapshots[i]), snapshots[i]);
+            if (loaded != null) {
+                baseSeq = snapshots[i];
+            }
+        }
+        GameState s = loaded != null ? loaded : new GameState();
+
+        long lastSeq = baseSeq;
+        for (long seq : listSeqs(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (seq >= baseSeq) {
+                eventsSinceSnapshot += replay(segmentFile(seq), s);
+                lastSeq = seq;
+            }
+        }
+        deleteBefore(baseSeq);
+
+        segmentSeq = lastSeq;
+        segment = openSegment(segmentSeq);
+        committedSize = segment.position();
+        return s;
+    }
+
+    private static GameState readSnapshot(File file, long seq) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                return null;
+            }
+            int version = in.readInt();
+            if (version < 1 || version > SNAPSHOT_VERSION || in.readLong() != seq) {
+                return null;
+            }
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            CRC32 check = new CRC32();
+            check.update(body, 0, body.length);
+            if ((int) check.getValue() != in.readInt()) {
+                return null;
+            }
+            return GameState.read(new DataInputStream(new ByteArrayInputStream(body)), version);
+        } catch (IOException | RuntimeException e) {
+            return null; // Снимок недописан или испорчен — берём предыдущий
+        }
+    }
+
+    /** Применить записи сегмента; повреждённый хвост отрезается. Возвращает число записей. */
+    private static int replay(File file, GameState s) throws IOException {
+        long good = 0;
+        int count = 0;
+        CRC32 check = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length <= 0 || length > MAX_RECORD_BYTES) {
+                    break;
+                }
+                byte[] body = new byte[length];
+                GameEvent event;
+                try {
+                    in.readFully(body);
+                    check.reset();
+                    check.update(body, 0, length);
+                    if ((int) check.getValue() != in.readInt()) {
+                        break;
+                    }
+                    event = GameEvent.read(new DataInputStream(new ByteArrayInputStream(body)));
+                } catch (EOFException e) {
+                    break;
+                }
+                s.apply(event);
+                good += 4 + length + 4;
+                count++;
+            }
+        }
+        if (good < file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(good);
+            }
+        }
+        return count;
+    }
+
+    // ---------- Поток записи ----------
+
+    private void writeLoop() {
+        List<Object> items = new ArrayList<>();
+        List<CountDownLatch> waiting = new ArrayList<>();
+        boolean dirty = false;
+        long lastForce = System.currentTimeMillis();
+        boolean running = true;
+        while (running) {
+            try {
+                Object first = dirty
+                        ? queue.poll(Math.max(0, lastForce + forceIntervalMs - System.currentTimeMillis()),
+                                TimeUnit.MILLISECONDS)
+                        : queue.take();
+                items.clear();
+                if (first != null) {
+                    items.add(first);
+                    queue.drainTo(items);
+                }
+                batchBytes.reset();
+                for (Object item : items) {
+                    if (item instanceof GameEvent) {
+                        encode((GameEvent) item);
+                        unforced.add((GameEvent) item);
+                    } else if (item instanceof CountDownLatch) {
+                        waiting.add((CountDownLatch) item);
+                    } else if (item == CLOSE) {
+                        running = false;
+                    }
+                }
+                if (batchBytes.size() > 0) {
+                    writeBatch();
+                    dirty = true;
+                }
+                long now = System.currentTimeMillis();
+                if (dirty && (!waiting.isEmpty() || !running || now - lastForce >= forceIntervalMs)) {
+                    segment.force(false);
+                    commit();
+                    dirty = false;
+                    lastForce = now;
+                }
+                if (!dirty) {
+                    for (CountDownLatch latch : waiting) {
+                        latch.countDown();
+                    }
+                    waiting.clear();
+                }
+                if (eventsSinceSnapshot >= snapshotEvery) {
+                    snapshot();
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (IOException e) {
+                rollBack();
+                dirty = false;
+                for (CountDownLatch latch : waiting) {
+                    latch.countDown();
+                }
+                waiting.clear();
+                report(e);
+            }
+        }
+        try {
+            segment.force(false);
+            segment.close();
+        } catch (IOException e) {
+            report(e);
+        }
+    }
+
+    private void writeBatch() throws IOException {
+        byte[] bytes = batchBytes.toByteArray();
+        writeFully(segment, ByteBuffer.wrap(bytes));
+    }
+
+    // После fsync: записанное на диске, его можно применить к состоянию
+    private void commit() throws IOException {
+        committedSize = segment.position();
+        for (GameEvent event : unforced) {
+            state.apply(event);
+        }
+        eventsSinceSnapshot += unforced.size();
+        unforced.clear();
+    }
+
+    /**
+     * Отбросить всё после последнего fsync: иначе обрывок записи в середине сегмента
+     * при восстановлении отрезал бы и все записи после него
+     */
+    private void rollBack() {
+        unforced.clear();
+        try {
+            segment.truncate(committedSize);
+            segment.position(committedSize);
+            segment.force(false);
+            return;
+        } catch (IOException e) {
+            // Сегмент не обрезать — хвост отрежет восстановление, пишем дальше в новый
+        }
+        try {
+            segment.close();
+        } catch (IOException ignored) {
+            // Всё равно переходим на новый сегмент
+        }
+        try {
+            segment = openSegment(segmentSeq + 1);
+            segmentSeq++;
+            committedSize = segment.position();
+        } catch (IOException e) {
+            // Следующая запись в закрытый канал снова попадёт сюда
+            report(e);
+        }
+    }
+
+    private void report(IOException e) {
+        lastError = e;
+        ErrorListener listener = errorListener;
+        if (listener != null) {
+            listener.onJournalError(e);
+        }
+    }
+
+    private void encode(GameEvent event) throws IOException {
+        recordBytes.reset();
+        event.write(record);
+        byte[] body = recordBytes.toByteArray();
+        crc.reset();
+        crc.update(body, 0, body.length);
+        batch.writeInt(body.length);
+        batch.write(body);
+        batch.writeInt((int) crc.getValue());
+    }
+
+    /** Снимок текущего состояния и переход на новый сегмент */
+    private void snapshot() throws IOException {
+        segment.force(false);
+        commit();
+        segment.close();
+        long seq = segmentSeq + 1;
+        // Сначала новый сегмент: если снимок не успеет записаться,
+        // при восстановлении прочитаются старый снимок и все сегменты после него
+        segment = openSegment(seq);
+        segmentSeq = seq;
+        committedSize = 0;
+
+        recordBytes.reset();
+        state.write(record);
+        byte[] body = recordBytes.toByteArray();
+        crc.reset();
+        crc.update(body, 0, body.length);
+
+        File tmp = new File(dir, SNAPSHOT_PREFIX + name(seq) + SNAPSHOT_SUFFIX + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(fos)) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(seq);
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeInt((int) crc.getValue());
+            out.flush();
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(snapshotFile(seq))) {
+            throw new IOException("Cannot rename " + tmp);
+        }
+        // Без fsync каталога после сбоя питания может не оказаться ни нового имени
+        // снимка, ни нового сегмента, а старые файлы ниже уже удалены
+        syncDir();
+        eventsSinceSnapshot = 0;
+        deleteBefore(seq);
+    }
+
+    // ---------- Файлы ----------
+
+    private FileChannel openSegment(long seq) throws IOException {
+        FileChannel channel = opener.open(segmentFile(seq));
+        channel.position(channel.size());
+        return channel;
+    }
+
+    private void syncDir() throws IOException {
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /** Удалить снимки и сегменты, которые уже покрыты снимком seq */
+    private void deleteBefore(long seq) {
+        for (long s : listSeqs(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (s < seq) {
+                snapshotFile(s).delete();
+            }
+        }
+        for (long s : listSeqs(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (s < seq) {
+                segmentFile(s).delete();
+            }
+        }
+        File[] tmp = dir.listFiles((d, n) -> n.endsWith(".tmp"));
+        if (tmp != null) {
+            for (File f : tmp) {
+                f.delete();
+            }
+        }
+    }
+
+    private long[] listSeqs(String prefix, String suffix) {
+        String[] names = dir.list();
+        if (names == null) {
+            return new long[0];
+        }
+        long[] seqs = new long[names.length];
+        int n = 0;
+        for (String name : names) {
+            if (name.startsWith(prefix) && name.endsWith(suffix)) {
+                long seq;
+                try {
+                    seq = Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()), 16);
+                } catch (NumberFormatException e) {
+                    continue; // Чужой файл
+                }
+                seqs[n++] = seq;
+            }
+        }
+        seqs = Arrays.copyOf(seqs, n);
+        Arrays.sort(seqs);
+        return seqs;
+    }
+
+    private File snapshotFile(long seq) {
+        return new File(dir, SNAPSHOT_PREFIX + name(seq) + SNAPSHOT_SUFFIX);
+    }
+
+    private File segmentFile(long seq) {
+        return new File(dir, SEGMENT_PREFIX + name(seq) + SEGMENT_SUFFIX);
+    }
+
+    private static String name(long seq) {
+        return String.format("%016x", seq);
+    }
+}
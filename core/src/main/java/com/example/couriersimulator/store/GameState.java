@@ -0,0 +1,225 @@
+package com.example.couriersimulator.store;
+
+import com.example.couriersimulator.orders.Order;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Сохраняемое состояние игрока: открытые заказы, активные доставки,
+ * собранные карточки, счётчики гарантий выпадения, итоги доставок
+ * и последнее известное положение.
+ * Строится применением GameEvent по порядку; полная история доставок
+ * сюда не входит, только агрегаты, поэтому снимок остаётся маленьким.
+ */
+public class GameState {
+
+    private final Map<Long, Order> openOrders = new LinkedHashMap<>();
+    // Принятые и не доставленные заказы в порядке принятия
+    private final Map<Long, Order> activeOrders = new LinkedHashMap<>();
+    private long nextOrderId = 1;
+    private final BitSet ownedCards = new BitSet();
+    private int lootMissStreak;
+    private int lootDropsSinceRare;
+    private long deliveries;
+    private long earnings;
+    private long awards;
+    private long lastDeliveryMillis;
+    private boolean hasPosition;
+    private double lat;
+    private double lng;
+
+    /** Применить событие журнала */
+    public void apply(GameEvent e) {
+        switch (e.getType()) {
+            case GameEvent.ORDER_SPAWNED:
+                openOrders.put(e.getOrderId(), e.getOrder());
+                nextOrderId = Math.max(nextOrderId, e.getOrderId() + 1);
+                break;
+            case GameEvent.ORDERS_CLEARED:
+                openOrders.clear();
+                break;
+            case GameEvent.ORDER_ACCEPTED:
+                Order accepted = openOrders.remove(e.getOrderId());
+                if (accepted != null) {
+                    activeOrders.put(accepted.getId(), accepted);
+                }
+                break;
+            case GameEvent.ORDER_EXPIRED:
+                openOrders.remove(e.getOrderId());
+                break;
+            case GameEvent.ORDER_DELIVERED:
+                activeOrders.remove(e.getOrderId());
+                deliveries++;
+                earnings += e.getReward();
+                if (e.getCard() >= 0) {
+                    awards++;
+                }
+                lastDeliveryMillis = e.getTimeMillis();
+                break;
+            case GameEvent.CARD_OWNED:
+                ownedCards.set(e.getCard(), e.isOwned());
+                break;
+            case GameEvent.POSITION:
+                hasPosition = true;
+                lat = e.getLat();
+                lng = e.getLng();
+                break;
+            case GameEvent.LOOT_PITY:
+                lootMissStreak = e.getMissStreak();
+                lootDropsSinceRare = e.getDropsSinceRare();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown event type: " + e.getType());
+        }
+    }
+
+    /** Открытые заказы в порядке появления (только для чтения) */
+    public Collection<Order> getOpenOrders() {
+        return Collections.unmodifiableCollection(openOrders.values());
+    }
+
+    /** Первый из принятых, но ещё не доставленных заказов или null */
+    public Order getActiveOrder() {
+        Iterator<Order> it = activeOrders.values().iterator();
+        return it.hasNext() ? it.next() : null;
+    }
+
+    /** Все принятые и не доставленные заказы в порядке принятия (только для чтения) */
+    public Collection<Order> getActiveOrders() {
+        return Collections.unmodifiableCollection(activeOrders.values());
+    }
+
+    /** id, с которого генератор должен продолжить нумерацию заказов */
+    public long getNextOrderId() {
+        return nextOrderId;
+    }
+
+    /** Копия флагов владения карточками */
+    public BitSet getOwnedCards() {
+        return (BitSet) ownedCards.clone();
+    }
+
+    public int getLootMissStreak() {
+        return lootMissStreak;
+    }
+
+    public int getLootDropsSinceRare() {
+        return lootDropsSinceRare;
+    }
+
+    public long getDeliveries() {
+        return deliveries;
+    }
+
+    public long getEarnings() {
+        return earnings;
+    }
+
+    public long getAwards() {
+        return awards;
+    }
+
+    public long getLastDeliveryMillis() {
+        return lastDeliveryMillis;
+    }
+
+    public boolean hasPosition() {
+        return hasPosition;
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public double getLng() {
+        return lng;
+    }
+
+    public GameState copy() {
+        GameState c = new GameState();
+        c.openOrders.putAll(openOrders);
+        c.activeOrders.putAll(activeOrders);
+        c.nextOrderId = nextOrderId;
+        c.ownedCards.or(ownedCards);
+        c.lootMissStreak = lootMissStreak;
+        c.lootDropsSinceRare = lootDropsSinceRare;
+        c.deliveries = deliveries;
+        c.earnings = earnings;
+        c.awards = awards;
+        c.lastDeliveryMillis = lastDeliveryMillis;
+        c.hasPosition = hasPosition;
+        c.lat = lat;
+        c.lng = lng;
+        return c;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(openOrders.size());
+        for (Order o : openOrders.values()) {
+            GameEvent.writeOrder(out, o);
+        }
+        out.writeInt(activeOrders.size());
+        for (Order o : activeOrders.values()) {
+            GameEvent.writeOrder(out, o);
+        }
+        out.writeLong(nextOrderId);
+        long[] words = ownedCards.toLongArray();
+        out.writeInt(words.length);
+        for (long w : words) {
+            out.writeLong(w);
+        }
+        out.writeLong(deliveries);
+        out.writeLong(earnings);
+        out.writeLong(awards);
+        out.writeLong(lastDeliveryMillis);
+        out.writeBoolean(hasPosition);
+        out.writeDouble(lat);
+        out.writeDouble(lng);
+        out.writeInt(lootMissStreak);
+        out.writeInt(lootDropsSinceRare);
+    }
+
+    /**
+     * @param version версия снимка: в версии 1 ещё нет счётчиков гарантий,
+     *                до версии 3 активный заказ только один (флаг вместо числа)
+     */
+    static GameState read(DataInput in, int version) throws IOException {
+        GameState s = new GameState();
+        int orders = in.readInt();
+        for (int i = 0; i < orders; i++) {
+            Order o = GameEvent.readOrder(in);
+            s.openOrders.put(o.getId(), o);
+        }
+        int active = version >= 3 ? in.readInt() : (in.readBoolean() ? 1 : 0);
+        for (int i = 0; i < active; i++) {
+            Order o = GameEvent.readOrder(in);
+            s.activeOrders.put(o.getId(), o);
+        }
+        s.nextOrderId = in.readLong();
+        long[] words = new long[in.readInt()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+        s.ownedCards.or(BitSet.valueOf(words));
+        s.deliveries = in.readLong();
+        s.earnings = in.readLong();
+        s.awards = in.readLong();
+        s.lastDeliveryMillis = in.readLong();
+        s.hasPosition = in.readBoolean();
+        s.lat = in.readDouble();
+        s.lng = in.readDouble();
+        if (version >= 2) {
+            s.lootMissStreak = in.readInt();
+            s.lootDropsSinceRare = in.readInt();
+        }
+        return s;
+    }
+}
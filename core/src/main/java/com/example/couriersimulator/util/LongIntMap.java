@@ -0,0 +1,150 @@
+package com.example.couriersimulator.util;
+
+import java.util.Arrays;
+
+/**
+ * Отображение long → int без упаковки ключей: открытая адресация с линейным пробированием,
+ * удаление со сдвигом следующих ключей назад (без "надгробий"), поэтому после удалений
+ * цепочки не деградируют. Подходит любой ключ, включая Long.MIN_VALUE.
+ * Одна реализация на весь core: индексы заказов, ячейки сеток, корзины тепловой карты.
+ * Отсутствующий ключ — значение MISSING. Не потокобезопасно.
+ */
+public final class LongIntMap {
+
+    public static final int MISSING = -1;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    public LongIntMap() {
+        this(16);
+    }
+
+    public LongIntMap(int expected) {
+        // Наименьшая степень двойки, при которой expected ключей заполняют не больше 3/4 таблицы
+        int min = Math.max(4, (int) Math.min(1 << 30, expected * 4L / 3 + 1));
+        allocate(Integer.highestOneBit(min - 1) << 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(long key) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    public boolean containsKey(long key) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public void put(long key, int value) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        used[i] = true;
+        keys[i] = key;
+        values[i] = value;
+        if (++size > (mask + 1) * 3 / 4) {
+            rehash();
+        }
+    }
+
+    /** @return удалённое значение или MISSING */
+    public int remove(long key) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) {
+                int value = values[i];
+                shiftBack(i);
+                size--;
+                return value;
+            }
+            i = (i + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    /** Убрать все ключи; ёмкость таблицы сохраняется */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(used, false);
+            size = 0;
+        }
+    }
+
+    /** Байт в массивах таблицы (для оценки памяти) */
+    public long byteSize() {
+        return (mask + 1L) * (8 + 4 + 1);
+    }
+
+    // Освободить ячейку hole: ключи дальше по цепочке, которым место не дальше неё, сдвигаются назад
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (!used[i]) {
+                break;
+            }
+            int home = slot(keys[i]);
+            // Ключ можно перенести в hole, если hole лежит на пути от home до i
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        used[hole] = false;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(oldKeys.length * 2);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+}
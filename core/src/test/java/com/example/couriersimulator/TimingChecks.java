@@ -0,0 +1,15 @@
+package com.example.couriersimulator;
+
+/**
+ * Пороги по времени в модульных тестах. На общих машинах CI замеры нестабильны,
+ * поэтому под :core:check проверяется только поведение, а пороги — по запросу:
+ * ./gradlew :core:test -PtimingChecks
+ * Регрессии скорости между версиями ловят JMH-бенчмарки (:benchmarks:compareJmhBaseline).
+ */
+public final class TimingChecks {
+
+    public static final boolean ENABLED = Boolean.getBoolean("couriersimulator.timingChecks");
+
+    private TimingChecks() {
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.couriersimulator.geo;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GeofenceIndexTest {
+
+    private static final double LAT = 55.7512;
+    private static final double LNG = 37.6184;
+
+    @Test
+    public void pointInsideAndOutsideFence() {
+        GeofenceIndex index = new GeofenceIndex();
+        index.add(1, LAT, LNG, 50);
+
+        assertTrue(index.isInside(1, LAT + 40 / GeoMath.METERS_PER_DEGREE_LAT, LNG));
+        assertFalse(index.isInside(1, LAT + 60 / GeoMath.METERS_PER_DEGREE_LAT, LNG));
+        assertEquals(1, index.firstInside(LAT, LNG));
+        assertEquals(GeofenceIndex.NO_FENCE, index.firstInside(LAT + 0.01, LNG));
+    }
+
+    @Test
+    public void removingLastFenceDropsItsCells() {
+        GeofenceIndex index = new GeofenceIndex();
+        // Зона на стыке ячеек задевает несколько
+        index.add(1, 55.75, 37.62, 100);
+        int cells = index.getCellCount();
+        assertTrue(cells > 1);
+        index.add(2, 55.80, 37.70, 100);
+        int total = index.getCellCount();
+
+        assertTrue(index.remove(1));
+
+        assertEquals(total - cells, index.getCellCount());
+        assertEquals(GeofenceIndex.NO_FENCE, index.firstInside(55.75, 37.62));
+        assertEquals(2, index.firstInside(55.80, 37.70));
+        assertTrue(index.remove(2));
+        assertEquals(0, index.getCellCount());
+        assertFalse(index.remove(2));
+    }
+
+    @Test
+    public void cellCountStaysBoundedUnderChurn() {
+        Random random = new Random(5);
+        GeofenceIndex index = new GeofenceIndex();
+        // Зоны остановок маршрута двигаются по городу: старые ячейки не должны копиться
+        for (int i = 0; i < 20_000; i++) {
+            int id = i % 8;
+            index.add(id, LAT + random.nextDouble() * 0.5, LNG + random.nextDouble() * 0.5, 80);
+        }
+        assertEquals(8, index.size());
+        assertTrue("cells: " + index.getCellCount(), index.getCellCount() <= 8 * 4);
+    }
+
+    @Test
+    public void queryMatchesBruteForceAfterRemovals() {
+        Random random = new Random(11);
+        GeofenceIndex index = new GeofenceIndex();
+        Map<Integer, double[]> fences = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            int id = random.nextInt(300);
+            if (random.nextInt(3) == 0) {
+                assertEquals(fences.remove(id) != null, index.remove(id));
+            } else {
+                double[] f = {LAT + random.nextDouble() * 0.05, LNG + random.nextDouble() * 0.05,
+                        20 + random.nextDouble() * 300};
+                fences.put(id, f);
+                index.add(id, f[0], f[1], f[2]);
+            }
+        }
+        assertEquals(fences.size(), index.size());
+
+        int[] out = new int[300];
+        for (int q = 0; q < 2000; q++) {
+            double lat = LAT + random.nextDouble() * 0.05;
+            double lng = LNG + random.nextDouble() * 0.05;
+            int expected = 0;
+            for (Map.Entry<Integer, double[]> e : fences.entrySet()) {
+                double[] f = e.getValue();
+                // Масштаб долготы — по центру зоны, как в индексе
+                double dy = (lat - f[0]) * GeoMath.METERS_PER_DEGREE_LAT;
+                double dx = (lng - f[1]) * GeoMath.metersPerDegreeLng(f[0]);
+                boolean inside = dx * dx + dy * dy <= f[2] * f[2];
+                assertEquals(inside, index.isInside(e.getKey(), lat, lng));
+                if (inside) {
+                    expected++;
+                }
+            }
+            assertEquals(expected, index.query(lat, lng, out));
+        }
+    }
+}
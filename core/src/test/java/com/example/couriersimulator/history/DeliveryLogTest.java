@@ -0,0 +1,318 @@
+package com.example.couriersimulator.history;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * DeliveryLog:
+ * - итоги и серии: лучшая серия и текущая через пропуск дней, текущая держится до конца
+ *   следующего дня; день считается по местному времени
+ * - доставка "задним числом" (раньше последнего дня) попадает в последний день
+ * - queryDays и readDays отдают ровно дни диапазона, записи — по порядку
+ * - после закрытия и открытия итоги и дни те же
+ * - восстановление в load(): оборванная запись отрезается, отставший индекс
+ *   дописывается по записям, индекс впереди записей строится заново
+ */
+public class DeliveryLogTest {
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final long HOUR_MS = 60L * 60 * 1000;
+    // UTC+3 без перехода на летнее время: граница дня — 21:00 UTC
+    private static final TimeZone ZONE = TimeZone.getTimeZone("GMT+03:00");
+
+    private File dir;
+
+    @Before
+    public void createDir() throws IOException {
+        dir = Files.createTempDirectory("history").toFile();
+    }
+
+    @After
+    public void deleteDir() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void totalsAndStreaksAcrossGap() throws Exception {
+        DeliveryLog log = DeliveryLog.open(dir, ZONE);
+        // Дни 100-102 подряд, пропуск, дни 105-106
+        int[] deliveryDays = {100, 100, 101, 102, 105, 106, 106};
+        for (int i = 0; i < deliveryDays.length; i++) {
+            deliver(log, i, deliveryDays[i], 10, 600, 100 + i);
+        }
+
+        assertEquals(7, log.getTotalDeliveries());
+        assertEquals(7 * 100 + 21, log.getTotalReward());
+        assertEquals(7 * 600.0, log.getTotalDistanceMeters(), 1e-6);
+        // 600 м за 10 минут
+        assertEquals(1.0, log.getAverageSpeedMps(), 1e-9);
+        assertEquals(3, log.getBestStreakDays());
+        assertEquals(2, log.getCurrentStreakDays(at(106, 23)));
+        // Вчера доставки были — серия ещё не прервана
+        assertEquals(2, log.getCurrentStreakDays(at(107, 12)));
+        assertEquals(0, log.getCurrentStreakDays(at(108, 0)));
+        assertEquals(2, log.getDeliveriesOn(at(106, 0)));
+        assertEquals(0, log.getDeliveriesOn(at(103, 12)));
+        log.close();
+    }
+
+    @Test
+    public void dayFollowsLocalTime() throws Exception {
+        DeliveryLog log = DeliveryLog.open(dir, ZONE);
+        long lateUtc = 200 * DAY_MS + 22 * HOUR_MS;
+        // 22:00 UTC — уже 01:00 следующего дня по UTC+3
+        assertEquals(201, log.epochDay(lateUtc));
+        log.append(1, lateUtc - 60_000, lateUtc, 100, 50, -1);
+        assertEquals(1, log.getDeliveriesOn(at(201, 12)));
+        assertEquals(0, log.getDeliveriesOn(at(200, 12)));
+        log.close();
+    }
+
+    @Test
+    public void backDatedDeliveryGoesToLastDay() throws Exception {
+        DeliveryLog log = DeliveryLog.open(dir, ZONE);
+        deliver(log, 1, 100, 10, 500, 10);
+        deliver(log, 2, 101, 10, 500, 20);
+        // Часы устройства ушли назад: доставка "за день 99"
+        deliver(log, 3, 99, 10, 500, 30);
+
+        assertDays(log, new int[]{100, 101}, new int[]{1, 2});
+        assertEquals(0, log.getDeliveriesOn(at(99, 12)));
+        assertEquals(2, log.getBestStreakDays());
+        assertEquals(ids(2, 3), orderIds(log, 101, 101));
+        log.close();
+
+        DeliveryLog reopened = DeliveryLog.open(dir, ZONE);
+        assertDays(reopened, new int[]{100, 101}, new int[]{1, 2});
+        reopened.close();
+    }
+
+    @Test
+    public void queryDaysAndReadDaysRanges() throws Exception {
+        DeliveryLog log = DeliveryLog.open(dir, ZONE);
+        int[] deliveryDays = {10, 11, 11, 13, 13, 13, 20};
+        for (int i = 0; i < deliveryDays.length; i++) {
+            deliver(log, i, deliveryDays[i], 5, 300, 10 * (i + 1));
+        }
+
+        List<DayStats> out = new ArrayList<>();
+        assertEquals(2, log.queryDays(11, 13, out));
+        assertEquals(11, out.get(0).getEpochDay());
+        assertEquals(2, out.get(0).getDeliveries());
+        assertEquals(20 + 30, out.get(0).getReward());
+        assertEquals(600.0, out.get(0).getDistanceMeters(), 1e-6);
+        assertEquals(2 * 5 * 60_000L, out.get(0).getDurationMillis());
+        assertEquals(13, out.get(1).getEpochDay());
+        assertEquals(3, out.get(1).getDeliveries());
+        // Границы без доставок и пустые диапазоны
+        assertEquals(1, log.queryDays(12, 19, new ArrayList<DayStats>()));
+        assertEquals(0, log.queryDays(14, 19, new ArrayList<DayStats>()));
+        assertEquals(0, log.queryDays(21, 100, new ArrayList<DayStats>()));
+        assertEquals(4, log.queryDays(0, Integer.MAX_VALUE, new ArrayList<DayStats>()));
+
+        assertEquals(ids(1, 2, 3, 4, 5), orderIds(log, 11, 13));
+        assertEquals(ids(3, 4, 5, 6), orderIds(log, 12, 20));
+        assertEquals(ids(0), orderIds(log, 0, 10));
+        assertEquals(ids(), orderIds(log, 14, 19));
+        assertEquals(ids(), orderIds(log, 21, 30));
+        log.close();
+    }
+
+    @Test
+    public void reopenRestoresTotalsAndDays() throws Exception {
+        DeliveryLog log = DeliveryLog.open(dir, ZONE);
+        int[] deliveryDays = {30, 31, 31, 33, 34, 35};
+        for (int i = 0; i < deliveryDays.length; i++) {
+            deliver(log, i, deliveryDays[i], 3 + i, 250 * i, 40 + i);
+        }
+        Totals before = new Totals(log);
+        log.close();
+
+        DeliveryLog reopened = DeliveryLog.open(dir, ZONE);
+        before.assertSame(reopened);
+        // Дописывание после открытия продолжает тот же индекс
+        deliver(reopened, 6, 35, 4, 400, 50);
+        assertEquals(7, reopened.getTotalDeliveries());
+        assertEquals(2, reopened.getDeliveriesOn(at(35, 0)));
+        assertEquals(ids(4, 5, 6), orderIds(reopened, 34, 35));
+        reopened.close();
+    }
+
+    @Test
+    public void tornRecordIsCutOff() throws Exception {
+        DeliveryLog log = DeliveryLog.open(dir, ZONE);
+        for (int i = 0; i < 3; i++) {
+            deliver(log, i, 50 + i, 10, 500, 100);
+        }
+        Totals before = new Totals(log);
+        log.close();
+        // Запись оборвалась на середине, до индекса дело не дошло
+        appendBytes(new File(dir, "deliveries.dat"), DeliveryLog.RECORD_BYTES / 2);
+
+        DeliveryLog reopened = DeliveryLog.open(dir, ZONE);
+        before.assertSame(reopened);
+        // Следующая запись ложится на место оборванной, а не после неё
+        deliver(reopened, 3, 53, 10, 500, 100);
+        assertEquals(ids(0, 1, 2, 3), orderIds(reopened, 0, 100));
+        reopened.close();
+        assertEquals(4L * DeliveryLog.RECORD_BYTES, new File(dir, "deliveries.dat").length());
+    }
+
+    @Test
+    public void indexBehindRecordsIsCaughtUp() throws Exception {
+        File daysFile = new File(dir, "days.idx");
+        DeliveryLog log = DeliveryLog.open(dir, ZONE);
+        deliver(log, 0, 60, 10, 500, 100);
+        deliver(log, 1, 61, 10, 500, 100);
+        byte[] staleIndex = Files.readAllBytes(daysFile.toPath());
+        // Ещё одна доставка в тот же день и одна в новый
+        deliver(log, 2, 61, 10, 500, 100);
+        deliver(log, 3, 62, 10, 500, 100);
+        Totals before = new Totals(log);
+        log.close();
+        // Сбой после записей, но до индекса: индекс на две доставки позади
+        Files.write(daysFile.toPath(), staleIndex);
+
+        DeliveryLog reopened = DeliveryLog.open(dir, ZONE);
+        before.assertSame(reopened);
+        assertEquals(ids(1, 2, 3), orderIds(reopened, 61, 62));
+        reopened.close();
+        assertEquals(3L * DeliveryLog.DAY_BYTES, daysFile.length());
+
+        // Индекс оборван посреди дня: неполный день отрезается и строится заново
+        try (RandomAccessFile raf = new RandomAccessFile(daysFile, "rw")) {
+            raf.setLength(2L * DeliveryLog.DAY_BYTES + 7);
+        }
+        DeliveryLog again = DeliveryLog.open(dir, ZONE);
+        before.assertSame(again);
+        again.close();
+    }
+
+    @Test
+    public void indexAheadOfRecordsIsRebuilt() throws Exception {
+        DeliveryLog log = DeliveryLog.open(dir, ZONE);
+        deliver(log, 0, 70, 10, 500, 100);
+        deliver(log, 1, 70, 10, 500, 200);
+        Totals expected = new Totals(log);
+        deliver(log, 2, 71, 10, 500, 400);
+        deliver(log, 3, 72, 10, 500, 800);
+        log.close();
+        // Записи потеряны (файл откатился), а индекс уже учёл их
+        try (RandomAccessFile raf = new RandomAccessFile(new File(dir, "deliveries.dat"), "rw")) {
+            raf.setLength(2L * DeliveryLog.RECORD_BYTES);
+        }
+
+        DeliveryLog reopened = DeliveryLog.open(dir, ZONE);
+        expected.assertSame(reopened);
+        assertEquals(0, reopened.getDeliveriesOn(at(71, 12)));
+        assertEquals(ids(0, 1), orderIds(reopened, 0, 100));
+        reopened.close();
+        assertEquals(DeliveryLog.DAY_BYTES, new File(dir, "days.idx").length());
+
+        // Перестроенный индекс записан на диск
+        DeliveryLog again = DeliveryLog.open(dir, ZONE);
+        expected.assertSame(again);
+        again.close();
+    }
+
+    // ---------- Вспомогательное ----------
+
+    /** Доставка, завершённая в полдень дня day (по ZONE) после minutes минут в пути */
+    private static void deliver(DeliveryLog log, long orderId, int day, int minutes,
+                                float distance, int reward) throws IOException {
+        long delivered = at(day, 12);
+        log.append(orderId, delivered - minutes * 60_000L, delivered, distance, reward, -1);
+    }
+
+    /** Момент hour:00 по ZONE в день day */
+    private static long at(int day, int hour) {
+        return day * DAY_MS + hour * HOUR_MS - ZONE.getRawOffset();
+    }
+
+    private static List<Long> orderIds(DeliveryLog log, int fromDay, int toDay) throws IOException {
+        List<Long> ids = new ArrayList<>();
+        log.readDays(fromDay, toDay, (orderId, accepted, delivered, distance, reward, card) -> ids.add(orderId));
+        return ids;
+    }
+
+    private static List<Long> ids(long... values) {
+        List<Long> ids = new ArrayList<>();
+        for (long v : values) {
+            ids.add(v);
+        }
+        return ids;
+    }
+
+    private static void assertDays(DeliveryLog log, int[] expectedDays, int[] expectedDeliveries) {
+        List<DayStats> out = new ArrayList<>();
+        log.queryDays(Integer.MIN_VALUE, Integer.MAX_VALUE, out);
+        assertEquals(expectedDays.length, out.size());
+        for (int i = 0; i < expectedDays.length; i++) {
+            assertEquals(expectedDays[i], out.get(i).getEpochDay());
+            assertEquals(expectedDeliveries[i], out.get(i).getDeliveries());
+        }
+    }
+
+    private static void appendBytes(File file, int count) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length());
+            raf.write(new byte[count]);
+        }
+    }
+
+    /** Итоги и дни журнала на момент создания — для сравнения после открытия */
+    private static final class Totals {
+        final long deliveries;
+        final long reward;
+        final double distance;
+        final double speed;
+        final int bestStreak;
+        final List<DayStats> days = new ArrayList<>();
+
+        Totals(DeliveryLog log) {
+            deliveries = log.getTotalDeliveries();
+            reward = log.getTotalReward();
+            distance = log.getTotalDistanceMeters();
+            speed = log.getAverageSpeedMps();
+            bestStreak = log.getBestStreakDays();
+            log.queryDays(Integer.MIN_VALUE, Integer.MAX_VALUE, days);
+        }
+
+        void assertSame(DeliveryLog log) {
+            assertEquals(deliveries, log.getTotalDeliveries());
+            assertEquals(reward, log.getTotalReward());
+            assertEquals(distance, log.getTotalDistanceMeters(), 1e-6);
+            assertEquals(speed, log.getAverageSpeedMps(), 1e-9);
+            assertEquals(bestStreak, log.getBestStreakDays());
+            List<DayStats> actual = new ArrayList<>();
+            log.queryDays(Integer.MIN_VALUE, Integer.MAX_VALUE, actual);
+            assertEquals(days.size(), actual.size());
+            for (int i = 0; i < days.size(); i++) {
+                DayStats e = days.get(i);
+                DayStats a = actual.get(i);
+                assertEquals(e.getEpochDay(), a.getEpochDay());
+                assertEquals(e.getDeliveries(), a.getDeliveries());
+                assertEquals(e.getReward(), a.getReward());
+                assertEquals(e.getDistanceMeters(), a.getDistanceMeters(), 1e-6);
+                assertEquals(e.getDurationMillis(), a.getDurationMillis());
+            }
+        }
+    }
+}
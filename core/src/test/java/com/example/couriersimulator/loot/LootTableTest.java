@@ -0,0 +1,225 @@
+package com.example.couriersimulator.loot;
+
+import com.example.couriersimulator.TimingChecks;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Статистическая проверка LootTable:
+ * - частоты новых карточек и дубликатов против ожидаемых (хи-квадрат)
+ * - доля доставок с карточкой без гарантий (z-критерий)
+ * - гарантии ни разу не нарушаются за полный сбор коллекции
+ * - одинаковый seed даёт одинаковую последовательность
+ * - время розыгрыша не растёт с размером каталога (только с TimingChecks)
+ */
+public class LootTableTest {
+
+    // Порог отклонения (в сигмах после нормализации хи-квадрат); ложная тревога ~3e-5
+    private static final double Z_LIMIT = 4.0;
+    private static final long SEED = 42L;
+    private static final int ROLLS = 2_000_000;
+    // Розыгрыш без перебора каталога — микросекунды даже на миллионе карточек
+    private static final double MAX_ROLL_MICROS = 20;
+
+    private final LootTable table = catalog(200, new Random(SEED));
+
+    /**
+     * Коллекция фиксирована (собрана случайная половина и одна редкость целиком),
+     * выданные карточки в неё не добавляются. Ожидание для несобранной карточки c
+     * редкости t: P(t) * w(c) / (вес несобранных в t); для полностью собранной
+     * редкости — P(t) * w(c) / (вес t) как дубликат.
+     */
+    @Test
+    public void distributionMatchesWeights() {
+        Random random = new Random(SEED);
+        int n = table.size();
+        BitSet owned = new BitSet();
+        for (int i = 0; i < n; i++) {
+            if (random.nextBoolean() || table.getRarity(i) == Rarity.EPIC) {
+                owned.set(i);
+            }
+        }
+        int tiers = Rarity.values().length;
+        double[] tierWeight = new double[tiers];
+        double[] freeWeight = new double[tiers];
+        for (int i = 0; i < n; i++) {
+            int t = table.getRarity(i).ordinal();
+            tierWeight[t] += table.getWeight(i);
+            if (!owned.get(i)) {
+                freeWeight[t] += table.getWeight(i);
+            }
+        }
+        double total = 0;
+        for (double w : tierWeight) {
+            total += w;
+        }
+        double[] expected = new double[n];
+        for (int i = 0; i < n; i++) {
+            int t = table.getRarity(i).ordinal();
+            double pTier = tierWeight[t] / total;
+            if (freeWeight[t] > 0) {
+                expected[i] = owned.get(i) ? 0 : pTier * table.getWeight(i) / freeWeight[t];
+            } else {
+                expected[i] = pTier * table.getWeight(i) / tierWeight[t];
+            }
+        }
+
+        long[] observed = new long[n];
+        LootState state = new LootState();
+        for (int i = 0; i < ROLLS; i++) {
+            int r = table.roll(random, 1.0, 0, 0, owned, state);
+            if (r >= 0) {
+                assertFalse("owned card " + r + " returned as new", owned.get(r));
+                observed[r]++;
+            } else if (LootTable.isDuplicate(r)) {
+                int card = LootTable.duplicateOrdinal(r);
+                assertEquals("duplicate " + card + " while its rarity is not collected",
+                        0, freeWeight[table.getRarity(card).ordinal()], 0);
+                observed[card]++;
+            } else {
+                fail("unexpected result " + r);
+            }
+        }
+        assertChiSquare(observed, expected, ROLLS);
+    }
+
+    /** Без гарантий карточка выпадает ровно с шансом chance */
+    @Test
+    public void dropRateMatchesChance() {
+        Random random = new Random(SEED + 1);
+        double chance = 0.4;
+        LootState state = new LootState();
+        BitSet owned = new BitSet();
+        long drops = 0;
+        for (int i = 0; i < ROLLS; i++) {
+            if (table.roll(random, chance, 0, 0, owned, state) != LootTable.NO_DROP) {
+                drops++;
+            }
+        }
+        double z = (drops - ROLLS * chance) / Math.sqrt(ROLLS * chance * (1 - chance));
+        assertTrue("z=" + z, Math.abs(z) < Z_LIMIT);
+    }
+
+    /** Полный сбор коллекции: гарантии держатся, а после сбора идут только дубликаты */
+    @Test
+    public void pityHoldsThroughFullCollection() {
+        Random random = new Random(SEED + 2);
+        int dropPity = 8;
+        int rarePity = 10;
+        int pityTier = table.getPityRarity().ordinal();
+        BitSet owned = new BitSet();
+        LootState state = new LootState();
+        int misses = 0;
+        int sinceRare = 0;
+        long deliveries = 0;
+        while (owned.cardinality() < table.size() && deliveries < 10_000_000) {
+            deliveries++;
+            int r = table.roll(random, 0.1, dropPity, rarePity, owned, state);
+            if (r == LootTable.NO_DROP) {
+                assertTrue("misses " + (misses + 1), ++misses < dropPity);
+                continue;
+            }
+            misses = 0;
+            int card = r >= 0 ? r : LootTable.duplicateOrdinal(r);
+            sinceRare = table.getRarity(card).ordinal() >= pityTier ? 0 : sinceRare + 1;
+            assertTrue("drops since rare " + sinceRare, sinceRare < rarePity);
+            if (r >= 0) {
+                owned.set(r);
+            }
+        }
+        assertEquals(table.size(), owned.cardinality());
+        assertEquals(misses, state.getMissStreak());
+        assertEquals(sinceRare, state.getDropsSinceRare());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(LootTable.isDuplicate(table.roll(random, 1.0, dropPity, rarePity, owned, state)));
+        }
+    }
+
+    @Test
+    public void sameSeedGivesSameSequence() {
+        assertEquals(sequenceHash(table, SEED), sequenceHash(table, SEED));
+    }
+
+    /** Сбор всей коллекции с шансом 1: время на розыгрыш при разных размерах каталога */
+    @Test
+    public void rollTimeDoesNotGrowWithCatalog() {
+        assumeTrue("timing checks are opt-in", TimingChecks.ENABLED);
+        for (int size : new int[]{100, 10_000, 1_000_000}) {
+            LootTable big = catalog(size, new Random(SEED));
+            Random random = new Random(SEED + 4);
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < 3; run++) {
+                BitSet owned = new BitSet();
+                LootState state = new LootState();
+                long start = System.nanoTime();
+                for (int i = 0; i < size; i++) {
+                    int r = big.roll(random, 1.0, 0, 0, owned, state);
+                    if (r >= 0) {
+                        owned.set(r);
+                    }
+                }
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            double micros = best / 1e3 / size;
+            assertTrue("catalog " + size + ": " + micros + " us/roll", micros < MAX_ROLL_MICROS);
+        }
+    }
+
+    // Каталог: все редкости, вес карточки — вес редкости с разбросом ±50%
+    private static LootTable catalog(int size, Random random) {
+        Rarity[] rarities = new Rarity[size];
+        double[] weights = new double[size];
+        Rarity[] all = Rarity.values();
+        for (int i = 0; i < size; i++) {
+            // Обычных больше всего, легендарных меньше всего
+            Rarity r = all[Math.min(all.length - 1, (int) (-Math.log(1 - random.nextDouble()) * 0.8))];
+            rarities[i] = r;
+            weights[i] = r.getDefaultWeight() * (0.5 + random.nextDouble());
+        }
+        return new LootTable(rarities, weights, LootTable.DEFAULT_PITY_RARITY);
+    }
+
+    private static long sequenceHash(LootTable table, long seed) {
+        Random random = new Random(seed + 3);
+        BitSet owned = new BitSet();
+        LootState state = new LootState();
+        long h = 1;
+        for (int i = 0; i < 100_000; i++) {
+            int r = table.roll(random, 0.4, 8, 10, owned, state);
+            if (r >= 0) {
+                owned.set(r);
+            }
+            h = h * 31 + r;
+        }
+        return h;
+    }
+
+    private static void assertChiSquare(long[] observed, double[] expected, long total) {
+        double chi = 0;
+        int bins = 0;
+        for (int i = 0; i < observed.length; i++) {
+            double e = expected[i] * total;
+            if (e == 0) {
+                assertEquals("impossible outcome " + i, 0, observed[i]);
+                continue;
+            }
+            double d = observed[i] - e;
+            chi += d * d / e;
+            bins++;
+        }
+        int k = bins - 1;
+        // Уилсон — Хилферти: (chi/k)^(1/3) примерно нормально распределено
+        double mean = 1 - 2.0 / (9 * k);
+        double z = (Math.cbrt(chi / k) - mean) / Math.sqrt(2.0 / (9 * k));
+        assertTrue(String.format("chi2=%.1f df=%d z=%.2f", chi, k, z), z < Z_LIMIT);
+    }
+}
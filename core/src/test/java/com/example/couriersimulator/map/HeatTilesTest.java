@@ -0,0 +1,285 @@
+package com.example.couriersimulator.map;
+
+import com.example.couriersimulator.TimingChecks;
+import com.example.couriersimulator.metrics.LatencyHistogram;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * HeatTiles:
+ * - render: плотность тайлов совпадает с прямым суммированием пятен всех точек,
+ *   в том числе у краёв тайлов (пятно точки переходит на соседний тайл без шва)
+ * - dirty: новая точка помечает грязными ровно те отслеживаемые тайлы, до которых
+ *   достаёт её пятно; после render тайл снова чистый
+ * - speed: на сотнях тысяч точек новая точка портит единицы тайлов из кэша; добавление
+ *   точки и растеризация тайла (на каждом зуме экрана телефона) укладываются в бюджет —
+ *   только с TimingChecks (регрессии между версиями ловит HeatTileBenchmark)
+ */
+public class HeatTilesTest {
+
+    private static final double ORIGIN_LAT = 55.751244;
+    private static final double ORIGIN_LNG = 37.618423;
+    private static final int RADIUS_PX = 10;
+    private static final long SEED = 42L;
+    private static final int SPEED_POINTS = 300_000;
+    private static final double MAX_ERROR = 1e-3;
+    // Тайл растеризуется в фоне, но экран с 50 новыми тайлами должен появиться за доли секунды
+    private static final double MAX_RENDER_P99_MILLIS = 20;
+    private static final double MAX_ADD_MICROS = 5;
+    // Экран телефона — около 5 x 10 тайлов
+    private static final int SCREEN_COLS = 5;
+    private static final int SCREEN_ROWS = 10;
+
+    /** Сравнение с прямым суммированием на нескольких зумах, по тайлу и его соседям */
+    @Test
+    public void renderMatchesBruteForce() {
+        Random random = new Random(SEED);
+        int n = 3000;
+        double[] lat = new double[n];
+        double[] lng = new double[n];
+        HeatTiles tiles = new HeatTiles(RADIUS_PX);
+        for (int i = 0; i < n; i++) {
+            // Половина — плотное облако, половина — разброс по городу
+            double spread = i % 2 == 0 ? 0.002 : 0.05;
+            lat[i] = ORIGIN_LAT + random.nextGaussian() * spread;
+            lng[i] = ORIGIN_LNG + random.nextGaussian() * spread;
+            tiles.add(lat[i], lng[i]);
+        }
+        float[] density = new float[HeatTiles.TILE_SIZE * HeatTiles.TILE_SIZE];
+        long contributions = 0;
+        for (int zoom : new int[]{HeatTiles.MIN_ZOOM, 9, 13, 16, 19}) {
+            int cx = HeatTiles.tileX(ORIGIN_LNG, zoom);
+            int cy = HeatTiles.tileY(ORIGIN_LAT, zoom);
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int x = cx + dx;
+                    int y = cy + dy;
+                    if (x < 0 || y < 0 || x >= 1 << zoom || y >= 1 << zoom) {
+                        continue;
+                    }
+                    int found = tiles.render(zoom, x, y, density);
+                    float[] expected = bruteForce(lat, lng, zoom, x, y);
+                    for (int p = 0; p < expected.length; p++) {
+                        float actual = found > 0 ? density[p] : 0f;
+                        double error = Math.abs(actual - expected[p]) / Math.max(1, expected[p]);
+                        assertTrue("zoom " + zoom + " tile " + x + "," + y + " pixel " + p + ": " + error,
+                                error < MAX_ERROR);
+                    }
+                    contributions += found;
+                }
+            }
+        }
+        assertTrue(contributions > 0);
+    }
+
+    /** Точки в тайле, у его краёв и вдали: грязными становятся ровно задетые тайлы */
+    @Test
+    public void addDirtiesExactlyTouchedTiles() {
+        Random random = new Random(SEED);
+        HeatTiles tiles = new HeatTiles(RADIUS_PX);
+        tiles.add(ORIGIN_LAT, ORIGIN_LNG);
+        float[] density = new float[HeatTiles.TILE_SIZE * HeatTiles.TILE_SIZE];
+        List<int[]> tracked = new ArrayList<>();
+        for (int zoom = 10; zoom <= 18; zoom += 2) {
+            int cx = HeatTiles.tileX(ORIGIN_LNG, zoom);
+            int cy = HeatTiles.tileY(ORIGIN_LAT, zoom);
+            for (int dy = -2; dy <= 2; dy++) {
+                for (int dx = -2; dx <= 2; dx++) {
+                    tiles.render(zoom, cx + dx, cy + dy, density);
+                    tracked.add(new int[]{zoom, cx + dx, cy + dy});
+                }
+            }
+        }
+        int dirtied = 0;
+        for (int i = 0; i < 2000; i++) {
+            // Разброс от десятков метров до километров: и внутри тайлов, и у краёв
+            double spread = Math.pow(10, -4 + random.nextDouble() * 2.5);
+            double lat = ORIGIN_LAT + random.nextGaussian() * spread;
+            double lng = ORIGIN_LNG + random.nextGaussian() * spread;
+            boolean anyDirtied = tiles.add(lat, lng);
+            boolean anyExpected = false;
+            for (int[] t : tracked) {
+                long key = HeatTiles.tileKey(t[0], t[1], t[2]);
+                boolean expected = touches(lat, lng, t[0], t[1], t[2]);
+                anyExpected |= expected;
+                assertEquals(expected, tiles.isDirty(key));
+                if (expected) {
+                    dirtied++;
+                    tiles.render(t[0], t[1], t[2], density);
+                    assertFalse(tiles.isDirty(key));
+                }
+            }
+            // Все тайлы были чистыми: add сообщает, нужна ли перерисовка
+            assertEquals(anyExpected, anyDirtied);
+        }
+        assertTrue(dirtied > 0);
+    }
+
+    @Test
+    public void addReportsOnlyNewlyDirtiedTiles() {
+        HeatTiles tiles = new HeatTiles(RADIUS_PX);
+        float[] density = new float[HeatTiles.TILE_SIZE * HeatTiles.TILE_SIZE];
+        int zoom = 16;
+        tiles.render(zoom, HeatTiles.tileX(ORIGIN_LNG, zoom), HeatTiles.tileY(ORIGIN_LAT, zoom), density);
+
+        assertTrue(tiles.add(ORIGIN_LAT, ORIGIN_LNG));
+        // Тайл ещё не перерисован — вторая точка ничего нового не портит
+        assertFalse(tiles.add(ORIGIN_LAT, ORIGIN_LNG));
+        // Вне отслеживаемых тайлов
+        assertFalse(tiles.add(ORIGIN_LAT + 1, ORIGIN_LNG));
+    }
+
+    @Test
+    public void forgottenTileIsNotTracked() {
+        HeatTiles tiles = new HeatTiles(RADIUS_PX);
+        float[] density = new float[HeatTiles.TILE_SIZE * HeatTiles.TILE_SIZE];
+        int zoom = 14;
+        int x = HeatTiles.tileX(ORIGIN_LNG, zoom);
+        int y = HeatTiles.tileY(ORIGIN_LAT, zoom);
+        long key = HeatTiles.tileKey(zoom, x, y);
+        tiles.render(zoom, x, y, density);
+        tiles.render(zoom, x + 1, y, density);
+
+        tiles.forget(key);
+        tiles.add(HeatTiles.tileLat(y, zoom), HeatTiles.tileLng(x, zoom));
+
+        assertFalse(tiles.isDirty(key));
+        assertEquals(1, tiles.getTrackedCount());
+    }
+
+    @Test
+    public void clearRemovesPointsAndDirtiesTrackedTiles() {
+        HeatTiles tiles = new HeatTiles(RADIUS_PX);
+        float[] density = new float[HeatTiles.TILE_SIZE * HeatTiles.TILE_SIZE];
+        int zoom = 15;
+        int x = HeatTiles.tileX(ORIGIN_LNG, zoom);
+        int y = HeatTiles.tileY(ORIGIN_LAT, zoom);
+        tiles.add(ORIGIN_LAT, ORIGIN_LNG);
+        assertEquals(1, tiles.render(zoom, x, y, density));
+
+        tiles.clear();
+
+        assertEquals(0, tiles.getPointCount());
+        assertTrue(tiles.isDirty(HeatTiles.tileKey(zoom, x, y)));
+        assertEquals(0, tiles.render(zoom, x, y, density));
+        tiles.add(ORIGIN_LAT, ORIGIN_LNG);
+        assertEquals(1, tiles.render(zoom, x, y, density));
+    }
+
+    /** След по городу и скопления доставок; замеры добавления, растеризации и порчи кэша */
+    @Test
+    public void addAndRenderFitBudget() {
+        Random random = new Random(SEED);
+        HeatTiles tiles = new HeatTiles(RADIUS_PX);
+        double[] lat = new double[SPEED_POINTS];
+        double[] lng = new double[SPEED_POINTS];
+        double walkLat = ORIGIN_LAT;
+        double walkLng = ORIGIN_LNG;
+        for (int i = 0; i < SPEED_POINTS; i++) {
+            if (i % 10 == 0) {
+                // Доставка: точка у одного из 50 "популярных" адресов
+                int spot = random.nextInt(50);
+                lat[i] = ORIGIN_LAT + Math.sin(spot * 1.7) * 0.04 + random.nextGaussian() * 0.0005;
+                lng[i] = ORIGIN_LNG + Math.cos(spot * 2.3) * 0.06 + random.nextGaussian() * 0.0005;
+            } else {
+                // Фиксы GPS раз в несколько секунд пешком, в пределах города
+                walkLat += random.nextGaussian() * 0.0001 - (walkLat - ORIGIN_LAT) * 0.001;
+                walkLng += random.nextGaussian() * 0.00015 - (walkLng - ORIGIN_LNG) * 0.001;
+                lat[i] = walkLat;
+                lng[i] = walkLng;
+            }
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < SPEED_POINTS; i++) {
+            tiles.add(lat[i], lng[i]);
+        }
+        double addMicros = (System.nanoTime() - start) / 1e3 / SPEED_POINTS;
+
+        float[] density = new float[HeatTiles.TILE_SIZE * HeatTiles.TILE_SIZE];
+        // Прогрев JIT
+        for (int i = 0; i < 200; i++) {
+            tiles.render(12 + i % 6, HeatTiles.tileX(ORIGIN_LNG, 12 + i % 6),
+                    HeatTiles.tileY(ORIGIN_LAT, 12 + i % 6), density);
+        }
+        tiles.forgetAll();
+        LatencyHistogram render = new LatencyHistogram();
+        for (int zoom = 10; zoom <= 18; zoom++) {
+            int cx = HeatTiles.tileX(ORIGIN_LNG, zoom) - SCREEN_COLS / 2;
+            int cy = HeatTiles.tileY(ORIGIN_LAT, zoom) - SCREEN_ROWS / 2;
+            for (int y = cy; y < cy + SCREEN_ROWS; y++) {
+                for (int x = cx; x < cx + SCREEN_COLS; x++) {
+                    long t0 = System.nanoTime();
+                    tiles.render(zoom, x, y, density);
+                    render.record(System.nanoTime() - t0);
+                }
+            }
+        }
+
+        // Новый фикс портит только тайлы у себя на каждом зуме, а не весь кэш
+        tiles.add(walkLat, walkLng);
+        int dirty = 0;
+        for (int zoom = 10; zoom <= 18; zoom++) {
+            int cx = HeatTiles.tileX(ORIGIN_LNG, zoom) - SCREEN_COLS / 2;
+            int cy = HeatTiles.tileY(ORIGIN_LAT, zoom) - SCREEN_ROWS / 2;
+            for (int y = cy; y < cy + SCREEN_ROWS; y++) {
+                for (int x = cx; x < cx + SCREEN_COLS; x++) {
+                    if (tiles.isDirty(HeatTiles.tileKey(zoom, x, y))) {
+                        dirty++;
+                    }
+                }
+            }
+        }
+        assertTrue("dirty tiles " + dirty, dirty > 0 && dirty <= 4 * 9);
+        if (TimingChecks.ENABLED) {
+            double p99 = render.valueAtPercentile(99) / 1e6;
+            assertTrue("add " + addMicros + " us/point", addMicros < MAX_ADD_MICROS);
+            assertTrue("render p99 " + p99 + " ms", p99 < MAX_RENDER_P99_MILLIS);
+        }
+    }
+
+    // Прямое суммирование: каждая точка — пятно вокруг своего пикселя на этом зуме
+    private static float[] bruteForce(double[] lat, double[] lng, int zoom, int x, int y) {
+        int size = HeatTiles.TILE_SIZE;
+        float[] out = new float[size * size];
+        double sigma = RADIUS_PX / 2.0;
+        for (int i = 0; i < lat.length; i++) {
+            long px = pixelX(lng[i], zoom) - (long) x * size;
+            long py = pixelY(lat[i], zoom) - (long) y * size;
+            for (long oy = Math.max(0, py - RADIUS_PX); oy <= Math.min(size - 1, py + RADIUS_PX); oy++) {
+                for (long ox = Math.max(0, px - RADIUS_PX); ox <= Math.min(size - 1, px + RADIUS_PX); ox++) {
+                    double dx = ox - px;
+                    double dy = oy - py;
+                    out[(int) (oy * size + ox)] += (float) (Math.exp(-dx * dx / (2 * sigma * sigma))
+                            * Math.exp(-dy * dy / (2 * sigma * sigma)));
+                }
+            }
+        }
+        return out;
+    }
+
+    private static boolean touches(double lat, double lng, int zoom, int x, int y) {
+        long px = pixelX(lng, zoom);
+        long py = pixelY(lat, zoom);
+        long size = HeatTiles.TILE_SIZE;
+        return px >= x * size - RADIUS_PX && px < (x + 1) * size + RADIUS_PX
+                && py >= y * size - RADIUS_PX && py < (y + 1) * size + RADIUS_PX;
+    }
+
+    private static long pixelX(double lng, int zoom) {
+        return (long) Math.floor((lng + 180.0) / 360.0 * HeatTiles.TILE_SIZE * (1L << zoom));
+    }
+
+    private static long pixelY(double lat, int zoom) {
+        double sin = Math.sin(Math.toRadians(lat));
+        double y = 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+        return (long) Math.floor(y * HeatTiles.TILE_SIZE * (1L << zoom));
+    }
+}
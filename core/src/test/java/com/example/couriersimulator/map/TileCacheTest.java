@@ -0,0 +1,167 @@
+package com.example.couriersimulator.map;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * TileCache против локального сервера тайлов:
+ * - промах качает тайл, попадание читает с диска без запроса
+ * - при превышении бюджета вытесняется давно не показанный тайл, а не давно скачанный
+ * - офлайн — только показанные раньше тайлы, без запросов
+ * - устаревший тайл перекачивается; после перезапуска размер кэша тот же
+ */
+public class TileCacheTest {
+
+    private static final int TILE_BYTES = 1000;
+    // Тайл на диске: заголовок со временем скачивания и сами байты
+    private static final long FILE_BYTES = 8 + TILE_BYTES;
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private String urlTemplate;
+    private File dir;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            String[] parts = exchange.getRequestURI().getPath().split("/");
+            int status = parts.length == 4 && !"404".equals(parts[1]) ? 200 : 404;
+            byte[] body = tile(exchange.getRequestURI().getPath());
+            exchange.sendResponseHeaders(status, status == 200 ? body.length : -1);
+            if (status == 200) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        urlTemplate = "http://127.0.0.1:" + server.getAddress().getPort() + "/{z}/{x}/{y}.png";
+        dir = Files.createTempDirectory("tiles").toFile();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void missDownloadsAndHitReadsDisk() throws IOException {
+        TileCache cache = cache(10 * FILE_BYTES, DAY_MILLIS);
+
+        assertArrayEquals(tile("/14/1/2.png"), cache.get(14, 1, 2));
+        assertEquals(1, requests.get());
+        assertEquals(1, cache.getMisses());
+
+        assertArrayEquals(tile("/14/1/2.png"), cache.get(14, 1, 2));
+        assertEquals(1, requests.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(FILE_BYTES, cache.getSizeBytes());
+    }
+
+    @Test
+    public void evictsLeastRecentlyViewed() throws IOException {
+        TileCache cache = cache(3 * FILE_BYTES, DAY_MILLIS);
+        cache.get(14, 0, 0);
+        cache.get(14, 1, 0);
+        cache.get(14, 2, 0);
+        // Первый скачанный показан снова: вытесняться должен второй
+        cache.get(14, 0, 0);
+        cache.get(14, 3, 0);
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(3, cache.getTileCount());
+        assertEquals(3 * FILE_BYTES, cache.getSizeBytes());
+        int before = requests.get();
+        cache.get(14, 0, 0);
+        cache.get(14, 2, 0);
+        cache.get(14, 3, 0);
+        assertEquals(before, requests.get());
+        cache.get(14, 1, 0);
+        assertEquals(before + 1, requests.get());
+    }
+
+    @Test
+    public void offlineServesOnlyViewedTiles() throws IOException {
+        TileCache cache = cache(10 * FILE_BYTES, DAY_MILLIS);
+        cache.get(14, 5, 5);
+        cache.setOffline(true);
+
+        assertArrayEquals(tile("/14/5/5.png"), cache.get(14, 5, 5));
+        assertNull(cache.get(14, 6, 6));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void staleTileIsRefetchedWhenOnline() throws IOException {
+        TileCache cache = cache(10 * FILE_BYTES, 0);
+        cache.get(14, 7, 7);
+        cache.get(14, 7, 7);
+        assertEquals(2, requests.get());
+
+        cache.setOffline(true);
+        assertArrayEquals(tile("/14/7/7.png"), cache.get(14, 7, 7));
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void serverErrorIsNotCached() throws IOException {
+        TileCache cache = new TileCache(dir, 10 * FILE_BYTES, DAY_MILLIS,
+                urlTemplate.replace("/{z}/", "/404/{z}/"), "CourierSimulatorTest");
+        assertNull(cache.get(14, 1, 1));
+        assertEquals(0, cache.getTileCount());
+        assertFalse(new File(dir, "14-1-1.tile").exists());
+    }
+
+    @Test
+    public void reopenKeepsTilesWithinBudget() throws IOException {
+        TileCache cache = cache(4 * FILE_BYTES, DAY_MILLIS);
+        for (int x = 0; x < 4; x++) {
+            cache.get(15, x, 0);
+        }
+        TileCache reopened = cache(2 * FILE_BYTES, DAY_MILLIS);
+        assertEquals(2, reopened.getTileCount());
+        assertEquals(2 * FILE_BYTES, reopened.getSizeBytes());
+        assertEquals(2, dir.list().length);
+    }
+
+    private TileCache cache(long maxBytes, long maxAgeMillis) {
+        return new TileCache(dir, maxBytes, maxAgeMillis, urlTemplate, "CourierSimulatorTest");
+    }
+
+    // Тело тайла: путь запроса, дополненный до TILE_BYTES
+    private static byte[] tile(String path) {
+        byte[] body = new byte[TILE_BYTES];
+        byte[] name = path.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(name, 0, body, 0, name.length);
+        return body;
+    }
+}
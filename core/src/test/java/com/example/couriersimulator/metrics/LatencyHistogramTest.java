@@ -0,0 +1,112 @@
+package com.example.couriersimulator.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * LatencyHistogram:
+ * - корзины идут подряд без дыр: indexOf(lowerBoundOf(i)) == i, а значение лежит
+ *   между нижней границей своей корзины и границей следующей
+ * - до 64 значения точные, дальше ширина корзины не больше 1/32 её нижней границы
+ * - середина корзины внутри корзины
+ * - ранг процентиля: ceil(p% от числа записей), без ошибки округления (p99.9 из 1000)
+ * - ответ не больше максимума, значения вне диапазона прижимаются к краям
+ */
+public class LatencyHistogramTest {
+
+    private static final int BUCKETS = LatencyHistogram.indexOf(LatencyHistogram.MAX_TRACKABLE_NANOS) + 1;
+
+    @Test
+    public void bucketsAreContiguous() {
+        assertEquals(0, LatencyHistogram.lowerBoundOf(0));
+        for (int i = 0; i < BUCKETS; i++) {
+            long lower = LatencyHistogram.lowerBoundOf(i);
+            assertEquals(i, LatencyHistogram.indexOf(lower));
+            if (i + 1 < BUCKETS) {
+                long next = LatencyHistogram.lowerBoundOf(i + 1);
+                assertTrue(next > lower);
+                assertEquals(i, LatencyHistogram.indexOf(next - 1));
+            }
+        }
+        assertEquals(BUCKETS - 1, LatencyHistogram.indexOf(LatencyHistogram.MAX_TRACKABLE_NANOS));
+    }
+
+    @Test
+    public void valuesFallInsideTheirBucket() {
+        for (long v = 0; v < 1 << 16; v++) {
+            assertInside(v);
+        }
+        for (int bit = 16; bit < 40; bit++) {
+            assertInside((1L << bit) - 1);
+            assertInside(1L << bit);
+            assertInside((1L << bit) + 1);
+            assertInside((1L << bit) * 3 / 2);
+        }
+    }
+
+    @Test
+    public void smallValuesAreExactAndLargeOnesWithinThreePercent() {
+        for (int v = 0; v < 64; v++) {
+            assertEquals(v, LatencyHistogram.indexOf(v));
+            assertEquals(v, LatencyHistogram.middleOf(v));
+        }
+        for (int i = 64; i + 1 < BUCKETS; i++) {
+            long lower = LatencyHistogram.lowerBoundOf(i);
+            long width = LatencyHistogram.lowerBoundOf(i + 1) - lower;
+            assertTrue("bucket " + i, width * 32 <= lower);
+            long middle = LatencyHistogram.middleOf(i);
+            assertTrue("bucket " + i, middle >= lower && middle < lower + width);
+        }
+    }
+
+    @Test
+    public void percentileRank() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.valueAtPercentile(50));
+        for (int v = 1; v <= 60; v++) {
+            h.record(v);
+        }
+        assertEquals(1, h.valueAtPercentile(0));
+        assertEquals(30, h.valueAtPercentile(50));
+        // ceil(0.9 * 60) = 54
+        assertEquals(54, h.valueAtPercentile(90));
+        assertEquals(60, h.valueAtPercentile(99));
+        assertEquals(60, h.valueAtPercentile(100));
+
+        // 999 быстрых и одна медленная: p99.9 — 999-я запись, а не выброс
+        LatencyHistogram tail = new LatencyHistogram();
+        for (int i = 0; i < 999; i++) {
+            tail.record(10);
+        }
+        tail.record(50);
+        assertEquals(10, tail.valueAtPercentile(99.9));
+        assertEquals(50, tail.valueAtPercentile(99.99));
+        assertEquals(1000, tail.getCount());
+        assertEquals(50, tail.getMaxNanos());
+        assertEquals((999 * 10 + 50) / 1000.0, tail.getMeanNanos(), 1e-9);
+    }
+
+    @Test
+    public void answerIsCappedByMaxAndValuesAreClamped() {
+        LatencyHistogram h = new LatencyHistogram();
+        // 995 лежит в корзине [992, 1008): её середина 1000 больше максимума
+        h.record(995);
+        assertEquals(995, h.valueAtPercentile(50));
+
+        h.reset();
+        h.record(-5);
+        h.record(Long.MAX_VALUE);
+        assertEquals(0, h.valueAtPercentile(50));
+        assertEquals(LatencyHistogram.MAX_TRACKABLE_NANOS, h.getMaxNanos());
+        // Последняя корзина, как и для остальных — её середина
+        assertEquals(LatencyHistogram.middleOf(BUCKETS - 1), h.valueAtPercentile(100));
+    }
+
+    private static void assertInside(long v) {
+        int i = LatencyHistogram.indexOf(v);
+        assertTrue("value " + v, LatencyHistogram.lowerBoundOf(i) <= v);
+        assertTrue("value " + v, i + 1 == BUCKETS || v < LatencyHistogram.lowerBoundOf(i + 1));
+    }
+}
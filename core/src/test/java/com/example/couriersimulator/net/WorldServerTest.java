@@ -0,0 +1,516 @@
+package com.example.couriersimulator.net;
+
+import com.example.couriersimulator.TimingChecks;
+import com.example.couriersimulator.metrics.LatencyHistogram;
+import com.example.couriersimulator.orders.DemandHeatmap;
+import com.example.couriersimulator.orders.OrderGenerator;
+import com.example.couriersimulator.orders.OrderStore;
+import com.example.couriersimulator.orders.SpawnScheduler;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * WorldServer, сервер и клиенты в одном процессе:
+ * - claims: тысячи клиентов одновременно просят одни и те же заказы — каждый заказ
+ *   достаётся ровно одному, на каждую заявку приходит ответ (и быстро — только с TimingChecks)
+ * - converge: после остановки времени копии всех клиентов совпадают с книгой сервера
+ * - delta: байт на заказ в разностной записи против записи полями фиксированной длины
+ * - resync: клиент, который перестал читать, не раздувает очередь сервера,
+ *   а после возврата получает снимок и снова совпадает с сервером
+ * - lagging claims: ответы на заявки отстающего клиента переживают сброс его очереди
+ * Клиенты — неблокирующие сокеты на одном Selector, как у сервера.
+ */
+public class WorldServerTest {
+
+    private static final double ORIGIN_LAT = 55.751244;
+    private static final double ORIGIN_LNG = 37.618423;
+    private static final long TICK_MILLIS = 50;
+    private static final long TIMEOUT_MILLIS = 60_000;
+    // Ответ на заявку приходит сразу, не по тику; предел с запасом на медленную машину
+    private static final long MAX_CLAIM_P99_MILLIS = 500;
+    // Средняя пауза бота между заявками: ~clients * 1000 / CLAIM_PAUSE заявок в секунду
+    private static final long CLAIM_PAUSE_MILLIS = 500;
+    // Разностная запись заказов в кадре должна быть хотя бы вдвое короче записи полями
+    private static final double MIN_COMPRESSION = 2;
+    private static final int CLIENTS = 2000;
+    private static final int CLAIMS_PER_CLIENT = 10;
+    // Отстающий клиент шлёт заявку каждые LAGGING_CLAIM_PAUSE, пока сервер не сбросит его очередь
+    private static final long LAGGING_CLAIM_PAUSE_MILLIS = 20;
+    private static final long SEED = 42L;
+
+    /** Клиент-бот: своя копия мира, очередь на отправку и одна заявка в полёте */
+    private static final class Bot implements WorldMirror.Listener {
+        final SocketChannel channel;
+        final FrameReader reader = new FrameReader(4096);
+        final WorldMirror mirror = new WorldMirror();
+        final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+        final Claims claims;
+        final Random random;
+        SelectionKey key;
+        boolean reading = true;
+        int claimsLeft;
+        long claimedId = -1;
+        long claimSentNanos;
+        long nextClaimNanos;
+
+        Bot(SocketChannel channel, Claims claims, int claimsLeft, long seed) {
+            this.channel = channel;
+            this.claims = claims;
+            this.claimsLeft = claimsLeft;
+            this.random = new Random(seed);
+            mirror.setListener(this);
+        }
+
+        @Override
+        public void onClaimResult(WorldMirror m, long orderId, boolean granted) {
+            claims.rtt.record(System.nanoTime() - claimSentNanos);
+            claims.results++;
+            if (granted) {
+                claims.granted++;
+                if (!claims.grantedIds.add(orderId)) {
+                    claims.duplicates++;
+                }
+            }
+            claimedId = -1;
+            claimsLeft--;
+            nextClaimNanos = System.nanoTime() + pauseNanos();
+        }
+
+        long pauseNanos() {
+            return (long) (random.nextDouble() * 2 * CLAIM_PAUSE_MILLIS * 1_000_000L);
+        }
+
+        // Все боты целятся в самый старый заказ своей копии — максимум конкуренции
+        void maybeClaim(long nowNanos) throws IOException {
+            if (claimedId >= 0 || claimsLeft == 0 || nowNanos < nextClaimNanos || mirror.getVersion() < 0) {
+                return;
+            }
+            OrderStore store = mirror.getStore();
+            long oldest = Long.MAX_VALUE;
+            for (int s = store.first(); s >= 0; s = store.next(s)) {
+                oldest = Math.min(oldest, store.getId(s));
+            }
+            if (oldest == Long.MAX_VALUE) {
+                return;
+            }
+            claim(oldest);
+        }
+
+        void claim(long orderId) throws IOException {
+            claimedId = orderId;
+            claimSentNanos = System.nanoTime();
+            claims.sent++;
+            send(Wire.claim(orderId));
+        }
+
+        void send(ByteBuffer frame) throws IOException {
+            out.add(frame);
+            flush();
+        }
+
+        void flush() throws IOException {
+            ByteBuffer head;
+            while ((head = out.peek()) != null) {
+                channel.write(head);
+                if (head.hasRemaining()) {
+                    break;
+                }
+                out.poll();
+            }
+            updateInterest();
+        }
+
+        void updateInterest() {
+            int ops = (reading ? SelectionKey.OP_READ : 0) | (out.isEmpty() ? 0 : SelectionKey.OP_WRITE);
+            key.interestOps(ops);
+        }
+
+        void read() throws IOException {
+            if (reader.read(channel) < 0) {
+                throw new IOException("Server closed the connection");
+            }
+            ByteBuffer frame;
+            while ((frame = reader.next()) != null) {
+                if (!mirror.apply(frame)) {
+                    send(Wire.hello());
+                }
+            }
+        }
+    }
+
+    /** Итоги заявок всех ботов */
+    private static final class Claims {
+        final LatencyHistogram rtt = new LatencyHistogram();
+        final Set<Long> grantedIds = new HashSet<>();
+        long sent;
+        long results;
+        long granted;
+        long duplicates;
+    }
+
+    @Test
+    public void claimsConvergeAndDeltasStaySmall() throws IOException, InterruptedException {
+        int clients = CLIENTS;
+        int claimsPerClient = CLAIMS_PER_CLIENT;
+        long seed = SEED;
+        // ~10 заказов в секунду, срок 30 с: около 300 открытых и постоянный поток дельт
+        WorldServer server = startServer(36_000, 30_000, seed, 0, 0);
+        Claims claims = new Claims();
+        List<Bot> bots = new ArrayList<>();
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < clients; i++) {
+                bots.add(connect(selector, server.getPort(), claims, claimsPerClient, seed + i, 0));
+            }
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            // Заявки — только когда у всех есть снимок: замеряем ответы, а не раздачу снимков
+            while (!allAtLeast(bots, 0) && System.currentTimeMillis() < deadline) {
+                pump(selector);
+            }
+            long start = System.nanoTime();
+            for (Bot b : bots) {
+                b.nextClaimNanos = start + b.pauseNanos();
+            }
+            while (claims.results < (long) clients * claimsPerClient && System.currentTimeMillis() < deadline) {
+                pump(selector);
+                long now = System.nanoTime();
+                for (Bot b : bots) {
+                    b.maybeClaim(now);
+                }
+            }
+            // Дождаться ответов на все заявки в полёте и остановить время
+            while (claims.results < claims.sent && System.currentTimeMillis() < deadline) {
+                pump(selector);
+            }
+            server.setPaused(true);
+            Thread.sleep(3 * TICK_MILLIS);
+
+            // claims: каждый заказ — ровно одному, на каждую заявку — ответ
+            assertEquals("granted twice", 0, claims.duplicates);
+            assertEquals("answered", claims.sent, claims.results);
+            assertEquals((long) clients * claimsPerClient, claims.sent);
+            assertEquals(server.getClaimsGranted(), claims.granted);
+            assertTrue(claims.granted > 0);
+            if (TimingChecks.ENABLED) {
+                double p99 = millis(claims.rtt.valueAtPercentile(99));
+                assertTrue("claim rtt p99 " + p99 + " ms", p99 <= MAX_CLAIM_P99_MILLIS);
+            }
+
+            long[] version = new long[1];
+            OrderStore reference = copyStore(server, version);
+            int converged = waitConverged(selector, bots, version[0]);
+            int matching = 0;
+            long expected = checksum(reference);
+            for (Bot b : bots) {
+                if (b.mirror.getVersion() == version[0] && b.mirror.getStore().size() == reference.size()
+                        && checksum(b.mirror.getStore()) == expected) {
+                    matching++;
+                }
+            }
+            // converge: все копии на версии сервера и совпадают с его книгой
+            assertEquals("mirrors at version " + version[0], clients, converged);
+            assertEquals("identical mirrors", clients, matching);
+            for (long id : claims.grantedIds) {
+                assertTrue("granted order " + id + " still open", reference.slotOf(id) < 0);
+            }
+
+            double naive = naiveBytesPerOrder(reference);
+            double encoded = encodedBytesPerOrder(reference);
+            // Дельты идут каждый тик с парой заказов: заголовок кадра и снятые id делятся на них
+            double perDeltaOrder = (double) server.getDeltaBytes() / Math.max(1, server.getDeltaOrders());
+            // delta: разностная запись короче записи полями, и даже с заголовками дельты не длиннее
+            assertTrue(server.getDeltaOrders() > 0);
+            assertTrue(String.format("%.1f bytes/order vs fixed-width %.1f", encoded, naive),
+                    naive / encoded >= MIN_COMPRESSION);
+            assertTrue(String.format("%.1f delta bytes/order vs fixed-width %.1f", perDeltaOrder, naive),
+                    perDeltaOrder < naive);
+        } finally {
+            for (Bot b : bots) {
+                b.channel.close();
+            }
+            server.close();
+        }
+    }
+
+    @Test
+    public void stalledClientIsResynced() throws IOException, InterruptedException {
+        long seed = SEED;
+        // Много заказов в каждой дельте, маленькие буферы: отстающий клиент быстро упирается в предел
+        int maxQueued = 16 * 1024;
+        WorldServer server = startServer(1_800_000, 10_000, seed, maxQueued, 4096);
+        Claims claims = new Claims();
+        try (Selector selector = Selector.open()) {
+            Bot steady = connect(selector, server.getPort(), claims, 0, seed, 0);
+            Bot stalled = connect(selector, server.getPort(), claims, 0, seed, 4096);
+            long until = System.currentTimeMillis() + 500;
+            while (System.currentTimeMillis() < until) {
+                pump(selector);
+            }
+            long stalledAt = stalled.mirror.getVersion();
+            stalled.reading = false;
+            stalled.updateInterest();
+            until = System.currentTimeMillis() + 2000;
+            while (System.currentTimeMillis() < until) {
+                pump(selector);
+            }
+            long resyncs = server.getResyncs();
+            long steadyAt = steady.mirror.getVersion();
+            stalled.reading = true;
+            stalled.updateInterest();
+            until = System.currentTimeMillis() + 500;
+            while (System.currentTimeMillis() < until) {
+                pump(selector);
+            }
+            server.setPaused(true);
+            Thread.sleep(3 * TICK_MILLIS);
+
+            long[] version = new long[1];
+            OrderStore reference = copyStore(server, version);
+            List<Bot> both = new ArrayList<>();
+            both.add(steady);
+            both.add(stalled);
+            int converged = waitConverged(selector, both, version[0]);
+            long expected = checksum(reference);
+            assertTrue("resyncs", resyncs > 0);
+            assertTrue("steady " + steadyAt + " vs stalled " + stalledAt, steadyAt > stalledAt);
+            assertEquals(2, converged);
+            assertEquals(expected, checksum(steady.mirror.getStore()));
+            assertEquals(expected, checksum(stalled.mirror.getStore()));
+            steady.channel.close();
+            stalled.channel.close();
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void claimsOfLaggingClientSurviveResync() throws IOException, InterruptedException {
+        long seed = SEED;
+        // Очередь побольше: ответы успевают встать за дельтами до переполнения
+        WorldServer server = startServer(1_800_000, 10_000, seed, 64 * 1024, 4096);
+        Claims claims = new Claims();
+        try (Selector selector = Selector.open()) {
+            Bot lagging = connect(selector, server.getPort(), claims, Integer.MAX_VALUE, seed, 4096);
+            pumpFor(selector, 1000);
+            lagging.reading = false;
+            lagging.updateInterest();
+            // Первый снимок велик, и пока он шёл, клиента уже могли пересинхронизировать
+            long resyncsBefore = server.getResyncs();
+            // Новые заказы копии, от новых к старым; часть успеет истечь — на них ответ "занят"
+            long[] ids = newestIds(lagging.mirror.getStore());
+            int claimed = 0;
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            // Переполнение очереди: ответы, вставшие за дельтами, не выбрасываются вместе с ними
+            while (server.getResyncs() == resyncsBefore && claimed < ids.length - 1
+                    && System.currentTimeMillis() < deadline) {
+                lagging.claim(ids[claimed++]);
+                pumpFor(selector, LAGGING_CLAIM_PAUSE_MILLIS);
+            }
+            long resyncs = server.getResyncs() - resyncsBefore;
+            int beforeResync = claimed;
+            // Повторный HELLO: очередь сбрасывается ещё раз, с ответом на последнюю заявку в ней
+            lagging.claim(ids[claimed++]);
+            lagging.send(Wire.hello());
+            pumpFor(selector, LAGGING_CLAIM_PAUSE_MILLIS);
+            lagging.reading = true;
+            lagging.updateInterest();
+            while (claims.results < claims.sent && System.currentTimeMillis() < deadline) {
+                pump(selector);
+            }
+            OrderStore reference = copyStore(server, new long[1]);
+
+            assertTrue("resyncs", resyncs > 0);
+            assertTrue("claims before resync " + beforeResync, beforeResync > 1);
+            assertEquals(claimed, claims.sent);
+            assertEquals("answered", claims.sent, claims.results);
+            assertTrue("granted", claims.granted > 0);
+            for (long id : claims.grantedIds) {
+                assertTrue("granted order " + id + " still open", reference.slotOf(id) < 0);
+            }
+            lagging.channel.close();
+        } finally {
+            server.close();
+        }
+    }
+
+    private static WorldServer startServer(double perHour, long ttlMillis, long seed,
+                                           int maxQueuedBytes, int sendBufferBytes) throws IOException {
+        SpawnScheduler spawner = new SpawnScheduler(
+                DemandHeatmap.synthetic(ORIGIN_LAT, ORIGIN_LNG, 0.05, 0.005, perHour, seed),
+                new OrderGenerator(seed), seed, ttlMillis);
+        spawner.startAt(System.currentTimeMillis() - ttlMillis);
+        WorldServer server = new WorldServer(spawner, TICK_MILLIS);
+        if (maxQueuedBytes > 0) {
+            server.setMaxQueuedBytes(maxQueuedBytes);
+        }
+        server.setSocketSendBufferBytes(sendBufferBytes);
+        server.start(new InetSocketAddress("127.0.0.1", 0));
+        return server;
+    }
+
+    private static Bot connect(Selector selector, int port, Claims claims, int claimsLeft, long seed,
+                               int receiveBufferBytes) throws IOException {
+        SocketChannel ch = SocketChannel.open();
+        if (receiveBufferBytes > 0) {
+            ch.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferBytes);
+        }
+        ch.connect(new InetSocketAddress("127.0.0.1", port));
+        ch.configureBlocking(false);
+        ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Bot bot = new Bot(ch, claims, claimsLeft, seed);
+        bot.key = ch.register(selector, SelectionKey.OP_READ, bot);
+        bot.send(Wire.hello());
+        return bot;
+    }
+
+    private static void pump(Selector selector) throws IOException {
+        selector.select(5);
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+            SelectionKey key = it.next();
+            it.remove();
+            Bot bot = (Bot) key.attachment();
+            if (key.isWritable()) {
+                bot.flush();
+            }
+            if (key.isReadable()) {
+                bot.read();
+            }
+        }
+    }
+
+    private static void pumpFor(Selector selector, long millis) throws IOException {
+        long until = System.currentTimeMillis() + millis;
+        while (System.currentTimeMillis() < until) {
+            pump(selector);
+        }
+    }
+
+    // id заказов копии от новых к старым
+    private static long[] newestIds(OrderStore store) {
+        long[] ids = new long[store.size()];
+        int n = 0;
+        for (int s = store.first(); s >= 0; s = store.next(s)) {
+            ids[n++] = -store.getId(s);
+        }
+        Arrays.sort(ids);
+        for (int i = 0; i < n; i++) {
+            ids[i] = -ids[i];
+        }
+        return ids;
+    }
+
+    private static boolean allAtLeast(List<Bot> bots, long version) {
+        for (Bot b : bots) {
+            if (b.mirror.getVersion() < version) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @return сколько копий догнали версию */
+    private static int waitConverged(Selector selector, List<Bot> bots, long version) throws IOException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        int converged = 0;
+        while (System.currentTimeMillis() < deadline) {
+            converged = 0;
+            for (Bot b : bots) {
+                if (b.mirror.getVersion() == version) {
+                    converged++;
+                }
+            }
+            if (converged == bots.size()) {
+                break;
+            }
+            pump(selector);
+        }
+        return converged;
+    }
+
+    // Копия книги сервера, снятая на его потоке, и её версия
+    private static OrderStore copyStore(WorldServer server, long[] version) throws InterruptedException {
+        OrderStore copy = new OrderStore();
+        CountDownLatch done = new CountDownLatch(1);
+        server.execute(() -> {
+            OrderStore store = server.getStore();
+            for (int s = store.first(); s >= 0; s = store.next(s)) {
+                copy.add(store.toOrder(s));
+            }
+            version[0] = server.getVersion();
+            done.countDown();
+        });
+        done.await();
+        return copy;
+    }
+
+    // Не зависит от порядка слотов
+    private static long checksum(OrderStore store) {
+        long sum = 0;
+        for (int s = store.first(); s >= 0; s = store.next(s)) {
+            long h = store.getId(s);
+            h = 31 * h + store.getTitle(s).hashCode();
+            h = 31 * h + Double.doubleToLongBits(store.getPickupLat(s));
+            h = 31 * h + Double.doubleToLongBits(store.getPickupLng(s));
+            h = 31 * h + Double.doubleToLongBits(store.getDropoffLat(s));
+            h = 31 * h + Double.doubleToLongBits(store.getDropoffLng(s));
+            h = 31 * h + store.getReward(s);
+            h = 31 * h + store.getDeadlineMillis(s);
+            sum += h * 0x9E3779B97F4A7C15L;
+        }
+        return sum;
+    }
+
+    // id, название (writeUTF), четыре координаты double, награда int, дедлайн long
+    private static double naiveBytesPerOrder(OrderStore store) {
+        long bytes = 0;
+        for (int s = store.first(); s >= 0; s = store.next(s)) {
+            bytes += 8 + 2 + store.getTitle(s).getBytes(StandardCharsets.UTF_8).length + 4 * 8 + 4 + 8;
+        }
+        return (double) bytes / Math.max(1, store.size());
+    }
+
+    // Книга одним кадром, как в снимке сервера, без заголовка кадра
+    private static double encodedBytesPerOrder(OrderStore store) {
+        long[] ids = new long[store.size()];
+        int n = 0;
+        for (int s = store.first(); s >= 0; s = store.next(s)) {
+            ids[n++] = store.getId(s);
+        }
+        Arrays.sort(ids);
+        FrameWriter writer = new FrameWriter();
+        OrderCodec codec = new OrderCodec();
+        writer.begin(Wire.SNAPSHOT);
+        int header = writer.finish().remaining();
+        writer.begin(Wire.SNAPSHOT);
+        codec.reset(System.currentTimeMillis());
+        for (long id : ids) {
+            codec.write(writer, store, store.slotOf(id));
+        }
+        return (double) (writer.finish().remaining() - header) / Math.max(1, n);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.couriersimulator.orders;
+
+import com.example.couriersimulator.geo.GeoMath;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class OrderBookTest {
+
+    private static final double LAT = 55.7512;
+    private static final double LNG = 37.6184;
+
+    @Test
+    public void findNearIncludesOrderExactlyOnRadius() {
+        OrderBook book = new OrderBook();
+        Order order = order(1, LAT + 150 / GeoMath.METERS_PER_DEGREE_LAT, LNG);
+        book.add(order);
+        double radius = GeoMath.distanceMeters(LAT, LNG, order.getPickupLat(), order.getPickupLng());
+
+        assertEquals(1, book.findNear(LAT, LNG, radius, new ArrayList<>()));
+        assertEquals(0, book.findNear(LAT, LNG, radius * (1 - 1e-9), new ArrayList<>()));
+    }
+
+    @Test
+    public void findNearReachesNeighbourCells() {
+        double cell = 0.01;
+        OrderBook book = new OrderBook(cell);
+        // По обе стороны границы ячеек по широте, по долготе и через ноль (floor, а не отбрасывание)
+        book.add(order(1, 55.76 + 0.0001, LNG));
+        book.add(order(2, LAT, 37.62 + 0.0001));
+        book.add(order(3, 0.0001, 0.0001));
+
+        assertIds(book.findNear(55.76 - 0.0001, LNG, 50), 1L);
+        assertIds(book.findNear(LAT, 37.62 - 0.0001, 50), 2L);
+        assertIds(book.findNear(-0.0001, -0.0001, 50), 3L);
+    }
+
+    @Test
+    public void findNearAppendsToOutList() {
+        OrderBook book = new OrderBook();
+        book.add(order(1, LAT, LNG));
+        List<Order> out = new ArrayList<>();
+        out.add(order(99, 0, 0));
+
+        assertEquals(1, book.findNear(LAT, LNG, 10, out));
+        assertEquals(2, out.size());
+    }
+
+    @Test
+    public void removeDropsOrderAndEmptyCell() {
+        OrderBook book = new OrderBook(0.01);
+        book.add(order(1, 55.701, 37.601));
+        book.add(order(2, 55.711, 37.611));
+        book.add(order(3, 55.721, 37.621));
+        assertEquals(3, book.getCellCount());
+
+        // Первая ячейка опустела: на её место переезжает последняя
+        assertEquals(1, book.remove(1).getId());
+        assertEquals(2, book.getCellCount());
+        assertNull(book.get(1));
+        assertIds(book.findNear(55.701, 37.601, 100));
+        assertIds(book.findNear(55.721, 37.621, 100), 3L);
+        assertIds(book.findNear(55.711, 37.611, 100), 2L);
+
+        assertNull(book.remove(1));
+        assertNull(book.remove(42));
+        assertEquals(2, book.size());
+    }
+
+    @Test
+    public void removeKeepsOtherOrdersOfCell() {
+        OrderBook book = new OrderBook();
+        book.add(order(1, LAT, LNG));
+        book.add(order(2, LAT + 0.0001, LNG));
+
+        book.remove(1);
+
+        assertEquals(1, book.getCellCount());
+        assertIds(book.findNear(LAT, LNG, 100), 2L);
+    }
+
+    @Test
+    public void addWithSameIdMovesOrder() {
+        OrderBook book = new OrderBook();
+        book.add(order(1, LAT, LNG));
+        Order moved = order(1, LAT + 0.05, LNG);
+
+        book.add(moved);
+
+        assertEquals(1, book.size());
+        assertSame(moved, book.get(1));
+        assertIds(book.findNear(LAT, LNG, 100));
+        assertIds(book.findNear(LAT + 0.05, LNG, 100), 1L);
+        assertEquals(1, book.getCellCount());
+    }
+
+    @Test
+    public void clearEmptiesBook() {
+        OrderBook book = new OrderBook();
+        new OrderGenerator(1).fill(book, 100, LAT, LNG, 0);
+
+        book.clear();
+
+        assertTrue(book.isEmpty());
+        assertEquals(0, book.getCellCount());
+        assertIds(book.findNear(LAT, LNG, 5000));
+        book.add(order(1, LAT, LNG));
+        assertIds(book.findNear(LAT, LNG, 10), 1L);
+    }
+
+    @Test
+    public void findNearMatchesBruteForceUnderChurn() {
+        Random random = new Random(7);
+        OrderBook book = new OrderBook(0.005);
+        List<Order> live = new ArrayList<>();
+        OrderGenerator generator = new OrderGenerator(3);
+        for (int i = 0; i < 5000; i++) {
+            if (!live.isEmpty() && random.nextInt(3) == 0) {
+                Order gone = live.remove(random.nextInt(live.size()));
+                assertSame(gone, book.remove(gone.getId()));
+            } else {
+                Order order = generator.next(LAT, LNG, 0);
+                book.add(order);
+                live.add(order);
+            }
+        }
+        assertEquals(live.size(), book.size());
+
+        for (int q = 0; q < 300; q++) {
+            double lat = LAT + (random.nextDouble() - 0.5) * 0.02;
+            double lng = LNG + (random.nextDouble() - 0.5) * 0.02;
+            double radius = 50 + random.nextDouble() * 1500;
+            Set<Long> expected = new HashSet<>();
+            for (Order o : live) {
+                if (GeoMath.distanceSquaredMeters(lat, lng, o.getPickupLat(), o.getPickupLng()) <= radius * radius) {
+                    expected.add(o.getId());
+                }
+            }
+            assertEquals(expected, ids(book.findNear(lat, lng, radius)));
+        }
+    }
+
+    private static Order order(long id, double lat, double lng) {
+        return new Order(id, "test", lat, lng, lat, lng, 50, 0);
+    }
+
+    private static void assertIds(List<Order> orders, Long... expected) {
+        assertEquals(new HashSet<>(Arrays.asList(expected)), ids(orders));
+    }
+
+    private static Set<Long> ids(List<Order> orders) {
+        Set<Long> ids = new HashSet<>();
+        for (Order o : orders) {
+            ids.add(o.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.couriersimulator.orders;
+
+import com.example.couriersimulator.geo.GeoMath;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * OrderDistanceList против сортировки с нуля: добавления, удаления и сдвиги курьера
+ * вперемешку, чтения между ними в случайные моменты.
+ */
+public class OrderDistanceListTest {
+
+    private static final double CENTER_LAT = 55.75;
+    private static final double CENTER_LNG = 37.62;
+
+    @Test
+    public void matchesFullSortUnderChurn() {
+        Random random = new Random(42);
+        OrderGenerator generator = new OrderGenerator(42);
+        OrderDistanceList list = new OrderDistanceList();
+        Map<Long, Order> expected = new LinkedHashMap<>();
+        double lat = CENTER_LAT;
+        double lng = CENTER_LNG;
+        list.setOrigin(lat, lng);
+        for (int step = 0; step < 20_000; step++) {
+            int action = random.nextInt(10);
+            if (action < 4) {
+                Order o = generator.next(CENTER_LAT + (random.nextDouble() - 0.5) * 0.1,
+                        CENTER_LNG + (random.nextDouble() - 0.5) * 0.1, 0);
+                list.add(o);
+                expected.put(o.getId(), o);
+            } else if (action < 7 && !expected.isEmpty()) {
+                long id = new ArrayList<>(expected.keySet()).get(random.nextInt(expected.size()));
+                assertTrue(list.remove(id));
+                assertFalse(list.remove(id));
+                expected.remove(id);
+            } else if (action == 7) {
+                lat += (random.nextDouble() - 0.5) * 0.0002;
+                lng += (random.nextDouble() - 0.5) * 0.0002;
+                list.setOrigin(lat, lng);
+            } else {
+                assertSameOrder(expected, list, lat, lng);
+            }
+            assertEquals(expected.size(), list.size());
+        }
+        assertSameOrder(expected, list, lat, lng);
+    }
+
+    @Test
+    public void readdReplacesOrderWithSameId() {
+        OrderDistanceList list = new OrderDistanceList();
+        list.setOrigin(CENTER_LAT, CENTER_LNG);
+        Order far = new Order(1, "Дальний", CENTER_LAT + 0.01, CENTER_LNG, CENTER_LAT, CENTER_LNG, 1, 0);
+        Order near = new Order(2, "Ближний", CENTER_LAT + 0.001, CENTER_LNG, CENTER_LAT, CENTER_LNG, 1, 0);
+        Order moved = new Order(1, "Перенесён", CENTER_LAT, CENTER_LNG, CENTER_LAT, CENTER_LNG, 1, 0);
+        list.add(far);
+        list.add(near);
+        assertSame(near, list.get(0));
+
+        list.add(moved);
+        assertEquals(2, list.size());
+        assertSame(moved, list.get(0));
+        assertSame(near, list.get(1));
+
+        assertTrue(list.remove(1));
+        list.add(far);
+        assertEquals(2, list.size());
+        assertSame(far, list.get(1));
+    }
+
+    @Test
+    public void countWithinIsRadiusPrefix() {
+        OrderDistanceList list = new OrderDistanceList();
+        list.setOrigin(CENTER_LAT, CENTER_LNG);
+        for (int i = 1; i <= 10; i++) {
+            double lat = CENTER_LAT + i * 100 / GeoMath.METERS_PER_DEGREE_LAT;
+            list.add(new Order(i, "Заказ", lat, CENTER_LNG, lat, CENTER_LNG, 1, 0));
+        }
+        assertTrue(list.remove(3));
+        assertEquals(4, list.countWithin(550));
+        List<Order> out = new ArrayList<>();
+        assertEquals(2, list.copyWithin(550, 2, out));
+        assertEquals(1, out.get(0).getId());
+        assertEquals(2, out.get(1).getId());
+    }
+
+    private static void assertSameOrder(Map<Long, Order> expected, OrderDistanceList list,
+                                        double lat, double lng) {
+        List<Order> sorted = new ArrayList<>(expected.values());
+        sorted.sort((a, b) -> Double.compare(
+                GeoMath.distanceSquaredMeters(lat, lng, a.getPickupLat(), a.getPickupLng()),
+                GeoMath.distanceSquaredMeters(lat, lng, b.getPickupLat(), b.getPickupLng())));
+        assertEquals(sorted.size(), list.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            assertSame("position " + i, sorted.get(i), list.get(i));
+        }
+    }
+}
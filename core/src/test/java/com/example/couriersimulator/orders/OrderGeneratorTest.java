@@ -0,0 +1,110 @@
+package com.example.couriersimulator.orders;
+
+import com.example.couriersimulator.geo.GeoMath;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OrderGeneratorTest {
+
+    private static final double LAT = 55.7512;
+    private static final double LNG = 37.6184;
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    public void sameSeedGivesSameOrders() {
+        OrderGenerator a = new OrderGenerator(42);
+        OrderGenerator b = new OrderGenerator(42);
+        for (int i = 0; i < 100; i++) {
+            assertSameOrder(a.next(LAT, LNG, NOW), b.next(LAT, LNG, NOW));
+        }
+    }
+
+    @Test
+    public void idsAreSequentialFromFirstId() {
+        OrderGenerator generator = new OrderGenerator(1, 500, OrderGenerator.DEFAULT_MAX_OFFSET_DEG);
+        assertEquals(500, generator.next(LAT, LNG, NOW).getId());
+        assertEquals(501, generator.nextAt(LAT, LNG, NOW).getId());
+        assertEquals(502, generator.peekNextId());
+    }
+
+    @Test
+    public void pointsStayWithinOffsets() {
+        double maxOffset = 0.02;
+        OrderGenerator generator = new OrderGenerator(9, 1, maxOffset);
+        for (int i = 0; i < 1000; i++) {
+            Order o = generator.next(LAT, LNG, NOW);
+            assertTrue(Math.abs(o.getPickupLat() - LAT) <= 0.005);
+            assertTrue(Math.abs(o.getPickupLng() - LNG) <= 0.005);
+            assertTrue(Math.abs(o.getDropoffLat() - LAT) <= maxOffset);
+            assertTrue(Math.abs(o.getDropoffLng() - LNG) <= maxOffset);
+        }
+    }
+
+    @Test
+    public void nextAtPutsPickupExactly() {
+        Order o = new OrderGenerator(5).nextAt(LAT, LNG, NOW);
+        assertEquals(LAT, o.getPickupLat(), 0.0);
+        assertEquals(LNG, o.getPickupLng(), 0.0);
+    }
+
+    @Test
+    public void rewardAndDeadlineFollowTravelDistance() {
+        OrderGenerator generator = new OrderGenerator(11);
+        for (int i = 0; i < 200; i++) {
+            Order o = generator.next(LAT, LNG, NOW);
+            double meters = GeoMath.distanceMeters(o.getPickupLat(), o.getPickupLng(),
+                    o.getDropoffLat(), o.getDropoffLng());
+            assertEquals(50 + Math.round(meters / 1000.0 * 30), o.getReward());
+            assertTrue(o.getDeadlineMillis() >= NOW + 10 * 60 * 1000L);
+        }
+    }
+
+    @Test
+    public void travelDistanceDoesNotChangeRandomSequence() {
+        OrderGenerator straight = new OrderGenerator(13);
+        OrderGenerator roads = new OrderGenerator(13);
+        roads.setTravelDistance((fromLat, fromLng, toLat, toLng) -> 10_000);
+        for (int i = 0; i < 50; i++) {
+            Order a = straight.next(LAT, LNG, NOW);
+            Order b = roads.next(LAT, LNG, NOW);
+            assertEquals(a.getDropoffLat(), b.getDropoffLat(), 0.0);
+            assertEquals(50 + 300, b.getReward());
+        }
+    }
+
+    @Test
+    public void checkpointSeedContinuesSequence() {
+        OrderGenerator original = new OrderGenerator(21);
+        for (int i = 0; i < 10; i++) {
+            original.next(LAT, LNG, NOW);
+        }
+        long seed = original.checkpointSeed();
+        OrderGenerator restored = new OrderGenerator(seed, original.peekNextId(),
+                OrderGenerator.DEFAULT_MAX_OFFSET_DEG);
+        for (int i = 0; i < 20; i++) {
+            assertSameOrder(original.next(LAT, LNG, NOW), restored.next(LAT, LNG, NOW));
+        }
+    }
+
+    @Test
+    public void fillAddsOrdersToBook() {
+        OrderBook book = new OrderBook();
+        new OrderGenerator(3).fill(book, 250, LAT, LNG, NOW);
+        assertEquals(250, book.size());
+        assertEquals(250, book.findNear(LAT, LNG, 1000).size());
+    }
+
+    private static void assertSameOrder(Order expected, Order actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getPickupLat(), actual.getPickupLat(), 0.0);
+        assertEquals(expected.getPickupLng(), actual.getPickupLng(), 0.0);
+        assertEquals(expected.getDropoffLat(), actual.getDropoffLat(), 0.0);
+        assertEquals(expected.getDropoffLng(), actual.getDropoffLng(), 0.0);
+        assertEquals(expected.getReward(), actual.getReward());
+        assertEquals(expected.getDeadlineMillis(), actual.getDeadlineMillis());
+    }
+}
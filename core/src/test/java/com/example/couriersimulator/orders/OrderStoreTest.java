@@ -0,0 +1,324 @@
+package com.example.couriersimulator.orders;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNotNull;
+
+/**
+ * Память и аллокации книги заказов: OrderBook (объект Order на заказ, HashMap по id)
+ * против OrderStore (примитивные массивы) на одних и тех же заказах.
+ * - занятая куча после сборки мусора с заполненной книгой
+ * - байт аллокаций на заказ при обходе, поиске рядом, записи и чтении
+ * - OrderStore после записи и чтения содержит те же заказы
+ */
+public class OrderStoreTest {
+
+    private static final double ORIGIN_LAT = 55.751244;
+    private static final double ORIGIN_LNG = 37.618423;
+    private static final long SEED = 42L;
+    private static final int ORDERS = 100_000;
+    // Заказы в квадрате ±0.1° (~20 км), поиск — в радиусе автопилота
+    private static final double AREA_DEG = 0.1;
+    private static final double SEARCH_RADIUS_METERS = 3000;
+    private static final int QUERIES = 1000;
+    // OrderStore должен занимать не больше этой доли от OrderBook. Около половины OrderStore —
+    // сами поля заказа (48 байт), остальное — таблица id → слот с запасом под заполнение
+    private static final double MAX_HEAP_RATIO = 0.6;
+    // Аллокации на заказ: ноль с точностью до постоянных расходов (таблица названий, буферы)
+    private static final double MAX_ALLOC_PER_ORDER = 1.0;
+
+    private static Order[] source;
+    private static volatile Object keepAlive;
+
+    @BeforeClass
+    public static void generateOrders() {
+        source = generate(ORDERS, SEED);
+    }
+
+    @Test
+    public void storeTakesFractionOfBookHeap() {
+        long bookBytes = heapOf(() -> {
+            OrderBook book = new OrderBook();
+            for (Order o : source) {
+                book.add(o);
+            }
+            return book;
+        });
+        long storeBytes = heapOf(() -> filledStore());
+        // Order в OrderBook держат те же объекты, что и source: учитываем их отдельно
+        long orderObjects = heapOf(() -> generate(ORDERS, SEED));
+        long bookTotal = bookBytes + orderObjects;
+        assertTrue(String.format("OrderBook %d B/order, OrderStore %d B/order",
+                        bookTotal / ORDERS, storeBytes / ORDERS),
+                storeBytes <= bookTotal * MAX_HEAP_RATIO);
+        // Оценка размера по массивам близка к измеренной
+        long estimate = filledStore().estimateBytes();
+        assertTrue("estimate " + estimate + " vs " + storeBytes,
+                Math.abs(estimate - storeBytes) <= storeBytes * 0.25);
+    }
+
+    @Test
+    public void hotPathsDoNotAllocate() throws IOException {
+        com.sun.management.ThreadMXBean threads = threadBean();
+        assumeNotNull(threads);
+        OrderStore store = filledStore();
+        OrderStore.Slots slots = new OrderStore.Slots();
+        OutputStream sink = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+        DataOutputStream out = new DataOutputStream(sink);
+        // Прогрев: JIT и рост переиспользуемых списков
+        for (int i = 0; i < 3; i++) {
+            iterateStore(store);
+            queryStore(store, slots);
+            store.writeTo(out);
+        }
+
+        long t = allocated(threads);
+        long sum = iterateStore(store);
+        assertAllocations("iterate", allocated(threads) - t);
+        t = allocated(threads);
+        long hits = queryStore(store, slots);
+        assertAllocations("findNear", allocated(threads) - t);
+        t = allocated(threads);
+        store.writeTo(out);
+        assertAllocations("write", allocated(threads) - t);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        store.writeTo(new DataOutputStream(bytes));
+        byte[] data = bytes.toByteArray();
+        OrderStore copy = new OrderStore(ORDERS, OrderBook.DEFAULT_CELL_SIZE_DEG);
+        copy.readFrom(new DataInputStream(new ByteArrayInputStream(data)));
+        t = allocated(threads);
+        copy.readFrom(new DataInputStream(new ByteArrayInputStream(data)));
+        assertAllocations("read", allocated(threads) - t);
+        keepAlive = sum + hits;
+    }
+
+    @Test
+    public void bookFindNearDoesNotBoxCellKeys() {
+        com.sun.management.ThreadMXBean threads = threadBean();
+        assumeNotNull(threads);
+        OrderBook book = new OrderBook();
+        for (Order o : source) {
+            book.add(o);
+        }
+        List<Order> found = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            queryBook(book, found);
+        }
+        long t = allocated(threads);
+        keepAlive = queryBook(book, found);
+        assertAllocations("OrderBook.findNear", allocated(threads) - t);
+    }
+
+    @Test
+    public void writeReadRoundTripKeepsOrders() throws IOException {
+        OrderStore store = filledStore();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        store.writeTo(new DataOutputStream(bytes));
+        OrderStore copy = new OrderStore();
+        copy.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(store.size(), copy.size());
+        for (int s = store.first(); s >= 0; s = store.next(s)) {
+            int c = copy.slotOf(store.getId(s));
+            assertTrue(c >= 0);
+            assertEquals(store.getTitle(s), copy.getTitle(c));
+            assertEquals(store.getPickupLat(s), copy.getPickupLat(c), 0.0);
+            assertEquals(store.getPickupLng(s), copy.getPickupLng(c), 0.0);
+            assertEquals(store.getDropoffLat(s), copy.getDropoffLat(c), 0.0);
+            assertEquals(store.getDropoffLng(s), copy.getDropoffLng(c), 0.0);
+            assertEquals(store.getReward(s), copy.getReward(c));
+            assertEquals(store.getDeadlineMillis(s), copy.getDeadlineMillis(c));
+        }
+    }
+
+    /** Удаление половины и повторное добавление занимает освободившиеся слоты */
+    @Test
+    public void readdReusesFreedSlots() {
+        OrderStore store = filledStore();
+        int before = store.size();
+        List<Long> removed = new ArrayList<>();
+        for (int s = store.first(); s >= 0; s = store.next(s)) {
+            if ((store.getId(s) & 1) == 0) {
+                removed.add(store.getId(s));
+            }
+        }
+        for (long id : removed) {
+            store.remove(id);
+        }
+        assertEquals(before - removed.size(), store.size());
+        for (long id : removed) {
+            store.add(id, "Повтор", ORIGIN_LAT, ORIGIN_LNG, ORIGIN_LAT, ORIGIN_LNG, 1, 0);
+        }
+        int slots = 0;
+        for (int s = store.first(); s >= 0; s = store.next(s)) {
+            slots = s + 1;
+        }
+        assertEquals(before, store.size());
+        assertEquals(before, slots);
+    }
+
+    /**
+     * Координаты в OrderStore — с фиксированной точкой, масштаб долготы — по точке запроса,
+     * поэтому у самой границы радиуса результат может отличаться от OrderBook: сравниваем
+     * с поиском OrderBook в чуть меньшем и чуть большем радиусе
+     */
+    @Test
+    public void findNearMatchesOrderBook() {
+        OrderStore store = filledStore();
+        OrderBook book = new OrderBook();
+        for (Order o : source) {
+            book.add(o);
+        }
+        Random random = new Random(SEED + 1);
+        OrderStore.Slots slots = new OrderStore.Slots();
+        for (int q = 0; q < 100; q++) {
+            double lat = lat(random);
+            double lng = lng(random);
+            slots.clear();
+            store.findNear(lat, lng, SEARCH_RADIUS_METERS, slots);
+            Set<Long> found = new HashSet<>();
+            for (int i = 0; i < slots.size(); i++) {
+                found.add(store.getId(slots.get(i)));
+            }
+            for (Order o : book.findNear(lat, lng, SEARCH_RADIUS_METERS * 0.999)) {
+                assertTrue(found.contains(o.getId()));
+            }
+            Set<Long> outer = new HashSet<>();
+            for (Order o : book.findNear(lat, lng, SEARCH_RADIUS_METERS * 1.001)) {
+                outer.add(o.getId());
+            }
+            assertTrue(outer.containsAll(found));
+        }
+    }
+
+    private static OrderStore filledStore() {
+        OrderStore store = new OrderStore(ORDERS, OrderBook.DEFAULT_CELL_SIZE_DEG);
+        for (Order o : source) {
+            store.add(o);
+        }
+        return store;
+    }
+
+    private static void assertAllocations(String what, long bytes) {
+        assertTrue(what + ": " + bytes + " bytes for " + ORDERS + " orders", bytes <= ORDERS * MAX_ALLOC_PER_ORDER);
+    }
+
+    private static long iterateStore(OrderStore store) {
+        long sum = 0;
+        for (int s = store.first(); s >= 0; s = store.next(s)) {
+            sum += store.getReward(s) + store.getDeadlineMillis(s);
+        }
+        return sum;
+    }
+
+    private static long queryStore(OrderStore store, OrderStore.Slots slots) {
+        Random random = new Random(SEED);
+        long hits = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            slots.clear();
+            hits += store.findNear(lat(random), lng(random), SEARCH_RADIUS_METERS, slots);
+        }
+        return hits;
+    }
+
+    private static long queryBook(OrderBook book, List<Order> found) {
+        Random random = new Random(SEED);
+        long hits = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            found.clear();
+            hits += book.findNear(lat(random), lng(random), SEARCH_RADIUS_METERS, found);
+        }
+        return hits;
+    }
+
+    private static Order[] generate(int count, long seed) {
+        OrderGenerator generator = new OrderGenerator(seed);
+        Random random = new Random(seed);
+        Order[] orders = new Order[count];
+        for (int i = 0; i < count; i++) {
+            orders[i] = generator.next(lat(random), lng(random), 0);
+        }
+        return orders;
+    }
+
+    private interface Build {
+        Object build();
+    }
+
+    // Прирост занятой кучи, пока жив результат build
+    private static long heapOf(Build build) {
+        long before = usedHeap();
+        keepAlive = build.build();
+        long after = usedHeap();
+        keepAlive = null;
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    // null — на этой JVM нет счётчика аллокаций потока (не HotSpot): проверки пропускаются
+    private static com.sun.management.ThreadMXBean threadBean() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+                if (threads.isThreadAllocatedMemorySupported()) {
+                    threads.setThreadAllocatedMemoryEnabled(true);
+                    return threads;
+                }
+            }
+        } catch (LinkageError e) {
+            // Не HotSpot
+        }
+        return null;
+    }
+
+    private static long allocated(com.sun.management.ThreadMXBean threads) {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static double lat(Random random) {
+        return ORIGIN_LAT + (random.nextDouble() * 2 - 1) * AREA_DEG;
+    }
+
+    private static double lng(Random random) {
+        return ORIGIN_LNG + (random.nextDouble() * 2 - 1) * AREA_DEG;
+    }
+}
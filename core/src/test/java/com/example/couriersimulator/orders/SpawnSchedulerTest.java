@@ -0,0 +1,343 @@
+package com.example.couriersimulator.orders;
+
+import com.example.couriersimulator.sim.SimConfig;
+import com.example.couriersimulator.sim.SimListener;
+import com.example.couriersimulator.sim.Simulation;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * SpawnScheduler:
+ * - поток прихода пуассоновский: среднее число за окно и дисперсия/среднее ≈ 1
+ * - приходы по часам суток и по ячейкам карты соответствуют интенсивностям
+ * - каждый невзятый заказ исчезает ровно один раз, не раньше срока и не позже тика колеса;
+ *   взятые не исчезают
+ * - после долгой паузы разыгрываются только заказы за последний срок жизни
+ * - в симуляции книга и планировщик согласованы
+ * - скорость: тысячи появлений и исчезновений в секунду симулированного времени
+ *   должны обрабатываться много быстрее реального времени
+ */
+public class SpawnSchedulerTest {
+
+    private static final double ORIGIN_LAT = 55.751244;
+    private static final double ORIGIN_LNG = 37.618423;
+    private static final double AREA_DEG = 0.05;
+    private static final long STEP_MILLIS = 100;
+    private static final long HOUR_MILLIS = 3_600_000L;
+    // Отклонение счётчиков от ожидаемого, в стандартных отклонениях (много независимых проверок)
+    private static final double MAX_Z = 5.5;
+    // Обработка должна идти хотя бы во столько раз быстрее реального времени
+    private static final double MIN_SPEEDUP = 20;
+    private static final long SEED = 42L;
+    // Замер скорости: появлений в секунду и секунд симулированного времени
+    private static final double RATE = 5000;
+    private static final int SECONDS = 120;
+
+    /** Постоянная интенсивность 1 заказ/с: число за 10-секундные окна */
+    @Test
+    public void arrivalsArePoisson() {
+        double perSecond = 1;
+        SpawnScheduler s = new SpawnScheduler(
+                DemandHeatmap.uniform(ORIGIN_LAT, ORIGIN_LNG, AREA_DEG, perSecond * 3600),
+                new OrderGenerator(SEED), SEED, HOUR_MILLIS);
+        int windows = 20_000;
+        long windowMillis = 10_000;
+        int[] counter = new int[1];
+        SpawnScheduler.Listener listener = new SpawnScheduler.Listener() {
+            @Override
+            public void onOrderSpawned(Order order) {
+                counter[0]++;
+            }
+
+            @Override
+            public void onOrderExpired(long orderId) {
+            }
+        };
+        s.startAt(0);
+        double sum = 0;
+        double sumSq = 0;
+        long now = 0;
+        for (int w = 0; w < windows; w++) {
+            counter[0] = 0;
+            for (long t = 0; t < windowMillis; t += STEP_MILLIS) {
+                now += STEP_MILLIS;
+                s.advanceTo(now, listener);
+            }
+            sum += counter[0];
+            sumSq += (double) counter[0] * counter[0];
+        }
+        double expected = perSecond * windowMillis / 1000.0;
+        double mean = sum / windows;
+        double variance = sumSq / windows - mean * mean;
+        double dispersion = variance / mean;
+        // Стандартная ошибка среднего — sqrt(λ/n); дисперсии/среднего — около sqrt(2/n)
+        double meanZ = (mean - expected) / Math.sqrt(expected / windows);
+        double dispersionZ = (dispersion - 1) / Math.sqrt(2.0 / windows);
+        assertTrue(String.format("mean %.3f (expected %.1f, z=%.1f)", mean, expected, meanZ),
+                Math.abs(meanZ) < MAX_Z);
+        assertTrue(String.format("variance/mean %.3f (z=%.1f)", dispersion, dispersionZ),
+                Math.abs(dispersionZ) < MAX_Z);
+    }
+
+    /** Синтетическая карта за 20 суток: счётчики по местным часам и по ячейкам */
+    @Test
+    public void arrivalsFollowHeatmap() {
+        int days = 20;
+        DemandHeatmap map = DemandHeatmap.synthetic(ORIGIN_LAT, ORIGIN_LNG, AREA_DEG, 0.005, 2000, SEED);
+        SpawnScheduler s = new SpawnScheduler(map, new OrderGenerator(SEED), SEED, HOUR_MILLIS);
+        long offset = 3 * HOUR_MILLIS;
+        s.setUtcOffsetMillis(offset);
+        long[] byHour = new long[DemandHeatmap.HOURS];
+        long[] byCell = new long[map.getCellCount()];
+        long[] now = new long[1];
+        int[] outside = new int[1];
+        SpawnScheduler.Listener listener = new SpawnScheduler.Listener() {
+            @Override
+            public void onOrderSpawned(Order order) {
+                // Приход — в пределах последнего шага; шаг не пересекает границу часа
+                byHour[s.hourOfDay(now[0] - 1)]++;
+                int cell = map.cellOf(order.getPickupLat(), order.getPickupLng());
+                if (cell < 0) {
+                    outside[0]++;
+                } else {
+                    byCell[cell]++;
+                }
+            }
+
+            @Override
+            public void onOrderExpired(long orderId) {
+            }
+        };
+        s.startAt(0);
+        long end = days * 24 * HOUR_MILLIS;
+        for (now[0] = 1000; now[0] <= end; now[0] += 1000) {
+            s.advanceTo(now[0], listener);
+        }
+
+        double worstHour = 0;
+        for (int h = 0; h < DemandHeatmap.HOURS; h++) {
+            double expected = map.getTotalRate(h) * days;
+            worstHour = Math.max(worstHour, Math.abs(byHour[h] - expected) / Math.sqrt(expected));
+        }
+        assertTrue("worst hour z=" + worstHour, worstHour < MAX_Z);
+
+        double worstCell = 0;
+        int checked = 0;
+        for (int cell = 0; cell < map.getCellCount(); cell++) {
+            double expected = 0;
+            for (int h = 0; h < DemandHeatmap.HOURS; h++) {
+                expected += map.getRate(cell, h) * days;
+            }
+            if (expected < 50) {
+                continue;
+            }
+            checked++;
+            worstCell = Math.max(worstCell, Math.abs(byCell[cell] - expected) / Math.sqrt(expected));
+        }
+        assertTrue("worst cell z=" + worstCell, worstCell < MAX_Z);
+        assertEquals("outside map", 0, outside[0]);
+        assertTrue(checked > 0);
+    }
+
+    /** Срок жизни 5 минут, треть заказов "берут" раньше срока */
+    @Test
+    public void unclaimedOrdersExpireOnce() {
+        long ttl = 5 * 60_000L;
+        long tick = 1000;
+        SpawnScheduler s = new SpawnScheduler(
+                DemandHeatmap.uniform(ORIGIN_LAT, ORIGIN_LNG, AREA_DEG, 36_000),
+                new OrderGenerator(SEED), SEED, ttl);
+        Random random = new Random(SEED);
+        // id → момент шага, на котором заказ появился (сам приход — в пределах этого шага)
+        Map<Long, Long> open = new HashMap<>();
+        Set<Long> taken = new HashSet<>();
+        long[] now = new long[1];
+        int[] errors = new int[3];
+        long[] expiredCount = new long[1];
+        SpawnScheduler.Listener listener = new SpawnScheduler.Listener() {
+            @Override
+            public void onOrderSpawned(Order order) {
+                open.put(order.getId(), now[0]);
+            }
+
+            @Override
+            public void onOrderExpired(long orderId) {
+                Long spawnedAt = open.remove(orderId);
+                if (spawnedAt == null) {
+                    // Взятый или уже исчезнувший
+                    errors[0]++;
+                } else if (now[0] < spawnedAt - STEP_MILLIS + ttl) {
+                    errors[1]++;
+                } else if (now[0] > spawnedAt + ttl + tick + STEP_MILLIS) {
+                    errors[2]++;
+                }
+                expiredCount[0]++;
+            }
+        };
+        s.startAt(0);
+        long end = 2 * HOUR_MILLIS;
+        for (now[0] = STEP_MILLIS; now[0] <= end; now[0] += STEP_MILLIS) {
+            s.advanceTo(now[0], listener);
+            // Иногда берём случайный открытый заказ
+            if (!open.isEmpty() && random.nextInt(3) == 0) {
+                long id = open.keySet().iterator().next();
+                open.remove(id);
+                taken.add(id);
+                if (!s.forget(id)) {
+                    errors[0]++;
+                }
+            }
+        }
+        // Заказы старше срока с запасом на тик должны были исчезнуть
+        int overdue = 0;
+        for (long spawnedAt : open.values()) {
+            if (spawnedAt + ttl + tick + STEP_MILLIS < end) {
+                overdue++;
+            }
+        }
+        assertEquals("unexpected", 0, errors[0]);
+        assertEquals("early", 0, errors[1]);
+        assertEquals("late", 0, errors[2]);
+        assertEquals("overdue", 0, overdue);
+        assertEquals(open.size(), s.getOpenCount());
+        assertEquals(expiredCount[0] + taken.size() + open.size(), s.getSpawnedCount());
+    }
+
+    /** Пауза в 10 часов: разыгрывается только последний срок жизни, старые заказы исчезают */
+    @Test
+    public void longPauseReplaysOnlyLastLifetime() {
+        long ttl = 20 * 60_000L;
+        double perHour = 3600;
+        SpawnScheduler s = new SpawnScheduler(
+                DemandHeatmap.uniform(ORIGIN_LAT, ORIGIN_LNG, AREA_DEG, perHour),
+                new OrderGenerator(SEED), SEED, ttl);
+        CountingListener listener = new CountingListener();
+        // Старт "с прогревом": сразу установившийся набор
+        s.startAt(-ttl);
+        s.advanceTo(0, listener);
+        int warm = s.getOpenCount();
+        for (long now = 1000; now <= HOUR_MILLIS; now += 1000) {
+            s.advanceTo(now, listener);
+        }
+        int before = s.getOpenCount();
+        long spawnedBefore = s.getSpawnedCount();
+        s.advanceTo(11 * HOUR_MILLIS, listener);
+        long burst = s.getSpawnedCount() - spawnedBefore;
+        double expected = perHour * ttl / HOUR_MILLIS;
+        double warmZ = (warm - expected) / Math.sqrt(expected);
+        double burstZ = (burst - expected) / Math.sqrt(expected);
+        assertTrue("warm start " + warm + " open, expected " + expected, Math.abs(warmZ) < MAX_Z);
+        assertTrue(before > 0);
+        assertTrue(burst + " spawned over 10 h pause, expected " + expected, Math.abs(burstZ) < MAX_Z);
+        // После паузы открыты только заказы из последнего срока жизни (старые исчезли)
+        assertEquals(listener.spawned - listener.expired, s.getOpenCount());
+        assertTrue(s.getOpenCount() <= burst);
+    }
+
+    /** Симуляция с автопилотами: книга и планировщик видят одни и те же открытые заказы */
+    @Test
+    public void simulationBookMatchesScheduler() {
+        SimConfig config = new SimConfig().setSeed(SEED).setCardCatalogSize(50);
+        Simulation sim = new Simulation(config);
+        DemandHeatmap map = DemandHeatmap.synthetic(config.getOriginLat(), config.getOriginLng(),
+                config.getAreaRadiusDeg(), 0.005, 20_000, SEED);
+        SpawnScheduler spawner = new SpawnScheduler(map, sim.getOrderGenerator(), SEED, 10 * 60_000L);
+        sim.setSpawnScheduler(spawner);
+        long[] events = new long[2];
+        sim.setListener(new SimListener() {
+            @Override
+            public void onOrderSpawned(Order order) {
+                events[0]++;
+            }
+
+            @Override
+            public void onOrderExpired(Order order) {
+                events[1]++;
+            }
+        });
+        Random placement = new Random(SEED);
+        double r = config.getAreaRadiusDeg();
+        for (int i = 0; i < 200; i++) {
+            sim.addCourier(config.getOriginLat() + (placement.nextDouble() - 0.5) * 2 * r,
+                    config.getOriginLng() + (placement.nextDouble() - 0.5) * 2 * r, true);
+        }
+        sim.runTicks(HOUR_MILLIS / config.getTickMillis());
+        assertEquals(spawner.getOpenCount(), sim.getOrderBook().size());
+        assertEquals(spawner.getSpawnedCount(), events[0]);
+        assertEquals(spawner.getExpiredCount(), events[1]);
+        assertTrue(events[1] > 0);
+        assertTrue(sim.getDeliveries() > 0);
+    }
+
+    /**
+     * Тысячи появлений в секунду, срок жизни минута: по событиям обновляется OrderStore
+     * (в OrderBook удаление линейно по размеру ячейки, на сотнях тысяч заказов это узкое место)
+     */
+    @Test
+    public void handlesThousandsOfEventsPerSecond() {
+        long ttl = 60_000L;
+        DemandHeatmap map = DemandHeatmap.synthetic(ORIGIN_LAT, ORIGIN_LNG, AREA_DEG, 0.005, 1, SEED);
+        // Одинаковая нагрузка в любой час: масштабируем каждый час до RATE
+        for (int h = 0; h < DemandHeatmap.HOURS; h++) {
+            double k = RATE * 3600 / map.getTotalRate(h);
+            for (int cell = 0; cell < map.getCellCount(); cell++) {
+                map.setRate(cell, h, map.getRate(cell, h) * k);
+            }
+        }
+        OrderGenerator generator = new OrderGenerator(SEED);
+        SpawnScheduler s = new SpawnScheduler(map, generator, SEED, ttl);
+        OrderStore store = new OrderStore((int) (RATE * ttl / 1000 * 1.2), OrderBook.DEFAULT_CELL_SIZE_DEG);
+        SpawnScheduler.Listener listener = new SpawnScheduler.Listener() {
+            @Override
+            public void onOrderSpawned(Order order) {
+                store.add(order);
+            }
+
+            @Override
+            public void onOrderExpired(long orderId) {
+                store.remove(orderId);
+            }
+        };
+        s.startAt(-ttl);
+        // Прогрев JIT и установившийся набор заказов
+        long now = 0;
+        for (; now < 30_000; now += STEP_MILLIS) {
+            s.advanceTo(now, listener);
+        }
+        long events = 0;
+        long start = System.nanoTime();
+        long end = now + SECONDS * 1000L;
+        for (; now <= end; now += STEP_MILLIS) {
+            events += s.advanceTo(now, listener);
+        }
+        double wall = (System.nanoTime() - start) / 1e9;
+        double speedup = SECONDS / wall;
+        assertTrue(String.format("%d events in %.2f s, %.0fx real time", events, wall, speedup),
+                speedup >= MIN_SPEEDUP);
+        assertEquals(s.getOpenCount(), store.size());
+    }
+
+    private static final class CountingListener implements SpawnScheduler.Listener {
+        long spawned;
+        long expired;
+
+        @Override
+        public void onOrderSpawned(Order order) {
+            spawned++;
+        }
+
+        @Override
+        public void onOrderExpired(long orderId) {
+            expired++;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.couriersimulator.replay;
+
+import com.example.couriersimulator.geo.GeoMath;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * TraceParser:
+ * - GPX: точки trkpt и rtept, время из time с любым смещением, время метаданных не мешает;
+ *   без времени оно считается по расстоянию и скорости
+ * - GPX с DOCTYPE (XXE, сущности) не читается, точка без lat/lon — ошибка
+ * - CSV: заголовок после комментариев, пустые время и точность, разделитель ';'
+ * - ошибки CSV называют номер строки файла (комментарии и пустые строки считаются),
+ *   время назад — тоже IOException
+ */
+public class TraceParserTest {
+
+    private static final String GPX_HEAD = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<gpx version=\"1.1\" xmlns=\"http://www.topografix.com/GPX/1/1\">\n";
+
+    @Test
+    public void gpxPointsAndTimes() throws IOException {
+        Trace trace = gpx(GPX_HEAD
+                + "<metadata><time>2020-01-01T00:00:00Z</time></metadata>\n"
+                + "<trk><trkseg>\n"
+                + "<trkpt lat=\"55.75\" lon=\"37.61\"><ele>150</ele><time>2024-05-01T10:00:00Z</time></trkpt>\n"
+                + "<trkpt lat=\"55.76\" lon=\"37.62\"><time>2024-05-01T10:00:05.500+00:00</time></trkpt>\n"
+                + "</trkseg></trk>\n"
+                + "<rte><rtept lat=\"55.77\" lon=\"37.63\"><time>2024-05-01T13:00:10+03:00</time></rtept></rte>\n"
+                + "</gpx>");
+
+        assertEquals(3, trace.size());
+        assertEquals(55.75, trace.getLat(0), 0);
+        assertEquals(37.63, trace.getLng(2), 0);
+        assertEquals(0, trace.getTimeMillis(0));
+        assertEquals(5500, trace.getTimeMillis(1));
+        assertEquals(10_000, trace.getTimeMillis(2));
+    }
+
+    @Test
+    public void gpxWithoutTimeUsesSpeed() throws IOException {
+        Trace trace = gpx(GPX_HEAD + "<trk><trkseg>"
+                + "<trkpt lat=\"55.75\" lon=\"37.61\"/><trkpt lat=\"55.76\" lon=\"37.61\"/>"
+                + "</trkseg></trk></gpx>");
+
+        double meters = GeoMath.distanceMeters(55.75, 37.61, 55.76, 37.61);
+        assertEquals(Math.round(meters / 2.0 * 1000), trace.getTimeMillis(1));
+    }
+
+    @Test
+    public void gpxDoctypeIsRejected() {
+        assertInvalidGpx("<?xml version=\"1.0\"?>\n"
+                + "<!DOCTYPE gpx [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>\n"
+                + "<gpx><trk><trkseg><trkpt lat=\"1\" lon=\"2\"><name>&xxe;</name></trkpt>"
+                + "</trkseg></trk></gpx>");
+        assertInvalidGpx("<?xml version=\"1.0\"?>\n"
+                + "<!DOCTYPE gpx [<!ENTITY a \"aaaaaaaaaa\"><!ENTITY b \"&a;&a;&a;&a;&a;&a;&a;&a;\">]>\n"
+                + "<gpx><trk><trkseg><trkpt lat=\"1\" lon=\"2\"><name>&b;</name></trkpt>"
+                + "</trkseg></trk></gpx>");
+    }
+
+    @Test
+    public void gpxPointWithoutCoordinatesFails() {
+        assertInvalidGpx(GPX_HEAD + "<trk><trkseg><trkpt lat=\"55.75\"/></trkseg></trk></gpx>");
+        assertInvalidGpx(GPX_HEAD + "<trk><trkseg><trkpt lat=\"55.75\" lon=\"37.61\">"
+                + "<time>yesterday</time></trkpt></trkseg></trk></gpx>");
+    }
+
+    @Test
+    public void csvHeaderCommentsAndEmptyColumns() throws IOException {
+        Trace trace = csv("# записано в парке\n"
+                + "\n"
+                + "lat,lng,time,accuracy\n"
+                + "55.750,37.610,1000,5\n"
+                + "55.751;37.611;2500;\n"
+                + "55.752,37.612,,\n"
+                + "55.753,37.613,200000, \n");
+
+        assertEquals(4, trace.size());
+        assertEquals(0, trace.getTimeMillis(0));
+        assertEquals(1500, trace.getTimeMillis(1));
+        double meters = GeoMath.distanceMeters(55.751, 37.611, 55.752, 37.612);
+        assertEquals(1500 + Math.round(meters / 2.0 * 1000), trace.getTimeMillis(2));
+        assertEquals(199_000, trace.getTimeMillis(3));
+        assertEquals(5f, trace.getAccuracy(0), 0);
+        assertEquals(0f, trace.getAccuracy(1), 0);
+        assertEquals(0f, trace.getAccuracy(2), 0);
+        assertEquals(0f, trace.getAccuracy(3), 0);
+    }
+
+    @Test
+    public void csvErrorsNameTheLine() {
+        assertCsvError("lat,lng\n55.75,37.61\n# пропуск\n\n55.76,abc\n", "Line 5:");
+        assertCsvError("55.75\n", "Line 1: expected lat,lng");
+        assertCsvError("55.75,37.61,1000,5\n55.76,37.62,2000,good\n", "Line 2:");
+        // Заголовок бывает только первой строкой с данными
+        assertCsvError("55.75,37.61\nlat,lng\n", "Line 2:");
+        assertCsvError("55.75,37.61,2000\n55.76,37.62,1000\n", "Invalid trace: Time goes backwards");
+    }
+
+    private static Trace gpx(String xml) throws IOException {
+        return TraceParser.parseGpx(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), 2.0);
+    }
+
+    private static Trace csv(String text) throws IOException {
+        return TraceParser.parseCsv(new StringReader(text), 2.0);
+    }
+
+    private static void assertInvalidGpx(String xml) {
+        try {
+            gpx(xml);
+            fail("Parsed: " + xml);
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid GPX"));
+        }
+    }
+
+    private static void assertCsvError(String text, String messagePrefix) {
+        try {
+            csv(text);
+            fail("Parsed: " + text);
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(messagePrefix));
+        }
+    }
+}
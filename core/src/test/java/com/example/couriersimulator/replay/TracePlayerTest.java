@@ -0,0 +1,147 @@
+package com.example.couriersimulator.replay;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TracePlayer на настоящем планировщике:
+ * - без loop точки идут по порядку со временем трека, в конце один onFinished
+ * - с loop круги повторяются, время следующего круга сдвинуто на длину трека и шаг;
+ *   после stop() фиксов больше нет, onFinished не вызывается
+ * - stop() из самого Sink останавливает и точки, уже наступившие в том же проходе
+ * - пустой трек не запускается
+ */
+public class TracePlayerTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void playsOnceAndFinishes() throws InterruptedException {
+        Recorder sink = new Recorder();
+        TracePlayer player = new TracePlayer(trace(0, 100, 200), sink, executor, 100, false);
+        player.start();
+        assertTrue(player.isRunning());
+
+        assertTrue(sink.finished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse(player.isRunning());
+        assertEquals(3, sink.fixes.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, sink.fixes.get(i).point);
+            assertEquals(100L * i, sink.fixes.get(i).traceTime);
+        }
+        assertEquals(1, sink.finishedCalls.get());
+    }
+
+    @Test
+    public void loopsUntilStopped() throws InterruptedException {
+        Recorder sink = new Recorder();
+        sink.enough = new CountDownLatch(10);
+        TracePlayer player = new TracePlayer(trace(0, 100, 200), sink, executor, TracePlayer.MAX_SPEED, true);
+        player.start();
+
+        assertTrue(sink.enough.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        player.stop();
+        assertFalse(player.isRunning());
+        int emitted = sink.fixes.size();
+        Thread.sleep(50);
+        assertEquals(emitted, sink.fixes.size());
+        assertEquals(0, sink.finishedCalls.get());
+
+        // Круг — 200 мс трека и ещё шаг 100 мс до начала следующего
+        for (int k = 0; k < emitted; k++) {
+            assertEquals(k % 3, sink.fixes.get(k).point);
+            assertEquals(k / 3 * 300L + k % 3 * 100L, sink.fixes.get(k).traceTime);
+        }
+    }
+
+    @Test
+    public void stopFromSinkDropsPointsAlreadyDue() throws InterruptedException {
+        // Все точки в момент 0: наступают в одном проходе
+        long[] times = new long[50];
+        AtomicReference<TracePlayer> player = new AtomicReference<>();
+        Recorder sink = new Recorder() {
+            @Override
+            public void onFix(double lat, double lng, float accuracyMeters, long traceTimeMillis) {
+                super.onFix(lat, lng, accuracyMeters, traceTimeMillis);
+                if (fixes.size() == 3) {
+                    player.get().stop();
+                }
+            }
+        };
+        player.set(new TracePlayer(trace(times), sink, executor, 1, true));
+        player.get().start();
+
+        Thread.sleep(100);
+        assertEquals(3, sink.fixes.size());
+        assertFalse(player.get().isRunning());
+        assertEquals(0, sink.finishedCalls.get());
+    }
+
+    @Test
+    public void emptyTraceDoesNotStart() {
+        Recorder sink = new Recorder();
+        TracePlayer player = new TracePlayer(trace(), sink, executor, 1, false);
+        player.start();
+        assertFalse(player.isRunning());
+        assertEquals(0, sink.fixes.size());
+    }
+
+    /** Трек из точек с широтой, равной номеру точки */
+    private static Trace trace(long... times) {
+        int n = times.length;
+        double[] lat = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = i;
+        }
+        return Trace.of(lat, new double[n], times, new float[n]);
+    }
+
+    private static final class Fix {
+        final int point;
+        final long traceTime;
+
+        Fix(int point, long traceTime) {
+            this.point = point;
+            this.traceTime = traceTime;
+        }
+    }
+
+    private static class Recorder implements TracePlayer.Sink {
+        final List<Fix> fixes = new CopyOnWriteArrayList<>();
+        final CountDownLatch finished = new CountDownLatch(1);
+        final AtomicInteger finishedCalls = new AtomicInteger();
+        volatile CountDownLatch enough = new CountDownLatch(0);
+
+        @Override
+        public void onFix(double lat, double lng, float accuracyMeters, long traceTimeMillis) {
+            fixes.add(new Fix((int) lat, traceTimeMillis));
+            enough.countDown();
+        }
+
+        @Override
+        public void onFinished() {
+            finishedCalls.incrementAndGet();
+            finished.countDown();
+        }
+    }
+}
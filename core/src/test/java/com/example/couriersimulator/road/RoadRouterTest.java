@@ -0,0 +1,239 @@
+package com.example.couriersimulator.road;
+
+import com.example.couriersimulator.TimingChecks;
+import com.example.couriersimulator.geo.GeoMath;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Дорожный граф и RoadRouter:
+ * - файл графа: запись, отображение в память и чтение дают те же данные
+ * - выгрузка OSM: односторонние улицы, частные дороги и островки графа
+ * - A* против Дейкстры без эвристики на случайных парах точек синтетического города
+ * - время запроса на дистанции заказа (до ~4 км; только с TimingChecks)
+ */
+public class RoadRouterTest {
+
+    private static final double CENTER_LAT = 55.751244;
+    private static final double CENTER_LNG = 37.618423;
+    private static final double SPACING_METERS = 80;
+    private static final int SIDE = 400;
+    private static final int QUERIES = 300;
+    private static final long SEED = 42L;
+    // A* с чуть заниженной эвристикой может отстать от оптимума на доли процента
+    private static final double MAX_MEAN_GAP = 0.001;
+    private static final double MAX_WORST_GAP = 0.01;
+    // Бюджет запроса на дистанции заказа (на телефоне — единицы мс; десктоп укладывается с запасом)
+    private static final double ORDER_QUERY_LIMIT_MS = 5;
+    private static final double ORDER_DISTANCE_METERS = 4000;
+
+    private static RoadGraph graph;
+
+    @BeforeClass
+    public static void buildCity() {
+        graph = SyntheticRoads.city(CENTER_LAT, CENTER_LNG, SIDE, SPACING_METERS, SEED).build();
+    }
+
+    @Test
+    public void cityKeepsMostNodes() {
+        assertTrue(graph.getNodeCount() + " nodes", graph.getNodeCount() > SIDE * SIDE * 9 / 10);
+    }
+
+    @Test
+    public void writeMapReadKeepsGraph() throws IOException {
+        File file = File.createTempFile("roads", ".rgr");
+        try {
+            graph.writeTo(file);
+            assertEquals(graph.getByteSize(), file.length());
+            assertSameGraph(graph, RoadGraph.open(file));
+            assertSameGraph(graph, RoadGraph.read(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /** Маленькая выгрузка: квадрат из двусторонних улиц, одна односторонняя, одна частная и островок */
+    @Test
+    public void osmHonoursOnewayAccessAndIslands() throws IOException {
+        File file = File.createTempFile("roads", ".osm");
+        try {
+            try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+                out.write("<?xml version='1.0' encoding='UTF-8'?>\n<osm version='0.6'>\n");
+                double[][] points = {
+                        {55.750, 37.610}, {55.750, 37.620}, {55.760, 37.620}, {55.760, 37.610},
+                        {55.755, 37.615}, {55.770, 37.640}, {55.771, 37.641}, {55.740, 37.600}
+                };
+                for (int i = 0; i < points.length; i++) {
+                    out.write(String.format(Locale.ROOT, "<node id='%d' lat='%.6f' lon='%.6f'/>\n",
+                            i + 1, points[i][0], points[i][1]));
+                }
+                way(out, 10, "residential", null, 1, 2, 3, 4, 1);
+                // Короткий путь через центр — только от 1 к 3
+                way(out, 11, "residential", "oneway", 1, 5, 3);
+                // Частная дорога к узлу 8 и отдельный островок 6–7
+                way(out, 12, "service", "private", 1, 8);
+                way(out, 13, "residential", null, 6, 7);
+                way(out, 14, "building", null, 2, 4);
+                out.write("</osm>\n");
+            }
+            RoadGraph osm = OsmRoadReader.read(file).build();
+            RoadRouter router = new RoadRouter(osm);
+            RoadRoute route = new RoadRoute();
+            double diagonal = GeoMath.distanceMeters(55.750, 37.610, 55.760, 37.620);
+
+            assertEquals(5, osm.getNodeCount());
+            assertTrue(router.route(55.750, 37.610, 55.760, 37.620, route));
+            assertEquals(diagonal, route.getMeters(), 1);
+            assertTrue(router.route(55.760, 37.620, 55.750, 37.610, route));
+            assertTrue("3->1 " + route.getMeters() + " m", route.getMeters() > diagonal * 1.3);
+            assertTrue(router.nearestNode(55.740, 37.600) < 0);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void aStarMatchesDijkstra() {
+        Random random = new Random(SEED + 1);
+        RoadRouter router = new RoadRouter(graph);
+        int[] dist = new int[graph.getNodeCount()];
+        double sumGap = 0;
+        double worstGap = 0;
+        int count = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            int source = random.nextInt(graph.getNodeCount());
+            int target = random.nextInt(graph.getNodeCount());
+            int expected = dijkstra(graph, source, target, dist);
+            int actual = router.search(source, target);
+            assertEquals("reachability " + source + " -> " + target, expected < 0, actual < 0);
+            if (expected <= 0) {
+                continue;
+            }
+            double gap = (double) actual / expected - 1;
+            assertFalse("shorter than Dijkstra for " + source + " -> " + target, gap < 0);
+            sumGap += gap;
+            worstGap = Math.max(worstGap, gap);
+            count++;
+        }
+        double mean = count == 0 ? 0 : sumGap / count;
+        assertTrue("mean gap " + mean, mean <= MAX_MEAN_GAP);
+        assertTrue("worst gap " + worstGap, worstGap <= MAX_WORST_GAP);
+    }
+
+    @Test
+    public void orderDistanceQueryFitsBudget() {
+        assumeTrue("timing checks are opt-in", TimingChecks.ENABLED);
+        Random random = new Random(SEED + 2);
+        RoadRouter router = new RoadRouter(graph);
+        RoadRoute route = new RoadRoute();
+        double halfSpan = SPACING_METERS * (SIDE - 1) / 2 * 0.9;
+        // Прогрев JIT
+        for (int i = 0; i < QUERIES; i++) {
+            query(router, route, random, halfSpan, ORDER_DISTANCE_METERS);
+        }
+        long[] order = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            order[i] = query(router, route, random, halfSpan, ORDER_DISTANCE_METERS);
+        }
+        double orderMs = percentile(order, 0.5) / 1e6;
+        assertTrue("median " + orderMs + " ms", orderMs < ORDER_QUERY_LIMIT_MS);
+    }
+
+    private static void way(Writer out, long id, String highway, String flag, long... refs) throws IOException {
+        out.write("<way id='" + id + "'>\n");
+        for (long ref : refs) {
+            out.write("<nd ref='" + ref + "'/>\n");
+        }
+        out.write("<tag k='highway' v='" + highway + "'/>\n");
+        if ("oneway".equals(flag)) {
+            out.write("<tag k='oneway' v='yes'/>\n");
+        } else if ("private".equals(flag)) {
+            out.write("<tag k='access' v='private'/>\n");
+        }
+        out.write("</way>\n");
+    }
+
+    // Случайная пара точек на расстоянии до maxMeters; возвращает время запроса, нс
+    private static long query(RoadRouter router, RoadRoute route, Random random, double halfSpan, double maxMeters) {
+        double x = (random.nextDouble() * 2 - 1) * halfSpan;
+        double y = (random.nextDouble() * 2 - 1) * halfSpan;
+        double angle = random.nextDouble() * 2 * Math.PI;
+        double d = random.nextDouble() * maxMeters;
+        double x2 = Math.max(-halfSpan, Math.min(halfSpan, x + Math.cos(angle) * d));
+        double y2 = Math.max(-halfSpan, Math.min(halfSpan, y + Math.sin(angle) * d));
+        double mPerLng = GeoMath.metersPerDegreeLng(CENTER_LAT);
+        long start = System.nanoTime();
+        router.route(CENTER_LAT + y / GeoMath.METERS_PER_DEGREE_LAT, CENTER_LNG + x / mPerLng,
+                CENTER_LAT + y2 / GeoMath.METERS_PER_DEGREE_LAT, CENTER_LNG + x2 / mPerLng, route);
+        return System.nanoTime() - start;
+    }
+
+    /** Эталон: Дейкстра на PriorityQueue без эвристики */
+    private static int dijkstra(RoadGraph graph, int source, int target, int[] dist) {
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        boolean[] done = new boolean[graph.getNodeCount()];
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        dist[source] = 0;
+        queue.add(new long[]{0, source});
+        int result = -1;
+        while (!queue.isEmpty()) {
+            long[] top = queue.poll();
+            int u = (int) top[1];
+            if (done[u]) {
+                continue;
+            }
+            done[u] = true;
+            if (u == target) {
+                result = dist[u];
+                break;
+            }
+            for (int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+                int v = graph.edgeTarget(e);
+                int dv = dist[u] + graph.edgeLength(e);
+                if (dv < dist[v]) {
+                    dist[v] = dv;
+                    queue.add(new long[]{dv, v});
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void assertSameGraph(RoadGraph a, RoadGraph b) {
+        assertEquals(a.getNodeCount(), b.getNodeCount());
+        assertEquals(a.getEdgeCount(), b.getEdgeCount());
+        assertEquals(a.getByteSize(), b.getByteSize());
+        for (int u = 0; u < a.getNodeCount(); u++) {
+            assertEquals(a.latE7(u), b.latE7(u));
+            assertEquals(a.lngE7(u), b.lngE7(u));
+            assertEquals(a.firstEdge(u), b.firstEdge(u));
+        }
+        for (int e = 0; e < a.getEdgeCount(); e++) {
+            assertEquals(a.edgeTarget(e), b.edgeTarget(e));
+            assertEquals(a.edgeLength(e), b.edgeLength(e));
+        }
+    }
+
+    private static double percentile(long[] values, double p) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.couriersimulator.route;
+
+import com.example.couriersimulator.TimingChecks;
+import com.example.couriersimulator.geo.GeoMath;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * RoutePlanner против точного решения (Хелд — Карп) на малых задачах:
+ * - отставание от оптимума при построении с нуля (optimize)
+ * - то же при добавлении точек по одной (add) и после удаления части точек (remove)
+ * - после remove матрица расстояний совпадает с пересчитанной по координатам
+ * - время на 50 точек: optimize по готовой матрице (только с TimingChecks)
+ */
+public class RoutePlannerTest {
+
+    // Точки в квадрате ±2 км вокруг центра
+    private static final double ORIGIN_LAT = 55.751244;
+    private static final double ORIGIN_LNG = 37.618423;
+    private static final double AREA_METERS = 2000;
+
+    private static final long SEED = 42L;
+    private static final int INSTANCES = 300;
+    private static final int MIN_STOPS = 3;
+    private static final int MAX_STOPS = 10;
+    // Допустимое отставание от оптимума: среднее и худшее по всем задачам.
+    // Локальный поиск изредка застревает в минимуме на 10–20% хуже, отсюда запас для худшего
+    private static final double MAX_MEAN_GAP = 0.01;
+    private static final double MAX_WORST_GAP = 0.25;
+    // Бюджет на 50 точек (на телефоне — 5 мс; JVM на десктопе должна укладываться с запасом)
+    private static final int TIMING_STOPS = 50;
+    private static final double TIMING_LIMIT_MS = 5;
+
+    private enum Mode {
+        OPTIMIZE, // все точки сразу, затем optimize
+        ADD,      // точки по одной через add
+        REMOVE    // на 3 точки больше через add, затем 3 случайных remove
+    }
+
+    @Test
+    public void optimizeStaysNearOptimum() {
+        assertGap(SEED, Mode.OPTIMIZE);
+    }
+
+    @Test
+    public void addStaysNearOptimum() {
+        assertGap(SEED + 1, Mode.ADD);
+    }
+
+    @Test
+    public void removeStaysNearOptimum() {
+        assertGap(SEED + 2, Mode.REMOVE);
+    }
+
+    /** Добавления и удаления вперемешку; затем длина по матрице против длины по координатам */
+    @Test
+    public void matrixMatchesCoordinatesAfterChurn() {
+        Random random = new Random(SEED + 3);
+        RoutePlanner planner = new RoutePlanner(2);
+        double[] lats = new double[1000];
+        double[] lngs = new double[1000];
+        double startLat = lat(random);
+        double startLng = lng(random);
+        planner.setStart(startLat, startLng);
+        int nextId = 0;
+        for (int step = 0; step < 600; step++) {
+            if (planner.size() > 0 && random.nextInt(3) == 0) {
+                planner.remove(planner.getStopId(random.nextInt(planner.size())));
+            } else {
+                lats[nextId] = lat(random);
+                lngs[nextId] = lng(random);
+                planner.add(nextId, lats[nextId], lngs[nextId]);
+                nextId++;
+            }
+        }
+        double expected = 0;
+        double prevLat = startLat;
+        double prevLng = startLng;
+        for (int p = 0; p < planner.size(); p++) {
+            int id = (int) planner.getStopId(p);
+            expected += GeoMath.distanceMeters(prevLat, prevLng, lats[id], lngs[id]);
+            prevLat = lats[id];
+            prevLng = lngs[id];
+        }
+        assertEquals(expected, planner.getLengthMeters(), 1e-6 * expected);
+    }
+
+    @Test
+    public void optimizeFitsBudget() {
+        assumeTrue("timing checks are opt-in", TimingChecks.ENABLED);
+        long[] full = new long[200];
+        Random random = new Random(SEED + 4);
+        for (int run = 0; run < full.length; run++) {
+            RoutePlanner planner = new RoutePlanner(TIMING_STOPS);
+            planner.setStart(lat(random), lng(random));
+            for (int i = 0; i < TIMING_STOPS; i++) {
+                planner.add(i, lat(random), lng(random));
+            }
+            long t0 = System.nanoTime();
+            planner.optimize();
+            full[run] = System.nanoTime() - t0;
+        }
+        Arrays.sort(full);
+        double medianMs = full[full.length / 2] / 1e6;
+        assertTrue(TIMING_STOPS + " stops: " + medianMs + " ms", medianMs < TIMING_LIMIT_MS);
+    }
+
+    private static void assertGap(long seed, Mode mode) {
+        Random random = new Random(seed);
+        double sumGap = 0;
+        double worstGap = 0;
+        int count = 0;
+        for (int n = MIN_STOPS; n <= MAX_STOPS; n++) {
+            for (int k = 0; k < INSTANCES; k++) {
+                RoutePlanner planner = new RoutePlanner();
+                planner.setStart(lat(random), lng(random));
+                if (mode == Mode.OPTIMIZE) {
+                    addPoints(planner, n, random);
+                    planner.optimize();
+                } else if (mode == Mode.ADD) {
+                    addPoints(planner, n, random);
+                } else {
+                    addPoints(planner, n + 3, random);
+                    for (int r = 0; r < 3; r++) {
+                        planner.remove(planner.getStopId(random.nextInt(planner.size())));
+                    }
+                }
+                double gap = planner.getLengthMeters() / optimalLength(planner) - 1;
+                assertTrue(mode + ": shorter than optimum at n=" + n, gap >= -1e-9);
+                sumGap += Math.max(0, gap);
+                worstGap = Math.max(worstGap, gap);
+                count++;
+            }
+        }
+        double mean = sumGap / count;
+        assertTrue(mode + ": mean gap " + mean, mean <= MAX_MEAN_GAP);
+        assertTrue(mode + ": worst gap " + worstGap, worstGap <= MAX_WORST_GAP);
+    }
+
+    /** Длина лучшего открытого маршрута из узла 0 через все точки (Хелд — Карп, O(2^n * n^2)) */
+    private static double optimalLength(RoutePlanner planner) {
+        int n = planner.size();
+        int full = (1 << n) - 1;
+        // best[mask * n + last] — кратчайший путь от начала через точки mask, заканчивающийся в last
+        double[] best = new double[(1 << n) * n];
+        Arrays.fill(best, Double.MAX_VALUE);
+        for (int v = 0; v < n; v++) {
+            best[(1 << v) * n + v] = planner.nodeDistance(0, v + 1);
+        }
+        for (int mask = 1; mask <= full; mask++) {
+            for (int last = 0; last < n; last++) {
+                double d = best[mask * n + last];
+                if (d == Double.MAX_VALUE) {
+                    continue;
+                }
+                for (int v = 0; v < n; v++) {
+                    if ((mask & (1 << v)) != 0) {
+                        continue;
+                    }
+                    int next = (mask | (1 << v)) * n + v;
+                    double candidate = d + planner.nodeDistance(last + 1, v + 1);
+                    if (candidate < best[next]) {
+                        best[next] = candidate;
+                    }
+                }
+            }
+        }
+        double result = Double.MAX_VALUE;
+        for (int last = 0; last < n; last++) {
+            result = Math.min(result, best[full * n + last]);
+        }
+        return result;
+    }
+
+    private static void addPoints(RoutePlanner planner, int count, Random random) {
+        for (int i = 0; i < count; i++) {
+            planner.add(i, lat(random), lng(random));
+        }
+    }
+
+    private static double lat(Random random) {
+        return ORIGIN_LAT + (random.nextDouble() * 2 - 1) * AREA_METERS / GeoMath.METERS_PER_DEGREE_LAT;
+    }
+
+    private static double lng(Random random) {
+        return ORIGIN_LNG + (random.nextDouble() * 2 - 1) * AREA_METERS / GeoMath.metersPerDegreeLng(ORIGIN_LAT);
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.couriersimulator.store;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * GameJournal:
+ * - после закрытия и открытия состояние то же, в том числе через снимки
+ * - чужие файлы с похожими именами не читаются как сегменты и снимки
+ * - обрыв записи посреди пачки не портит записи после неё: сегмент откатывается
+ *   к последнему fsync, а об ошибке узнаёт слушатель
+ */
+public class GameJournalTest {
+
+    private File dir;
+    // Следующая запись в сегмент обрывается на середине (см. FailingChannel)
+    private final AtomicBoolean failNextWrite = new AtomicBoolean();
+
+    @Before
+    public void createDir() throws IOException {
+        dir = Files.createTempDirectory("journal").toFile();
+    }
+
+    @After
+    public void deleteDir() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void reopenRestoresStateAcrossSnapshots() throws Exception {
+        GameJournal journal = GameJournal.open(dir, 7, 1);
+        for (int i = 0; i < 50; i++) {
+            journal.append(GameEvent.cardOwned(i, true));
+        }
+        journal.close();
+        assertNull(journal.getLastError());
+
+        BitSet owned = GameJournal.open(dir, 7, 1).getRestoredState().getOwnedCards();
+        assertEquals(50, owned.cardinality());
+        assertEquals(49, owned.length() - 1);
+    }
+
+    @Test
+    public void foreignFilesAreNotReplayed() throws Exception {
+        GameJournal journal = GameJournal.open(dir, 1000, 1);
+        for (int i = 0; i < 3; i++) {
+            journal.append(GameEvent.orderDelivered(i, 100, -1, 1000L * i));
+        }
+        journal.close();
+        // Префикс и суффикс как у журнала, но номер не шестнадцатеричный
+        assertTrue(new File(dir, "journal-backup.log").createNewFile());
+        assertTrue(new File(dir, "snapshot-old.bin").createNewFile());
+
+        GameState state = GameJournal.open(dir, 1000, 1).getRestoredState();
+        assertEquals(3, state.getDeliveries());
+        assertEquals(300, state.getEarnings());
+    }
+
+    @Test
+    public void failedWriteDoesNotHideLaterRecords() throws Exception {
+        GameJournal journal = openFailing(1000);
+        List<IOException> errors = new ArrayList<>();
+        journal.setErrorListener(errors::add);
+        journal.append(GameEvent.cardOwned(1, true));
+        journal.flush();
+
+        failNextWrite.set(true);
+        journal.append(GameEvent.cardOwned(2, true));
+        journal.flush();
+        journal.append(GameEvent.cardOwned(3, true));
+        journal.close();
+
+        assertEquals(1, errors.size());
+        assertNotNull(journal.getLastError());
+        BitSet owned = GameJournal.open(dir, 1000, 1).getRestoredState().getOwnedCards();
+        assertTrue(owned.get(1));
+        assertFalse(owned.get(2));
+        assertTrue(owned.get(3));
+    }
+
+    /** Снимок после ошибки не содержит отброшенных событий */
+    @Test
+    public void snapshotAfterFailureMatchesDisk() throws Exception {
+        GameJournal journal = openFailing(3);
+        journal.append(GameEvent.cardOwned(1, true));
+        journal.flush();
+        failNextWrite.set(true);
+        journal.append(GameEvent.cardOwned(2, true));
+        journal.flush();
+        for (int i = 10; i < 20; i++) {
+            journal.append(GameEvent.cardOwned(i, true));
+            journal.flush();
+        }
+        journal.close();
+
+        BitSet owned = GameJournal.open(dir, 3, 1).getRestoredState().getOwnedCards();
+        assertEquals(11, owned.cardinality());
+        assertFalse(owned.get(2));
+    }
+
+    private GameJournal openFailing(int snapshotEvery) throws IOException {
+        return GameJournal.open(dir, snapshotEvery, 1,
+                file -> new FailingChannel(new RandomAccessFile(file, "rw").getChannel(), failNextWrite));
+    }
+
+    /** Канал сегмента, который по флагу записывает половину буфера и падает, как при сбое диска */
+    private static final class FailingChannel extends FileChannel {
+
+        private final FileChannel file;
+        private final AtomicBoolean failNext;
+
+        FailingChannel(FileChannel file, AtomicBoolean failNext) {
+            this.file = file;
+            this.failNext = failNext;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (!failNext.compareAndSet(true, false)) {
+                return file.write(src);
+            }
+            ByteBuffer half = src.duplicate();
+            half.limit(half.position() + half.remaining() / 2);
+            while (half.hasRemaining()) {
+                file.write(half);
+            }
+            src.position(half.position());
+            throw new IOException("Simulated write failure");
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return file.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return file.read(dsts, offset, length);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return file.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return file.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            file.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return file.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            file.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            file.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return file.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return file.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return file.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return file.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return file.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return file.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return file.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            file.close();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.couriersimulator.util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongIntMapTest {
+
+    @Test
+    public void putGetRemove() {
+        LongIntMap map = new LongIntMap();
+        map.put(7, 70);
+        map.put(-7, 700);
+        map.put(7, 71);
+
+        assertEquals(2, map.size());
+        assertEquals(71, map.get(7));
+        assertEquals(700, map.get(-7));
+        assertEquals(LongIntMap.MISSING, map.get(8));
+        assertEquals(71, map.remove(7));
+        assertEquals(LongIntMap.MISSING, map.remove(7));
+        assertFalse(map.containsKey(7));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void anyKeyIsAllowed() {
+        LongIntMap map = new LongIntMap();
+        long[] keys = {Long.MIN_VALUE, Long.MAX_VALUE, 0, -1};
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(i, map.get(keys[i]));
+        }
+    }
+
+    /** Удаление сдвигом: ключи из одной цепочки остаются достижимыми после удаления соседей */
+    @Test
+    public void matchesHashMapUnderChurn() {
+        Random random = new Random(1);
+        LongIntMap map = new LongIntMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 500_000; i++) {
+            // Узкий диапазон ключей — длинные цепочки и частые удаления из их середины
+            long key = random.nextInt(3000) - 1500;
+            if (random.nextInt(10) == 0) {
+                key = Long.MIN_VALUE + random.nextInt(3);
+            }
+            switch (random.nextInt(3)) {
+                case 0:
+                    int value = random.nextInt(1000);
+                    map.put(key, value);
+                    expected.put(key, value);
+                    break;
+                case 1:
+                    Integer gone = expected.remove(key);
+                    assertEquals(gone == null ? LongIntMap.MISSING : gone, map.remove(key));
+                    break;
+                default:
+                    Integer v = expected.get(key);
+                    assertEquals(v == null ? LongIntMap.MISSING : v, map.get(key));
+                    break;
+            }
+            assertEquals(expected.size(), map.size());
+        }
+    }
+
+    @Test
+    public void clearKeepsCapacity() {
+        LongIntMap map = new LongIntMap();
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, i);
+        }
+        long bytes = map.byteSize();
+
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        assertEquals(bytes, map.byteSize());
+        assertEquals(LongIntMap.MISSING, map.get(5));
+        map.put(5, 1);
+        assertEquals(1, map.get(5));
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.couriersimulator.macrobenchmark;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import kotlin.Unit;
+
+/**
+ * Сбор Baseline Profile: холодный запуск до готовой карты и открытие списка заказов.
+ * Нужен Android 13+ или эмулятор с root (pixel6Api31 в build.gradle).
+ * Результат (*-baseline-prof.txt в outputs/connected_android_test_additional_output)
+ * копируется в app/src/main/baseline-prof.txt.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileGenerator {
+
+    @Rule
+    public BaselineProfileRule rule = new BaselineProfileRule();
+
+    @Test
+    public void generate() {
+        rule.collect(
+                MainScreen.PACKAGE_NAME,
+                15,
+                3,
+                null,
+                true,
+                false,
+                name -> true,
+                scope -> {
+                    MainScreen.grantLocation(scope);
+                    scope.pressHome();
+                    MainScreen.startAndWaitForMap(scope);
+                    MainScreen.openOrders(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+}
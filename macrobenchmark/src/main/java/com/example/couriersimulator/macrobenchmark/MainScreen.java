@@ -0,0 +1,52 @@
+package com.example.couriersimulator.macrobenchmark;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import java.io.IOException;
+
+/** Действия с главным экраном приложения для бенчмарков */
+final class MainScreen {
+
+    static final String PACKAGE_NAME = "com.example.couriersimulator";
+
+    private static final long MAP_TIMEOUT_MS = 10_000;
+
+    private MainScreen() {
+    }
+
+    /** Разрешение выдаётся заранее, чтобы системный диалог не попадал в замер */
+    static void grantLocation(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        try {
+            device.executeShellCommand("pm grant " + PACKAGE_NAME
+                    + " android.permission.ACCESS_FINE_LOCATION");
+            device.executeShellCommand("pm grant " + PACKAGE_NAME
+                    + " android.permission.ACCESS_COARSE_LOCATION");
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot grant location permission", e);
+        }
+    }
+
+    /** Холодный запуск и ожидание карты (MapView создаётся на втором этапе запуска) */
+    static void startAndWaitForMap(MacrobenchmarkScope scope) {
+        scope.startActivityAndWait();
+        if (!scope.getDevice().wait(Until.hasObject(By.res(PACKAGE_NAME, "map")), MAP_TIMEOUT_MS)) {
+            throw new IllegalStateException("Map did not appear in " + MAP_TIMEOUT_MS + " ms");
+        }
+    }
+
+    /** Открыть и закрыть список заказов (если заказов ещё нет, покажется только тост) */
+    static void openOrders(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        UiObject2 orders = device.findObject(By.res(PACKAGE_NAME, "btnOrders"));
+        if (orders != null) {
+            orders.click();
+            device.waitForIdle();
+            device.pressBack();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.couriersimulator.macrobenchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * Холодный запуск главного экрана.
+ * StartupTimingMetric даёт два числа:
+ * - timeToInitialDisplayMs — первый кадр (оболочка с кнопками)
+ * - timeToFullDisplayMs — карта разложена и отвечает на жесты (reportFullyDrawn
+ *   в MainActivity.onMapInteractive)
+ * Два варианта компиляции показывают выигрыш от Baseline Profile.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+
+    private static final int ITERATIONS = 10;
+
+    @Rule
+    public MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    @Test
+    public void startupWithoutCompilation() {
+        measure(new CompilationMode.None());
+    }
+
+    @Test
+    public void startupWithBaselineProfile() {
+        measure(new CompilationMode.Partial(BaselineProfileMode.Require));
+    }
+
+    private void measure(CompilationMode compilationMode) {
+        rule.measureRepeated(
+                MainScreen.PACKAGE_NAME,
+                Collections.singletonList(new StartupTimingMetric()),
+                compilationMode,
+                StartupMode.COLD,
+                ITERATIONS,
+                scope -> {
+                    MainScreen.grantLocation(scope);
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    MainScreen.startAndWaitForMap(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+}